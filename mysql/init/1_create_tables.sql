@@ -15,7 +15,17 @@ CREATE TABLE IF NOT EXISTS `track_channel` (
     `player_uuid_v` CHAR(36) AS (IF(`player_uuid` IS NULL, '00000000-0000-0000-0000-000000000000', `player_uuid`)) VIRTUAL,
     UNIQUE KEY (`type`, `guild_id`, `channel_id`, `guild_name_v`, `player_uuid_v`),
     KEY `guild_name_type_idx` (`guild_name`, `type`),
-    KEY `player_uuid_type_idx` (`player_uuid`, `type`)
+    KEY `player_uuid_type_idx` (`player_uuid`, `type`),
+    # Added to existing tables by the bot on the first expiry check
+    KEY `expires_at_idx` (`expires_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+# Webhooks to deliver tracking messages through, opted-in per channel
+CREATE TABLE IF NOT EXISTS `track_webhook` (
+    `channel_id` BIGINT PRIMARY KEY NOT NULL,
+    `guild_id` BIGINT NOT NULL,
+    `webhook_id` BIGINT NOT NULL,
+    `webhook_url` VARCHAR(255) NOT NULL
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 CREATE TABLE IF NOT EXISTS `player_number` (
@@ -94,7 +104,7 @@ CREATE TABLE IF NOT EXISTS `territory` (
     KEY `acquired_idx` (`acquired`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
-# Territory log is to be automatically updated by triggers, on `territory` table update
+# Territory log is to be updated in the code, along with the `territory` table update
 CREATE TABLE IF NOT EXISTS `territory_log` (
     `id` INT AUTO_INCREMENT PRIMARY KEY NOT NULL,
     `territory_name` VARCHAR(100) NOT NULL,
@@ -197,29 +207,13 @@ CREATE TABLE IF NOT EXISTS `player_war_leaderboard` (
 
 ### ----- Functions and Triggers -----
 
-DROP FUNCTION IF EXISTS `count_guild_territories`;
-DELIMITER //
-CREATE FUNCTION `count_guild_territories` (g_name VARBINARY(30)) RETURNS INT
-    BEGIN
-        RETURN (SELECT COUNT(*) FROM `territory` WHERE `guild_name` = g_name);
-    END; //
-DELIMITER ;
+# `territory_log` rows are inserted in the code from the diff of the territory list,
+# in the same transaction as the `territory` table update.
+# The bot also drops this trigger on existing databases on the first territory update, and leaves the logs to the trigger if it cannot.
+DROP TRIGGER IF EXISTS `territory_logger`;
 
-# On `territory` table, if `guild` column (owner of the territory) was updated... insert into `territory_log` table
-DELIMITER //
-CREATE TRIGGER IF NOT EXISTS `territory_logger`
-    AFTER UPDATE ON `territory` FOR EACH ROW
-    BEGIN
-        # on guild column update
-        IF IF(NEW.guild_name <=> OLD.guild_name, 0, 1) THEN
-            INSERT INTO `territory_log`
-                (territory_name, old_guild_name, new_guild_name, old_guild_terr_amt, new_guild_terr_amt, acquired, time_diff)
-                VALUES (NEW.name, OLD.guild_name, NEW.guild_name,
-                        count_guild_territories(OLD.guild_name), count_guild_territories(NEW.guild_name),
-                        NEW.acquired, (UNIX_TIMESTAMP(NEW.acquired) - UNIX_TIMESTAMP(OLD.acquired)) * 1000);
-        END IF;
-    END; //
-DELIMITER ;
+# Number of territories per guild is maintained in the code
+DROP FUNCTION IF EXISTS `count_guild_territories`;
 
 # Selects id of the last war log for guild that is not yet associated to an territory log
 DROP FUNCTION IF EXISTS `last_unassociated_war_log_id`;
@@ -500,6 +494,8 @@ CREATE TABLE IF NOT EXISTS `music_queue` (
     `url` VARCHAR(500) NOT NULL,
     `position` BIGINT NOT NULL,
     `updated_at` DATETIME DEFAULT NOW() ON UPDATE NOW(),
+    # base64 of the track encoded by LavaPlayer, NULL if failed to encode
+    `track_data` TEXT NULL,
     UNIQUE KEY `guild_id_index_idx` (`guild_id`, `index`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
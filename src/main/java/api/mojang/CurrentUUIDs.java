@@ -8,10 +8,12 @@ import utils.HttpUtils;
 import utils.UUID;
 import utils.cache.DataCache;
 import utils.cache.HashMapDataCache;
+import utils.rateLimit.RateLimitException;
 import utils.rateLimit.RateLimiter;
 
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -45,31 +47,43 @@ class CurrentUUIDs {
     /**
      * POST https://api.mojang.com/profiles/minecraft, given names are assumed to not be in cache.
      * @param names Player names (player readable form). Size has to be less than or equal to 10.
-     * @return Map of player names to UUIDs.
+     * @return Future of map of player names to UUIDs. Completes with null if something went wrong.
      */
-    @Nullable
-    private Map<String, NullableUUID> getUUIDs(List<String> names) {
+    private CompletableFuture<Map<String, NullableUUID>> getUUIDs(List<String> names) {
         if (names.isEmpty() || names.size() > NAME_TO_UUID_PLAYERS_PER_REQUEST) {
             throw new IllegalArgumentException("Length of list of names has to be less than or equal to " + NAME_TO_UUID_PLAYERS_PER_REQUEST);
         }
 
         try {
             rateLimiter.checkRequest();
+        } catch (RateLimitException e) {
+            this.logger.logException("Something went wrong while requesting Mojang API", e);
+            return CompletableFuture.completedFuture(null);
+        }
 
-            long start = System.nanoTime();
-            String postBody = String.format(
-                    "[%s]",
-                    names.stream().map(n -> "\"" + n + "\"").collect(Collectors.joining(","))
-            );
-            String data = HttpUtils.postJson(NAME_TO_UUID_URL, postBody);
-            long end = System.nanoTime();
+        long start = System.nanoTime();
+        String postBody = String.format(
+                "[%s]",
+                names.stream().map(n -> "\"" + n + "\"").collect(Collectors.joining(","))
+        );
+        return HttpUtils.postJsonAsync("mojang_profiles", NAME_TO_UUID_URL, postBody).handle((data, e) -> {
+            if (e != null) {
+                this.logger.logException("Something went wrong while requesting Mojang API", e);
+                return null;
+            }
 
+            long end = System.nanoTime();
             this.logger.debug(String.format("Mojang API: Requested names -> UUID for %s players, took %s ms",
                     names.size(), (double) (end - start) / 1_000_000d));
 
             if (data == null) return null;
+            return parseUUIDs(names, data);
+        });
+    }
 
-            // parse data
+    @Nullable
+    private Map<String, NullableUUID> parseUUIDs(List<String> names, String data) {
+        try {
             Map<String, NullableUUID> ret = new HashMap<>();
             NameToUUID[] parsed = mapper.readValue(data, NameToUUID[].class);
             Map<String, String> returnedUUIDs = Arrays.stream(parsed).collect(Collectors.toMap(NameToUUID::getName, NameToUUID::getId));
@@ -109,12 +123,18 @@ class CurrentUUIDs {
             return ret;
         }
 
+        // Send all chunks at once, and wait for all of them
         int count = ((namesToRequest.size() - 1) / 10) + 1;
+        List<CompletableFuture<Map<String, NullableUUID>>> requests = new ArrayList<>(count);
         for (int i = 0; i < count; i++) {
             int start = i * NAME_TO_UUID_PLAYERS_PER_REQUEST;
             int end = Math.min((i + 1) * NAME_TO_UUID_PLAYERS_PER_REQUEST, namesToRequest.size());
 
-            Map<String, NullableUUID> res = getUUIDs(namesToRequest.subList(start, end));
+            requests.add(getUUIDs(List.copyOf(namesToRequest.subList(start, end))));
+        }
+
+        for (CompletableFuture<Map<String, NullableUUID>> request : requests) {
+            Map<String, NullableUUID> res = request.join();
             if (res == null) {
                 return null;
             }
@@ -4,9 +4,10 @@ import api.mojang.structs.NameHistory;
 import api.mojang.structs.NullableUUID;
 import log.Logger;
 import org.slf4j.LoggerFactory;
+import utils.HttpUtils;
 import utils.UUID;
 import utils.rateLimit.RateLimiter;
-import utils.rateLimit.WaitableRateLimiter;
+import utils.rateLimit.TokenBucketRateLimiter;
 
 import javax.annotation.Nullable;
 import java.util.List;
@@ -21,14 +22,20 @@ public class MojangApi {
     static {
         // As of Dec 29th, 2019, the rate limit is 600 reqs / 10 minutes
         // So 1 req / s at max
+        // Used as the initial rate, the limiter backs off on 429 afterwards.
         final int rateLimitPerTenMinutes = 600;
         final int maxRequestStacks = 5;
+        final int maxQueuedRequests = 50;
         final long waitBetweenRequests = TimeUnit.MINUTES.toMillis(10) / rateLimitPerTenMinutes;
         org.slf4j.Logger logger = LoggerFactory.getLogger(MojangApi.class);
         logger.info("Setting Mojang API minimum request wait time to " + waitBetweenRequests + " ms. " +
                 "(i.e. " + rateLimitPerTenMinutes + " requests per 10 minutes)");
 
-        rateLimiter = new WaitableRateLimiter("Mojang", waitBetweenRequests, maxRequestStacks);
+        rateLimiter = new TokenBucketRateLimiter("Mojang", waitBetweenRequests, maxRequestStacks, maxQueuedRequests);
+
+        HttpUtils.setMaxConnections("https://api.mojang.com", maxRequestStacks);
+        // Adapt to the actual rate limit returned by the API
+        HttpUtils.setRateLimitListener("https://api.mojang.com", rateLimiter::onResponse);
     }
 
     // ----- API instance -----
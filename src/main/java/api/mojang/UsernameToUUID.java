@@ -43,7 +43,7 @@ class UsernameToUUID {
         try {
             long start = System.nanoTime();
             String url = String.format(USERNAME_TO_UUID_AT_TIME, username, unixMillis / 1000);
-            String data = HttpUtils.get(url);
+            String data = HttpUtils.get("mojang_uuid_at_time", url);
             long end = System.nanoTime();
 
             this.logger.debug(String.format("Mojang API: Requested UUID of %s at %s, took %s ms",
@@ -81,7 +81,7 @@ class UsernameToUUID {
         try {
             long start = System.nanoTime();
             String url = String.format(UUID_TO_NAME_HISTORY, uuid.toString());
-            String data = HttpUtils.get(url);
+            String data = HttpUtils.get("mojang_name_history", url);
             long end = System.nanoTime();
 
             this.logger.debug(String.format("Mojang API: Requested name history of %s, took %s ms",
@@ -33,7 +33,7 @@ public class TheCatApi {
     private CatResponse requestCat() {
         try {
             long start = System.nanoTime();
-            String body = HttpUtils.get(THE_CAT_API_URL);
+            String body = HttpUtils.get("thecatapi_search", THE_CAT_API_URL);
             long end = System.nanoTime();
             this.logger.debug(String.format("The Cat API: Requested a cat image, took %s ms",
                     (double) (end - start) / 1_000_000d));
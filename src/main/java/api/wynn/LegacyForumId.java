@@ -45,6 +45,7 @@ class LegacyForumId {
         try {
             long start = System.nanoTime();
             String body = HttpUtils.get(
+                    "wynn_forum_id",
                     String.format(this.baseURL + forumIdPath, playerName)
             );
             long end = System.nanoTime();
@@ -39,7 +39,7 @@ class LegacyItemDB {
 
         try {
             long start = System.nanoTime();
-            String body = HttpUtils.get(this.baseURL + ITEM_DB_PATH);
+            String body = HttpUtils.get("wynn_item_db", this.baseURL + ITEM_DB_PATH);
             long end = System.nanoTime();
             this.logger.debug(String.format("Wynn API: Requested item list, took %s ms.", (double) (end - start) / 1_000_000d));
 
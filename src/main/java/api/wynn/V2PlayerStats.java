@@ -55,7 +55,7 @@ class V2PlayerStats {
     private Player requestPlayerStatistics(String playerName) {
         try {
             long start = System.nanoTime();
-            String body = HttpUtils.get(String.format(this.url, playerName), PLAYER_NOT_FOUND);
+            String body = HttpUtils.get("wynn_player_stats", String.format(this.url, playerName), PLAYER_NOT_FOUND);
             long end = System.nanoTime();
             if (body == null) throw new Exception("returned body was null");
             this.logger.debug(String.format("Wynn API: Requested player stats for %s, took %s ms.", playerName, (double) (end - start) / 1_000_000d));
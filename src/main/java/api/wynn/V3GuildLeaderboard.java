@@ -26,7 +26,7 @@ class V3GuildLeaderboard {
             this.rateLimiter.checkRequest();
 
             long start = System.nanoTime();
-            String body = HttpUtils.get(this.baseURL + guildLeaderboardPath);
+            String body = HttpUtils.get("wynn_guild_leaderboard", this.baseURL + guildLeaderboardPath);
             long end = System.nanoTime();
             this.logger.debug(String.format("Wynn API: Requested guild leaderboard, took %s ms.", (double) (end - start) / 1_000_000d));
 
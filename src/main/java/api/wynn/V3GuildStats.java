@@ -9,7 +9,10 @@ import utils.cache.DataCache;
 import utils.cache.HashMapDataCache;
 import utils.rateLimit.RateLimitException;
 import utils.rateLimit.RateLimiter;
+import utils.rateLimit.RequestPriority;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 
 class V3GuildStats {
@@ -49,17 +52,42 @@ class V3GuildStats {
         return requestGuildStats(guildName);
     }
 
+    CompletableFuture<WynnGuild> getGuildStatsAsync(String guildName, RequestPriority priority) {
+        if (guildStatsCache.exists(guildName)) {
+            return CompletableFuture.completedFuture(guildStatsCache.get(guildName));
+        }
+
+        long start = System.nanoTime();
+        return this.rateLimiter.acquire(priority)
+                .thenCompose(v -> HttpUtils.getAsync("wynn_guild_stats", getURL(guildName), 404))
+                .handle((body, e) -> {
+                    long end = System.nanoTime();
+                    this.logger.debug(String.format("Wynn API: Requested guild stats for %s (async), took %s ms.", guildName, (double) (end - start) / 1_000_000d));
+                    return handleResponse(guildName, body, e instanceof CompletionException ? e.getCause() : e);
+                });
+    }
+
+    private String getURL(String guildName) {
+        return String.format(this.baseURL + guildStatsPath, HttpUtils.encodeValue(guildName));
+    }
+
     @Nullable
     private WynnGuild requestGuildStats(String guildName) {
         try {
             long start = System.nanoTime();
-            String body = HttpUtils.get(
-                    String.format(this.baseURL + guildStatsPath, HttpUtils.encodeValue(guildName)),
-                    404
-            );
+            String body = HttpUtils.get("wynn_guild_stats", getURL(guildName), 404);
             long end = System.nanoTime();
             this.logger.debug(String.format("Wynn API: Requested guild stats for %s, took %s ms.", guildName, (double) (end - start) / 1_000_000d));
+            return handleResponse(guildName, body, null);
+        } catch (Exception e) {
+            return handleResponse(guildName, null, e);
+        }
+    }
 
+    @Nullable
+    private WynnGuild handleResponse(String guildName, @Nullable String body, @Nullable Throwable error) {
+        try {
+            if (error != null) throw error;
             if (body == null) throw new Exception("returned body was null");
 
             WynnGuild guild = new WynnGuild(body);
@@ -69,7 +97,7 @@ class V3GuildStats {
             this.logger.debug(String.format("Wynn API: Guild %s not found", guildName));
             guildStatsCache.add(guildName, null);
             return null;
-        } catch (Exception e) {
+        } catch (Throwable e) {
             this.logger.logException(String.format("an exception occurred while requesting / parsing guild stats for %s",
                     guildName
             ), e);
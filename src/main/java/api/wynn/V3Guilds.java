@@ -26,7 +26,7 @@ class V3Guilds {
 
         try {
             long start = System.nanoTime();
-            String body = HttpUtils.get(this.baseURL + guildListPath);
+            String body = HttpUtils.get("wynn_guild_list", this.baseURL + guildListPath);
             long end = System.nanoTime();
             this.logger.debug(String.format("Wynn API: Requested guild list, took %s ms.", (double) (end - start) / 1_000_000d));
 
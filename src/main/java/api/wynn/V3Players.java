@@ -32,7 +32,7 @@ class V3Players {
 
         try {
             long start = System.nanoTime();
-            String body = HttpUtils.get(this.baseURL + onlinePlayersPath);
+            String body = HttpUtils.get("wynn_online_players", this.baseURL + onlinePlayersPath);
             long end = System.nanoTime();
             this.logger.debug(String.format("Wynn API: Requested online players list, took %s ms.", (double) (end - start) / 1_000_000d));
 
@@ -26,7 +26,7 @@ class V3Territories {
 
         try {
             long start = System.nanoTime();
-            String body = HttpUtils.get(this.baseURL + territoryListPath);
+            String body = HttpUtils.get("wynn_territory_list", this.baseURL + territoryListPath);
             long end = System.nanoTime();
             this.logger.debug(String.format("Wynn API: Requested territory list, took %s ms.", (double) (end - start) / 1_000_000d));
 
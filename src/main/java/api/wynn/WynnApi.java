@@ -4,12 +4,15 @@ import api.wynn.structs.*;
 import log.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.LoggerFactory;
+import utils.HttpUtils;
 import utils.rateLimit.RateLimitException;
 import utils.rateLimit.RateLimiter;
-import utils.rateLimit.WaitableRateLimiter;
+import utils.rateLimit.RequestPriority;
+import utils.rateLimit.TokenBucketRateLimiter;
 
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 public class WynnApi {
@@ -19,14 +22,21 @@ public class WynnApi {
 
     static {
         final int maxRequestStack = 5;
+        final int maxQueuedRequests = 50;
 
         // As of June 6th, 2020: rate limit for all endpoints (including legacy and V2) is 180 requests / 1 minute.
+        // Used as the initial rate, the limiter adapts to the rate limit headers afterwards.
         long waitBetweenRequests = TimeUnit.MINUTES.toMillis(1) / 180;
         org.slf4j.Logger logger = LoggerFactory.getLogger(WynnApi.class);
         logger.info(String.format("Wynn API: setting wait between requests to %s ms", waitBetweenRequests));
-        rateLimiter = new WaitableRateLimiter(
-                "Wynn", waitBetweenRequests, maxRequestStack
+        rateLimiter = new TokenBucketRateLimiter(
+                "Wynn", waitBetweenRequests, maxRequestStack, maxQueuedRequests
         );
+
+        // Allow heartbeat tasks and user commands to request concurrently
+        HttpUtils.setMaxConnections(baseURL, 2 * maxRequestStack);
+        // Adapt to the actual rate limit returned by the API
+        HttpUtils.setRateLimitListener(baseURL, rateLimiter::onResponse);
     }
 
     // ----- Legacy Routes -----
@@ -128,6 +138,17 @@ public class WynnApi {
         return this.v3GuildStats.mustGetGuildStats(guildName);
     }
 
+    /**
+     * Retrieve guild stats asynchronously.
+     * <br>The request waits for a rate limit permit of the given priority, without blocking the caller.
+     * @param guildName Guild name.
+     * @param priority Request priority.
+     * @return Future of guild stats. Completes with null if the guild was not found or something went wrong.
+     */
+    public CompletableFuture<WynnGuild> getGuildStatsAsync(String guildName, RequestPriority priority) {
+        return this.v3GuildStats.getGuildStatsAsync(guildName, priority);
+    }
+
     /**
      * Retrieve guild stats.
      * @param guildName Guild name.
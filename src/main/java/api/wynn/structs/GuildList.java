@@ -2,24 +2,21 @@ package api.wynn.structs;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
+import utils.JsonUtils;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class GuildList {
-    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectReader reader = JsonUtils.readerFor(new TypeReference<List<GuildListEntry>>() {});
 
     private final List<GuildListEntry> guilds;
 
     public GuildList(String body) throws JsonProcessingException {
-        this.guilds = new ArrayList<>();
-
-        var json = mapper.readTree(body);
-        for (int i = 0; i < json.size(); i++) {
-            var entry = json.get(i);
-            this.guilds.add(mapper.readValue(entry.toString(), GuildListEntry.class));
-        }
+        List<GuildListEntry> guilds = reader.readValue(body);
+        this.guilds = guilds != null ? guilds : new ArrayList<>();
     }
 
     public List<GuildListEntry> getGuilds() {
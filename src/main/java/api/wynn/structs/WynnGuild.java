@@ -2,7 +2,10 @@ package api.wynn.structs;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import utils.JsonUtils;
 
 import javax.annotation.Nullable;
 import java.text.DateFormat;
@@ -15,6 +18,7 @@ import java.util.List;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class WynnGuild {
     private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectReader bannerReader = JsonUtils.readerFor(Banner.class);
     private static final DateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSS");
     private static final DateFormat format2 = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
 
@@ -50,6 +54,7 @@ public class WynnGuild {
 
     private final int online;
 
+    @Nullable
     private final Banner banner;
 
     // seasonRanks;
@@ -92,7 +97,8 @@ public class WynnGuild {
 
         this.online = json.get("online").asInt();
 
-        this.banner = mapper.readValue(json.get("banner").toString(), Banner.class);
+        JsonNode banner = json.get("banner");
+        this.banner = banner != null && !banner.isNull() ? bannerReader.treeToValue(banner, Banner.class) : null;
 
         this.requestedAt = new Date();
     }
@@ -133,6 +139,7 @@ public class WynnGuild {
         return online;
     }
 
+    @Nullable
     public Banner getBanner() {
         return banner;
     }
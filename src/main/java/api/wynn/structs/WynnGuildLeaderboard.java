@@ -3,31 +3,29 @@ package api.wynn.structs;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.jetbrains.annotations.Nullable;
+import utils.JsonUtils;
 
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 public class WynnGuildLeaderboard {
-    private static final ObjectMapper mapper = new ObjectMapper();
+    // rank (as string) -> guild, binds directly without building an intermediate tree
+    private static final ObjectReader reader = JsonUtils.readerFor(new TypeReference<LinkedHashMap<String, Guild>>() {});
     private static final DateFormat apiFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSS");
 
     private final List<Guild> data;
 
     public WynnGuildLeaderboard(String body) throws JsonProcessingException {
-        this.data = new ArrayList<>();
-
-        var json = mapper.readTree(body);
-        for (var i = json.fields(); i.hasNext(); ) {
-            var entry = i.next();
-            var value = entry.getValue();
-            this.data.add(mapper.readValue(value.toString(), Guild.class));
-        }
+        LinkedHashMap<String, Guild> ranks = reader.readValue(body);
+        this.data = ranks != null ? new ArrayList<>(ranks.values()) : new ArrayList<>();
     }
 
     public List<Guild> getData() {
@@ -18,6 +18,7 @@ import update.UpdaterFactory;
 import update.button.ButtonClickManager;
 import utils.FormatUtils;
 import utils.StoppableThread;
+import utils.cache.DataVersions;
 
 import javax.security.auth.login.LoginException;
 import java.util.Date;
@@ -34,6 +35,10 @@ public class App implements Runnable, Bot {
 
     private final ButtonClickManager buttonClickManager;
 
+    private final DataVersions dataVersions;
+
+    private final ServerLogRoutes serverLogRoutes;
+
     private final StoppableThread heartBeat;
 
     private final boolean[] connected;
@@ -63,6 +68,16 @@ public class App implements Runnable, Bot {
         return this.buttonClickManager;
     }
 
+    @Override
+    public DataVersions getDataVersions() {
+        return this.dataVersions;
+    }
+
+    @Override
+    public ServerLogRoutes getServerLogRoutes() {
+        return this.serverLogRoutes;
+    }
+
     @Override
     public int getShardId(JDA jda) {
         List<JDA> shards = this.manager.getShards();
@@ -114,6 +129,7 @@ public class App implements Runnable, Bot {
         this.properties = properties;
         this.logger = new ConsoleLogger();
         this.buttonClickManager = updaterFactory.getButtonClickManager();
+        this.dataVersions = new DataVersions();
 
         this.manager = DefaultShardManagerBuilder.createDefault(this.properties.botAccessToken)
                 // For server log feature
@@ -136,6 +152,7 @@ public class App implements Runnable, Bot {
         this.logger = new DiscordLogger(this, this.properties.logTimeZone);
 
         this.database = new DatabaseMariaImpl(this.logger);
+        this.serverLogRoutes = new ServerLogRoutes(this.database.getServerLogRepository(), this.logger);
 
         this.heartBeat = new HeartBeat(this);
         this.heartBeat.setName("moto-bot heartbeat");
@@ -200,6 +217,9 @@ public class App implements Runnable, Bot {
 
     public void onShutDown() {
         this.logger.log(0, "Bot shutting down...");
+        if (this.logger instanceof DiscordLogger discordLogger) {
+            discordLogger.shutdown();
+        }
         this.logger = new ConsoleLogger();
         this.heartBeat.terminate();
     }
@@ -5,6 +5,7 @@ import log.Logger;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.sharding.ShardManager;
 import update.button.ButtonClickManager;
+import utils.cache.DataVersions;
 
 public interface Bot {
     ShardManager getManager();
@@ -12,6 +13,8 @@ public interface Bot {
     Database getDatabase();
     Logger getLogger();
     ButtonClickManager getButtonClickManager();
+    DataVersions getDataVersions();
+    ServerLogRoutes getServerLogRoutes();
 
     int getShardId(JDA jda);
     void setConnected(int shardId, boolean connected);
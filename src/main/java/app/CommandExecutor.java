@@ -0,0 +1,143 @@
+package app;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Executes commands with a concurrency limit per command kind (bulkhead),
+ * so that slow commands of one kind cannot occupy all workers.
+ * <br>Commands over the limit are queued per user and run in round-robin order of the users,
+ * so that one user issuing many commands does not delay the others.
+ * If the queue of the kind or of the user is full, the command is rejected.
+ */
+class CommandExecutor {
+    private static final Histogram QUEUE_WAIT = Histogram.build()
+            .name("moto_bot_command_queue_wait_seconds")
+            .help("Time commands waited for a free slot of their kind before being executed.")
+            .labelNames("kind")
+            .buckets(0.001, 0.01, 0.05, 0.1, 0.5, 1, 2.5, 5, 10)
+            .register();
+    private static final Gauge RUNNING = Gauge.build()
+            .name("moto_bot_command_running")
+            .help("Number of commands being executed per command kind.")
+            .labelNames("kind")
+            .register();
+    private static final Counter REJECTED = Counter.build()
+            .name("moto_bot_command_rejected")
+            .help("Number of commands rejected because the queue was full, per command kind and reason.")
+            .labelNames("kind", "reason")
+            .register();
+
+    private final Executor executor;
+    private final int maxRunningPerKind;
+    private final int maxQueuedPerKind;
+    private final int maxQueuedPerUser;
+
+    private final Map<String, Bulkhead> bulkheads;
+
+    /**
+     * @param executor Executor to run commands on.
+     * @param maxRunningPerKind Max number of commands of the same kind executed concurrently.
+     * @param maxQueuedPerKind Max number of commands of the same kind waiting to be executed.
+     * @param maxQueuedPerUser Max number of commands of the same kind a user can have waiting.
+     */
+    CommandExecutor(Executor executor, int maxRunningPerKind, int maxQueuedPerKind, int maxQueuedPerUser) {
+        this.executor = executor;
+        this.maxRunningPerKind = maxRunningPerKind;
+        this.maxQueuedPerKind = maxQueuedPerKind;
+        this.maxQueuedPerUser = maxQueuedPerUser;
+        this.bulkheads = new ConcurrentHashMap<>();
+    }
+
+    private record Task(String kind, Runnable runnable, long queuedAt) {
+    }
+
+    private static class Bulkhead {
+        private int running;
+        private int queued;
+        /**
+         * User id -> queued tasks. Iteration order is the order users are served in.
+         */
+        private final LinkedHashMap<Long, Deque<Task>> queues = new LinkedHashMap<>();
+    }
+
+    /**
+     * Submits a command to be executed.
+     * @param kind Command kind.
+     * @param userId ID of the user who issued the command.
+     * @param runnable Command.
+     * @return {@code false} if the command was rejected.
+     */
+    boolean submit(String kind, long userId, Runnable runnable) {
+        Bulkhead bulkhead = this.bulkheads.computeIfAbsent(kind, k -> new Bulkhead());
+        Task task = new Task(kind, runnable, System.nanoTime());
+        synchronized (bulkhead) {
+            if (bulkhead.running < this.maxRunningPerKind) {
+                bulkhead.running++;
+            } else {
+                if (bulkhead.queued >= this.maxQueuedPerKind) {
+                    REJECTED.labels(kind, "kind").inc();
+                    return false;
+                }
+                Deque<Task> queue = bulkhead.queues.computeIfAbsent(userId, id -> new ArrayDeque<>());
+                if (queue.size() >= this.maxQueuedPerUser) {
+                    REJECTED.labels(kind, "user").inc();
+                    return false;
+                }
+                queue.addLast(task);
+                bulkhead.queued++;
+                return true;
+            }
+        }
+        this.start(bulkhead, task);
+        return true;
+    }
+
+    private void start(Bulkhead bulkhead, Task task) {
+        QUEUE_WAIT.labels(task.kind()).observe((double) (System.nanoTime() - task.queuedAt()) / 1_000_000_000d);
+        RUNNING.labels(task.kind()).inc();
+        this.executor.execute(() -> {
+            try {
+                task.runnable().run();
+            } finally {
+                RUNNING.labels(task.kind()).dec();
+                Task next = this.next(bulkhead);
+                if (next != null) {
+                    this.start(bulkhead, next);
+                }
+            }
+        });
+    }
+
+    /**
+     * Retrieves the next task to run in place of a finished one, from the next user in order.
+     * @return Next task. null if none is queued, in which case the slot is released.
+     */
+    private Task next(Bulkhead bulkhead) {
+        synchronized (bulkhead) {
+            Iterator<Map.Entry<Long, Deque<Task>>> it = bulkhead.queues.entrySet().iterator();
+            if (!it.hasNext()) {
+                bulkhead.running--;
+                return null;
+            }
+            Map.Entry<Long, Deque<Task>> first = it.next();
+            Task task = first.getValue().pollFirst();
+            // Move the user to the back of the order
+            it.remove();
+            if (!first.getValue().isEmpty()) {
+                bulkhead.queues.put(first.getKey(), first.getValue());
+            }
+            bulkhead.queued--;
+            return task;
+        }
+    }
+}
@@ -21,28 +21,39 @@ import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.events.interaction.SlashCommandEvent;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
-import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import org.jetbrains.annotations.NotNull;
 import utils.MinecraftColor;
 
 import javax.annotation.Nonnull;
 import java.util.Date;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
-public class CommandListener extends ListenerAdapter {
+public class CommandListener extends TimedListenerAdapter {
     private static final Counter COMMANDS_COUNTER = Counter.build()
             .name("moto_bot_commands")
             .help("Counts of moto-bot command usage per command kind.")
             .labelNames("kind")
             .register();
 
+    // Commands mostly block on DB and HTTP; with virtual threads, only the bulkheads limit the concurrency
+    private static final int MAX_RUNNING_PER_KIND = 10;
+    private static final int PLATFORM_THREADS = 5;
+    // Leave at least half of the platform threads to the other kinds
+    private static final int PLATFORM_MAX_RUNNING_PER_KIND = Math.max(1, PLATFORM_THREADS / 2);
+    private static final int MAX_QUEUED_PER_KIND = 50;
+    private static final int MAX_QUEUED_PER_USER = 3;
+
+    // Prefix and ignore lookups are done on these workers, not on the gateway thread
+    private static final int EVENT_WORKERS = 4;
+    private static final int EVENT_QUEUE_CAPACITY = 500;
+
     private final Bot bot;
 
     private final CommandComplex commands;
 
-    private final ExecutorService threadPool;
+    private final CommandExecutor executor;
+    private final EventOffloader offloader;
 
     private final Logger logger;
     private final String defaultPrefix;
@@ -54,11 +65,17 @@ public class CommandListener extends ListenerAdapter {
     private final DiscordSpamChecker spamChecker;
 
     CommandListener(Bot bot) {
+        super("command");
         this.bot = bot;
 
-        this.threadPool = Executors.newFixedThreadPool(5);
+        this.executor = bot.getProperties().commandVirtualThreads
+                ? new CommandExecutor(Executors.newVirtualThreadPerTaskExecutor(),
+                MAX_RUNNING_PER_KIND, MAX_QUEUED_PER_KIND, MAX_QUEUED_PER_USER)
+                : new CommandExecutor(Executors.newFixedThreadPool(PLATFORM_THREADS),
+                PLATFORM_MAX_RUNNING_PER_KIND, MAX_QUEUED_PER_KIND, MAX_QUEUED_PER_USER);
 
         this.logger = bot.getLogger();
+        this.offloader = new EventOffloader("command", this.logger, EVENT_WORKERS, EVENT_QUEUE_CAPACITY);
         this.defaultPrefix = bot.getProperties().prefix;
 
         this.commandLogRepository = bot.getDatabase().getCommandLogRepository();
@@ -156,7 +173,7 @@ public class CommandListener extends ListenerAdapter {
             return;
         }
 
-        this.threadPool.execute(() -> {
+        this.submit(commandEvent, res, () -> {
             processCommand(commandEvent, res, args);
             addCommandLog(res.base(), commandMessage, commandEvent);
             COMMANDS_COUNTER.labels(res.base()).inc();
@@ -177,6 +194,25 @@ public class CommandListener extends ListenerAdapter {
             return;
         }
 
+        // Prefix and ignore lookups query the DB; keyed by author to keep the order of each user's commands
+        if (!this.offloader.submit(event.getAuthor().getIdLong(), () -> handleMessage(event))) {
+            this.onMessageDropped(event);
+        }
+    }
+
+    /**
+     * Tells the user to retry, if the dropped message looks like a command.
+     * Custom prefixes are not known without querying the DB, so only the default prefix is checked here.
+     */
+    private void onMessageDropped(@Nonnull MessageReceivedEvent event) {
+        String rawMessage = event.getMessage().getContentRaw();
+        if (!rawMessage.startsWith(this.defaultPrefix)) return;
+        String[] args = rawMessage.substring(this.defaultPrefix.length()).split("\\s+");
+        if (this.commands.getCommand(args) == null) return;
+        this.replyBusy(new MessageReceivedEventAdapter(event, this.bot));
+    }
+
+    private void handleMessage(@Nonnull MessageReceivedEvent event) {
         // Check prefix
         String prefix = getPrefix(event);
         String rawMessage = event.getMessage().getContentRaw();
@@ -199,13 +235,29 @@ public class CommandListener extends ListenerAdapter {
             return;
         }
 
-        this.threadPool.execute(() -> {
-            processCommand(new MessageReceivedEventAdapter(event, this.bot), res, args);
-            addCommandLog(res.base(), commandMessage, new MessageReceivedEventAdapter(event, this.bot));
+        CommandEvent commandEvent = new MessageReceivedEventAdapter(event, this.bot);
+        this.submit(commandEvent, res, () -> {
+            processCommand(commandEvent, res, args);
+            addCommandLog(res.base(), commandMessage, commandEvent);
             COMMANDS_COUNTER.labels(res.base()).inc();
         });
     }
 
+    private void submit(CommandEvent event, CommandComplex.Result res, Runnable runnable) {
+        if (!this.executor.submit(res.base(), event.getAuthor().getIdLong(), runnable)) {
+            this.replyBusy(event);
+        }
+    }
+
+    private void replyBusy(CommandEvent event) {
+        event.reply(new EmbedBuilder()
+                        .setColor(MinecraftColor.RED.getColor())
+                        .setTitle("Busy!")
+                        .setDescription("Too many commands are being processed right now. Please try again in a moment.")
+                        .build(),
+                s -> s.deleteAfter(10, TimeUnit.SECONDS));
+    }
+
     private void processCommand(@Nonnull CommandEvent event, CommandComplex.Result res, String[] args) {
         this.logger.debug("Processing command event: " + event.getContentRaw());
 
@@ -218,11 +270,10 @@ public class CommandListener extends ListenerAdapter {
         }
 
         // Check spam and log event
-        boolean isSpam = this.spamChecker.isSpam(event, command.getCoolDown());
+        long remainingCoolDown = this.spamChecker.check(event.getAuthor().getIdLong(), res.base(), command.getCoolDown());
+        boolean isSpam = remainingCoolDown > 0;
         this.logger.logEvent(event, isSpam);
         if (isSpam) {
-            long userId = event.getAuthor().getIdLong();
-            long remainingCoolDown = this.spamChecker.nextCoolDownExpire(userId);
             event.reply(new EmbedBuilder()
                             .setColor(MinecraftColor.RED.getColor())
                             .setTitle("Slow down!")
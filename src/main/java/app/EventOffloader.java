@@ -0,0 +1,111 @@
+package app;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import log.Logger;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the parts of JDA event handlers that need I/O (DB queries, HTTP requests) off the gateway event thread,
+ * so that a slow DB does not stall the event processing of the shard.
+ * <br>Tasks are distributed to single-threaded workers by a key, so that tasks with the same key
+ * (e.g. events of the same guild) are processed in the order they were received.
+ * If the queue of the worker is full, the task is dropped, unless it is submitted by {@link #submitAlways}.
+ */
+class EventOffloader {
+    private static final Histogram QUEUE_WAIT = Histogram.build()
+            .name("moto_bot_event_offload_wait_seconds")
+            .help("Time offloaded event handlers waited before being processed, per listener.")
+            .labelNames("listener")
+            .buckets(0.001, 0.01, 0.05, 0.1, 0.5, 1, 5)
+            .register();
+    private static final Counter DROPPED = Counter.build()
+            .name("moto_bot_event_offload_dropped")
+            .help("Number of offloaded event handlers dropped because the queue was full, per listener.")
+            .labelNames("listener")
+            .register();
+
+    private final String name;
+    private final Logger logger;
+    private final int queueCapacity;
+    private final ExecutorService[] workers;
+    // Number of tasks waiting in the queue of each worker
+    private final AtomicInteger[] queued;
+
+    /**
+     * @param name Listener name, used to label metrics and name threads.
+     * @param logger Logger.
+     * @param workers Number of worker threads.
+     * @param queueCapacity Max number of pending tasks per worker, for tasks that can be dropped.
+     */
+    EventOffloader(String name, Logger logger, int workers, int queueCapacity) {
+        this.name = name;
+        this.logger = logger;
+        this.queueCapacity = queueCapacity;
+        this.workers = new ExecutorService[workers];
+        this.queued = new AtomicInteger[workers];
+        for (int i = 0; i < workers; i++) {
+            String threadName = "moto-bot " + name + " event-" + i;
+            this.queued[i] = new AtomicInteger();
+            // Unbounded, the capacity is checked on submit so that tasks which must not be dropped can always be queued
+            this.workers[i] = new ThreadPoolExecutor(
+                    1, 1,
+                    0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(),
+                    r -> {
+                        Thread t = new Thread(r, threadName);
+                        t.setDaemon(true);
+                        return t;
+                    }
+            );
+        }
+    }
+
+    /**
+     * Runs the task on the worker for the key. The task is dropped if the queue of the worker is full.
+     * @param key Key to order tasks by, such as a guild ID.
+     * @param task Task.
+     * @return {@code true} if the task was queued, {@code false} if it was dropped.
+     */
+    boolean submit(long key, Runnable task) {
+        int i = this.workerIndex(key);
+        if (this.queued[i].incrementAndGet() > this.queueCapacity) {
+            this.queued[i].decrementAndGet();
+            DROPPED.labels(this.name).inc();
+            return false;
+        }
+        this.execute(i, task);
+        return true;
+    }
+
+    /**
+     * Runs the task on the worker for the key, even if the queue of the worker is full.
+     * For tasks that must not be lost, such as removing the data of deleted channels.
+     * @param key Key to order tasks by, such as a guild ID.
+     * @param task Task.
+     */
+    void submitAlways(long key, Runnable task) {
+        int i = this.workerIndex(key);
+        this.queued[i].incrementAndGet();
+        this.execute(i, task);
+    }
+
+    private int workerIndex(long key) {
+        return (int) Math.floorMod(key, (long) this.workers.length);
+    }
+
+    private void execute(int i, Runnable task) {
+        long queuedAt = System.nanoTime();
+        this.workers[i].execute(() -> {
+            this.queued[i].decrementAndGet();
+            QUEUE_WAIT.labels(this.name).observe((double) (System.nanoTime() - queuedAt) / 1_000_000_000d);
+            try {
+                task.run();
+            } catch (Throwable e) {
+                this.logger.logException("Something went wrong while handling an event in " + this.name + " listener", e);
+            }
+        });
+    }
+}
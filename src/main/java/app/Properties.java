@@ -35,6 +35,11 @@ public class Properties {
 
     final TimeZone logTimeZone;
 
+    final boolean commandVirtualThreads;
+
+    public final boolean musicReuseAudioFrames;
+    public final boolean musicPrebuffer;
+
     public Properties() throws IOException {
         this.properties = new java.util.Properties();
         this.properties.load(this.getClass().getClassLoader().getResourceAsStream("project.properties"));
@@ -72,6 +77,10 @@ public class Properties {
         this.guildBannerUrl = getEnv("GUILD_BANNER_URL", "https://wynn-guild-banner.toki317.dev/banners/");
 
         this.logTimeZone = TimeZone.getTimeZone(getProperty("logTimeZone"));
+
+        this.commandVirtualThreads = Boolean.parseBoolean(getEnv("COMMAND_VIRTUAL_THREADS", "true"));
+        this.musicReuseAudioFrames = Boolean.parseBoolean(getEnv("MUSIC_REUSE_AUDIO_FRAMES", "true"));
+        this.musicPrebuffer = Boolean.parseBoolean(getEnv("MUSIC_PREBUFFER", "false"));
     }
 
     private String getEnv(String name) {
@@ -1,8 +1,6 @@
 package app;
 
-import db.model.serverLog.ServerLogEntry;
 import db.model.timezone.CustomTimeZone;
-import db.repository.base.ServerLogRepository;
 import db.repository.base.TimeZoneRepository;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.*;
@@ -35,37 +33,30 @@ import net.dv8tion.jda.api.events.role.update.*;
 import net.dv8tion.jda.api.events.user.GenericUserEvent;
 import net.dv8tion.jda.api.events.user.update.UserUpdateDiscriminatorEvent;
 import net.dv8tion.jda.api.events.user.update.UserUpdateNameEvent;
-import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.api.sharding.ShardManager;
 import org.jetbrains.annotations.Nullable;
 import utils.BotUtils;
 import utils.FormatUtils;
 import utils.MinecraftColor;
-import utils.cache.DataCache;
-import utils.cache.LRUDataCache;
+import utils.cache.MessageStore;
 
 import javax.annotation.Nonnull;
 import java.awt.*;
-import java.text.DateFormat;
 import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
-public class ServerLogListener extends ListenerAdapter {
-    private static DateFormat getDateFormat() {
-        return new SimpleDateFormat("yyyy/MM/dd E',' HH:mm:ss.SSS");
-    }
-
-    private record MessageCache(String content, long userId) {
-    }
+public class ServerLogListener extends TimedListenerAdapter {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd E',' HH:mm:ss.SSS");
 
-    private static final DataCache<Long, MessageCache> messageCache = new LRUDataCache<>(10000);
+    // 1 MiB of message contents per guild, roughly several thousands of messages, and 128 MiB in total
+    private static final MessageStore messageStore = new MessageStore(128 << 20, 1 << 20, TimeUnit.DAYS.toMillis(3));
 
     private interface Handler<T> {
         /**
@@ -665,17 +656,18 @@ public class ServerLogListener extends ListenerAdapter {
 
         // Retrieve old message from the cache, if possible
         long messageId = event.getMessageIdLong();
-        MessageCache oldMessage = messageCache.get(messageId);
+        long guildId = event.getGuild().getIdLong();
+        MessageStore.Message oldMessage = messageStore.get(guildId, messageId);
         if (oldMessage != null) {
             eb.addField("Before",
-                    oldMessage.content.length() > MessageEmbed.VALUE_MAX_LENGTH
-                            ? oldMessage.content.substring(0, MessageEmbed.VALUE_MAX_LENGTH - 1) + "…"
-                            : oldMessage.content,
+                    oldMessage.content().length() > MessageEmbed.VALUE_MAX_LENGTH
+                            ? oldMessage.content().substring(0, MessageEmbed.VALUE_MAX_LENGTH - 1) + "…"
+                            : oldMessage.content(),
                     false);
         }
 
         // Update message cache
-        messageCache.add(messageId, new MessageCache(event.getMessage().getContentRaw(), event.getAuthor().getIdLong()));
+        messageStore.put(guildId, messageId, event.getMessage().getContentRaw(), event.getAuthor().getIdLong());
 
         String nameWithDiscriminator = event.getAuthor().getName() + "#" + event.getAuthor().getDiscriminator();
         long elapsedSeconds = (System.currentTimeMillis() - BotUtils.getIdCreationTime(messageId)) / 1000L;
@@ -702,18 +694,19 @@ public class ServerLogListener extends ListenerAdapter {
         long messageId = event.getMessageIdLong();
 
         // Try to retrieve the old message
-        MessageCache oldMessage = messageCache.get(messageId);
-        User user = oldMessage != null ? event.getJDA().getUserById(oldMessage.userId) : null;
+        long guildId = event.getGuild().getIdLong();
+        MessageStore.Message oldMessage = messageStore.get(guildId, messageId);
+        User user = oldMessage != null ? event.getJDA().getUserById(oldMessage.userId()) : null;
         if (oldMessage != null) {
             eb.addField("Content",
-                    oldMessage.content.length() > MessageEmbed.VALUE_MAX_LENGTH
-                            ? oldMessage.content.substring(0, MessageEmbed.VALUE_MAX_LENGTH - 1) + "…"
-                            : oldMessage.content,
+                    oldMessage.content().length() > MessageEmbed.VALUE_MAX_LENGTH
+                            ? oldMessage.content().substring(0, MessageEmbed.VALUE_MAX_LENGTH - 1) + "…"
+                            : oldMessage.content(),
                     false);
         }
 
         // delete cache
-        messageCache.delete(messageId);
+        messageStore.remove(guildId, messageId);
 
         long elapsedSeconds = (System.currentTimeMillis() - BotUtils.getIdCreationTime(messageId)) / 1000L;
 
@@ -725,21 +718,39 @@ public class ServerLogListener extends ListenerAdapter {
                                 user != null ?
                                         "Message sent by " + user.getAsMention() + " deleted in " + event.getChannel().getAsMention() :
                                         oldMessage != null ?
-                                                "Message sent by <userId: " + oldMessage.userId + "> deleted in " + event.getChannel().getAsMention() :
+                                                "Message sent by <userId: " + oldMessage.userId() + "> deleted in " + event.getChannel().getAsMention() :
                                                 "Message deleted in " + event.getChannel().getAsMention(),
                                 getFormattedTime.apply(BotUtils.getIdCreationTime(messageId)),
                                 FormatUtils.formatReadableTime(elapsedSeconds, false, "s"))
                 );
     }
 
-    private final ServerLogRepository serverLogRepository;
+    // Events are keyed by guild, so that the message cache is updated in the order of the events
+    private static final int EVENT_WORKERS = 2;
+    private static final int EVENT_QUEUE_CAPACITY = 1000;
+
+    private record LogChannel(long guildId, long channelId) {
+    }
+
+    private record TimeFormat(CustomTimeZone timeZone, DateTimeFormatter formatter, long resolvedAt) {
+    }
+
+    // Time zone changes are reflected to log channels after this time
+    private static final long TIME_FORMAT_TTL = TimeUnit.MINUTES.toMillis(1);
+
+    private final ServerLogRoutes serverLogRoutes;
     private final TimeZoneRepository timeZoneRepository;
+    private final Map<LogChannel, TimeFormat> timeFormats;
     private final ShardManager shardManager;
+    private final EventOffloader offloader;
 
     ServerLogListener(Bot bot) {
-        this.serverLogRepository = bot.getDatabase().getServerLogRepository();
+        super("server_log");
+        this.serverLogRoutes = bot.getServerLogRoutes();
         this.timeZoneRepository = bot.getDatabase().getTimeZoneRepository();
+        this.timeFormats = new ConcurrentHashMap<>();
         this.shardManager = bot.getManager();
+        this.offloader = new EventOffloader("server_log", bot.getLogger(), EVENT_WORKERS, EVENT_QUEUE_CAPACITY);
     }
 
     private String getFormattedCurrentTime(long guildId, long channelId) {
@@ -747,36 +758,51 @@ public class ServerLogListener extends ListenerAdapter {
     }
 
     private String getFormattedTime(long guildId, long channelId, long epochMillis) {
-        DateFormat dateFormat = getDateFormat();
-        CustomTimeZone customTimeZone = this.timeZoneRepository.getTimeZone(
-                guildId, channelId
-        );
-        dateFormat.setTimeZone(customTimeZone.getTimeZoneInstance());
-        return String.format("%s (%s)", dateFormat.format(new Date(epochMillis)), customTimeZone.getFormattedTime());
+        LogChannel key = new LogChannel(guildId, channelId);
+        long now = System.currentTimeMillis();
+        TimeFormat format = this.timeFormats.get(key);
+        if (format == null || now - format.resolvedAt >= TIME_FORMAT_TTL) {
+            CustomTimeZone customTimeZone = this.timeZoneRepository.getTimeZone(guildId, channelId);
+            format = new TimeFormat(customTimeZone,
+                    DATE_FORMAT.withZone(customTimeZone.getTimeZoneInstance().toZoneId()), now);
+            this.timeFormats.put(key, format);
+        }
+        return String.format("%s (%s)",
+                format.formatter.format(Instant.ofEpochMilli(epochMillis)), format.timeZone.getFormattedTime());
     }
 
     @Override
     public void onGuildMessageReceived(@Nonnull GuildMessageReceivedEvent event) {
-        // Do not keep messages of guilds that does not have a server log channel set
-        if (!this.serverLogRepository.exists(() -> event.getGuild().getIdLong())) {
-            return;
-        }
-        messageCache.add(event.getMessageIdLong(),
-                new MessageCache(event.getMessage().getContentRaw(), event.getAuthor().getIdLong()));
+        long guildId = event.getGuild().getIdLong();
+        this.offloader.submit(guildId, () -> {
+            // Do not keep messages of guilds that does not have a server log channel set
+            if (!this.serverLogRoutes.exists(guildId)) {
+                return;
+            }
+            messageStore.put(guildId, event.getMessageIdLong(),
+                    event.getMessage().getContentRaw(), event.getAuthor().getIdLong());
+        });
     }
 
     @Override
     public void onGenericTextChannel(GenericTextChannelEvent event) {
+        if (!handlers.containsKey(event.getClass())) {
+            return;
+        }
         long guildId = event.getGuild().getIdLong();
-        ServerLogEntry log = this.serverLogRepository.findOne(() -> guildId);
-        if (log == null) {
+        this.offloader.submit(guildId, () -> handleGenericTextChannel(event, guildId));
+    }
+
+    private void handleGenericTextChannel(GenericTextChannelEvent event, long guildId) {
+        Long logChannelId = this.serverLogRoutes.getChannelId(guildId);
+        if (logChannelId == null) {
             return;
         }
-        TextChannel logChannel = this.shardManager.getTextChannelById(log.getChannelId());
+        TextChannel logChannel = this.shardManager.getTextChannelById(logChannelId);
         if (logChannel == null) {
             return;
         }
-        String formattedDate = getFormattedCurrentTime(guildId, log.getChannelId());
+        String formattedDate = getFormattedCurrentTime(guildId, logChannelId);
 
         // Base embed message
         EmbedBuilder eb = new EmbedBuilder()
@@ -792,16 +818,23 @@ public class ServerLogListener extends ListenerAdapter {
 
     @Override
     public void onGenericVoiceChannel(GenericVoiceChannelEvent event) {
+        if (!handlers.containsKey(event.getClass())) {
+            return;
+        }
         long guildId = event.getGuild().getIdLong();
-        ServerLogEntry log = this.serverLogRepository.findOne(() -> guildId);
-        if (log == null) {
+        this.offloader.submit(guildId, () -> handleGenericVoiceChannel(event, guildId));
+    }
+
+    private void handleGenericVoiceChannel(GenericVoiceChannelEvent event, long guildId) {
+        Long logChannelId = this.serverLogRoutes.getChannelId(guildId);
+        if (logChannelId == null) {
             return;
         }
-        TextChannel logChannel = this.shardManager.getTextChannelById(log.getChannelId());
+        TextChannel logChannel = this.shardManager.getTextChannelById(logChannelId);
         if (logChannel == null) {
             return;
         }
-        String formattedDate = getFormattedCurrentTime(guildId, log.getChannelId());
+        String formattedDate = getFormattedCurrentTime(guildId, logChannelId);
 
         // Base embed message
         EmbedBuilder eb = new EmbedBuilder()
@@ -828,48 +861,56 @@ public class ServerLogListener extends ListenerAdapter {
             return;
         }
 
-        // Retrieve channels to send
+        EmbedBuilder base = eb;
         long userId = event.getUser().getIdLong();
-        long[] guildIDs = event.getUser().getMutualGuilds().stream().mapToLong(ISnowflake::getIdLong).toArray();
-        if (guildIDs.length == 0) {
-            return;
-        }
-        List<ServerLogEntry> logs = this.serverLogRepository.findAllIn(guildIDs);
-        if (logs == null) {
-            return;
-        }
+        this.offloader.submit(userId, () -> handleGenericUser(event, base));
+    }
 
-        for (ServerLogEntry log : logs) {
-            TextChannel logChannel = this.shardManager.getTextChannelById(log.getChannelId());
+    private void handleGenericUser(GenericUserEvent event, EmbedBuilder eb) {
+        // Send to log channels of the guilds the user is in
+        long userId = event.getUser().getIdLong();
+        this.serverLogRoutes.getAll().forEach((guildId, logChannelId) -> {
+            Guild guild = this.shardManager.getGuildById(guildId);
+            if (guild == null || guild.getMemberById(userId) == null) {
+                return;
+            }
+            TextChannel logChannel = guild.getTextChannelById(logChannelId);
             if (logChannel == null) {
-                continue;
+                return;
             }
             // different timezones for each guild / log channel
-            String formattedDate = getFormattedCurrentTime(log.getGuildId(), log.getChannelId());
+            String formattedDate = getFormattedCurrentTime(guildId, logChannelId);
             logChannel.sendMessageEmbeds(
                     new EmbedBuilder(eb)
                             .setFooter(String.format("User ID: %s | %s", userId, formattedDate))
                             .build()
             ).queue();
-        }
+        });
     }
 
     @Override
     public void onGenericGuild(GenericGuildEvent event) {
+        if (!guildEventHandlers.containsKey(event.getClass())) {
+            return;
+        }
         long guildId = event.getGuild().getIdLong();
-        ServerLogEntry log = this.serverLogRepository.findOne(() -> guildId);
-        if (log == null) {
+        this.offloader.submit(guildId, () -> handleGenericGuild(event, guildId));
+    }
+
+    private void handleGenericGuild(GenericGuildEvent event, long guildId) {
+        Long logChannelId = this.serverLogRoutes.getChannelId(guildId);
+        if (logChannelId == null) {
             return;
         }
-        TextChannel logChannel = this.shardManager.getTextChannelById(log.getChannelId());
+        TextChannel logChannel = this.shardManager.getTextChannelById(logChannelId);
         if (logChannel == null) {
             return;
         }
-        String formattedDate = getFormattedCurrentTime(guildId, log.getChannelId());
+        String formattedDate = getFormattedCurrentTime(guildId, logChannelId);
 
         EmbedBuilder eb = handleGuildEvent(
                 event.getClass(), event, new EmbedBuilder(),
-                time -> getFormattedTime(guildId, log.getChannelId(), time)
+                time -> getFormattedTime(guildId, logChannelId, time)
         );
         if (eb == null) {
             return;
@@ -890,16 +931,23 @@ public class ServerLogListener extends ListenerAdapter {
 
     @Override
     public void onGenericRole(GenericRoleEvent event) {
+        if (!handlers.containsKey(event.getClass())) {
+            return;
+        }
         long guildId = event.getGuild().getIdLong();
-        ServerLogEntry log = this.serverLogRepository.findOne(() -> guildId);
-        if (log == null) {
+        this.offloader.submit(guildId, () -> handleGenericRole(event, guildId));
+    }
+
+    private void handleGenericRole(GenericRoleEvent event, long guildId) {
+        Long logChannelId = this.serverLogRoutes.getChannelId(guildId);
+        if (logChannelId == null) {
             return;
         }
-        TextChannel logChannel = this.shardManager.getTextChannelById(log.getChannelId());
+        TextChannel logChannel = this.shardManager.getTextChannelById(logChannelId);
         if (logChannel == null) {
             return;
         }
-        String formattedDate = getFormattedCurrentTime(guildId, log.getChannelId());
+        String formattedDate = getFormattedCurrentTime(guildId, logChannelId);
 
         // Base embed message
         EmbedBuilder eb = new EmbedBuilder()
@@ -0,0 +1,182 @@
+package app;
+
+import db.model.serverLog.ServerLogEntry;
+import db.repository.base.ServerLogRepository;
+import log.Logger;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory copy of the server log settings (guild ID to log channel ID).
+ * <br>All changes to the settings go through this class and are written to the DB first,
+ * so that server log events can be routed to log channels without querying the DB.
+ * <br>If the settings fail to load, loading is retried after a backoff, instead of on every event.
+ */
+public class ServerLogRoutes {
+    private static final long MIN_RETRY_BACKOFF = TimeUnit.SECONDS.toMillis(5);
+    private static final long MAX_RETRY_BACKOFF = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Operations of {@link ServerLogRepository} used by the routes.
+     */
+    interface Store {
+        @Nullable
+        List<ServerLogEntry> findAll();
+
+        boolean create(ServerLogEntry entry);
+
+        boolean update(ServerLogEntry entry);
+
+        boolean delete(long guildId);
+    }
+
+    private final Store store;
+    private final Logger logger;
+    private final LongSupplier clock;
+
+    @Nullable
+    private volatile Map<Long, Long> channels;
+    /**
+     * Time the next load is allowed at, and the backoff after a failed load. Guarded by the lock of this instance.
+     */
+    private long nextLoadAt;
+    private long retryBackoff;
+
+    ServerLogRoutes(ServerLogRepository serverLogRepository, Logger logger) {
+        this(new Store() {
+            @Override
+            public List<ServerLogEntry> findAll() {
+                return serverLogRepository.findAll();
+            }
+
+            @Override
+            public boolean create(ServerLogEntry entry) {
+                return serverLogRepository.create(entry);
+            }
+
+            @Override
+            public boolean update(ServerLogEntry entry) {
+                return serverLogRepository.update(entry);
+            }
+
+            @Override
+            public boolean delete(long guildId) {
+                return serverLogRepository.delete(() -> guildId);
+            }
+        }, logger, System::currentTimeMillis);
+    }
+
+    /**
+     * @param store Store of the settings.
+     * @param logger Logger.
+     * @param clock Supplies the current time in epoch millis.
+     */
+    ServerLogRoutes(Store store, Logger logger, LongSupplier clock) {
+        this.store = store;
+        this.logger = logger;
+        this.clock = clock;
+        this.retryBackoff = MIN_RETRY_BACKOFF;
+    }
+
+    /**
+     * Loads the settings from the DB if not loaded yet.
+     * @return Guild ID to log channel ID. null if failed to load, or waiting to retry after a failure.
+     */
+    @Nullable
+    private Map<Long, Long> load() {
+        Map<Long, Long> channels = this.channels;
+        if (channels != null) {
+            return channels;
+        }
+        synchronized (this) {
+            if (this.channels == null) {
+                long now = this.clock.getAsLong();
+                if (now < this.nextLoadAt) {
+                    return null;
+                }
+                List<ServerLogEntry> entries = this.store.findAll();
+                if (entries == null) {
+                    this.logger.log(0, "Failed to load server log channels, retrying in " +
+                            TimeUnit.MILLISECONDS.toSeconds(this.retryBackoff) + " seconds");
+                    this.nextLoadAt = now + this.retryBackoff;
+                    this.retryBackoff = Math.min(this.retryBackoff * 2, MAX_RETRY_BACKOFF);
+                    return null;
+                }
+                Map<Long, Long> loaded = new ConcurrentHashMap<>();
+                for (ServerLogEntry entry : entries) {
+                    loaded.put(entry.getGuildId(), entry.getChannelId());
+                }
+                this.channels = loaded;
+            }
+            return this.channels;
+        }
+    }
+
+    /**
+     * Retrieves the log channel of the guild.
+     * @param guildId Guild ID.
+     * @return Log channel ID. null if the guild does not have server log set.
+     */
+    @Nullable
+    public Long getChannelId(long guildId) {
+        Map<Long, Long> channels = this.load();
+        return channels != null ? channels.get(guildId) : null;
+    }
+
+    public boolean exists(long guildId) {
+        return this.getChannelId(guildId) != null;
+    }
+
+    /**
+     * Retrieves all server log settings.
+     * @return Unmodifiable view of guild ID to log channel ID. Empty if failed to load.
+     */
+    public Map<Long, Long> getAll() {
+        Map<Long, Long> channels = this.load();
+        return channels != null ? Collections.unmodifiableMap(channels) : Collections.emptyMap();
+    }
+
+    /**
+     * Sets the log channel of the guild.
+     * @param guildId Guild ID.
+     * @param channelId Log channel ID.
+     * @return True if succeeded.
+     */
+    public synchronized boolean set(long guildId, long channelId) {
+        Map<Long, Long> channels = this.load();
+        if (channels == null) {
+            return false;
+        }
+        ServerLogEntry entry = new ServerLogEntry(guildId, channelId);
+        boolean res = channels.containsKey(guildId)
+                ? this.store.update(entry)
+                : this.store.create(entry);
+        if (res) {
+            channels.put(guildId, channelId);
+        }
+        return res;
+    }
+
+    /**
+     * Removes server log setting of the guild.
+     * @param guildId Guild ID.
+     * @return True if succeeded.
+     */
+    public synchronized boolean remove(long guildId) {
+        Map<Long, Long> channels = this.load();
+        if (channels == null) {
+            return false;
+        }
+        boolean res = this.store.delete(guildId);
+        if (res) {
+            channels.remove(guildId);
+        }
+        return res;
+    }
+}
@@ -0,0 +1,38 @@
+package app;
+
+import io.prometheus.client.Histogram;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Listener adapter measuring the time spent in event handlers on the JDA gateway event thread.
+ */
+abstract class TimedListenerAdapter extends ListenerAdapter {
+    private static final Histogram HANDLER_TIME = Histogram.build()
+            .name("moto_bot_gateway_handler_seconds")
+            .help("Time spent handling events on the JDA gateway event thread, per listener.")
+            .labelNames("listener")
+            .buckets(0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1)
+            .register();
+
+    private final Histogram.Child handlerTime;
+
+    /**
+     * @param name Listener name, used to label metrics.
+     */
+    TimedListenerAdapter(String name) {
+        this.handlerTime = HANDLER_TIME.labels(name);
+    }
+
+    @Override
+    public void onEvent(@Nonnull GenericEvent event) {
+        Histogram.Timer timer = this.handlerTime.startTimer();
+        try {
+            super.onEvent(event);
+        } finally {
+            timer.observeDuration();
+        }
+    }
+}
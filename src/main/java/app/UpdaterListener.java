@@ -1,35 +1,53 @@
 package app;
 
-import db.model.serverLog.ServerLogEntry;
-import db.repository.base.ServerLogRepository;
+import db.model.track.TrackChannel;
 import db.repository.base.TrackChannelRepository;
+import db.repository.base.TrackWebhookRepository;
 import log.Logger;
+import net.dv8tion.jda.api.entities.ChannelType;
 import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.TextChannel;
 import net.dv8tion.jda.api.events.*;
 import net.dv8tion.jda.api.events.channel.text.TextChannelDeleteEvent;
 import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
 import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleRemoveEvent;
+import net.dv8tion.jda.api.events.guild.override.GenericPermissionOverrideEvent;
 import net.dv8tion.jda.api.events.interaction.ButtonClickEvent;
-import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.events.role.update.RoleUpdatePermissionsEvent;
 import net.dv8tion.jda.api.sharding.ShardManager;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import update.button.ButtonClickManager;
 
-public class UpdaterListener extends ListenerAdapter {
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class UpdaterListener extends TimedListenerAdapter {
+    // Tracking and server log entries are removed on these workers, not on the gateway thread.
+    // The removals must not be dropped, so the capacity only applies to other tasks.
+    private static final int EVENT_WORKERS = 1;
+    private static final int EVENT_QUEUE_CAPACITY = 1000;
+
     private final Bot bot;
     private final ButtonClickManager buttonClickManager;
     private final Logger logger;
     private final ShardManager manager;
     private final TrackChannelRepository trackChannelRepository;
-    private final ServerLogRepository serverLogRepository;
+    private final TrackWebhookRepository trackWebhookRepository;
+    private final ServerLogRoutes serverLogRoutes;
+    private final EventOffloader offloader;
 
     UpdaterListener(Bot bot) {
+        super("updater");
         this.bot = bot;
         this.buttonClickManager = bot.getButtonClickManager();
         this.logger = bot.getLogger();
         this.manager = bot.getManager();
         this.trackChannelRepository = bot.getDatabase().getTrackingChannelRepository();
-        this.serverLogRepository = bot.getDatabase().getServerLogRepository();
+        this.trackWebhookRepository = bot.getDatabase().getTrackWebhookRepository();
+        this.serverLogRoutes = bot.getServerLogRoutes();
+        this.offloader = new EventOffloader("updater", this.logger, EVENT_WORKERS, EVENT_QUEUE_CAPACITY);
     }
 
     // ----------------------------
@@ -91,34 +109,110 @@ public class UpdaterListener extends ListenerAdapter {
                 totalGuilds, guild.getName(), guild.getMemberCount(), guild.getIdLong()
         ));
 
-        // Delete tracking of guild channels
-        if (!this.trackChannelRepository.deleteAllOfGuild(guild.getIdLong())) {
-            this.logger.log(0, "Failed to remove tracking entries of the guild");
-        }
-        // Delete server log channel
-        if (this.serverLogRepository.exists(() -> event.getGuild().getIdLong())) {
-            boolean res = this.serverLogRepository.delete(() -> event.getGuild().getIdLong());
-            if (!res) {
-                this.logger.log(0, "Failed to remove server log channel of the guild");
+        long guildId = guild.getIdLong();
+        this.offloader.submitAlways(guildId, () -> {
+            // Delete tracking of guild channels
+            if (!this.trackChannelRepository.deleteAllOfGuild(guildId)) {
+                this.logger.log(0, "Failed to remove tracking entries of the guild");
             }
-        }
+            // Webhook URLs contain the token, do not keep them around
+            if (!this.trackWebhookRepository.deleteAllOfGuild(guildId)) {
+                this.logger.log(0, "Failed to remove tracking webhooks of the guild");
+            }
+            // Delete server log channel
+            if (this.serverLogRoutes.exists(guildId)) {
+                boolean res = this.serverLogRoutes.remove(guildId);
+                if (!res) {
+                    this.logger.log(0, "Failed to remove server log channel of the guild");
+                }
+            }
+        });
     }
 
     @Override
     public void onTextChannelDelete(TextChannelDeleteEvent event) {
+        long guildId = event.getGuild().getIdLong();
         long channelId = event.getChannel().getIdLong();
-
-        boolean res = this.trackChannelRepository.deleteAllOfChannel(channelId);
-        if (!res) {
-            this.logger.log(0, "Failed to remove tracking entries of the channel");
-        }
-        // Delete server log channel if it was the deleted channel
-        ServerLogEntry serverLog = this.serverLogRepository.findOne(() -> event.getGuild().getIdLong());
-        if (serverLog != null && serverLog.getChannelId() == channelId) {
-            res = this.serverLogRepository.delete(() -> event.getGuild().getIdLong());
+        this.offloader.submitAlways(guildId, () -> {
+            boolean res = this.trackChannelRepository.deleteAllOfChannel(channelId);
             if (!res) {
-                this.logger.log(0, "Failed to remove server log channel of the guild");
+                this.logger.log(0, "Failed to remove tracking entries of the channel");
             }
+            if (!this.trackWebhookRepository.delete(() -> channelId)) {
+                this.logger.log(0, "Failed to remove tracking webhook of the channel");
+            }
+            // Delete server log channel if it was the deleted channel
+            Long serverLogChannelId = this.serverLogRoutes.getChannelId(guildId);
+            if (serverLogChannelId != null && serverLogChannelId == channelId) {
+                res = this.serverLogRoutes.remove(guildId);
+                if (!res) {
+                    this.logger.log(0, "Failed to remove server log channel of the guild");
+                }
+            }
+        });
+    }
+
+    // ----------------------------
+    // Permission change handlers
+    // ----------------------------
+
+    @Override
+    public void onGenericPermissionOverride(@NotNull GenericPermissionOverrideEvent event) {
+        if (event.getChannelType() != ChannelType.TEXT) {
+            return;
+        }
+        Guild guild = event.getGuild();
+        long channelId = event.getChannel().getIdLong();
+        this.offloader.submitAlways(guild.getIdLong(), () -> this.removeUnavailableTracks(guild,
+                this.trackChannelRepository.findAllOf(guild.getIdLong(), channelId)));
+    }
+
+    @Override
+    public void onRoleUpdatePermissions(@NotNull RoleUpdatePermissionsEvent event) {
+        Guild guild = event.getGuild();
+        if (!event.getRole().isPublicRole() && !guild.getSelfMember().getRoles().contains(event.getRole())) {
+            return;
+        }
+        this.offloader.submitAlways(guild.getIdLong(), () ->
+                this.removeUnavailableTracks(guild, this.trackChannelRepository.findAllOfGuild(guild.getIdLong())));
+    }
+
+    @Override
+    public void onGuildMemberRoleRemove(@NotNull GuildMemberRoleRemoveEvent event) {
+        if (event.getMember().getIdLong() != event.getJDA().getSelfUser().getIdLong()) {
+            return;
+        }
+        Guild guild = event.getGuild();
+        this.offloader.submitAlways(guild.getIdLong(), () ->
+                this.removeUnavailableTracks(guild, this.trackChannelRepository.findAllOfGuild(guild.getIdLong())));
+    }
+
+    /**
+     * Removes tracking in the channels the bot can no longer talk in.
+     * @param guild Guild.
+     * @param tracks Tracking in the guild to check.
+     */
+    private void removeUnavailableTracks(Guild guild, @Nullable List<TrackChannel> tracks) {
+        if (tracks == null) {
+            this.logger.log(0, "Failed to retrieve tracking entries of the guild");
+            return;
+        }
+        List<TrackChannel> toRemove = tracks.stream().filter(t -> {
+            TextChannel channel = guild.getTextChannelById(t.getChannelId());
+            return channel == null || !channel.canTalk();
+        }).collect(Collectors.toList());
+        if (toRemove.isEmpty()) {
+            return;
+        }
+
+        if (!this.trackChannelRepository.deleteAll(toRemove)) {
+            this.logger.log(0, "Failed to remove tracking entries the bot cannot talk in");
+            return;
+        }
+        if (!this.trackWebhookRepository.deleteAllWithoutTracking()) {
+            this.logger.log(0, "Failed to remove tracking webhooks of channels without tracking");
         }
+        this.logger.log(0, "Removed tracking the bot cannot talk in anymore:\n" +
+                toRemove.stream().map(TrackChannel::toString).collect(Collectors.joining("\n")));
     }
 }
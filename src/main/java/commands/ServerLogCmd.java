@@ -1,10 +1,9 @@
 package commands;
 
 import app.Bot;
+import app.ServerLogRoutes;
 import commands.base.GuildCommand;
 import commands.event.CommandEvent;
-import db.model.serverLog.ServerLogEntry;
-import db.repository.base.ServerLogRepository;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.MessageBuilder;
 import net.dv8tion.jda.api.Permission;
@@ -15,10 +14,10 @@ import org.jetbrains.annotations.NotNull;
 import java.util.concurrent.TimeUnit;
 
 public class ServerLogCmd extends GuildCommand {
-    private final ServerLogRepository serverLogRepository;
+    private final ServerLogRoutes serverLogRoutes;
 
     public ServerLogCmd(Bot bot) {
-        this.serverLogRepository = bot.getDatabase().getServerLogRepository();
+        this.serverLogRoutes = bot.getServerLogRoutes();
     }
 
     @NotNull
@@ -72,11 +71,12 @@ public class ServerLogCmd extends GuildCommand {
 
     @Override
     public void process(@NotNull CommandEvent event, @NotNull String[] args) {
-        ServerLogEntry old = this.serverLogRepository.findOne(() -> event.getGuild().getIdLong());
-        ServerLogEntry entry = new ServerLogEntry(event.getGuild().getIdLong(), event.getChannel().getIdLong());
+        long guildId = event.getGuild().getIdLong();
+        long channelId = event.getChannel().getIdLong();
+        Long old = this.serverLogRoutes.getChannelId(guildId);
 
-        if (old != null && old.getChannelId() == entry.getChannelId()) {
-            boolean res = this.serverLogRepository.delete(old);
+        if (old != null && old == channelId) {
+            boolean res = this.serverLogRoutes.remove(guildId);
             if (!res) {
                 event.reply("Something went wrong while saving your data...");
                 return;
@@ -85,9 +85,7 @@ public class ServerLogCmd extends GuildCommand {
             return;
         }
 
-        boolean res = old == null
-                ? this.serverLogRepository.create(entry)
-                : this.serverLogRepository.update(entry);
+        boolean res = this.serverLogRoutes.set(guildId, channelId);
         if (!res) {
             event.replyError("Something went wrong while saving your data...");
             return;
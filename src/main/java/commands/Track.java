@@ -11,14 +11,17 @@ import db.model.dateFormat.CustomDateFormat;
 import db.model.timezone.CustomTimeZone;
 import db.model.track.TrackChannel;
 import db.model.track.TrackType;
+import db.model.trackWebhook.TrackWebhook;
 import db.repository.base.DateFormatRepository;
 import db.repository.base.TimeZoneRepository;
 import db.repository.base.TrackChannelRepository;
+import db.repository.base.TrackWebhookRepository;
 import log.Logger;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.MessageBuilder;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.TextChannel;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.*;
 import org.jetbrains.annotations.NotNull;
@@ -32,8 +35,12 @@ import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class Track extends GuildCommand {
+    private static final String WEBHOOK_NAME = "moto-bot tracking";
+    private static final Set<TrackType> WEBHOOK_TRACK_TYPES = Set.of(TrackType.WAR_ALL, TrackType.TERRITORY_ALL);
+
     private final Logger logger;
     private final TrackChannelRepository trackChannelRepository;
+    private final TrackWebhookRepository trackWebhookRepository;
     private final DateFormatRepository dateFormatRepository;
     private final TimeZoneRepository timeZoneRepository;
     private final MojangApi mojangApi;
@@ -43,6 +50,7 @@ public class Track extends GuildCommand {
         this.logger = bot.getLogger();
         Database db = bot.getDatabase();
         this.trackChannelRepository = db.getTrackingChannelRepository();
+        this.trackWebhookRepository = db.getTrackWebhookRepository();
         this.dateFormatRepository = db.getDateFormatRepository();
         this.timeZoneRepository = db.getTimeZoneRepository();
         this.mojangApi = new MojangApi(bot.getLogger());
@@ -84,7 +92,8 @@ public class Track extends GuildCommand {
                                         new OptionData(OptionType.STRING, "type", "Track type", true)
                                                 .addChoice("create", "create")
                                                 .addChoice("delete", "delete")),
-                        new SubcommandData("update", "Update expiration time of tracking in this channel."))
+                        new SubcommandData("update", "Update expiration time of tracking in this channel."),
+                        new SubcommandData("webhook", "Toggles sending tracking messages in this channel through a webhook."))
                 .addSubcommandGroups(
                         new SubcommandGroupData("war", "Tracks guild wars.")
                                 .addSubcommands(
@@ -103,7 +112,7 @@ public class Track extends GuildCommand {
     @NotNull
     @Override
     public String syntax() {
-        return "track [server|guild|war|territory|update|refresh]";
+        return "track [server|guild|war|territory|update|refresh|webhook]";
     }
 
     @NotNull
@@ -170,6 +179,13 @@ public class Track extends GuildCommand {
                                         "Type `track <update|refresh>` to update expiration time for all tracking enabled in " +
                                                 "this channel."),
                                 false)
+                        .addField("Webhook Delivery",
+                                String.join("\n",
+                                        "Type `track webhook` to toggle sending tracking messages in this channel through a webhook.",
+                                        "Available for channels with `war all` or `territory all` tracking enabled. " +
+                                                "Messages arrive faster during busy times, and territory tracking is sent in embeds.",
+                                        "The bot needs the Manage Webhooks permission in the channel."),
+                                false)
                         .addField("Examples",
                                 String.join("\n",
                                         "`track server close all`",
@@ -207,6 +223,10 @@ public class Track extends GuildCommand {
                 }
                 return;
             }
+            case "webhook" -> {
+                toggleWebhook(event);
+                return;
+            }
         }
 
         TrackType type = getCorrespondingTrackType(args);
@@ -245,7 +265,7 @@ public class Track extends GuildCommand {
      */
     private void saveTrackData(CommandEvent event, SentMessage next, TrackChannel entity, boolean safeGuildResolve) {
         if (this.trackChannelRepository.exists(entity)) {
-            disableTracking(next, entity);
+            disableTracking(event, next, entity);
         } else {
             // Prevent the track from being registered if an unknown guild has been resolved.
             if (!safeGuildResolve) {
@@ -311,15 +331,38 @@ public class Track extends GuildCommand {
         }
     }
 
-    private void disableTracking(@NotNull SentMessage next, TrackChannel entity) {
+    private void disableTracking(@NotNull CommandEvent event, @NotNull SentMessage next, TrackChannel entity) {
         if (this.trackChannelRepository.delete(entity)) {
             next.editMessage(":mute: Successfully **disabled** " + entity.getDisplayName() + " for this channel.");
             this.logger.log(0, ":mute: Tracking has been **disabled**:\n" + entity);
+            this.removeWebhookIfUnused(event.getTextChannel());
         } else {
             next.editMessage("Something went wrong while saving data.");
         }
     }
 
+    /**
+     * Removes the webhook of the channel if no tracking is left in the channel.
+     * @param channel Text channel.
+     */
+    private void removeWebhookIfUnused(TextChannel channel) {
+        long channelId = channel.getIdLong();
+        TrackWebhook webhook = this.trackWebhookRepository.findOne(() -> channelId);
+        if (webhook == null) {
+            return;
+        }
+        List<TrackChannel> tracks = this.trackChannelRepository.findAllOf(channel.getGuild().getIdLong(), channelId);
+        if (tracks == null || !tracks.isEmpty()) {
+            return;
+        }
+        if (!this.trackWebhookRepository.delete(webhook)) {
+            this.logger.log(0, "Failed to remove tracking webhook of channel " + channelId);
+            return;
+        }
+        channel.deleteWebhookById(String.valueOf(webhook.getWebhookId())).queue(null, failure -> {});
+        this.logger.log(0, ":mute: Tracking webhook has been **disabled** for channel " + channelId);
+    }
+
     private void enableTracking(@NotNull CommandEvent event, @NotNull SentMessage next, TrackChannel entity) {
         // Check conflicting types
         List<TrackChannel> conflicting = getConflictingEntities(entity.getType(), event);
@@ -343,6 +386,59 @@ public class Track extends GuildCommand {
         }
     }
 
+    /**
+     * Toggles webhook delivery of tracking messages in the channel.
+     *
+     * @param event Command event.
+     */
+    private void toggleWebhook(CommandEvent event) {
+        long guildId = event.getGuild().getIdLong();
+        long channelId = event.getChannel().getIdLong();
+        TextChannel channel = event.getTextChannel();
+
+        TrackWebhook existing = this.trackWebhookRepository.findOne(() -> channelId);
+        if (existing != null) {
+            if (!this.trackWebhookRepository.delete(existing)) {
+                event.replyError("Something went wrong while saving data.");
+                return;
+            }
+            // The webhook might have been deleted manually
+            channel.deleteWebhookById(String.valueOf(existing.getWebhookId())).queue(null, failure -> {});
+            event.reply(":mute: Tracking messages in this channel will be sent by the bot again.");
+            this.logger.log(0, ":mute: Tracking webhook has been **disabled** for channel " + channelId);
+            return;
+        }
+
+        List<TrackChannel> tracks = this.trackChannelRepository.findAllOf(guildId, channelId);
+        if (tracks == null) {
+            event.replyError("Something went wrong while retrieving data...");
+            return;
+        }
+        if (tracks.stream().noneMatch(t -> WEBHOOK_TRACK_TYPES.contains(t.getType()))) {
+            event.reply("Webhook delivery is available for channels with `war all` or `territory all` tracking enabled.");
+            return;
+        }
+        if (!event.getGuild().getSelfMember().hasPermission(channel, Permission.MANAGE_WEBHOOKS)) {
+            event.reply("The bot needs the Manage Webhooks permission in this channel to create a webhook.");
+            return;
+        }
+
+        event.reply(new EmbedBuilder().setDescription("Processing...").build(), next -> channel.createWebhook(WEBHOOK_NAME).queue(
+                webhook -> {
+                    TrackWebhook entity = new TrackWebhook(channelId, guildId, webhook.getIdLong(), webhook.getUrl());
+                    if (!this.trackWebhookRepository.create(entity)) {
+                        webhook.delete().queue(null, failure -> {});
+                        next.editError(event.getAuthor(), "Something went wrong while saving data.");
+                        return;
+                    }
+                    next.editMessage(":loud_sound: Tracking messages in this channel will be sent through a webhook " +
+                            "from within a minute!");
+                    this.logger.log(0, ":loud_sound: Tracking webhook has been **enabled** for channel " + channelId);
+                },
+                failure -> next.editError(event.getAuthor(), "Failed to create a webhook: " + failure.getMessage())
+        ));
+    }
+
     @Nullable
     private List<TrackChannel> getConflictingEntities(TrackType type, CommandEvent event) {
         long guildId = event.getGuild().getIdLong();
@@ -105,7 +105,7 @@ public record MessageReceivedEventAdapter(MessageReceivedEvent event, Bot bot) i
                 .setActionRow(ButtonMultiPageHandler.getActionRow())
                 .queue(m ->
                         bot.getButtonClickManager().addEventListener(
-                                new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), pages, maxPage)));
+                                new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), m.getChannel().getIdLong(), pages, maxPage)));
     }
 
     @Override
@@ -114,7 +114,7 @@ public record MessageReceivedEventAdapter(MessageReceivedEvent event, Bot bot) i
                 .setActionRow(ButtonMultiPageHandler.getActionRow())
                 .queue(m ->
                         bot.getButtonClickManager().addEventListener(
-                                new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), pages, maxPage)));
+                                new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), m.getChannel().getIdLong(), pages, maxPage)));
     }
 
     @Override
@@ -123,6 +123,6 @@ public record MessageReceivedEventAdapter(MessageReceivedEvent event, Bot bot) i
                 .setActionRow(ButtonMultiPageHandler.getActionRow())
                 .queue(m ->
                         bot.getButtonClickManager().addEventListener(
-                                new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), pages, maxPage)));
+                                new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), m.getChannel().getIdLong(), pages, maxPage)));
     }
 }
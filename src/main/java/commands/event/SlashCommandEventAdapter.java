@@ -179,14 +179,14 @@ public final class SlashCommandEventAdapter implements CommandEvent {
                     .setActionRow(ButtonMultiPageHandler.getActionRow())
                     .queue(m ->
                             bot.getButtonClickManager().addEventListener(
-                                    new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), pages, maxPage)));
+                                    new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), m.getChannel().getIdLong(), pages, maxPage)));
         } else {
             event.reply(message)
                     .addActionRow(ButtonMultiPageHandler.getActionRow())
                     .queue(s ->
                             s.retrieveOriginal().queue(m ->
                                     bot.getButtonClickManager().addEventListener(
-                                            new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), pages, maxPage))));
+                                            new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), m.getChannel().getIdLong(), pages, maxPage))));
         }
     }
 
@@ -197,14 +197,14 @@ public final class SlashCommandEventAdapter implements CommandEvent {
                     .setActionRow(ButtonMultiPageHandler.getActionRow())
                     .queue(m ->
                             bot.getButtonClickManager().addEventListener(
-                                    new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), pages, maxPage)));
+                                    new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), m.getChannel().getIdLong(), pages, maxPage)));
         } else {
             event.reply(message)
                     .addActionRow(ButtonMultiPageHandler.getActionRow())
                     .queue(s ->
                             s.retrieveOriginal().queue(m ->
                                     bot.getButtonClickManager().addEventListener(
-                                            new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), pages, maxPage))));
+                                            new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), m.getChannel().getIdLong(), pages, maxPage))));
         }
     }
 
@@ -215,14 +215,14 @@ public final class SlashCommandEventAdapter implements CommandEvent {
                     .setActionRow(ButtonMultiPageHandler.getActionRow())
                     .queue(m ->
                             bot.getButtonClickManager().addEventListener(
-                                    new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), pages, maxPage)));
+                                    new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), m.getChannel().getIdLong(), pages, maxPage)));
         } else {
             event.replyEmbeds(embed)
                     .addActionRow(ButtonMultiPageHandler.getActionRow())
                     .queue(s ->
                             s.retrieveOriginal().queue(m ->
                                     bot.getButtonClickManager().addEventListener(
-                                            new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), pages, maxPage))));
+                                            new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), m.getChannel().getIdLong(), pages, maxPage))));
         }
     }
 }
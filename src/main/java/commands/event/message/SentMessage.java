@@ -51,6 +51,6 @@ public interface SentMessage {
                 next ->
                         next.getMessage(m ->
                                 bot.getButtonClickManager().addEventListener(
-                                        new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), pages, maxPage))));
+                                        new ButtonMultiPageHandler(new SentMessageAdapter(m), m.getIdLong(), m.getChannel().getIdLong(), pages, maxPage))));
     }
 }
@@ -4,6 +4,7 @@ import app.Bot;
 import commands.base.GenericCommand;
 import commands.event.CommandEvent;
 import db.model.dateFormat.CustomDateFormat;
+import db.model.dateFormat.CustomFormat;
 import db.model.guildList.GuildListEntry;
 import db.model.guildXpLeaderboard.GuildXpLeaderboard;
 import db.model.timezone.CustomTimeZone;
@@ -17,12 +18,15 @@ import org.jetbrains.annotations.Nullable;
 import utils.ArgumentParser;
 import utils.FormatUtils;
 import utils.TableFormatter;
+import utils.cache.DataVersions;
+import utils.cache.PageCache;
 
 import java.math.BigDecimal;
 import java.text.DateFormat;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static utils.TableFormatter.Justify.Left;
@@ -35,12 +39,16 @@ public class GainedXpRank extends GenericCommand {
     private final TerritoryRepository territoryRepository;
     private final GuildListRepository guildListRepository;
 
+    private final PageCache<PagesKey, XpPages> pageCache;
+
     public GainedXpRank(Bot bot) {
         this.guildXpLeaderboardRepository = bot.getDatabase().getGuildXpLeaderboardRepository();
         this.dateFormatRepository = bot.getDatabase().getDateFormatRepository();
         this.timeZoneRepository = bot.getDatabase().getTimeZoneRepository();
         this.territoryRepository = bot.getDatabase().getTerritoryRepository();
         this.guildListRepository = bot.getDatabase().getGuildListRepository();
+        this.pageCache = new PageCache<>("gained_xp_rank", bot.getDataVersions(), 100,
+                DataVersions.Source.GUILD_LEADERBOARD, DataVersions.Source.TERRITORY);
     }
 
     @NotNull
@@ -125,28 +133,98 @@ public class GainedXpRank extends GenericCommand {
             }
         }
 
-        List<GuildXpLeaderboard> xpLeaderboard = getLeaderboard(list);
-        if (xpLeaderboard == null) {
+        CustomDateFormat customDateFormat = this.dateFormatRepository.getDateFormat(event);
+        CustomTimeZone customTimeZone = this.timeZoneRepository.getTimeZone(event);
+
+        List<GuildListEntry> guildList = list;
+        PagesKey key = new PagesKey(
+                list != null ? list.stream().map(GuildListEntry::getGuildName).sorted().collect(Collectors.toList()) : null,
+                customTimeZone.getTimezone(), customDateFormat.getDateFormat()
+        );
+        Supplier<XpPages> xpPages = () -> this.pageCache.get(key, () -> renderPages(guildList, customDateFormat, customTimeZone));
+
+        XpPages first = xpPages.get();
+        if (first == null) {
             event.replyError("Something went wrong while getting XP leaderboard...");
             return;
         }
-        if (xpLeaderboard.size() == 0) {
+        if (first.bodies.isEmpty()) {
             event.reply("Somehow, there were no guilds to display on the leaderboard.");
             return;
         }
 
-        xpLeaderboard.sort(Comparator.comparingLong(GuildXpLeaderboard::getXpDiff).reversed());
-
-        CustomDateFormat customDateFormat = this.dateFormatRepository.getDateFormat(event);
-        CustomTimeZone customTimeZone = this.timeZoneRepository.getTimeZone(event);
-
-        Function<Integer, Message> pageSupplier = page -> getPage(page, xpLeaderboard, customDateFormat, customTimeZone);
-        if (maxPage(xpLeaderboard) == 0) {
+        Function<Integer, Message> pageSupplier = page -> {
+            XpPages current = xpPages.get();
+            if (current == null || current.bodies.isEmpty()) {
+                return new MessageBuilder("Something went wrong while getting XP leaderboard...").build();
+            }
+            return current.getPage(page);
+        };
+        if (first.maxPage() == 0) {
             event.reply(pageSupplier.apply(0));
             return;
         }
 
-        event.replyMultiPage(pageSupplier.apply(0), pageSupplier, () -> maxPage(xpLeaderboard));
+        event.replyMultiPage(pageSupplier.apply(0), pageSupplier, () -> {
+            XpPages current = xpPages.get();
+            return current != null ? Math.max(current.maxPage(), 0) : 0;
+        });
+    }
+
+    private record PagesKey(@Nullable List<String> guildNames, String timeZone, CustomFormat dateFormat) {
+    }
+
+    /**
+     * Rendered pages, except for the time since the last update.
+     */
+    private record XpPages(List<String> bodies, String formattedNewest, Date newest) {
+        private int maxPage() {
+            return this.bodies.size() - 1;
+        }
+
+        private Message getPage(int page) {
+            long sinceLastUpdate = (new Date().getTime() - this.newest.getTime()) / 1000L;
+            return new MessageBuilder(
+                    this.bodies.get(Math.min(page, this.maxPage())) +
+                            String.format(
+                                    "last update: %s, %s ago",
+                                    this.formattedNewest,
+                                    FormatUtils.formatReadableTime(sinceLastUpdate, false, "s")
+                            ) +
+                            "\n```"
+            ).build();
+        }
+    }
+
+    @Nullable
+    private XpPages renderPages(@Nullable List<GuildListEntry> list,
+                                @NotNull CustomDateFormat customDateFormat,
+                                @NotNull CustomTimeZone customTimeZone) {
+        List<GuildXpLeaderboard> xpLeaderboard = getLeaderboard(list);
+        if (xpLeaderboard == null) {
+            return null;
+        }
+        if (xpLeaderboard.isEmpty()) {
+            return new XpPages(List.of(), "", new Date());
+        }
+
+        xpLeaderboard.sort(Comparator.comparingLong(GuildXpLeaderboard::getXpDiff).reversed());
+
+        // Count territories only once for all pages
+        List<Display> displays = createDisplays(xpLeaderboard);
+        List<String> bodies = new ArrayList<>();
+        for (int page = 0; page <= maxPage(xpLeaderboard); page++) {
+            bodies.add(getPage(page, xpLeaderboard, displays));
+        }
+
+        // oldest and newest date could differ by guilds
+        // i.e. guilds that were not in the leaderboard for all time
+        // (this depends on implementation of update of `guild_xp_leaderboard` table)
+        Date newest = xpLeaderboard.stream().map(GuildXpLeaderboard::getTo)
+                .max(Comparator.comparingLong(Date::getTime)).orElse(new Date());
+        DateFormat dateFormat = customDateFormat.getDateFormat().getSecondFormat();
+        dateFormat.setTimeZone(customTimeZone.getTimeZoneInstance());
+        return new XpPages(bodies, String.format("%s (%s)", dateFormat.format(newest), customTimeZone.getFormattedTime()), newest);
     }
 
     private static final int GUILDS_PER_PAGE = 20;
@@ -175,12 +253,12 @@ public class GainedXpRank extends GenericCommand {
         return displays;
     }
 
-    private Message getPage(int page,
-                            @NotNull List<GuildXpLeaderboard> leaderboard,
-                            @NotNull CustomDateFormat customDateFormat,
-                            @NotNull CustomTimeZone customTimeZone) {
-        List<Display> displays = createDisplays(leaderboard);
-
+    /**
+     * Formats the page, up to the last update time.
+     */
+    private static String getPage(int page,
+                                  @NotNull List<GuildXpLeaderboard> leaderboard,
+                                  @NotNull List<Display> displays) {
         long total = leaderboard.stream().mapToLong(GuildXpLeaderboard::getXpDiff).sum();
         String totalGained = FormatUtils.truncateNumber(new BigDecimal(total));
         String totalTerritories = "" + displays.stream().mapToInt(d -> d.territory).sum();
@@ -220,43 +298,23 @@ public class GainedXpRank extends GenericCommand {
         ));
         sb.append("\n");
 
-        sb.append(makeFooter(leaderboard, customDateFormat, customTimeZone));
+        sb.append(makeDuration(leaderboard));
         sb.append("\n");
 
-        sb.append("```");
-
-        return new MessageBuilder(sb.toString()).build();
+        return sb.toString();
     }
 
-    private static String makeFooter(@NotNull List<GuildXpLeaderboard> leaderboard,
-                                     @NotNull CustomDateFormat customDateFormat,
-                                     @NotNull CustomTimeZone customTimeZone) {
-        List<String> ret = new ArrayList<>();
-
-        // oldest and newest date could differ by guilds
-        // i.e. guilds that were not in the leaderboard for all time
-        // (this depends on implementation of update of `guild_xp_leaderboard` table)
+    private static String makeDuration(@NotNull List<GuildXpLeaderboard> leaderboard) {
         Date oldest = leaderboard.stream().map(GuildXpLeaderboard::getFrom)
                 .min(Comparator.comparingLong(Date::getTime)).orElse(new Date());
         Date newest = leaderboard.stream().map(GuildXpLeaderboard::getTo)
                 .max(Comparator.comparingLong(Date::getTime)).orElse(new Date());
 
-        DateFormat dateFormat = customDateFormat.getDateFormat().getSecondFormat();
-        dateFormat.setTimeZone(customTimeZone.getTimeZoneInstance());
-
         long duration = (newest.getTime() - oldest.getTime()) / 1000L;
-        ret.add(String.format(
+        return String.format(
                 "   duration: %s",
                 FormatUtils.formatReadableTime(duration, false, "s")
-        ));
-        long sinceLastUpdate = (new Date().getTime() - newest.getTime()) / 1000L;
-        ret.add(String.format(
-                "last update: %s (%s), %s ago",
-                dateFormat.format(newest), customTimeZone.getFormattedTime(),
-                FormatUtils.formatReadableTime(sinceLastUpdate, false, "s")
-        ));
-
-        return String.join("\n", ret);
+        );
     }
 
     private static String nSpaces(int n) {
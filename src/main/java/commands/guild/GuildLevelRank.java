@@ -4,6 +4,7 @@ import app.Bot;
 import commands.base.GenericCommand;
 import commands.event.CommandEvent;
 import db.model.dateFormat.CustomDateFormat;
+import db.model.dateFormat.CustomFormat;
 import db.model.guildLeaderboard.GuildLeaderboard;
 import db.model.guildList.GuildListEntry;
 import db.model.guildXpLeaderboard.GuildXpLeaderboard;
@@ -18,12 +19,15 @@ import org.jetbrains.annotations.Nullable;
 import utils.ArgumentParser;
 import utils.FormatUtils;
 import utils.TableFormatter;
+import utils.cache.DataVersions;
+import utils.cache.PageCache;
 
 import java.math.BigDecimal;
 import java.text.DateFormat;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static utils.TableFormatter.Justify.Left;
@@ -36,12 +40,16 @@ public class GuildLevelRank extends GenericCommand {
     private final TimeZoneRepository timeZoneRepository;
     private final GuildListRepository guildListRepository;
 
+    private final PageCache<PagesKey, LBPages> pageCache;
+
     public GuildLevelRank(Bot bot) {
         this.guildLeaderboardRepository = bot.getDatabase().getGuildLeaderboardRepository();
         this.guildXpLeaderboardRepository = bot.getDatabase().getGuildXpLeaderboardRepository();
         this.dateFormatRepository = bot.getDatabase().getDateFormatRepository();
         this.timeZoneRepository = bot.getDatabase().getTimeZoneRepository();
         this.guildListRepository = bot.getDatabase().getGuildListRepository();
+        this.pageCache = new PageCache<>("guild_level_rank", bot.getDataVersions(), 100,
+                DataVersions.Source.GUILD_LEADERBOARD);
     }
 
     @NotNull
@@ -110,30 +118,86 @@ public class GuildLevelRank extends GenericCommand {
 
     @Override
     public void process(@NotNull CommandEvent event, @NotNull String[] args) {
+        String listName = parseListName(args);
+        List<GuildListEntry> list = listName != null
+                ? this.guildListRepository.getList(event.getAuthor().getIdLong(), listName)
+                : null;
+
+        CustomDateFormat customDateFormat = this.dateFormatRepository.getDateFormat(event);
+        CustomTimeZone customTimeZone = this.timeZoneRepository.getTimeZone(event);
+
+        PagesKey key = new PagesKey(
+                list != null ? list.stream().map(GuildListEntry::getGuildName).sorted().collect(Collectors.toList()) : null,
+                customTimeZone.getTimezone(), customDateFormat.getDateFormat()
+        );
+        Supplier<LBPages> lbPages = () -> this.pageCache.get(key, () -> renderPages(list, customDateFormat, customTimeZone));
+
+        LBPages first = lbPages.get();
+        if (first == null) {
+            event.replyError("Something went wrong while retrieving data...");
+            return;
+        }
+
+        Function<Integer, Message> pages = page -> {
+            LBPages current = lbPages.get();
+            if (current == null) {
+                return new MessageBuilder("Something went wrong while retrieving data...").build();
+            }
+            return current.getPage(page);
+        };
+
+        if (first.maxPage() == 0) {
+            event.reply(pages.apply(0));
+            return;
+        }
+
+        event.replyMultiPage(pages.apply(0), pages, () -> {
+            LBPages current = lbPages.get();
+            return current != null ? current.maxPage() : 0;
+        });
+    }
+
+    private record PagesKey(@Nullable List<String> guildNames, String timeZone, CustomFormat dateFormat) {
+    }
+
+    /**
+     * Rendered pages, except for the time since the last update.
+     */
+    private record LBPages(List<String> bodies, String formattedLastUpdate, Date lastUpdate) {
+        private int maxPage() {
+            return this.bodies.size() - 1;
+        }
+
+        private Message getPage(int page) {
+            // in seconds
+            long lastUpdateDiff = (new Date().getTime() - this.lastUpdate.getTime()) / 1000L;
+            return new MessageBuilder(
+                    this.bodies.get(Math.min(page, this.maxPage())) +
+                            String.format("last update: %s, %s ago\n", this.formattedLastUpdate,
+                                    FormatUtils.formatReadableTime(lastUpdateDiff, false, "s")) +
+                            "```"
+            ).build();
+        }
+    }
+
+    @Nullable
+    private LBPages renderPages(@Nullable List<GuildListEntry> list,
+                                CustomDateFormat customDateFormat, CustomTimeZone customTimeZone) {
         List<GuildLeaderboard> lb = this.guildLeaderboardRepository.getLatestLeaderboard();
         List<GuildXpLeaderboard> xpGained = this.guildXpLeaderboardRepository.findAll();
         if (lb == null || xpGained == null) {
-            event.replyError("Something went wrong while retrieving data...");
-            return;
+            return null;
         }
 
         Map<String, GuildXpLeaderboard> xpGainedMap = xpGained.stream()
                 .collect(Collectors.toMap(GuildXpLeaderboard::getName, g -> g));
 
-        String listName = parseListName(args);
-        List<GuildListEntry> list = listName != null
-                ? this.guildListRepository.getList(event.getAuthor().getIdLong(), listName)
-                : null;
         trimAndSortLB(lb, list);
 
-        CustomDateFormat customDateFormat = this.dateFormatRepository.getDateFormat(event);
-        CustomTimeZone customTimeZone = this.timeZoneRepository.getTimeZone(event);
-
         Date from = this.guildLeaderboardRepository.getOldestDate();
         Date to = this.guildLeaderboardRepository.getNewestDate();
         if (from == null || to == null) {
-            event.replyError("Something went wrong while retrieving data...");
-            return;
+            return null;
         }
 
         String lbDuration = FormatUtils.formatReadableTime(
@@ -146,20 +210,17 @@ public class GuildLevelRank extends GenericCommand {
 
         LBDisplay lbDisplay = new LBDisplay(
                 maxPage(lb), lbDuration, totalXPGained,
-                String.valueOf(totalTerritories), to
+                String.valueOf(totalTerritories)
         );
 
-        Function<Integer, Message> pages = page -> {
-            List<Display> displays = getDisplays(page, lb, xpGainedMap);
-            return new MessageBuilder(formatDisplays(page, displays, customDateFormat, customTimeZone, lbDisplay)).build();
-        };
-
-        if (maxPage(lb) == 0) {
-            event.reply(pages.apply(0));
-            return;
+        List<String> bodies = new ArrayList<>(lbDisplay.maxPage + 1);
+        for (int page = 0; page <= lbDisplay.maxPage; page++) {
+            bodies.add(formatDisplays(page, getDisplays(page, lb, xpGainedMap), lbDisplay));
         }
 
-        event.replyMultiPage(pages.apply(0), pages, () -> maxPage(lb));
+        DateFormat dateFormat = customDateFormat.getDateFormat().getSecondFormat();
+        dateFormat.setTimeZone(customTimeZone.getTimeZoneInstance());
+        return new LBPages(bodies, String.format("%s (%s)", dateFormat.format(to), customTimeZone.getFormattedTime()), to);
     }
 
     private static final int GUILDS_PER_PAGE = 20;
@@ -221,12 +282,13 @@ public class GuildLevelRank extends GenericCommand {
     }
 
     private record LBDisplay(int maxPage, String lbDuration, String totalXPGained,
-                             String totalTerritories, Date lastUpdate) {
+                             String totalTerritories) {
     }
 
-    private static String formatDisplays(int page, List<Display> displays,
-                                         CustomDateFormat customDateFormat, CustomTimeZone customTimeZone,
-                                         LBDisplay lbDisplay) {
+    /**
+     * Formats the page, up to the last update time.
+     */
+    private static String formatDisplays(int page, List<Display> displays, LBDisplay lbDisplay) {
         StringBuilder sb = new StringBuilder();
         sb.append("```ml\n");
         sb.append("---- Guild Level Rank ----\n");
@@ -253,15 +315,7 @@ public class GuildLevelRank extends GenericCommand {
                 lbDisplay.totalTerritories));
         sb.append("\n");
 
-        DateFormat dateFormat = customDateFormat.getDateFormat().getSecondFormat();
-        dateFormat.setTimeZone(customTimeZone.getTimeZoneInstance());
         sb.append(String.format("  xp gained: %s\n", lbDisplay.lbDuration));
-        // in seconds
-        long lastUpdateDiff = (new Date().getTime() - lbDisplay.lastUpdate.getTime()) / 1000L;
-        sb.append(String.format("last update: %s (%s), %s ago\n", dateFormat.format(lbDisplay.lastUpdate),
-                customTimeZone.getFormattedTime(), FormatUtils.formatReadableTime(lastUpdateDiff, false, "s")));
-
-        sb.append("```");
 
         return sb.toString();
     }
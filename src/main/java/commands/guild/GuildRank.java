@@ -4,6 +4,7 @@ import app.Bot;
 import commands.base.GenericCommand;
 import commands.event.CommandEvent;
 import db.model.dateFormat.CustomDateFormat;
+import db.model.dateFormat.CustomFormat;
 import db.model.territory.TerritoryRank;
 import db.model.timezone.CustomTimeZone;
 import db.repository.base.DateFormatRepository;
@@ -14,6 +15,9 @@ import net.dv8tion.jda.api.MessageBuilder;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import utils.cache.DataVersions;
+import utils.cache.PageCache;
 
 import java.text.DateFormat;
 import java.util.ArrayList;
@@ -28,10 +32,13 @@ public class GuildRank extends GenericCommand {
     private final DateFormatRepository dateFormatRepository;
     private final TimeZoneRepository timeZoneRepository;
 
+    private final PageCache<PagesKey, List<String>> pageCache;
+
     public GuildRank(Bot bot) {
         this.territoryRepository = bot.getDatabase().getTerritoryRepository();
         this.dateFormatRepository = bot.getDatabase().getDateFormatRepository();
         this.timeZoneRepository = bot.getDatabase().getTimeZoneRepository();
+        this.pageCache = new PageCache<>("guild_rank", bot.getDataVersions(), 100, DataVersions.Source.TERRITORY);
     }
 
     @NotNull
@@ -81,74 +88,105 @@ public class GuildRank extends GenericCommand {
         CustomTimeZone customTimeZone = this.timeZoneRepository.getTimeZone(event);
 
         Function<Integer, Message> pageSupplier = page -> getPage(page, customDateFormat, customTimeZone);
-        if (maxPage() == 0) {
+        if (maxPage(customDateFormat, customTimeZone) == 0) {
             event.reply(pageSupplier.apply(0));
             return;
         }
 
-        event.replyMultiPage(pageSupplier.apply(0), pageSupplier, this::maxPage);
+        event.replyMultiPage(pageSupplier.apply(0), pageSupplier, () -> maxPage(customDateFormat, customTimeZone));
     }
 
     private static final int GUILDS_PER_PAGE = 10;
 
+    private record PagesKey(String timeZone, CustomFormat dateFormat) {
+    }
+
+    /**
+     * Retrieves all rendered pages from the cache, or renders them if the territories have changed since.
+     * @return Rendered pages. null if something went wrong.
+     */
+    @Nullable
+    private List<String> getPages(@NotNull CustomDateFormat customDateFormat,
+                                  @NotNull CustomTimeZone customTimeZone) {
+        return this.pageCache.get(
+                new PagesKey(customTimeZone.getTimezone(), customDateFormat.getDateFormat()),
+                () -> renderPages(customDateFormat, customTimeZone)
+        );
+    }
+
     private Message getPage(int page,
                             @NotNull CustomDateFormat customDateFormat,
                             @NotNull CustomTimeZone customTimeZone) {
+        List<String> pages = getPages(customDateFormat, customTimeZone);
+        if (pages == null) {
+            return new MessageBuilder("Something went wrong while retrieving data...").build();
+        }
+        return new MessageBuilder(pages.get(Math.min(page, pages.size() - 1))).build();
+    }
+
+    @Nullable
+    private List<String> renderPages(@NotNull CustomDateFormat customDateFormat,
+                                     @NotNull CustomTimeZone customTimeZone) {
         List<TerritoryRank> ranking = this.territoryRepository.getGuildTerritoryNumbers();
         Date lastAcquired = this.territoryRepository.getLatestAcquiredTime();
         if (ranking == null || lastAcquired == null) {
-            return new MessageBuilder("Something went wrong while retrieving data...").build();
+            return null;
         }
         // should not probably happen
         if (ranking.isEmpty()) {
-            return new MessageBuilder("No one seems to own any territories...?").build();
+            return List.of("No one seems to own any territories...?");
         }
 
         int justifyRank = ranking.stream().mapToInt(g -> String.valueOf(g.getRank()).length()).max().getAsInt();
         int justifyGuildName = ranking.stream().mapToInt(g -> g.getGuildName().length()).max().orElse(5);
 
         int totalTerritories = ranking.stream().mapToInt(TerritoryRank::getCount).sum();
-
-        int min = page * GUILDS_PER_PAGE;
-        int max = Math.min((page + 1) * GUILDS_PER_PAGE, ranking.size());
-
-        List<String> ret = new ArrayList<>();
-        ret.add("```ml");
-        ret.add("---- Territory Rank ----");
-        ret.add("");
-        ret.add(String.format("%s Territories / %s Guilds", totalTerritories, ranking.size()));
-        ret.add("");
-
-        for (int i = min; i < max; i++) {
-            TerritoryRank rank = ranking.get(i);
-            ret.add(String.format(
-                    "%s.%s %s%s - %s",
-                    rank.getRank(), nSpaces(justifyRank - String.valueOf(rank.getRank()).length()),
-                    rank.getGuildName(), nSpaces(justifyGuildName - rank.getGuildName().length()),
-                    rank.getCount()
-            ));
-        }
-
-        ret.add("");
         int maxPage = (ranking.size() - 1) / GUILDS_PER_PAGE;
-        ret.add(String.format("< page %s / %s >", page + 1, maxPage + 1));
-        ret.add("");
 
         DateFormat dateFormat = customDateFormat.getDateFormat().getSecondFormat();
         dateFormat.setTimeZone(customTimeZone.getTimeZoneInstance());
         String formattedTime = String.format("%s (%s)", dateFormat.format(lastAcquired), customTimeZone.getFormattedTime());
-        ret.add("territory last acquired at: " + formattedTime);
 
-        ret.add("```");
-        return new MessageBuilder(String.join("\n", ret)).build();
+        List<String> pages = new ArrayList<>(maxPage + 1);
+        for (int page = 0; page <= maxPage; page++) {
+            int min = page * GUILDS_PER_PAGE;
+            int max = Math.min((page + 1) * GUILDS_PER_PAGE, ranking.size());
+
+            List<String> ret = new ArrayList<>();
+            ret.add("```ml");
+            ret.add("---- Territory Rank ----");
+            ret.add("");
+            ret.add(String.format("%s Territories / %s Guilds", totalTerritories, ranking.size()));
+            ret.add("");
+
+            for (int i = min; i < max; i++) {
+                TerritoryRank rank = ranking.get(i);
+                ret.add(String.format(
+                        "%s.%s %s%s - %s",
+                        rank.getRank(), nSpaces(justifyRank - String.valueOf(rank.getRank()).length()),
+                        rank.getGuildName(), nSpaces(justifyGuildName - rank.getGuildName().length()),
+                        rank.getCount()
+                ));
+            }
+
+            ret.add("");
+            ret.add(String.format("< page %s / %s >", page + 1, maxPage + 1));
+            ret.add("");
+            ret.add("territory last acquired at: " + formattedTime);
+
+            ret.add("```");
+            pages.add(String.join("\n", ret));
+        }
+        return pages;
     }
 
     private static String nSpaces(int n) {
         return String.join("", Collections.nCopies(n, " "));
     }
 
-    private int maxPage() {
-        List<TerritoryRank> ranking = this.territoryRepository.getGuildTerritoryNumbers();
-        return ranking != null ? (ranking.size() - 1) / GUILDS_PER_PAGE : 0;
+    private int maxPage(@NotNull CustomDateFormat customDateFormat,
+                        @NotNull CustomTimeZone customTimeZone) {
+        List<String> pages = getPages(customDateFormat, customTimeZone);
+        return pages != null ? pages.size() - 1 : 0;
     }
 }
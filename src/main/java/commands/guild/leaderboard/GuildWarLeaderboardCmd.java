@@ -5,6 +5,7 @@ import commands.base.GenericCommand;
 import commands.event.CommandEvent;
 import commands.guild.GuildPrefixesResolver;
 import db.model.dateFormat.CustomDateFormat;
+import db.model.dateFormat.CustomFormat;
 import db.model.guildWarLeaderboard.GuildWarLeaderboard;
 import db.model.timezone.CustomTimeZone;
 import db.repository.base.DateFormatRepository;
@@ -18,6 +19,8 @@ import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import utils.ArgumentParser;
+import utils.cache.DataVersions;
+import utils.cache.PageCache;
 
 import java.text.DateFormat;
 import java.util.*;
@@ -39,6 +42,9 @@ public class GuildWarLeaderboardCmd extends GenericCommand {
 
     private final GuildPrefixesResolver guildPrefixesResolver;
 
+    private final PageCache<PageKey, String> pageCache;
+    private final PageCache<RangeKey, Integer> maxPageCache;
+
     public GuildWarLeaderboardCmd(Bot bot) {
         this.guildWarLogRepository = bot.getDatabase().getGuildWarLogRepository();
         this.guildWarLeaderboardRepository = bot.getDatabase().getGuildWarLeaderboardRepository();
@@ -46,6 +52,9 @@ public class GuildWarLeaderboardCmd extends GenericCommand {
         this.timeZoneRepository = bot.getDatabase().getTimeZoneRepository();
 
         this.guildPrefixesResolver = new GuildPrefixesResolver(bot.getDatabase().getGuildRepository());
+
+        this.pageCache = new PageCache<>("guild_war_leaderboard", bot.getDataVersions(), 500, DataVersions.Source.WAR);
+        this.maxPageCache = new PageCache<>("guild_war_leaderboard_max_page", bot.getDataVersions(), 100, DataVersions.Source.WAR);
     }
 
     @NotNull
@@ -155,16 +164,14 @@ public class GuildWarLeaderboardCmd extends GenericCommand {
             return;
         }
 
-        Supplier<Integer> maxPageSupplier;
-        if (range == null) {
-            maxPageSupplier = this::getMaxPageAllTime;
-        } else {
-            // max page should not change for ranged leaderboard
-            int maxPage = this.getMaxPageRange(range);
-            maxPageSupplier = () -> maxPage;
-        }
+        Supplier<Integer> maxPageSupplier = () -> this.getMaxPage(range);
 
-        Function<Integer, Message> pageSupplier = page -> getPage(page, sortType, range, customDateFormat, customTimeZone, maxPageSupplier);
+        Function<Integer, Message> pageSupplier = page -> {
+            PageKey key = new PageKey(sortType, range, customTimeZone.getTimezone(), customDateFormat.getDateFormat(), page);
+            String content = this.pageCache.get(key,
+                    () -> getPage(page, sortType, range, customDateFormat, customTimeZone, maxPageSupplier));
+            return new MessageBuilder(content != null ? content : "Something went wrong while retrieving data...").build();
+        };
         if (maxPageSupplier.get() == 0) {
             event.reply(pageSupplier.apply(0));
             return;
@@ -180,6 +187,19 @@ public class GuildWarLeaderboardCmd extends GenericCommand {
     private record Justify(int rank, int guildName, int successWarNum, int totalWarNum, int successRate) {
     }
 
+    // Relative ranges are truncated to the minute by RangeParser, so that the same arguments hit the cache
+    private record PageKey(SortType sortType, @Nullable Range range, String timeZone, CustomFormat dateFormat, int page) {
+    }
+
+    private record RangeKey(@Nullable Range range) {
+    }
+
+    private int getMaxPage(@Nullable Range range) {
+        Integer maxPage = this.maxPageCache.get(new RangeKey(range),
+                () -> range == null ? this.getMaxPageAllTime() : this.getMaxPageRange(range));
+        return maxPage != null ? maxPage : 0;
+    }
+
     // Get max page for all time leaderboard
     private int getMaxPageAllTime() {
         return ((int) this.guildWarLeaderboardRepository.count() - 1) / GUILDS_PER_PAGE;
@@ -249,19 +269,20 @@ public class GuildWarLeaderboardCmd extends GenericCommand {
     }
 
     // Get single formatted page for given sort type and range
-    private Message getPage(int page,
-                            @NotNull SortType sortType,
-                            @Nullable Range range,
-                            @NotNull CustomDateFormat customDateFormat,
-                            @NotNull CustomTimeZone customTimeZone,
-                            @NotNull Supplier<Integer> maxPageSupplier) {
+    @Nullable
+    private String getPage(int page,
+                           @NotNull SortType sortType,
+                           @Nullable Range range,
+                           @NotNull CustomDateFormat customDateFormat,
+                           @NotNull CustomTimeZone customTimeZone,
+                           @NotNull Supplier<Integer> maxPageSupplier) {
         // Retrieve leaderboard
         int offset = page * GUILDS_PER_PAGE;
 
         // retrieved leaderboard is already sorted
         List<GuildWarLeaderboard> leaderboard = getPartialLeaderboard(sortType, range, offset);
         if (leaderboard == null) {
-            return new MessageBuilder("Something went wrong while retrieving data...").build();
+            return null;
         }
 
         Map<String, String> prefixMap = this.guildPrefixesResolver.resolveGuildPrefixes(
@@ -339,7 +360,7 @@ public class GuildWarLeaderboardCmd extends GenericCommand {
 
         ret.add("```");
 
-        return new MessageBuilder(String.join("\n", ret)).build();
+        return String.join("\n", ret);
     }
 
     // Displays according the given justify info.
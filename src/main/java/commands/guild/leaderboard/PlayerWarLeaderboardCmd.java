@@ -8,6 +8,7 @@ import commands.event.CommandEvent;
 import commands.event.message.SentMessage;
 import commands.guild.GuildNameResolver;
 import db.model.dateFormat.CustomDateFormat;
+import db.model.dateFormat.CustomFormat;
 import db.model.playerWarLeaderboard.PlayerWarLeaderboard;
 import db.model.timezone.CustomTimeZone;
 import db.repository.base.DateFormatRepository;
@@ -23,6 +24,8 @@ import org.jetbrains.annotations.Nullable;
 import utils.ArgumentParser;
 import utils.FormatUtils;
 import utils.UUID;
+import utils.cache.DataVersions;
+import utils.cache.PageCache;
 import utils.rateLimit.RateLimitException;
 
 import java.text.DateFormat;
@@ -46,6 +49,9 @@ public class PlayerWarLeaderboardCmd extends GenericCommand {
     private final WynnApi wynnApi;
     private final GuildNameResolver guildNameResolver;
 
+    private final PageCache<PageKey, String> pageCache;
+    private final PageCache<RangeKey, Integer> maxPageCache;
+
     public PlayerWarLeaderboardCmd(Bot bot) {
         this.guildWarLogRepository = bot.getDatabase().getGuildWarLogRepository();
         this.playerWarLeaderboardRepository = bot.getDatabase().getPlayerWarLeaderboardRepository();
@@ -57,6 +63,9 @@ public class PlayerWarLeaderboardCmd extends GenericCommand {
                 bot.getDatabase().getGuildRepository(),
                 bot.getButtonClickManager()
         );
+
+        this.pageCache = new PageCache<>("player_war_leaderboard", bot.getDataVersions(), 500, DataVersions.Source.WAR);
+        this.maxPageCache = new PageCache<>("player_war_leaderboard_max_page", bot.getDataVersions(), 100, DataVersions.Source.WAR);
     }
 
     @NotNull
@@ -281,7 +290,12 @@ public class PlayerWarLeaderboardCmd extends GenericCommand {
 
         // Else, all players leaderboard
         Supplier<Integer> maxPage = () -> this.getMaxPageAllPlayers(range);
-        Function<Integer, Message> pageSupplier = page -> allPlayersPageSupplier(page, sortType, range, customDateFormat, customTimeZone);
+        Function<Integer, Message> pageSupplier = page -> {
+            PageKey key = new PageKey(sortType, range, customTimeZone.getTimezone(), customDateFormat.getDateFormat(), page);
+            String content = this.pageCache.get(key,
+                    () -> allPlayersPageSupplier(page, sortType, range, customDateFormat, customTimeZone));
+            return new MessageBuilder(content != null ? content : "Something went wrong while retrieving data...").build();
+        };
         event.reply(new EmbedBuilder().setDescription("Processing...").build(), next ->
                 respondLeaderboard(event, next, maxPage, pageSupplier));
     }
@@ -457,8 +471,20 @@ public class PlayerWarLeaderboardCmd extends GenericCommand {
         };
     }
 
+    // Relative ranges are truncated to the minute by RangeParser, so that the same arguments hit the cache
+    private record PageKey(SortType sortType, @Nullable Range range, String timeZone, CustomFormat dateFormat, int page) {
+    }
+
+    private record RangeKey(@Nullable Range range) {
+    }
+
     // Get max page for normal leaderboard
     private int getMaxPageAllPlayers(@Nullable Range range) {
+        Integer maxPage = this.maxPageCache.get(new RangeKey(range), () -> this.countMaxPageAllPlayers(range));
+        return maxPage != null ? maxPage : 0;
+    }
+
+    private int countMaxPageAllPlayers(@Nullable Range range) {
         int count;
         if (range == null) {
             count = (int) this.playerWarLeaderboardRepository.count();
@@ -488,18 +514,19 @@ public class PlayerWarLeaderboardCmd extends GenericCommand {
     }
 
     // Page supplier for normal leaderboard
-    private Message allPlayersPageSupplier(int page,
-                                           SortType sortType,
-                                           @Nullable Range range,
-                                           CustomDateFormat customDateFormat,
-                                           CustomTimeZone customTimeZone) {
+    @Nullable
+    private String allPlayersPageSupplier(int page,
+                                          SortType sortType,
+                                          @Nullable Range range,
+                                          CustomDateFormat customDateFormat,
+                                          CustomTimeZone customTimeZone) {
         // Retrieve leaderboard
         int offset = page * PLAYERS_PER_PAGE;
 
         // retrieved partial leaderboard is already sorted
         List<PlayerWarLeaderboard> leaderboard = allPlayersGetPartialLeaderboard(sortType, range, offset);
         if (leaderboard == null) {
-            return new MessageBuilder("Something went wrong while retrieving data...").build();
+            return null;
         }
 
         List<Display> displays = new ArrayList<>();
@@ -552,7 +579,7 @@ public class PlayerWarLeaderboardCmd extends GenericCommand {
 
         ret.add("```");
 
-        return new MessageBuilder(String.join("\n", ret)).build();
+        return String.join("\n", ret);
     }
 
     @NotNull
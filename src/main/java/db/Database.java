@@ -7,6 +7,8 @@ public interface Database {
     @NotNull
     TrackChannelRepository getTrackingChannelRepository();
     @NotNull
+    TrackWebhookRepository getTrackWebhookRepository();
+    @NotNull
     WorldRepository getWorldRepository();
     @NotNull
     CommandLogRepository getCommandLogRepository();
@@ -13,17 +13,26 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Pool of at most the given number of connections in use.
+ * <br>Waiting for a connection does not hold any monitor, so that virtual threads waiting for a connection
+ * do not pin their carrier threads and keep the threads holding connections from releasing them.
+ */
 public class SimpleConnectionPool implements ConnectionPool {
     private static final long MAX_RELEASE_WAIT = TimeUnit.SECONDS.toMillis(60);
     private static final long RELEASE_CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(3);
 
+    private static final long ACQUIRE_TIMEOUT = TimeUnit.SECONDS.toMillis(3);
+
     private final String url;
     private final Logger logger;
 
-    private final int maxConnections;
     private final BlockingQueue<@NotNull Connection> availableConnections;
+    // Permits to use a connection, one per connection in use
+    private final Semaphore permits;
     // List of connections waiting to be released
     private final Object usedConnectionLock;
     private final Map<@NotNull Connection, Long> usedConnectionTime;
@@ -32,8 +41,8 @@ public class SimpleConnectionPool implements ConnectionPool {
         this.url = url;
         this.logger = logger;
 
-        this.maxConnections = maxConnections;
-        this.availableConnections = new ArrayBlockingQueue<>(this.maxConnections, true);
+        this.availableConnections = new ArrayBlockingQueue<>(maxConnections);
+        this.permits = new Semaphore(maxConnections, true);
         this.usedConnectionLock = new Object();
         this.usedConnectionTime = new HashMap<>();
 
@@ -71,34 +80,30 @@ public class SimpleConnectionPool implements ConnectionPool {
 
     @Override
     @Nullable
-    public synchronized Connection getConnection() {
-        Connection conn = null;
-        // Either there are connections available, or all connections in the pool are currently used
-        // then retrieve a connection from the pool
-        if (!this.availableConnections.isEmpty() || this.usedConnectionTime.size() >= this.maxConnections) {
-            try {
-                conn = this.availableConnections.poll(3, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-            if (conn == null) {
+    public Connection getConnection() {
+        // Wait until the number of connections in use is below max
+        try {
+            if (!this.permits.tryAcquire(ACQUIRE_TIMEOUT, TimeUnit.MILLISECONDS)) {
                 this.logger.log(0, "Connection Pool: Failed to retrieve connection");
                 return null;
             }
-            // Check validity of the retrieved connection
-            if (!isValid(conn)) {
-                // If not valid, abort, and get a new connection
-                close(conn);
-                conn = null;
-            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
         }
 
-        // If there are no available connections, and the open connections are not at max
-        // then open a new connection
+        // Reuse an idle connection if any, otherwise open a new connection
+        Connection conn = this.availableConnections.poll();
+        if (conn != null && !isValid(conn)) {
+            // If not valid, abort, and get a new connection
+            close(conn);
+            conn = null;
+        }
         if (conn == null) {
             try {
                 conn = createConnection(this.url);
             } catch (SQLException e) {
+                this.permits.release();
                 this.logger.logException("Something went wrong while opening a connection to DB", e);
                 return null;
             }
@@ -113,29 +118,39 @@ public class SimpleConnectionPool implements ConnectionPool {
     /**
      * Checks connection release timeout.
      * If a connection hasn't been released via {@link ConnectionPool#releaseConnection(Connection)} after a certain
-     * amount of time, then abort that connection, create a new connection and add to the pool.
+     * amount of time, then abort that connection, so that a new connection can be opened in place of it.
      */
     private void checkUnreleasedConnections() {
+        int removed = 0;
         synchronized (this.usedConnectionLock) {
             long current = System.currentTimeMillis();
-            boolean res = this.usedConnectionTime.entrySet().removeIf(e -> MAX_RELEASE_WAIT < current - e.getValue());
-            if (res) {
-                this.logger.log(0, "Removing unreleased connection(s) from pool");
+            var it = this.usedConnectionTime.entrySet().iterator();
+            while (it.hasNext()) {
+                if (MAX_RELEASE_WAIT < current - it.next().getValue()) {
+                    it.remove();
+                    removed++;
+                }
             }
         }
+        if (removed > 0) {
+            this.permits.release(removed);
+            this.logger.log(0, "Removing unreleased connection(s) from pool");
+        }
     }
 
     @Override
     public void releaseConnection(@NotNull Connection connection) {
+        boolean used;
         synchronized (this.usedConnectionLock) {
-            if (usedConnectionTime.containsKey(connection)) {
-                usedConnectionTime.remove(connection);
-                availableConnections.offer(connection);
-            } else {
-                // Else, this connection was discarded from pool by checkUnreleasedConnections()
-                // because it was not released for a long time
-                close(connection);
-            }
+            used = this.usedConnectionTime.remove(connection) != null;
+        }
+        if (used) {
+            this.availableConnections.offer(connection);
+            this.permits.release();
+        } else {
+            // Else, this connection was discarded from pool by checkUnreleasedConnections()
+            // because it was not released for a long time
+            close(connection);
         }
     }
 }
@@ -1,5 +1,6 @@
 package db.model.musicQueue;
 
+import javax.annotation.Nullable;
 import java.util.Date;
 
 public class MusicQueueEntry implements MusicQueueEntryId {
@@ -9,14 +10,19 @@ public class MusicQueueEntry implements MusicQueueEntryId {
     private final String url;
     private final long position;
     private final Date updatedAt;
+    // Base64 of the track encoded by LavaPlayer, to restore the track without resolving the URL again
+    @Nullable
+    private final String trackData;
 
-    public MusicQueueEntry(long guildId, int index, long userId, String url, long position, Date updatedAt) {
+    public MusicQueueEntry(long guildId, int index, long userId, String url, long position, Date updatedAt,
+                           @Nullable String trackData) {
         this.guildId = guildId;
         this.index = index;
         this.userId = userId;
         this.url = url;
         this.position = position;
         this.updatedAt = updatedAt;
+        this.trackData = trackData;
     }
 
     @Override
@@ -44,4 +50,9 @@ public class MusicQueueEntry implements MusicQueueEntryId {
     public Date getUpdatedAt() {
         return updatedAt;
     }
+
+    @Nullable
+    public String getTrackData() {
+        return trackData;
+    }
 }
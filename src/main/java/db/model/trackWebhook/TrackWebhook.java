@@ -0,0 +1,39 @@
+package db.model.trackWebhook;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A webhook created in a channel, used to deliver tracking messages of the channel instead of the bot account.
+ */
+public class TrackWebhook implements TrackWebhookId {
+    private final long channelId;
+    private final long guildId;
+    private final long webhookId;
+    @NotNull
+    private final String webhookUrl;
+
+    public TrackWebhook(long channelId, long guildId, long webhookId, @NotNull String webhookUrl) {
+        this.channelId = channelId;
+        this.guildId = guildId;
+        this.webhookId = webhookId;
+        this.webhookUrl = webhookUrl;
+    }
+
+    @Override
+    public long getChannelId() {
+        return channelId;
+    }
+
+    public long getGuildId() {
+        return guildId;
+    }
+
+    public long getWebhookId() {
+        return webhookId;
+    }
+
+    @NotNull
+    public String getWebhookUrl() {
+        return webhookUrl;
+    }
+}
@@ -0,0 +1,5 @@
+package db.model.trackWebhook;
+
+public interface TrackWebhookId {
+    long getChannelId();
+}
@@ -5,10 +5,19 @@ import db.model.guild.GuildId;
 import db.repository.Repository;
 import org.jetbrains.annotations.NotNull;
 
+import javax.annotation.CheckReturnValue;
 import javax.annotation.Nullable;
 import java.util.List;
 
 public interface GuildRepository extends Repository<Guild, GuildId> {
+    /**
+     * Creates all given guilds in a single statement.
+     * @param guilds List of guilds.
+     * @return True if succeeded.
+     */
+    @CheckReturnValue
+    boolean createAll(@NotNull List<Guild> guilds);
+
     /**
      * Find all guilds with provided guild names.
      * @param guildNames Guild names.
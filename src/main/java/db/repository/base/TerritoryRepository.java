@@ -50,6 +50,7 @@ public interface TerritoryRepository extends Repository<Territory, TerritoryId>
 
     /**
      * Updates the whole table to the new given territories list.
+     * Only the changed territories are written, and territory logs are inserted for the ownership changes.
      * @param territories New territories list retrieved from the Wynn API.
      * @return {@code true} if succeeded.
      */
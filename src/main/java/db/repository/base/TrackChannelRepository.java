@@ -6,6 +6,7 @@ import db.model.track.TrackType;
 import db.repository.Repository;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Date;
 import java.util.List;
 
 public interface TrackChannelRepository extends Repository<TrackChannel, TrackChannelId> {
@@ -24,6 +25,20 @@ public interface TrackChannelRepository extends Repository<TrackChannel, TrackCh
      */
     @Nullable List<TrackChannel> findAllOf(long guildId, long channelId);
 
+    /**
+     * Returns all track channel entries in the guild.
+     * @param guildId Discord guild id.
+     * @return List of entries. null if something went wrong.
+     */
+    @Nullable List<TrackChannel> findAllOfGuild(long guildId);
+
+    /**
+     * Returns all track channel entries that expire at or before the given time, in the order of expiry.
+     * @param time Time.
+     * @return List of entries. null if something went wrong.
+     */
+    @Nullable List<TrackChannel> findAllExpiringBefore(Date time);
+
     /**
      * Returns all track channel entries with the given guild name.
      * @param guildName Guild name.
@@ -51,4 +66,11 @@ public interface TrackChannelRepository extends Repository<TrackChannel, TrackCh
      * @return {@code true} if success.
      */
     boolean deleteAllOfChannel(long channelId);
+
+    /**
+     * Deletes all given tracking entries in a single statement.
+     * @param ids Track channel IDs.
+     * @return {@code true} if success.
+     */
+    boolean deleteAll(List<? extends TrackChannelId> ids);
 }
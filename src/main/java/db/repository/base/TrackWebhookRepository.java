@@ -0,0 +1,20 @@
+package db.repository.base;
+
+import db.model.trackWebhook.TrackWebhook;
+import db.model.trackWebhook.TrackWebhookId;
+import db.repository.Repository;
+
+public interface TrackWebhookRepository extends Repository<TrackWebhook, TrackWebhookId> {
+    /**
+     * Deletes all webhooks of the specified guild.
+     * @param guildId Guild ID
+     * @return {@code true} if success.
+     */
+    boolean deleteAllOfGuild(long guildId);
+
+    /**
+     * Deletes all webhooks of the channels without any tracking.
+     * @return {@code true} if success.
+     */
+    boolean deleteAllWithoutTracking();
+}
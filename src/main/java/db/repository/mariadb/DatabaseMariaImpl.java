@@ -19,6 +19,7 @@ public class DatabaseMariaImpl implements Database {
             MYSQL_HOST, MYSQL_PORT, MYSQL_DATABASE, MYSQL_USER, MYSQL_PASSWORD);
 
     private final TrackChannelRepository trackChannelRepository;
+    private final TrackWebhookRepository trackWebhookRepository;
     private final WorldRepository worldRepository;
     private final CommandLogRepository commandLogRepository;
     private final TerritoryRepository territoryRepository;
@@ -48,10 +49,12 @@ public class DatabaseMariaImpl implements Database {
     public DatabaseMariaImpl(Logger logger) {
         ConnectionPool connectionPool = new SimpleConnectionPool(URL, logger, 10);
         this.trackChannelRepository = new MariaTrackChannelRepository(connectionPool, logger);
+        this.trackWebhookRepository = new MariaTrackWebhookRepository(connectionPool, logger);
         this.worldRepository = new MariaWorldRepository(connectionPool, logger);
         this.commandLogRepository = new MariaCommandLogRepository(connectionPool, logger);
-        this.territoryRepository = new MariaTerritoryRepository(connectionPool, logger);
-        this.territoryLogRepository = new MariaTerritoryLogRepository(connectionPool, logger);
+        MariaTerritoryLogRepository territoryLogRepository = new MariaTerritoryLogRepository(connectionPool, logger);
+        this.territoryLogRepository = territoryLogRepository;
+        this.territoryRepository = new MariaTerritoryRepository(connectionPool, logger, territoryLogRepository);
         this.warTrackRepository = new MariaWarTrackRepository(connectionPool, logger);
         this.warPlayerRepository = new MariaWarPlayerRepository(connectionPool, logger);
         this.warLogRepository = new MariaWarLogRepository(connectionPool, logger, warPlayerRepository);
@@ -79,6 +82,11 @@ public class DatabaseMariaImpl implements Database {
         return this.trackChannelRepository;
     }
 
+    @Override
+    public @NotNull TrackWebhookRepository getTrackWebhookRepository() {
+        return this.trackWebhookRepository;
+    }
+
     @Override
     public @NotNull WorldRepository getWorldRepository() {
         return this.worldRepository;
@@ -38,6 +38,25 @@ class MariaGuildRepository extends MariaRepository<Guild> implements GuildReposi
         );
     }
 
+    @Override
+    public boolean createAll(@NotNull List<Guild> guilds) {
+        if (guilds.size() == 0) return true;
+
+        String singlePlaceHolder = "(?, ?, ?)";
+        String placeHolders = guilds.stream().map(g -> singlePlaceHolder).collect(Collectors.joining(", "));
+        Object[] objects = guilds.stream()
+                .map(g -> new Object[]{
+                        g.getName(),
+                        g.getPrefix(),
+                        dbFormat.format(g.getCreatedAt())
+                })
+                .flatMap(Arrays::stream).toArray();
+        return this.execute(
+                "INSERT INTO `guild` (name, prefix, created_at) VALUES " + placeHolders,
+                objects
+        );
+    }
+
     @Override
     public boolean exists(@NotNull GuildId guildId) {
         ResultSet res = this.executeQuery(
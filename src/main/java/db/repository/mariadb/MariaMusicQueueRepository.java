@@ -32,20 +32,22 @@ class MariaMusicQueueRepository extends MariaRepository<MusicQueueEntry> impleme
                 res.getLong(3),
                 res.getString(4),
                 res.getInt(5),
-                res.getTimestamp(6)
+                res.getTimestamp(6),
+                res.getString(7)
         );
     }
 
     @Override
     public <S extends MusicQueueEntry> boolean create(@NotNull S entity) {
         return this.execute(
-                "INSERT INTO `music_queue` (guild_id, `index`, user_id, url, position, updated_at) VALUES (?, ?, ?, ?, ?, ?)",
+                "INSERT INTO `music_queue` (guild_id, `index`, user_id, url, position, updated_at, track_data) VALUES (?, ?, ?, ?, ?, ?, ?)",
                 entity.getGuildId(),
                 entity.getIndex(),
                 entity.getUserId(),
                 entity.getUrl(),
                 entity.getPosition(),
-                dbFormat.format(entity.getUpdatedAt())
+                dbFormat.format(entity.getUpdatedAt()),
+                entity.getTrackData()
         );
     }
 
@@ -144,9 +146,9 @@ class MariaMusicQueueRepository extends MariaRepository<MusicQueueEntry> impleme
             return true;
         }
 
-        String placeHolder = "(?, ?, ?, ?, ?, ?)";
+        String placeHolder = "(?, ?, ?, ?, ?, ?, ?)";
         return this.execute(
-                "INSERT INTO `music_queue` (guild_id, `index`, user_id, url, position, updated_at) VALUES " +
+                "INSERT INTO `music_queue` (guild_id, `index`, user_id, url, position, updated_at, track_data) VALUES " +
                         String.join(", ", Collections.nCopies(queue.size(), placeHolder)),
                 queue.stream().flatMap(q -> Stream.of(
                         q.getGuildId(),
@@ -154,7 +156,8 @@ class MariaMusicQueueRepository extends MariaRepository<MusicQueueEntry> impleme
                         q.getUserId(),
                         q.getUrl(),
                         q.getPosition(),
-                        dbFormat.format(q.getUpdatedAt())
+                        dbFormat.format(q.getUpdatedAt()),
+                        q.getTrackData()
                 )).toArray()
         );
     }
@@ -190,11 +193,12 @@ class MariaMusicQueueRepository extends MariaRepository<MusicQueueEntry> impleme
     @Override
     public boolean update(@NotNull MusicQueueEntry entity) {
         return this.execute(
-                "UPDATE `music_queue` SET `user_id` = ?, `url` = ?, `position` = ?, `updated_at` = ? WHERE `guild_id` = ? AND `index` = ?",
+                "UPDATE `music_queue` SET `user_id` = ?, `url` = ?, `position` = ?, `updated_at` = ?, `track_data` = ? WHERE `guild_id` = ? AND `index` = ?",
                 entity.getUserId(),
                 entity.getUrl(),
                 entity.getPosition(),
                 dbFormat.format(entity.getUpdatedAt()),
+                entity.getTrackData(),
                 entity.getGuildId(),
                 entity.getIndex()
         );
@@ -9,14 +9,17 @@ import log.Logger;
 import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.Nullable;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class MariaTerritoryLogRepository extends MariaRepository<TerritoryLog> implements TerritoryLogRepository {
     private static final DateFormat dbFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
@@ -45,7 +48,43 @@ public class MariaTerritoryLogRepository extends MariaRepository<TerritoryLog> i
 
     @Override
     public <S extends TerritoryLog> boolean create(@NotNull S entity) {
-        throw new Error("Insert not implemented: records are automatically created by the triggers");
+        return this.execute(
+                "INSERT INTO `territory_log` (territory_name, old_guild_name, new_guild_name, old_guild_terr_amt, new_guild_terr_amt, acquired, time_diff) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                entity.getTerritoryName(),
+                entity.getOldGuildName(),
+                entity.getNewGuildName(),
+                entity.getOldGuildTerrAmt(),
+                entity.getNewGuildTerrAmt(),
+                dbFormat.format(entity.getAcquired()),
+                entity.getTimeDiff()
+        );
+    }
+
+    /**
+     * Creates all given logs using the given connection, in the order of the list.
+     * The IDs of the given logs are ignored.
+     * @return {@code true} if success.
+     */
+    boolean createAll(@NotNull Connection connection, @NotNull List<TerritoryLog> logs) {
+        if (logs.isEmpty()) {
+            return true;
+        }
+
+        String placeHolder = "(?, ?, ?, ?, ?, ?, ?)";
+        return this.execute(connection,
+                "INSERT INTO `territory_log` (territory_name, old_guild_name, new_guild_name, old_guild_terr_amt, new_guild_terr_amt, acquired, time_diff) " +
+                        "VALUES " + String.join(", ", Collections.nCopies(logs.size(), placeHolder)),
+                logs.stream().flatMap(l -> Stream.of(
+                        l.getTerritoryName(),
+                        l.getOldGuildName(),
+                        l.getNewGuildName(),
+                        l.getOldGuildTerrAmt(),
+                        l.getNewGuildTerrAmt(),
+                        dbFormat.format(l.getAcquired()),
+                        l.getTimeDiff()
+                )).toArray()
+        );
     }
 
     @Override
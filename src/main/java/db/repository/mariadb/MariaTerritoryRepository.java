@@ -4,12 +4,14 @@ import db.ConnectionPool;
 import db.model.territory.Territory;
 import db.model.territory.TerritoryId;
 import db.model.territory.TerritoryRank;
+import db.model.territoryLog.TerritoryLog;
 import db.repository.base.TerritoryRepository;
 import log.Logger;
 import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nullable;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.DateFormat;
@@ -18,14 +20,88 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 class MariaTerritoryRepository extends MariaRepository<Territory> implements TerritoryRepository {
     private static final DateFormat dbFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
-    MariaTerritoryRepository(ConnectionPool db, Logger logger) {
+    /**
+     * Interval to reload the snapshot from DB, in case the table was modified from outside.
+     */
+    private static final long SNAPSHOT_RELOAD_INTERVAL = TimeUnit.MINUTES.toMillis(30);
+
+    private final MariaTerritoryLogRepository territoryLogRepository;
+
+    /**
+     * Last known state of the table. null if it has to be (re-)loaded from DB.
+     */
+    @Nullable
+    private TerritorySnapshot snapshot;
+    /**
+     * True if the legacy `territory_logger` trigger is confirmed to be gone.
+     * The trigger still exists on databases created before the territory logs were written in the code,
+     * as the init script runs only on a new database. Until it is gone, territory logs are left to the trigger
+     * so that ownership changes are not logged twice.
+     */
+    private boolean legacyTriggerGone;
+
+    MariaTerritoryRepository(ConnectionPool db, Logger logger, MariaTerritoryLogRepository territoryLogRepository) {
         super(db, logger);
+        this.territoryLogRepository = territoryLogRepository;
+    }
+
+    private synchronized void invalidateSnapshot() {
+        this.snapshot = null;
+    }
+
+    /**
+     * Retrieves the snapshot of the table, (re-)loading it from DB if necessary.
+     * Caller must hold the lock of this repository.
+     * @return Snapshot. null if something went wrong.
+     */
+    @Nullable
+    private TerritorySnapshot getSnapshot() {
+        if (this.snapshot == null || System.currentTimeMillis() - this.snapshot.getLoadedAt() >= SNAPSHOT_RELOAD_INTERVAL) {
+            if (!this.legacyTriggerGone) {
+                this.legacyTriggerGone = this.dropLegacyTrigger();
+            }
+            List<Territory> stored = this.findAll();
+            if (stored == null) {
+                return null;
+            }
+            this.snapshot = new TerritorySnapshot(stored);
+        }
+        return this.snapshot;
+    }
+
+    /**
+     * Drops the legacy `territory_logger` trigger, which inserted territory logs on `territory` table update.
+     * Caller must hold the lock of this repository.
+     * @return True if the trigger is confirmed to be gone.
+     */
+    private boolean dropLegacyTrigger() {
+        if (this.execute("DROP TRIGGER IF EXISTS `territory_logger`")) {
+            return true;
+        }
+
+        // e.g. the user does not have the TRIGGER privilege; check if it has been dropped manually
+        ResultSet res = this.executeQuery(
+                "SELECT COUNT(*) FROM `information_schema`.`TRIGGERS` WHERE `TRIGGER_SCHEMA` = DATABASE() AND `TRIGGER_NAME` = 'territory_logger'"
+        );
+        if (res != null) {
+            try {
+                if (res.next() && res.getInt(1) == 0) {
+                    return true;
+                }
+            } catch (SQLException e) {
+                this.logResponseException(e);
+            }
+        }
+        this.logger.log(0, "Territory repository: failed to drop the legacy `territory_logger` trigger, " +
+                "leaving territory logs to the trigger. Please drop the trigger manually.");
+        return false;
     }
 
     @Override
@@ -36,6 +112,7 @@ class MariaTerritoryRepository extends MariaRepository<Territory> implements Ter
 
     @Override
     public <S extends Territory> boolean create(@NotNull S entity) {
+        this.invalidateSnapshot();
         Territory.Location location = entity.getLocation();
         return this.execute(
                 "INSERT INTO `territory` (name, guild_name, acquired, attacker, start_x, start_z, end_x, end_z) VALUES " +
@@ -90,23 +167,12 @@ class MariaTerritoryRepository extends MariaRepository<Territory> implements Ter
         return 0;
     }
 
-    public int countGuildTerritories(@NotNull String guildName) {
-        ResultSet res = this.executeQuery(
-                "SELECT count_guild_territories(?)",
-                guildName
-        );
-
-        if (res == null) {
+    public synchronized int countGuildTerritories(@NotNull String guildName) {
+        TerritorySnapshot snapshot = this.getSnapshot();
+        if (snapshot == null) {
             return -1;
         }
-
-        try {
-            if (res.next())
-                return res.getInt(1);
-        } catch (SQLException e) {
-            this.logResponseException(e);
-        }
-        return -1;
+        return snapshot.countGuildTerritories(guildName);
     }
 
     @Nullable
@@ -130,53 +196,20 @@ class MariaTerritoryRepository extends MariaRepository<Territory> implements Ter
     }
 
     @Nullable
-    public List<TerritoryRank> getGuildTerritoryNumbers() {
-        ResultSet res = this.executeQuery(
-                "SELECT `guild_name`, COUNT(*) AS `territories`, RANK() OVER (ORDER BY COUNT(*) DESC) FROM `territory` GROUP BY `guild_name`"
-        );
-
-        if (res == null) {
+    public synchronized List<TerritoryRank> getGuildTerritoryNumbers() {
+        TerritorySnapshot snapshot = this.getSnapshot();
+        if (snapshot == null) {
             return null;
         }
-
-        try {
-            List<TerritoryRank> ranking = new ArrayList<>();
-            while (res.next()) {
-                String guildName = res.getString(1);
-                int territories = res.getInt(2);
-                int rank = res.getInt(3);
-                if (guildName == null) {
-                    throw new SQLException("Returned row was null");
-                }
-                ranking.add(new TerritoryRank(guildName, territories, rank));
-            }
-            return ranking;
-        } catch (SQLException e) {
-            this.logResponseException(e);
-        }
-        return null;
+        return snapshot.getRanking();
     }
 
-    public int getGuildTerritoryRanking(@NotNull String guildName) {
-        ResultSet res = this.executeQuery(
-                "SELECT `ttn`.`rank` FROM (SELECT `guild_name`, RANK() OVER (ORDER BY COUNT(*) DESC) AS `rank` FROM `territory` GROUP BY `guild_name`) AS ttn WHERE `guild_name` = ?",
-                guildName
-        );
-
-        if (res == null) {
-            return -1;
-        }
-
-        try {
-            if (res.next()) {
-                return res.getInt(1);
-            } else {
-                return 0;
-            }
-        } catch (SQLException e) {
-            this.logResponseException(e);
+    public synchronized int getGuildTerritoryRanking(@NotNull String guildName) {
+        TerritorySnapshot snapshot = this.getSnapshot();
+        if (snapshot == null) {
             return -1;
         }
+        return snapshot.getRanking(guildName);
     }
 
     @Nullable
@@ -240,6 +273,7 @@ class MariaTerritoryRepository extends MariaRepository<Territory> implements Ter
 
     @Override
     public boolean update(@NotNull Territory entity) {
+        this.invalidateSnapshot();
         Territory.Location location = entity.getLocation();
         return this.execute(
                 "UPDATE `territory` SET `guild_name` = ?, `acquired` = ?, `attacker` = ?, `start_x` = ?, `start_z` = ?, `end_x` = ?, `end_z` = ? WHERE `name` = ?",
@@ -255,14 +289,71 @@ class MariaTerritoryRepository extends MariaRepository<Territory> implements Ter
     }
 
     @CheckReturnValue
-    public boolean updateAll(@NotNull List<Territory> territories) {
+    public synchronized boolean updateAll(@NotNull List<Territory> territories) {
         // assume no territory deletion
         if (territories.isEmpty()) {
             return true;
         }
 
+        TerritorySnapshot snapshot = this.getSnapshot();
+        if (snapshot == null) {
+            return false;
+        }
+
+        TerritorySnapshot.Diff diff = snapshot.diff(territories);
+        if (diff.isEmpty()) {
+            return true;
+        }
+        List<TerritoryLog> logs = this.legacyTriggerGone ? diff.logs() : List.of();
+        if (!this.writeDiff(diff.changed(), logs)) {
+            // State of the table is unknown, reload on the next update
+            this.snapshot = null;
+            return false;
+        }
+        snapshot.apply(diff.changed());
+        return true;
+    }
+
+    private boolean writeDiff(@NotNull List<Territory> territories, @NotNull List<TerritoryLog> logs) {
+        Connection connection = this.db.getConnection();
+        if (connection == null) {
+            return false;
+        }
+
+        try {
+            connection.setAutoCommit(false);
+
+            if (!this.upsertAll(connection, territories)) {
+                throw new SQLException("Failed to update territory");
+            }
+            if (!this.territoryLogRepository.createAll(connection, logs)) {
+                throw new SQLException("Failed to insert into territory_log");
+            }
+
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            this.logResponseException(e);
+            try {
+                connection.rollback();
+            } catch (SQLException ex) {
+                this.logger.logException("Something went wrong while rolling back changes", ex);
+            }
+            return false;
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                this.logger.logException("Something went wrong while setting auto commit back on", e);
+            }
+
+            this.db.releaseConnection(connection);
+        }
+    }
+
+    private boolean upsertAll(@NotNull Connection connection, @NotNull List<Territory> territories) {
         String placeHolder = "(?, ?, ?, ?, ?, ?, ?, ?)";
-        return this.execute(
+        return this.execute(connection,
                 "INSERT INTO `territory` (`name`, `guild_name`, `acquired`, `attacker`, `start_x`, `start_z`, `end_x`, `end_z`) " +
                         "VALUES " + String.join(", ", Collections.nCopies(territories.size(), placeHolder)) +
                         " ON DUPLICATE KEY UPDATE `guild_name` = VALUES(`guild_name`), `acquired` = VALUES(`acquired`), `attacker` = VALUES(`attacker`), " +
@@ -334,6 +425,7 @@ class MariaTerritoryRepository extends MariaRepository<Territory> implements Ter
 
     @Override
     public boolean delete(@NotNull TerritoryId territoryId) {
+        this.invalidateSnapshot();
         return this.execute(
                 "DELETE FROM `territory` WHERE `name` = ?",
                 territoryId.getName()
@@ -13,15 +13,41 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 class MariaTrackChannelRepository extends MariaRepository<TrackChannel> implements TrackChannelRepository {
     private static final DateFormat dbFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
+    // values of `guild_name_v` and `player_uuid_v` virtual columns for null values
+    private static final String GUILD_NAME_NULL = "";
+    private static final String PLAYER_UUID_NULL = "00000000-0000-0000-0000-000000000000";
+
+    /**
+     * True once the index on `expires_at` has been added to an existing table, if it was missing.
+     */
+    private boolean expiresAtIndexChecked;
+
     MariaTrackChannelRepository(ConnectionPool db, Logger logger) {
         super(db, logger);
     }
 
+    /**
+     * Adds the index on `expires_at` to tables created before the index was added to the init script.
+     * Without the index, retrieving the due entries scans the whole table.
+     */
+    private synchronized void addExpiresAtIndex() {
+        if (this.expiresAtIndexChecked) return;
+        // Only tried once, the query still works without the index
+        this.expiresAtIndexChecked = true;
+        if (!this.execute("ALTER TABLE `track_channel` ADD INDEX IF NOT EXISTS `expires_at_idx` (`expires_at`)")) {
+            this.logger.log(0, "Track channel repository: failed to add the `expires_at_idx` index. " +
+                    "Please add the index manually.");
+        }
+    }
+
     protected TrackChannel bind(@NotNull ResultSet res) throws SQLException {
         TrackChannel instance = new TrackChannel(
                 TrackType.valueOf(res.getString(1)), res.getLong(2), res.getLong(3),
@@ -119,6 +145,39 @@ class MariaTrackChannelRepository extends MariaRepository<TrackChannel> implemen
         }
     }
 
+    @Override
+    public @Nullable List<TrackChannel> findAllOfGuild(long guildId) {
+        ResultSet res = this.executeQuery(
+                "SELECT * FROM `track_channel` WHERE `guild_id` = ?",
+                guildId
+        );
+        if (res == null) return null;
+
+        try {
+            return bindAll(res);
+        } catch (SQLException e) {
+            this.logResponseException(e);
+            return null;
+        }
+    }
+
+    @Override
+    public @Nullable List<TrackChannel> findAllExpiringBefore(Date time) {
+        this.addExpiresAtIndex();
+        ResultSet res = this.executeQuery(
+                "SELECT * FROM `track_channel` WHERE `expires_at` <= ? ORDER BY `expires_at`",
+                dbFormat.format(time)
+        );
+        if (res == null) return null;
+
+        try {
+            return bindAll(res);
+        } catch (SQLException e) {
+            this.logResponseException(e);
+            return null;
+        }
+    }
+
     @Override
     public @Nullable List<TrackChannel> findAllOfGuildNameAndType(String guildName, TrackType type) {
         ResultSet res = this.executeQuery(
@@ -175,6 +234,29 @@ class MariaTrackChannelRepository extends MariaRepository<TrackChannel> implemen
         );
     }
 
+    @Override
+    public boolean deleteAll(List<? extends TrackChannelId> ids) {
+        if (ids.isEmpty()) {
+            return true;
+        }
+
+        List<Object> args = new ArrayList<>(ids.size() * 5);
+        for (TrackChannelId id : ids) {
+            args.add(id.getType());
+            args.add(id.getGuildId());
+            args.add(id.getChannelId());
+            args.add(id.getGuildName() != null ? id.getGuildName() : GUILD_NAME_NULL);
+            args.add(id.getPlayerUUID() != null ? id.getPlayerUUID() : PLAYER_UUID_NULL);
+        }
+        // Match with the virtual columns, so that the unique key can be used
+        return this.execute(
+                "DELETE FROM `track_channel` WHERE (`type`, `guild_id`, `channel_id`, `guild_name_v`, `player_uuid_v`) IN (" +
+                        String.join(", ", Collections.nCopies(ids.size(), "(?, ?, ?, ?, ?)")) +
+                        ")",
+                args.toArray()
+        );
+    }
+
     @Nullable
     @Override
     public List<TrackChannel> findAll() {
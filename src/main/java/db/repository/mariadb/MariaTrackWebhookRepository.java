@@ -0,0 +1,149 @@
+package db.repository.mariadb;
+
+import db.ConnectionPool;
+import db.model.trackWebhook.TrackWebhook;
+import db.model.trackWebhook.TrackWebhookId;
+import db.repository.base.TrackWebhookRepository;
+import log.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.Nullable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+public class MariaTrackWebhookRepository extends MariaRepository<TrackWebhook> implements TrackWebhookRepository {
+    MariaTrackWebhookRepository(ConnectionPool db, Logger logger) {
+        super(db, logger);
+    }
+
+    @Override
+    protected TrackWebhook bind(@NotNull ResultSet res) throws SQLException {
+        return new TrackWebhook(res.getLong(1), res.getLong(2), res.getLong(3), res.getString(4));
+    }
+
+    @Override
+    public <S extends TrackWebhook> boolean create(@NotNull S entity) {
+        return this.execute(
+                "INSERT INTO `track_webhook` (channel_id, guild_id, webhook_id, webhook_url) VALUES (?, ?, ?, ?)",
+                entity.getChannelId(),
+                entity.getGuildId(),
+                entity.getWebhookId(),
+                entity.getWebhookUrl()
+        );
+    }
+
+    @Override
+    public boolean exists(@NotNull TrackWebhookId trackWebhookId) {
+        ResultSet res = this.executeQuery(
+                "SELECT COUNT(*) FROM `track_webhook` WHERE `channel_id` = ?",
+                trackWebhookId.getChannelId()
+        );
+
+        if (res == null) {
+            return false;
+        }
+
+        try {
+            if (res.next())
+                return res.getInt(1) > 0;
+        } catch (SQLException e) {
+            this.logResponseException(e);
+        }
+        return false;
+    }
+
+    @Override
+    public long count() {
+        ResultSet res = this.executeQuery(
+                "SELECT COUNT(*) FROM `track_webhook`"
+        );
+
+        if (res == null) {
+            return -1;
+        }
+
+        try {
+            if (res.next())
+                return res.getInt(1);
+        } catch (SQLException e) {
+            this.logResponseException(e);
+        }
+        return -1;
+    }
+
+    @Nullable
+    @Override
+    public TrackWebhook findOne(@NotNull TrackWebhookId trackWebhookId) {
+        ResultSet res = this.executeQuery(
+                "SELECT * FROM `track_webhook` WHERE `channel_id` = ?",
+                trackWebhookId.getChannelId()
+        );
+
+        if (res == null) {
+            return null;
+        }
+
+        try {
+            if (res.next())
+                return bind(res);
+        } catch (SQLException e) {
+            this.logResponseException(e);
+        }
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public List<TrackWebhook> findAll() {
+        ResultSet res = this.executeQuery(
+                "SELECT * FROM `track_webhook`"
+        );
+
+        if (res == null) {
+            return null;
+        }
+
+        try {
+            return bindAll(res);
+        } catch (SQLException e) {
+            this.logResponseException(e);
+            return null;
+        }
+    }
+
+    @Override
+    public boolean update(@NotNull TrackWebhook entity) {
+        return this.execute(
+                "UPDATE `track_webhook` SET `guild_id` = ?, `webhook_id` = ?, `webhook_url` = ? WHERE `channel_id` = ?",
+                entity.getGuildId(),
+                entity.getWebhookId(),
+                entity.getWebhookUrl(),
+                entity.getChannelId()
+        );
+    }
+
+    @Override
+    public boolean delete(@NotNull TrackWebhookId trackWebhookId) {
+        return this.execute(
+                "DELETE FROM `track_webhook` WHERE `channel_id` = ?",
+                trackWebhookId.getChannelId()
+        );
+    }
+
+    @Override
+    public boolean deleteAllOfGuild(long guildId) {
+        return this.execute(
+                "DELETE FROM `track_webhook` WHERE `guild_id` = ?",
+                guildId
+        );
+    }
+
+    @Override
+    public boolean deleteAllWithoutTracking() {
+        return this.execute(
+                "DELETE FROM `track_webhook` WHERE NOT EXISTS " +
+                        "(SELECT 1 FROM `track_channel` WHERE `track_channel`.`channel_id` = `track_webhook`.`channel_id`)"
+        );
+    }
+}
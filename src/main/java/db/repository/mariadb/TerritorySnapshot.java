@@ -0,0 +1,208 @@
+package db.repository.mariadb;
+
+import db.model.territory.Territory;
+import db.model.territory.TerritoryRank;
+import db.model.territoryLog.TerritoryLog;
+import org.jetbrains.annotations.NotNull;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * In-memory copy of the `territory` table, used to write only the changed territories into DB.
+ * Also maintains the number of territories per guild and its ranking.
+ */
+class TerritorySnapshot {
+    /**
+     * Territory name -> territory.
+     */
+    private final Map<String, Territory> territories;
+    /**
+     * Guild name -> number of territories. Does not contain guilds without territories.
+     */
+    private final Map<String, Integer> territoryCounts;
+    private final long loadedAt;
+
+    /**
+     * Ranking sorted by number of territories (descending). null if it has to be re-calculated.
+     */
+    @Nullable
+    private List<TerritoryRank> ranking;
+    /**
+     * Guild name -> ranking entry, built along with {@link #ranking}.
+     */
+    @Nullable
+    private Map<String, TerritoryRank> rankingByGuild;
+
+    TerritorySnapshot(@NotNull List<Territory> territories) {
+        this.territories = new HashMap<>();
+        this.territoryCounts = new HashMap<>();
+        for (Territory t : territories) {
+            this.territories.put(t.getName(), t);
+            addCount(this.territoryCounts, t.getGuild(), 1);
+        }
+        this.loadedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Retrieves the time this snapshot was loaded from DB.
+     * @return Epoch millis.
+     */
+    long getLoadedAt() {
+        return loadedAt;
+    }
+
+    record Diff(@NotNull List<Territory> changed, @NotNull List<TerritoryLog> logs) {
+        boolean isEmpty() {
+            return changed.isEmpty() && logs.isEmpty();
+        }
+    }
+
+    /**
+     * Computes the difference between this snapshot and the retrieved territories.
+     * Does not modify this snapshot; call {@link #apply(List)} after the diff was written into DB.
+     * <br>Territory logs are generated for ownership changes in the order of the given list, where territory amounts
+     * are the number of territories the old / new owner guild possesses right after each change.
+     * @param retrieved Territories retrieved from the Wynn API.
+     * @return Changed (or new) territories, and the territory logs (whose IDs are not set) to insert.
+     */
+    @NotNull
+    Diff diff(@NotNull List<Territory> retrieved) {
+        Map<String, Integer> counts = new HashMap<>(this.territoryCounts);
+
+        List<Territory> changed = new ArrayList<>();
+        List<TerritoryLog> logs = new ArrayList<>();
+        for (Territory t : retrieved) {
+            Territory prev = this.territories.get(t.getName());
+            if (prev == null) {
+                changed.add(t);
+                addCount(counts, t.getGuild(), 1);
+                continue;
+            }
+            if (isSame(prev, t)) {
+                continue;
+            }
+
+            changed.add(t);
+            if (Objects.equals(prev.getGuild(), t.getGuild())) {
+                continue;
+            }
+            int oldAmount = addCount(counts, prev.getGuild(), -1);
+            int newAmount = addCount(counts, t.getGuild(), 1);
+            logs.add(new TerritoryLog(
+                    0, t.getName(), prev.getGuild(), t.getGuild(), oldAmount, newAmount,
+                    t.getAcquired(), timeDiff(prev.getAcquired(), t.getAcquired())
+            ));
+        }
+        return new Diff(changed, logs);
+    }
+
+    /**
+     * Applies the changed territories to this snapshot.
+     * @param changed Changed territories.
+     */
+    void apply(@NotNull List<Territory> changed) {
+        for (Territory t : changed) {
+            Territory prev = this.territories.put(t.getName(), t);
+            if (prev != null && Objects.equals(prev.getGuild(), t.getGuild())) {
+                continue;
+            }
+            if (prev != null) {
+                addCount(this.territoryCounts, prev.getGuild(), -1);
+            }
+            addCount(this.territoryCounts, t.getGuild(), 1);
+            this.ranking = null;
+            this.rankingByGuild = null;
+        }
+    }
+
+    /**
+     * Counts number of territories the guild possesses.
+     * @param guildName Guild name.
+     * @return Number of territories.
+     */
+    int countGuildTerritories(@NotNull String guildName) {
+        return this.territoryCounts.getOrDefault(guildName, 0);
+    }
+
+    /**
+     * Retrieves ranking of guilds by number of territories.
+     * Guilds with the same number of territories have the same rank, as in SQL RANK() function.
+     * @return Unmodifiable ranking list, sorted by rank.
+     */
+    @NotNull
+    List<TerritoryRank> getRanking() {
+        if (this.ranking != null) {
+            return this.ranking;
+        }
+
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(this.territoryCounts.entrySet());
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+        List<TerritoryRank> ranking = new ArrayList<>(entries.size());
+        Map<String, TerritoryRank> rankingByGuild = new HashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            Map.Entry<String, Integer> e = entries.get(i);
+            int rank = i > 0 && ranking.get(i - 1).getCount() == e.getValue()
+                    ? ranking.get(i - 1).getRank()
+                    : i + 1;
+            TerritoryRank r = new TerritoryRank(e.getKey(), e.getValue(), rank);
+            ranking.add(r);
+            rankingByGuild.put(e.getKey(), r);
+        }
+        this.ranking = Collections.unmodifiableList(ranking);
+        this.rankingByGuild = rankingByGuild;
+        return this.ranking;
+    }
+
+    /**
+     * Retrieves ranking of the guild by number of territories.
+     * @param guildName Guild name.
+     * @return Ranking. 0 if the guild does not possess any territories.
+     */
+    int getRanking(@NotNull String guildName) {
+        getRanking();
+        TerritoryRank rank = Objects.requireNonNull(this.rankingByGuild).get(guildName);
+        return rank != null ? rank.getRank() : 0;
+    }
+
+    /**
+     * Adds to the number of territories of the guild, and removes the entry if it reached zero.
+     * @return Number of territories after the addition.
+     */
+    private static int addCount(Map<String, Integer> counts, @Nullable String guildName, int delta) {
+        if (guildName == null) {
+            return 0;
+        }
+        Integer count = counts.merge(guildName, delta, Integer::sum);
+        if (count == null || count <= 0) {
+            counts.remove(guildName);
+            return 0;
+        }
+        return count;
+    }
+
+    private static boolean isSame(Territory t1, Territory t2) {
+        Territory.Location l1 = t1.getLocation();
+        Territory.Location l2 = t2.getLocation();
+        return Objects.equals(t1.getGuild(), t2.getGuild())
+                && toDBSeconds(t1.getAcquired()) == toDBSeconds(t2.getAcquired())
+                && Objects.equals(t1.getAttacker(), t2.getAttacker())
+                && l1.getStartX() == l2.getStartX() && l1.getStartZ() == l2.getStartZ()
+                && l1.getEndX() == l2.getEndX() && l1.getEndZ() == l2.getEndZ();
+    }
+
+    /**
+     * Time precision of DATETIME column is seconds.
+     */
+    private static long toDBSeconds(@Nullable Date date) {
+        return date == null ? 0 : date.getTime() / 1000;
+    }
+
+    private static long timeDiff(@Nullable Date oldAcquired, @Nullable Date newAcquired) {
+        if (oldAcquired == null || newAcquired == null) {
+            return 0;
+        }
+        return (toDBSeconds(newAcquired) - toDBSeconds(oldAcquired)) * 1000;
+    }
+}
@@ -2,6 +2,7 @@ package heartbeat;
 
 import app.Bot;
 import heartbeat.base.TaskBase;
+import heartbeat.dispatch.TrackingDispatcher;
 import heartbeat.tasks.*;
 import log.Logger;
 import utils.StoppableThread;
@@ -19,10 +20,11 @@ public class HeartBeat extends StoppableThread {
         this.tasks = new ArrayList<>();
 
         final Object dbLock = new Object();
+        final TrackingDispatcher dispatcher = new TrackingDispatcher(bot.getManager(), bot.getLogger(), bot.getDatabase().getTrackWebhookRepository());
 
-        addTask(new PlayerTracker(bot, dbLock));
-        addTask(new TerritoryTracker(bot, dbLock));
-        addTask(new GuildTracker(bot));
+        addTask(new PlayerTracker(bot, dbLock, dispatcher));
+        addTask(new TerritoryTracker(bot, dbLock, dispatcher));
+        addTask(new GuildTracker(bot, dispatcher));
         addTask(new GuildLeaderboardTracker(bot));
         addTask(new TrackingManager(bot));
         // Player name history is not retrievable anymore: https://help.minecraft.net/hc/en-us/articles/8969841895693
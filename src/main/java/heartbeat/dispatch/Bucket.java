@@ -0,0 +1,70 @@
+package heartbeat.dispatch;
+
+/**
+ * Simple token bucket mirroring a Discord rate limit bucket. Not thread-safe.
+ */
+class Bucket {
+    private final int capacity;
+    private final long refillMillis;
+
+    private int tokens;
+    private long lastRefill;
+
+    /**
+     * @param capacity Max number of tokens (burst size).
+     * @param refillMillis Time it takes to refill one token.
+     * @param now Current epoch millis.
+     */
+    Bucket(int capacity, long refillMillis, long now) {
+        this.capacity = capacity;
+        this.refillMillis = refillMillis;
+        this.tokens = capacity;
+        this.lastRefill = now;
+    }
+
+    private void refill(long now) {
+        if (this.tokens >= this.capacity) {
+            this.lastRefill = now;
+            return;
+        }
+        long refilled = (now - this.lastRefill) / this.refillMillis;
+        if (refilled <= 0) {
+            return;
+        }
+        this.tokens = (int) Math.min(this.capacity, this.tokens + refilled);
+        this.lastRefill = this.tokens >= this.capacity ? now : this.lastRefill + refilled * this.refillMillis;
+    }
+
+    boolean isAvailable(long now) {
+        this.refill(now);
+        return this.tokens > 0;
+    }
+
+    boolean tryTake(long now) {
+        this.refill(now);
+        if (this.tokens <= 0) {
+            return false;
+        }
+        this.tokens--;
+        return true;
+    }
+
+    /**
+     * Makes no tokens available until the given time, e.g. when told to retry after some time.
+     * @param until Epoch millis.
+     */
+    void pauseUntil(long until) {
+        this.tokens = 0;
+        this.lastRefill = Math.max(this.lastRefill, until - this.refillMillis);
+    }
+
+    /**
+     * Retrieves the time at which a token will be available.
+     * @param now Current epoch millis.
+     * @return Epoch millis.
+     */
+    long nextAvailableAt(long now) {
+        this.refill(now);
+        return this.tokens > 0 ? now : this.lastRefill + this.refillMillis;
+    }
+}
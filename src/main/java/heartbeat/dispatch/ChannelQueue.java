@@ -0,0 +1,358 @@
+package heartbeat.dispatch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.LongConsumer;
+
+/**
+ * Pending deliveries for a single channel.
+ * <br>At most one message per channel is in flight; tracking entries added in the meantime are coalesced
+ * into the next message, and a war message update replaces the pending update of the same war (latest wins).
+ * A war message update with the same state as the one last delivered is skipped (see {@link WarMessageState}).
+ * <br>A war message is edited only through the author (the bot or the webhook) who delivered it;
+ * if the channel has switched delivery mode since then, a new message is sent instead.
+ */
+class ChannelQueue {
+    /**
+     * Number of delivered war messages to remember, to edit them instead of sending another one.
+     */
+    private static final int MAX_DELIVERED_WAR_MESSAGES = 50;
+
+    private final int capacity;
+    private final Map<TrackingPriority, Deque<Entry>> entries;
+    private int size;
+    /**
+     * War log id -> latest pending update.
+     */
+    private final Map<Integer, WarUpdate> warUpdates;
+    /**
+     * War log id -> the message delivered for the war.
+     */
+    private final Map<Integer, DeliveredWarMessage> deliveredWarMessages;
+    private final Bucket bucket;
+    private boolean sending;
+
+    /**
+     * @param capacity Max number of pending tracking entries.
+     * @param bucket Rate limit bucket of the channel.
+     */
+    ChannelQueue(int capacity, Bucket bucket) {
+        this.capacity = capacity;
+        this.entries = new EnumMap<>(TrackingPriority.class);
+        for (TrackingPriority priority : TrackingPriority.values()) {
+            this.entries.put(priority, new ArrayDeque<>());
+        }
+        this.warUpdates = new LinkedHashMap<>();
+        this.deliveredWarMessages = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, DeliveredWarMessage> eldest) {
+                return this.size() > MAX_DELIVERED_WAR_MESSAGES;
+            }
+        };
+        this.bucket = bucket;
+    }
+
+    /**
+     * @param entries Number of tracking entries contained in the text, more than 1 if a merged message was put back,
+     *                and 0 for the first part of a split entry.
+     */
+    private record Entry(@NotNull String text, long enqueuedAt, int entries) {
+    }
+
+    private record WarUpdate(int warLogId, long messageId, @NotNull String content, int state, long enqueuedAt,
+                             @NotNull LongConsumer onCreated) {
+    }
+
+    /**
+     * @param messageId Delivered message id. 0 if a new message should be sent on the next update.
+     * @param viaWebhook {@code true} if the message was sent by the webhook of the channel.
+     */
+    private record DeliveredWarMessage(long messageId, int state, boolean viaWebhook) {
+    }
+
+    enum WarUpdateResult {
+        QUEUED,
+        /**
+         * Replaced the pending update of the same war.
+         */
+        SUPERSEDED,
+        /**
+         * Skipped because the state is the same as the delivered message.
+         */
+        UNCHANGED
+    }
+
+    /**
+     * A message to send or edit.
+     * @param messageId ID of the message to edit. 0 if a new message should be sent.
+     * @param message Message content.
+     * @param entries Number of tracking entries (or war updates) contained in the message.
+     * @param priority Priority of the delivery.
+     * @param enqueuedAt Time the oldest contained entry was queued.
+     * @param warLogId War log id if this is a war message update, 0 otherwise.
+     * @param warState State of the war if this is a war message update.
+     * @param onCreated Callback to call with the new message id, if a new war message was sent.
+     */
+    record Delivery(long messageId, @NotNull String message, int entries, @NotNull TrackingPriority priority,
+                    long enqueuedAt, int warLogId, int warState, @Nullable LongConsumer onCreated) {
+    }
+
+    /**
+     * Adds a tracking entry to the queue. If the queue is full, the oldest entry of the lowest priority is dropped.
+     * @param priority Priority.
+     * @param entry Entry.
+     * @param now Current epoch millis.
+     * @return Number of dropped entries.
+     */
+    synchronized int add(@NotNull TrackingPriority priority, @NotNull String entry, long now) {
+        int dropped = 0;
+        outer:
+        while (this.size >= this.capacity) {
+            for (int i = TrackingPriority.values().length - 1; i >= 0; i--) {
+                Entry polled = this.entries.get(TrackingPriority.values()[i]).pollFirst();
+                if (polled != null) {
+                    this.size -= polled.entries();
+                    dropped += polled.entries();
+                    continue outer;
+                }
+            }
+            break;
+        }
+        this.entries.get(priority).addLast(new Entry(entry, now, 1));
+        this.size++;
+        return dropped;
+    }
+
+    /**
+     * Sets the latest content of the war message. Replaces the pending update of the same war, if any.
+     * @param warLogId War log id.
+     * @param messageId ID of the message already sent for the war, or 0 if not known.
+     *                  The message delivered by this queue for the war, if any, takes precedence.
+     * @param content Message content.
+     * @param state State of the war shown in the message, see {@link WarMessageState}.
+     * @param onCreated Callback to call with the new message id, in case a new message was sent.
+     * @param now Current epoch millis.
+     * @return Result.
+     */
+    synchronized WarUpdateResult putWarUpdate(int warLogId, long messageId, @NotNull String content, int state,
+                                              @NotNull LongConsumer onCreated, long now) {
+        DeliveredWarMessage delivered = this.deliveredWarMessages.get(warLogId);
+        if (!this.warUpdates.containsKey(warLogId) && delivered != null
+                && delivered.messageId() != 0 && delivered.state() == state) {
+            return WarUpdateResult.UNCHANGED;
+        }
+
+        WarUpdate prev = this.warUpdates.remove(warLogId);
+        if (prev != null) {
+            // Keep the original queue time so that the latency reflects how stale the message was
+            now = prev.enqueuedAt();
+            if (messageId == 0) {
+                messageId = prev.messageId();
+            }
+        }
+        this.warUpdates.put(warLogId, new WarUpdate(warLogId, messageId, content, state, now, onCreated));
+        return prev != null ? WarUpdateResult.SUPERSEDED : WarUpdateResult.QUEUED;
+    }
+
+    /**
+     * Retrieves the priority of the next delivery.
+     * @return Priority. null if nothing is pending.
+     */
+    @Nullable
+    synchronized TrackingPriority nextPriority() {
+        if (!this.warUpdates.isEmpty()) {
+            return TrackingPriority.WAR;
+        }
+        for (TrackingPriority priority : TrackingPriority.values()) {
+            if (!this.entries.get(priority).isEmpty()) {
+                return priority;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the time the next delivery was queued.
+     * @return Epoch millis. {@link Long#MAX_VALUE} if nothing is pending.
+     */
+    synchronized long nextEnqueuedAt() {
+        TrackingPriority priority = this.nextPriority();
+        if (priority == null) {
+            return Long.MAX_VALUE;
+        }
+        if (!this.warUpdates.isEmpty()) {
+            return this.warUpdates.values().iterator().next().enqueuedAt();
+        }
+        return Objects.requireNonNull(this.entries.get(priority).peekFirst()).enqueuedAt();
+    }
+
+    /**
+     * Checks if a delivery can be made now.
+     * @param now Current epoch millis.
+     * @return {@code true} if something is pending, no message is in flight and the rate limit allows.
+     */
+    synchronized boolean isReady(long now) {
+        return !this.sending && this.nextPriority() != null && this.bucket.isAvailable(now);
+    }
+
+    /**
+     * Retrieves the time the rate limit allows the next delivery.
+     * @param now Current epoch millis.
+     * @return Epoch millis. {@link Long#MAX_VALUE} if nothing is pending, or a message is in flight.
+     */
+    synchronized long readyAt(long now) {
+        if (this.sending || this.nextPriority() == null) {
+            return Long.MAX_VALUE;
+        }
+        return this.bucket.nextAvailableAt(now);
+    }
+
+    /**
+     * Polls the next delivery, and marks this queue as sending.
+     * War message updates are delivered first. Otherwise, as many entries as possible are coalesced into a message
+     * in the order of priority, joined by a new line. An entry longer than the max length is split into multiple messages.
+     * @param maxLength Max length of a message.
+     * @param viaWebhook {@code true} if the delivery is going to be made through the webhook of the channel.
+     * @param now Current epoch millis.
+     * @return Delivery. null if not {@link #isReady(long)}.
+     */
+    @Nullable
+    synchronized Delivery poll(int maxLength, boolean viaWebhook, long now) {
+        if (!this.isReady(now)) {
+            return null;
+        }
+        this.bucket.tryTake(now);
+        this.sending = true;
+
+        if (!this.warUpdates.isEmpty()) {
+            Iterator<WarUpdate> it = this.warUpdates.values().iterator();
+            WarUpdate update = it.next();
+            it.remove();
+            DeliveredWarMessage delivered = this.deliveredWarMessages.get(update.warLogId());
+            long messageId;
+            if (delivered == null) {
+                messageId = update.messageId();
+            } else if (delivered.viaWebhook() != viaWebhook) {
+                // Only the author can edit the message
+                messageId = 0L;
+            } else {
+                messageId = delivered.messageId();
+            }
+            String content = update.content().length() > maxLength
+                    ? update.content().substring(0, maxLength)
+                    : update.content();
+            return new Delivery(messageId, content, 1, TrackingPriority.WAR,
+                    update.enqueuedAt(), update.warLogId(), update.state(), update.onCreated());
+        }
+
+        TrackingPriority priority = Objects.requireNonNull(this.nextPriority());
+        long enqueuedAt = Objects.requireNonNull(this.entries.get(priority).peekFirst()).enqueuedAt();
+        StringBuilder sb = new StringBuilder();
+        int count = 0;
+        outer:
+        for (TrackingPriority p : TrackingPriority.values()) {
+            Deque<Entry> deque = this.entries.get(p);
+            while (!deque.isEmpty()) {
+                Entry next = deque.peekFirst();
+                String text = next.text();
+                if (sb.length() == 0 && text.length() > maxLength) {
+                    // Split the oversized entry, and leave the rest for the next message
+                    sb.append(text, 0, maxLength);
+                    deque.pollFirst();
+                    deque.addFirst(new Entry(text.substring(maxLength), next.enqueuedAt(), next.entries()));
+                    break outer;
+                }
+                int length = sb.length() == 0 ? text.length() : sb.length() + 1 + text.length();
+                if (length > maxLength) {
+                    break outer;
+                }
+                if (sb.length() > 0) {
+                    sb.append('\n');
+                }
+                sb.append(text);
+                deque.pollFirst();
+                this.size -= next.entries();
+                count += next.entries();
+            }
+        }
+        return new Delivery(0, sb.toString(), count, priority, enqueuedAt, 0, 0, null);
+    }
+
+    /**
+     * Marks the in-flight message as completed.
+     */
+    synchronized void onSent() {
+        this.sending = false;
+    }
+
+    /**
+     * Records the message delivered for the war, so that later updates edit the message,
+     * and updates with the same state are skipped.
+     * @param warLogId War log id.
+     * @param messageId Message id.
+     * @param state Delivered state of the war.
+     * @param viaWebhook {@code true} if the message was delivered by the webhook of the channel.
+     */
+    synchronized void onWarMessageDelivered(int warLogId, long messageId, int state, boolean viaWebhook) {
+        this.deliveredWarMessages.put(warLogId, new DeliveredWarMessage(messageId, state, viaWebhook));
+    }
+
+    /**
+     * Puts the delivery back to the front of the queue, to be retried, e.g. after being rate limited.
+     * A war message update is not put back if a newer update of the same war is pending.
+     * Must be called before {@link #onSent()}.
+     * @param delivery Delivery polled from this queue.
+     * @return Number of entries (or war updates) put back.
+     */
+    synchronized int requeue(@NotNull Delivery delivery) {
+        if (delivery.warLogId() != 0) {
+            if (this.warUpdates.containsKey(delivery.warLogId())) {
+                return 0;
+            }
+            this.warUpdates.put(delivery.warLogId(), new WarUpdate(delivery.warLogId(), delivery.messageId(),
+                    delivery.message(), delivery.warState(), delivery.enqueuedAt(),
+                    Objects.requireNonNull(delivery.onCreated())));
+            return 1;
+        }
+        // Put back as a single entry, it is split again if too long for the next delivery
+        this.entries.get(delivery.priority())
+                .addFirst(new Entry(delivery.message(), delivery.enqueuedAt(), delivery.entries()));
+        this.size += delivery.entries();
+        return delivery.entries();
+    }
+
+    /**
+     * Handles a failed edit of a war message, e.g. when the message was deleted,
+     * or was sent by another author before a restart: sends a new message for the war instead.
+     * Must be called before {@link #onSent()}.
+     * @param delivery Failed delivery, editing a war message.
+     * @param viaWebhook {@code true} if the edit was made through the webhook of the channel.
+     * @return Number of war updates put back.
+     */
+    synchronized int retryWarAsNewMessage(@NotNull Delivery delivery, boolean viaWebhook) {
+        this.deliveredWarMessages.put(delivery.warLogId(), new DeliveredWarMessage(0L, delivery.warState(), viaWebhook));
+        return this.requeue(delivery);
+    }
+
+    /**
+     * Removes all pending entries and war updates.
+     * @return Number of removed entries and war updates.
+     */
+    synchronized int clear() {
+        int removed = this.size + this.warUpdates.size();
+        this.entries.values().forEach(Deque::clear);
+        this.size = 0;
+        this.warUpdates.clear();
+        return removed;
+    }
+
+    /**
+     * Retrieves the number of pending entries and war updates.
+     * @return Number of pending items.
+     */
+    synchronized int size() {
+        return this.size + this.warUpdates.size();
+    }
+}
@@ -0,0 +1,406 @@
+package heartbeat.dispatch;
+
+import db.model.track.TrackType;
+import db.model.trackWebhook.TrackWebhook;
+import db.repository.base.TrackWebhookRepository;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import log.Logger;
+import net.dv8tion.jda.api.entities.TextChannel;
+import net.dv8tion.jda.api.requests.restaction.MessageAction;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.jetbrains.annotations.NotNull;
+import utils.HttpUtils;
+import utils.StatusCodeException;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+
+/**
+ * Central delivery scheduler of tracking messages.
+ * <br>Trackers {@link #enqueue(long, TrackType, String)} tracking entries and {@link #updateWarTrack} war messages
+ * during a tick, and {@link #flush()} at the end of it.
+ * <br>Pending entries are grouped per channel into as few messages as possible, and each channel has
+ * at most one message in flight; entries queued while a message is being sent are coalesced into the next one.
+ * A war message update replaces the pending update of the same war, so that only the latest content is delivered,
+ * and is skipped if the content has not changed since the last delivery.
+ * <br>Deliveries are made in the order of {@link TrackingPriority}, within the per-channel and global rate limits
+ * of Discord, so that JDA's request queue does not grow during busy periods.
+ * <br>Channels that opted in to webhook delivery receive their messages through the channel webhook instead,
+ * which has its own rate limit and does not compete with command replies for the global rate limit.
+ * A delivery rate limited by Discord is put back to the queue, and retried after the time Discord told to wait.
+ */
+public class TrackingDispatcher {
+    private static final int MAX_MESSAGE_LENGTH = 2000;
+    private static final int MAX_PENDING_PER_CHANNEL = 200;
+
+    // Discord allows 5 messages / 5 seconds per channel
+    private static final int CHANNEL_BUCKET_CAPACITY = 5;
+    private static final long CHANNEL_BUCKET_REFILL = TimeUnit.SECONDS.toMillis(1);
+    // Discord allows 50 requests / 1 second globally, leave the rest to command replies
+    private static final int GLOBAL_BUCKET_CAPACITY = 25;
+    private static final long GLOBAL_BUCKET_REFILL = TimeUnit.SECONDS.toMillis(1) / GLOBAL_BUCKET_CAPACITY;
+    // Discord allows 30 webhook messages / 1 minute per channel
+    private static final int WEBHOOK_BUCKET_CAPACITY = 5;
+    private static final long WEBHOOK_BUCKET_REFILL = TimeUnit.SECONDS.toMillis(2);
+
+    private static final long WEBHOOK_RELOAD_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private static final Gauge PENDING = Gauge.build()
+            .name("moto_bot_tracking_pending_entries")
+            .help("Number of tracking entries and war message updates waiting to be sent.")
+            .register();
+    private static final Gauge BACKLOGGED_CHANNELS = Gauge.build()
+            .name("moto_bot_tracking_backlogged_channels")
+            .help("Number of channels with pending tracking entries.")
+            .register();
+    private static final Counter SENT = Counter.build()
+            .name("moto_bot_tracking_sent")
+            .help("Number of tracking messages and entries sent.")
+            .labelNames("unit", "via")
+            .register();
+    private static final Counter DROPPED = Counter.build()
+            .name("moto_bot_tracking_dropped_entries")
+            .help("Number of tracking entries dropped before being sent.")
+            .labelNames("reason")
+            .register();
+    private static final Counter RETRIED = Counter.build()
+            .name("moto_bot_tracking_retried_messages")
+            .help("Number of tracking messages put back to the queue to be delivered again.")
+            .labelNames("reason")
+            .register();
+    private static final Counter UNCHANGED_WAR_UPDATES = Counter.build()
+            .name("moto_bot_tracking_unchanged_war_updates")
+            .help("Number of war message edits skipped because the content has not changed.")
+            .register();
+    private static final Histogram LATENCY = Histogram.build()
+            .name("moto_bot_tracking_delivery_latency_seconds")
+            .help("Time from a tracking entry being queued to being delivered to Discord.")
+            .labelNames("priority")
+            .buckets(0.1, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300)
+            .register();
+
+    private final ShardManager manager;
+    private final Logger logger;
+    private final TrackWebhookRepository webhookRepository;
+
+    private final Map<Long, ChannelQueue> queues;
+    private final Bucket globalBucket;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean drainRequested;
+    /**
+     * Time the next drain is scheduled at. Accessed only on the scheduler thread.
+     */
+    private long scheduledDrainAt;
+    /**
+     * Channel id -> webhook to deliver through. Accessed only on the scheduler thread.
+     */
+    private Map<Long, TrackWebhook> webhooks;
+    private final Map<Long, Bucket> webhookBuckets;
+    private long webhooksLoadedAt;
+
+    public TrackingDispatcher(ShardManager manager, Logger logger, TrackWebhookRepository webhookRepository) {
+        this.manager = manager;
+        this.logger = logger;
+        this.webhookRepository = webhookRepository;
+        this.queues = new ConcurrentHashMap<>();
+        this.globalBucket = new Bucket(GLOBAL_BUCKET_CAPACITY, GLOBAL_BUCKET_REFILL, System.currentTimeMillis());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "moto-bot tracking dispatcher");
+            t.setDaemon(true);
+            return t;
+        });
+        this.drainRequested = new AtomicBoolean();
+        this.scheduledDrainAt = Long.MAX_VALUE;
+        this.webhooks = new HashMap<>();
+        this.webhookBuckets = new HashMap<>();
+    }
+
+    private ChannelQueue getQueue(long channelId) {
+        return this.queues.computeIfAbsent(channelId, id -> new ChannelQueue(
+                MAX_PENDING_PER_CHANNEL,
+                new Bucket(CHANNEL_BUCKET_CAPACITY, CHANNEL_BUCKET_REFILL, System.currentTimeMillis())
+        ));
+    }
+
+    /**
+     * Queues a tracking entry to be sent to the channel after the next {@link #flush()}.
+     * If the channel has too many pending entries, the oldest entry of the lowest priority is dropped.
+     * @param channelId Text channel ID.
+     * @param type Track type the entry is for.
+     * @param entry Tracking entry (one or more lines).
+     */
+    public void enqueue(long channelId, @NotNull TrackType type, @NotNull String entry) {
+        int dropped = this.getQueue(channelId).add(TrackingPriority.of(type), entry, System.currentTimeMillis());
+        PENDING.inc();
+        if (dropped > 0) {
+            DROPPED.labels("queue_full").inc(dropped);
+            PENDING.dec(dropped);
+        }
+    }
+
+    /**
+     * Queues the latest content of a war tracking message, to be delivered after the next {@link #flush()}.
+     * Supersedes the pending update of the same war in the channel, if any.
+     * Skipped if the message delivered for the war already shows the same state.
+     * @param channelId Text channel ID.
+     * @param warLogId War log id.
+     * @param messageId ID of the message already sent for the war, or 0 to send a new message.
+     * @param content Message content.
+     * @param state State of the war shown in the message, see {@link WarMessageState}.
+     * @param onCreated Called with the new message id, in case a new message was sent.
+     */
+    public void updateWarTrack(long channelId, int warLogId, long messageId, @NotNull String content, int state,
+                               @NotNull LongConsumer onCreated) {
+        switch (this.getQueue(channelId).putWarUpdate(warLogId, messageId, content, state, onCreated, System.currentTimeMillis())) {
+            case QUEUED -> PENDING.inc();
+            case SUPERSEDED -> DROPPED.labels("superseded").inc();
+            case UNCHANGED -> UNCHANGED_WAR_UPDATES.inc();
+        }
+    }
+
+    /**
+     * Starts delivering pending messages.
+     */
+    public void flush() {
+        this.requestDrain();
+    }
+
+    private void requestDrain() {
+        if (this.drainRequested.compareAndSet(false, true)) {
+            this.scheduler.execute(this::drain);
+        }
+    }
+
+    /**
+     * Schedules a drain at the given time, unless one is already scheduled earlier.
+     * Called only on the scheduler thread.
+     */
+    private void scheduleDrainAt(long at, long now) {
+        if (this.scheduledDrainAt <= at && this.scheduledDrainAt >= now) {
+            return;
+        }
+        this.scheduledDrainAt = at;
+        this.scheduler.schedule(() -> {
+            this.scheduledDrainAt = Long.MAX_VALUE;
+            this.drain();
+        }, Math.max(1, at - now), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Delivers as many messages as the rate limits allow, in the order of priority and queued time.
+     * Runs only on the scheduler thread.
+     */
+    private void drain() {
+        this.drainRequested.set(false);
+        try {
+            long now = System.currentTimeMillis();
+            if (now - this.webhooksLoadedAt >= WEBHOOK_RELOAD_INTERVAL) {
+                this.reloadWebhooks(now);
+            }
+            List<Map.Entry<Long, ChannelQueue>> ready = new ArrayList<>();
+            long nextDrainAt = Long.MAX_VALUE;
+            for (Map.Entry<Long, ChannelQueue> e : this.queues.entrySet()) {
+                if (e.getValue().isReady(now)) {
+                    ready.add(e);
+                } else {
+                    nextDrainAt = Math.min(nextDrainAt, e.getValue().readyAt(now));
+                }
+            }
+            ready.sort(Comparator.<Map.Entry<Long, ChannelQueue>, TrackingPriority>comparing(e -> e.getValue().nextPriority(),
+                            Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparingLong(e -> e.getValue().nextEnqueuedAt()));
+
+            for (Map.Entry<Long, ChannelQueue> e : ready) {
+                TrackWebhook webhook = this.webhooks.get(e.getKey());
+                Bucket bucket = webhook != null
+                        ? this.webhookBuckets.computeIfAbsent(e.getKey(), id -> new Bucket(WEBHOOK_BUCKET_CAPACITY, WEBHOOK_BUCKET_REFILL, now))
+                        : this.globalBucket;
+                if (!bucket.isAvailable(now)) {
+                    nextDrainAt = Math.min(nextDrainAt, bucket.nextAvailableAt(now));
+                    continue;
+                }
+                ChannelQueue.Delivery delivery = e.getValue().poll(
+                        webhook != null ? WebhookMessage.MAX_TOTAL_LENGTH : MAX_MESSAGE_LENGTH, webhook != null, now);
+                if (delivery == null) {
+                    continue;
+                }
+                bucket.tryTake(now);
+                if (webhook != null) {
+                    this.deliverWebhook(webhook, e.getValue(), delivery);
+                } else {
+                    this.deliver(e.getKey(), e.getValue(), delivery);
+                }
+            }
+
+            BACKLOGGED_CHANNELS.set(this.queues.values().stream().filter(q -> q.size() > 0).count());
+            if (nextDrainAt != Long.MAX_VALUE) {
+                // Channels waiting for their message in flight are drained again on completion
+                this.scheduleDrainAt(nextDrainAt, now);
+            }
+        } catch (Exception e) {
+            this.logger.logException("Tracking dispatcher: an exception occurred while delivering messages", e);
+        }
+    }
+
+    private void reloadWebhooks(long now) {
+        this.webhooksLoadedAt = now;
+        List<TrackWebhook> webhooks = this.webhookRepository.findAll();
+        if (webhooks == null) {
+            return;
+        }
+        Map<Long, TrackWebhook> map = new HashMap<>();
+        for (TrackWebhook webhook : webhooks) {
+            map.put(webhook.getChannelId(), webhook);
+        }
+        this.webhooks = map;
+        this.webhookBuckets.keySet().retainAll(map.keySet());
+    }
+
+    private void deliver(long channelId, ChannelQueue queue, ChannelQueue.Delivery delivery) {
+        TextChannel channel = this.manager.getTextChannelById(channelId);
+        if (channel == null) {
+            int dropped = delivery.entries() + queue.clear();
+            PENDING.dec(dropped);
+            DROPPED.labels("unknown_channel").inc(dropped);
+            queue.onSent();
+            this.queues.remove(channelId, queue);
+            return;
+        }
+
+        PENDING.dec(delivery.entries());
+        MessageAction action = delivery.messageId() != 0
+                ? channel.editMessageById(delivery.messageId(), delivery.message())
+                : channel.sendMessage(delivery.message());
+        try {
+            action.queue(
+                    message -> this.onDelivered(queue, delivery, message.getIdLong(), false),
+                    failure -> {
+                        this.logger.debug("Tracking dispatcher: failed to deliver message to channel " + channelId + ": " + failure.getMessage());
+                        if (delivery.warLogId() != 0 && delivery.messageId() != 0) {
+                            this.retryWarAsNewMessage(queue, delivery, false);
+                        } else {
+                            DROPPED.labels("failed").inc(delivery.entries());
+                        }
+                        queue.onSent();
+                        this.requestDrain();
+                    }
+            );
+        } catch (RejectedExecutionException e) {
+            // Expected to be thrown on JDA shutdown
+            this.logger.debug("Tracking dispatcher: failed to deliver message:\n" + e.getMessage());
+            DROPPED.labels("rejected").inc(delivery.entries());
+            queue.onSent();
+        }
+    }
+
+    private void deliverWebhook(TrackWebhook webhook, ChannelQueue queue, ChannelQueue.Delivery delivery) {
+        PENDING.dec(delivery.entries());
+        // War messages keep the same look as the ones sent by the bot, so that they can be edited in place
+        String body = delivery.warLogId() != 0
+                ? WebhookMessage.ofContent(delivery.message())
+                : WebhookMessage.ofEmbeds(delivery.message());
+        CompletableFuture<String> future = delivery.messageId() != 0
+                ? HttpUtils.patchJsonAsync("discord_webhook", webhook.getWebhookUrl() + "/messages/" + delivery.messageId(), body, 404, 429)
+                : HttpUtils.postJsonAsync("discord_webhook", webhook.getWebhookUrl() + "?wait=true", body, 404, 429);
+        future.whenComplete((response, failure) -> {
+            if (failure == null) {
+                long messageId = delivery.messageId() != 0 ? delivery.messageId() : WebhookMessage.parseMessageId(response);
+                this.onDelivered(queue, delivery, messageId, true);
+                return;
+            }
+
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            if (cause instanceof StatusCodeException sce && sce.getCode() == 429) {
+                long retryAfter = sce.getRetryAfterMillis() >= 0 ? sce.getRetryAfterMillis() : WEBHOOK_BUCKET_REFILL;
+                this.logger.debug("Tracking dispatcher: webhook for channel " + webhook.getChannelId() +
+                        " was rate limited, retrying after " + retryAfter + " ms");
+                long retryAt = System.currentTimeMillis() + retryAfter;
+                // Webhook buckets are accessed only on the scheduler thread
+                this.scheduler.execute(() -> {
+                    Bucket bucket = this.webhookBuckets.get(webhook.getChannelId());
+                    if (bucket != null) {
+                        bucket.pauseUntil(retryAt);
+                    }
+                    this.requeue(queue, delivery, "rate_limited");
+                    queue.onSent();
+                    this.drain();
+                });
+                return;
+            }
+            if (cause instanceof StatusCodeException sce && sce.getCode() == 404 && delivery.messageId() == 0) {
+                // The webhook was deleted from the channel; fall back to the bot account
+                this.logger.log(0, "Tracking dispatcher: webhook for channel " + webhook.getChannelId() +
+                        " was not found, falling back to normal delivery");
+                this.webhookRepository.delete(webhook);
+                this.scheduler.execute(() -> {
+                    this.webhooks.remove(webhook.getChannelId(), webhook);
+                    this.requeue(queue, delivery, "webhook_not_found");
+                    queue.onSent();
+                    this.drain();
+                });
+                return;
+            }
+
+            this.logger.debug("Tracking dispatcher: failed to deliver message via webhook to channel " +
+                    webhook.getChannelId() + ": " + cause.getMessage());
+            if (delivery.warLogId() != 0 && delivery.messageId() != 0) {
+                this.retryWarAsNewMessage(queue, delivery, true);
+            } else {
+                DROPPED.labels("failed").inc(delivery.entries());
+            }
+            queue.onSent();
+            this.requestDrain();
+        });
+    }
+
+    /**
+     * Puts the failed delivery back to the queue.
+     */
+    private void requeue(ChannelQueue queue, ChannelQueue.Delivery delivery, String reason) {
+        int requeued = queue.requeue(delivery);
+        RETRIED.labels(reason).inc();
+        PENDING.inc(requeued);
+        if (delivery.warLogId() != 0 && requeued == 0) {
+            // A newer update of the war is pending
+            DROPPED.labels("superseded").inc();
+        }
+    }
+
+    /**
+     * Sends a new war message in place of the one that could not be edited.
+     */
+    private void retryWarAsNewMessage(ChannelQueue queue, ChannelQueue.Delivery delivery, boolean viaWebhook) {
+        int requeued = queue.retryWarAsNewMessage(delivery, viaWebhook);
+        RETRIED.labels("edit_failed").inc();
+        PENDING.inc(requeued);
+        if (requeued == 0) {
+            DROPPED.labels("superseded").inc();
+        }
+    }
+
+    private void onDelivered(ChannelQueue queue, ChannelQueue.Delivery delivery, long messageId, boolean viaWebhook) {
+        String via = viaWebhook ? "webhook" : "bot";
+        SENT.labels("message", via).inc();
+        SENT.labels("entry", via).inc(delivery.entries());
+        LATENCY.labels(delivery.priority().getLabel())
+                .observe((double) (System.currentTimeMillis() - delivery.enqueuedAt()) / 1000d);
+
+        if (delivery.warLogId() != 0 && messageId != 0) {
+            queue.onWarMessageDelivered(delivery.warLogId(), messageId, delivery.warState(), viaWebhook);
+        }
+        if (delivery.messageId() == 0 && messageId != 0 && delivery.onCreated() != null) {
+            try {
+                delivery.onCreated().accept(messageId);
+            } catch (Exception e) {
+                this.logger.logException("Tracking dispatcher: an exception occurred in war message callback", e);
+            }
+        }
+        queue.onSent();
+        // Send entries queued while this message was in flight
+        this.requestDrain();
+    }
+}
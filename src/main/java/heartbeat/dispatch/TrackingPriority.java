@@ -0,0 +1,29 @@
+package heartbeat.dispatch;
+
+import db.model.track.TrackType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Delivery priority of tracking messages, in the order of which they are sent.
+ */
+public enum TrackingPriority {
+    /**
+     * War tracking; war messages are edited while the war is going on, and become useless if delivered late.
+     */
+    WAR,
+    TERRITORY,
+    OTHER;
+
+    @NotNull
+    static TrackingPriority of(@NotNull TrackType type) {
+        return switch (type) {
+            case WAR_ALL, WAR_SPECIFIC, WAR_PLAYER -> WAR;
+            case TERRITORY_ALL, TERRITORY_SPECIFIC -> TERRITORY;
+            default -> OTHER;
+        };
+    }
+
+    String getLabel() {
+        return this.name().toLowerCase();
+    }
+}
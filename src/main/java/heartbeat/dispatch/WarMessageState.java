@@ -0,0 +1,29 @@
+package heartbeat.dispatch;
+
+import db.model.warLog.WarLog;
+import db.model.warPlayer.WarPlayer;
+
+import java.util.Objects;
+
+/**
+ * Hash of the fields of a war shown in war tracking messages, except the last up time.
+ * <br>The last up time moves on every tick while a war is going on,
+ * so an update where only it has changed is not worth editing the message for.
+ */
+public final class WarMessageState {
+    private WarMessageState() {
+    }
+
+    public static int of(WarLog warLog) {
+        int hash = Objects.hash(
+                warLog.getGuildName(),
+                warLog.isEnded(),
+                // "Just started" is shown until the war is updated for the first time
+                warLog.getCreatedAt().equals(warLog.getLastUp())
+        );
+        for (WarPlayer player : warLog.getPlayers()) {
+            hash = 31 * hash + Objects.hash(player.getPlayerName(), player.hasExited());
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,97 @@
+package heartbeat.dispatch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds webhook execute / edit request bodies.
+ * <br>Tracking entries are put into embed descriptions, so that a single call can carry up to
+ * {@value MAX_TOTAL_LENGTH} characters instead of the {@value MAX_CONTENT_LENGTH} characters of a message content.
+ */
+class WebhookMessage {
+    static final int MAX_CONTENT_LENGTH = 2000;
+    static final int MAX_DESCRIPTION_LENGTH = 4096;
+    static final int MAX_EMBEDS = 10;
+    /**
+     * Max total length of the texts in the embeds of a message.
+     */
+    static final int MAX_TOTAL_LENGTH = 6000;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Creates a request body with the given text as the content.
+     * @param content Message content.
+     * @return JSON body.
+     */
+    @NotNull
+    static String ofContent(@NotNull String content) {
+        ObjectNode body = baseBody();
+        body.put("content", content.length() > MAX_CONTENT_LENGTH ? content.substring(0, MAX_CONTENT_LENGTH) : content);
+        return body.toString();
+    }
+
+    /**
+     * Creates a request body with the given text split into embeds, at line breaks if possible.
+     * @param text Text of at most {@value MAX_TOTAL_LENGTH} characters.
+     * @return JSON body.
+     */
+    @NotNull
+    static String ofEmbeds(@NotNull String text) {
+        ObjectNode body = baseBody();
+        ArrayNode embeds = body.putArray("embeds");
+        for (String description : splitDescriptions(text)) {
+            embeds.addObject().put("description", description);
+        }
+        return body.toString();
+    }
+
+    private static ObjectNode baseBody() {
+        ObjectNode body = mapper.createObjectNode();
+        // Tracking messages never mention anyone
+        body.putObject("allowed_mentions").putArray("parse");
+        return body;
+    }
+
+    @NotNull
+    static List<String> splitDescriptions(@NotNull String text) {
+        List<String> ret = new ArrayList<>();
+        int start = 0;
+        while (start < text.length() && ret.size() < MAX_EMBEDS) {
+            int end = Math.min(text.length(), start + MAX_DESCRIPTION_LENGTH);
+            if (end < text.length()) {
+                int lineBreak = text.lastIndexOf('\n', end);
+                if (lineBreak > start) {
+                    end = lineBreak;
+                }
+            }
+            ret.add(text.substring(start, end));
+            start = end < text.length() && text.charAt(end) == '\n' ? end + 1 : end;
+        }
+        return ret;
+    }
+
+    /**
+     * Reads the message id from the response of a webhook execute request with "wait=true".
+     * @param response Response body.
+     * @return Message id. 0 if not found.
+     */
+    static long parseMessageId(String response) {
+        if (response == null) {
+            return 0L;
+        }
+        try {
+            JsonNode id = mapper.readTree(response).get("id");
+            return id != null ? id.asLong() : 0L;
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+}
@@ -10,6 +10,7 @@ import db.repository.base.GuildXpLeaderboardRepository;
 import heartbeat.base.TaskBase;
 import log.Logger;
 import org.jetbrains.annotations.NotNull;
+import utils.cache.DataVersions;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
@@ -20,12 +21,14 @@ public class GuildLeaderboardTracker implements TaskBase {
     private final WynnApi wynnApi;
     private final GuildLeaderboardRepository guildLeaderboardRepository;
     private final GuildXpLeaderboardRepository guildXpLeaderboardRepository;
+    private final DataVersions dataVersions;
 
     public GuildLeaderboardTracker(Bot bot) {
         this.logger = bot.getLogger();
         this.wynnApi = new WynnApi(bot.getLogger());
         this.guildLeaderboardRepository = bot.getDatabase().getGuildLeaderboardRepository();
         this.guildXpLeaderboardRepository = bot.getDatabase().getGuildXpLeaderboardRepository();
+        this.dataVersions = bot.getDataVersions();
     }
 
     @NotNull
@@ -62,6 +65,7 @@ public class GuildLeaderboardTracker implements TaskBase {
         this.guildLeaderboardRepository.createAll(current);
         this.clearOldData();
         this.updateXpLeaderboard();
+        this.dataVersions.changed(DataVersions.Source.GUILD_LEADERBOARD);
     }
 
     /**
@@ -13,39 +13,63 @@ import db.repository.base.GuildRepository;
 import db.repository.base.TimeZoneRepository;
 import db.repository.base.TrackChannelRepository;
 import heartbeat.base.TaskBase;
+import heartbeat.dispatch.TrackingDispatcher;
 import log.Logger;
-import net.dv8tion.jda.api.entities.TextChannel;
-import net.dv8tion.jda.api.sharding.ShardManager;
 import org.jetbrains.annotations.NotNull;
+import utils.rateLimit.RequestPriority;
 
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class GuildTracker implements TaskBase {
     private final Logger logger;
-    private final ShardManager manager;
     private final WynnApi wynnApi;
     private final GuildRepository guildRepository;
     private final TrackChannelRepository trackChannelRepository;
     private final DateFormatRepository dateFormatRepository;
     private final TimeZoneRepository timeZoneRepository;
+    private final TrackingDispatcher dispatcher;
 
-    public GuildTracker(Bot bot) {
+    // Handles guild creations off the heartbeat thread
+    private final ExecutorService creationWorker;
+    // Names of the guilds queued to the worker
+    private final Set<String> pendingCreations;
+
+    public GuildTracker(Bot bot, TrackingDispatcher dispatcher) {
         this.logger = bot.getLogger();
-        this.manager = bot.getManager();
         this.wynnApi = new WynnApi(bot.getLogger());
         this.guildRepository = bot.getDatabase().getGuildRepository();
         this.trackChannelRepository = bot.getDatabase().getTrackingChannelRepository();
         this.dateFormatRepository = bot.getDatabase().getDateFormatRepository();
         this.timeZoneRepository = bot.getDatabase().getTimeZoneRepository();
+        this.dispatcher = dispatcher;
+        this.creationWorker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "moto-bot guild tracker");
+            t.setDaemon(true);
+            return t;
+        });
+        this.pendingCreations = ConcurrentHashMap.newKeySet();
     }
 
     private static final long GUILD_TRACKER_DELAY = TimeUnit.HOURS.toMillis(1);
-    private static final long GUILD_STATS_RETRIEVAL_DELAY = TimeUnit.SECONDS.toMillis(5);
+    /**
+     * Max number of guild stats requests in flight; each batch is inserted into DB before the next one is requested.
+     */
+    private static final int GUILD_CREATION_BATCH_SIZE = 10;
+    /**
+     * Max number of guild creations queued to the worker. The rest are queued on later runs.
+     */
+    private static final int MAX_PENDING_GUILD_CREATIONS = 500;
 
     @Override
     public long getFirstDelay() {
@@ -76,18 +100,11 @@ public class GuildTracker implements TaskBase {
         }
         Map<String, Guild> guildNamesInDb = guildsInDb.stream().collect(Collectors.toMap(Guild::getName, g -> g));
 
-        for (var retrievedGuild : guildList.getGuilds()) {
-            if (!guildNamesInDb.containsKey(retrievedGuild.getName())) {
-                // Guild created
-                handleGuildCreation(retrievedGuild.getName());
-                // Sleep so it doesn't spam Wynn API
-                try {
-                    Thread.sleep(GUILD_STATS_RETRIEVAL_DELAY);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
+        List<String> createdGuildNames = guildList.getGuilds().stream()
+                .map(GuildList.GuildListEntry::getName)
+                .filter(name -> !guildNamesInDb.containsKey(name))
+                .collect(Collectors.toList());
+        handleGuildCreations(createdGuildNames);
 
         Set<String> retrievedGuildNames = guildList.getGuilds()
                 .stream()
@@ -99,28 +116,80 @@ public class GuildTracker implements TaskBase {
                 handleGuildDeletion(existingGuildName);
             }
         }
+        this.dispatcher.flush();
     }
 
     /**
-     * Handles guild creation.
-     * <br>1. Tries to retrieve guild stats. If impossible to do so, skip handling.
+     * Queues guild creations to the worker in batches of {@link #GUILD_CREATION_BATCH_SIZE},
+     * up to {@link #MAX_PENDING_GUILD_CREATIONS} guilds at a time.
+     * Guild stats requests are paced by the Wynn API rate limiter, instead of waiting a fixed delay per guild.
+     * <br>Each batch is inserted into DB as soon as it is retrieved, so that the guilds left unhandled
+     * (e.g. on restart, or over the queue bound) are picked up again on a later run by comparing the guild list with DB.
+     * @param guildNames Names of the created guilds.
+     */
+    private void handleGuildCreations(List<String> guildNames) {
+        List<String> toQueue = guildNames.stream()
+                .filter(name -> !this.pendingCreations.contains(name))
+                .limit(Math.max(0, MAX_PENDING_GUILD_CREATIONS - this.pendingCreations.size()))
+                .collect(Collectors.toList());
+        if (toQueue.isEmpty()) {
+            return;
+        }
+        this.logger.debug(String.format("Guild Tracker: Queueing %s of %s guild creation(s)",
+                toQueue.size(), guildNames.size()));
+
+        this.pendingCreations.addAll(toQueue);
+        for (int i = 0; i < toQueue.size(); i += GUILD_CREATION_BATCH_SIZE) {
+            List<String> batch = new ArrayList<>(toQueue.subList(i, Math.min(i + GUILD_CREATION_BATCH_SIZE, toQueue.size())));
+            this.creationWorker.execute(() -> {
+                try {
+                    this.handleGuildCreationBatch(batch);
+                } catch (Exception e) {
+                    this.logger.logException("Guild Tracker: Failed to handle guild creations", e);
+                } finally {
+                    batch.forEach(this.pendingCreations::remove);
+                }
+            });
+        }
+    }
+
+    /**
+     * Handles a batch of guild creation. Runs on the worker.
+     * <br>1. Retrieves guild stats.
      * <br>2. Inserts guild (prefix) data into DB.
      * <br>3. Sends tracking.
-     * @param guildName Guild name.
+     * @param guildNames Names of the created guilds.
      */
-    private void handleGuildCreation(String guildName) {
-        // Retrieve guild stats
-        WynnGuild guild = this.wynnApi.mustGetGuildStats(guildName);
-        if (guild == null) {
+    private void handleGuildCreationBatch(List<String> guildNames) {
+        List<CompletableFuture<WynnGuild>> requests = guildNames.stream()
+                .map(name -> this.wynnApi.getGuildStatsAsync(name, RequestPriority.PREFETCH))
+                .collect(Collectors.toList());
+        // Guilds whose stats could not be retrieved are retried on a later run
+        List<WynnGuild> guilds = requests.stream()
+                .map(CompletableFuture::join)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        if (guilds.isEmpty()) {
             return;
         }
 
         // Insert guild data into DB
-        boolean res = this.guildRepository.create(
-                new Guild(guildName, guild.getPrefix(), guild.getCreated())
+        List<WynnGuild> created = guilds;
+        boolean res = this.guildRepository.createAll(
+                guilds.stream()
+                        .map(g -> new Guild(g.getName(), g.getPrefix(), g.getCreated()))
+                        .collect(Collectors.toList())
         );
         if (!res) {
-            return;
+            // Insert one by one, so that a bad row does not keep the others from being inserted
+            created = new ArrayList<>();
+            for (WynnGuild g : guilds) {
+                if (this.guildRepository.create(new Guild(g.getName(), g.getPrefix(), g.getCreated()))) {
+                    created.add(g);
+                } else {
+                    this.logger.log(0, "Guild Tracker: Failed to insert created guild into db: " + g.getName());
+                }
+            }
         }
 
         // Tracking
@@ -128,9 +197,15 @@ public class GuildTracker implements TaskBase {
         if (trackChannels == null) {
             return;
         }
+        for (WynnGuild guild : created) {
+            sendGuildCreationTracking(guild, trackChannels);
+        }
+        this.dispatcher.flush();
+    }
 
+    private void sendGuildCreationTracking(WynnGuild guild, List<TrackChannel> trackChannels) {
         String messageBase1 = String.format("Guild `%s` `[%s]` created.",
-                guildName, guild.getPrefix()
+                guild.getName(), guild.getPrefix()
         );
         String ownerName = guild.getOwnerName();
         String messageBase2 = String.format("    Owner `%s`, `%s` members",
@@ -156,11 +231,7 @@ public class GuildTracker implements TaskBase {
                     messageBase2
             );
 
-            TextChannel channel = this.manager.getTextChannelById(trackChannel.getChannelId());
-            if (channel == null) {
-                continue;
-            }
-            channel.sendMessage(message).queue();
+            this.dispatcher.enqueue(trackChannel.getChannelId(), trackChannel.getType(), message);
         }
     }
 
@@ -188,11 +259,7 @@ public class GuildTracker implements TaskBase {
 
         String message = String.format("Guild `%s` `[%s]` deleted.", guildName, guild.getPrefix());
         for (TrackChannel trackChannel : trackChannels) {
-            TextChannel channel = this.manager.getTextChannelById(trackChannel.getChannelId());
-            if (channel == null) {
-                continue;
-            }
-            channel.sendMessage(message).queue();
+            this.dispatcher.enqueue(trackChannel.getChannelId(), trackChannel.getType(), message);
         }
     }
 }
@@ -15,6 +15,8 @@ import db.model.warTrack.WarTrack;
 import db.model.world.World;
 import db.repository.base.*;
 import heartbeat.base.TaskBase;
+import heartbeat.dispatch.TrackingDispatcher;
+import heartbeat.dispatch.WarMessageState;
 import io.prometheus.client.Gauge;
 import log.Logger;
 import net.dv8tion.jda.api.entities.Activity;
@@ -24,6 +26,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import utils.FormatUtils;
 import utils.UUID;
+import utils.cache.DataVersions;
 
 import java.sql.Timestamp;
 import java.text.DateFormat;
@@ -60,7 +63,10 @@ public class PlayerTracker implements TaskBase {
     private final WarLogRepository warLogRepository;
     private final WarTrackRepository warTrackRepository;
 
-    public PlayerTracker(Bot bot, Object dbLock) {
+    private final TrackingDispatcher dispatcher;
+    private final DataVersions dataVersions;
+
+    public PlayerTracker(Bot bot, Object dbLock, TrackingDispatcher dispatcher) {
         this.logger = bot.getLogger();
         this.dbLock = dbLock;
         this.manager = bot.getManager();
@@ -74,6 +80,8 @@ public class PlayerTracker implements TaskBase {
         this.playerNumberRepository = bot.getDatabase().getPlayerNumberRepository();
         this.warLogRepository = bot.getDatabase().getWarLogRepository();
         this.warTrackRepository = bot.getDatabase().getWarTrackRepository();
+        this.dispatcher = dispatcher;
+        this.dataVersions = bot.getDataVersions();
     }
 
     @NotNull
@@ -117,9 +125,11 @@ public class PlayerTracker implements TaskBase {
         this.handlePlayerNumberTracking(players.getRetrievedAt(), onlinePlayers);
 
         this.handleServerTracking(currentWorlds, prevWorlds);
+        this.dispatcher.flush();
         synchronized (this.dbLock) {
             this.handleWarTracking(players);
         }
+        this.dispatcher.flush();
     }
 
     private static final long PLAYER_TRACKER_DELAY = TimeUnit.SECONDS.toMillis(30);
@@ -160,13 +170,13 @@ public class PlayerTracker implements TaskBase {
         // Handle server start / close tracking.
         for (World currentWorld : currentWorlds.values()) {
             if (!prevWorlds.containsKey(currentWorld.getName())) {
-                sendServerTracking(true, this.trackChannelRepository, this.manager, this.logger, currentWorld);
+                sendServerTracking(true, this.trackChannelRepository, this.logger, currentWorld);
             }
             ONLINE_PLAYERS_GAUGE.labels(currentWorld.getName()).set(currentWorld.getPlayers());
         }
         for (World prevWorld : prevWorlds.values()) {
             if (!currentWorlds.containsKey(prevWorld.getName())) {
-                sendServerTracking(false, this.trackChannelRepository, this.manager, this.logger, prevWorld);
+                sendServerTracking(false, this.trackChannelRepository, this.logger, prevWorld);
                 ONLINE_PLAYERS_GAUGE.remove(prevWorld.getName());
             }
         }
@@ -219,6 +229,10 @@ public class PlayerTracker implements TaskBase {
             }
         }
 
+        if (!currentWars.isEmpty() || !prevWars.isEmpty()) {
+            this.dataVersions.changed(DataVersions.Source.WAR);
+        }
+
         boolean res = this.warTrackRepository.deleteAllOfLogEnded();
         if (!res) {
             this.logger.log(0, "Player Tracker: failed to delete all war_track records of log ended");
@@ -365,39 +379,26 @@ public class PlayerTracker implements TaskBase {
 
         // Send messages
         String messageBase = formatWarTrackBase(warLog);
+        int state = WarMessageState.of(warLog);
         for (TrackChannel t : channelsToSend) {
             String message = messageBase + formatWarTrackTime(warLog, t);
-            if (channelsAlreadySent.containsKey(t.getChannelId())) {
-                WarTrack track = channelsAlreadySent.get(t.getChannelId());
-                // update the message
-                TextChannel channel = this.manager.getTextChannelById(track.getChannelId());
-                if (channel == null) {
-                    this.logger.log(0, "Player tracker: failed to retrieve text channel: " + track.getChannelId());
-                    continue;
+            // Edit the message if already sent, otherwise send a new message and insert into db
+            WarTrack track = channelsAlreadySent.get(t.getChannelId());
+            long messageId = track != null ? track.getMessageId() : 0L;
+            this.dispatcher.updateWarTrack(t.getChannelId(), warLog.getId(), messageId, message, state, createdId -> {
+                WarTrack warTrack = new WarTrack(warLog.getId(), t.getChannelId(), createdId);
+                // The record exists if the message had been sent before a restart,
+                // or the dispatcher had to send a new message in place of the one it could not edit.
+                if (this.warTrackRepository.exists(warTrack)) {
+                    if (!this.warTrackRepository.update(warTrack)) {
+                        this.logger.log(0, "Player tracker: failed to update a track record in db");
+                    }
+                    return;
                 }
-                channel.editMessageById(track.getMessageId(), message).queue();
-            } else {
-                // send new message and insert into db
-                TextChannel channel = this.manager.getTextChannelById(t.getChannelId());
-                if (channel == null) {
-                    this.logger.log(0, "Player tracker: failed to retrieve text channel: " + t.getChannelId());
-                    continue;
+                if (!this.warTrackRepository.create(warTrack)) {
+                    this.logger.log(0, "Player tracker: failed to create a new track record in db");
                 }
-                channel.sendMessage(message).queue(success -> {
-                    WarTrack warTrack = new WarTrack(warLog.getId(), t.getChannelId(), success.getIdLong());
-                    // Because this is asynchronous, it is possible that at the time the code reaches here,
-                    // two or more messages are queued to be sent for the same war id and same channel
-                    // if discord API is being slow (like over 30s~ response time).
-                    // If such event happens, skip the message that is sent and resolved later.
-                    if (this.warTrackRepository.exists(warTrack)) {
-                        this.logger.log(-1, "Player tracker: skipping a sent message, because the earlier queue has been resolved");
-                        return;
-                    }
-                    if (!this.warTrackRepository.create(warTrack)) {
-                        this.logger.log(0, "Player tracker: failed to create a new track record in db");
-                    }
-                });
-            }
+            });
         }
     }
 
@@ -490,13 +491,11 @@ public class PlayerTracker implements TaskBase {
      * Called when a server starts or closes.
      * @param start Boolean indicating server started or closed.
      * @param repo Track channel repository.
-     * @param manager Bot manager to send messages.
      * @param logger Bot logger.
      * @param world Corresponding world.
      */
     private void sendServerTracking(boolean start,
                                            @NotNull TrackChannelRepository repo,
-                                           ShardManager manager,
                                            Logger logger,
                                            @NotNull World world) {
         Date now = new Date();
@@ -527,13 +526,7 @@ public class PlayerTracker implements TaskBase {
             channelsToSend.addAll(toAdd);
         }
 
-        channelsToSend.forEach(ch -> {
-            TextChannel channelToSend = manager.getTextChannelById(ch.getChannelId());
-            if (channelToSend == null) return;
-            channelToSend.sendMessage(
-                     formatDate(now, ch) + " " + message
-            ).queue();
-        });
+        channelsToSend.forEach(ch -> this.dispatcher.enqueue(ch.getChannelId(), ch.getType(), formatDate(now, ch) + " " + message));
     }
 
     /**
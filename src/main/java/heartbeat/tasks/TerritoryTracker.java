@@ -12,13 +12,13 @@ import db.model.track.TrackType;
 import db.model.warLog.WarLog;
 import db.repository.base.*;
 import heartbeat.base.TaskBase;
+import heartbeat.dispatch.TrackingDispatcher;
 import io.prometheus.client.Gauge;
 import log.Logger;
-import net.dv8tion.jda.api.entities.TextChannel;
-import net.dv8tion.jda.api.sharding.ShardManager;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import utils.FormatUtils;
+import utils.cache.DataVersions;
 
 import java.text.DateFormat;
 import java.text.ParseException;
@@ -35,7 +35,6 @@ public class TerritoryTracker implements TaskBase {
 
     private final Logger logger;
     private final Object dbLock;
-    private final ShardManager manager;
     private final WynnApi wynnApi;
     private final TerritoryRepository territoryRepository;
     private final TerritoryLogRepository territoryLogRepository;
@@ -44,11 +43,12 @@ public class TerritoryTracker implements TaskBase {
     private final TrackChannelRepository trackChannelRepository;
     private final TimeZoneRepository timeZoneRepository;
     private final DateFormatRepository dateFormatRepository;
+    private final TrackingDispatcher dispatcher;
+    private final DataVersions dataVersions;
 
-    public TerritoryTracker(Bot bot, Object dbLock) {
+    public TerritoryTracker(Bot bot, Object dbLock, TrackingDispatcher dispatcher) {
         this.logger = bot.getLogger();
         this.dbLock = dbLock;
-        this.manager = bot.getManager();
         this.wynnApi = new WynnApi(this.logger);
         this.territoryRepository = bot.getDatabase().getTerritoryRepository();
         this.territoryLogRepository = bot.getDatabase().getTerritoryLogRepository();
@@ -57,6 +57,8 @@ public class TerritoryTracker implements TaskBase {
         this.trackChannelRepository = bot.getDatabase().getTrackingChannelRepository();
         this.timeZoneRepository = bot.getDatabase().getTimeZoneRepository();
         this.dateFormatRepository = bot.getDatabase().getDateFormatRepository();
+        this.dispatcher = dispatcher;
+        this.dataVersions = bot.getDataVersions();
     }
 
     private static final long TERRITORY_TRACKER_DELAY = TimeUnit.SECONDS.toMillis(30);
@@ -113,8 +115,14 @@ public class TerritoryTracker implements TaskBase {
 
             newLastId = this.territoryLogRepository.lastInsertId();
         }
+        if (oldLastId != newLastId) {
+            // Territory logs are also associated with war logs by the DB trigger
+            this.dataVersions.changed(DataVersions.Source.TERRITORY);
+            this.dataVersions.changed(DataVersions.Source.WAR);
+        }
 
         this.handleTracking(oldLastId, newLastId);
+        this.dispatcher.flush();
     }
 
     private boolean checkIntegrity(List<Territory> retrieved) {
@@ -200,11 +208,7 @@ public class TerritoryTracker implements TaskBase {
             channelsToSend.addAll(specificTracksNew);
 
             String messageBase = formatBase(log, serverNames.get(log.getId()));
-            channelsToSend.forEach(ch -> {
-                TextChannel channel = this.manager.getTextChannelById(ch.getChannelId());
-                if (channel == null) return;
-                channel.sendMessage(messageBase + formatAcquiredTime(log, ch)).queue();
-            });
+            channelsToSend.forEach(ch -> this.dispatcher.enqueue(ch.getChannelId(), ch.getType(), messageBase + formatAcquiredTime(log, ch)));
         }
     }
 
@@ -3,29 +3,39 @@ package heartbeat.tasks;
 import app.Bot;
 import db.model.track.TrackChannel;
 import db.repository.base.TrackChannelRepository;
+import db.repository.base.TrackWebhookRepository;
 import heartbeat.base.TaskBase;
 import log.Logger;
 import net.dv8tion.jda.api.entities.TextChannel;
 import net.dv8tion.jda.api.sharding.ShardManager;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Tracking manager deletes expired tracking, and sends messages to the channel.
+ * <br>Only the entries that are due are retrieved on each run, in the order of expiry.
+ * Tracking in deleted channels, or channels the bot can no longer talk in, is removed on the corresponding
+ * JDA events by {@link app.UpdaterListener}; all entries are checked only once on the first run,
+ * to catch up with the events missed while the bot was offline.
  */
 public class TrackingManager implements TaskBase {
     private final Bot bot;
     private final ShardManager shardManager;
     private final Logger logger;
     private final TrackChannelRepository trackChannelRepository;
+    private final TrackWebhookRepository trackWebhookRepository;
+
+    private boolean checkedAll;
 
     public TrackingManager(Bot bot) {
         this.bot = bot;
         this.shardManager = bot.getManager();
         this.logger = bot.getLogger();
         this.trackChannelRepository = bot.getDatabase().getTrackingChannelRepository();
+        this.trackWebhookRepository = bot.getDatabase().getTrackWebhookRepository();
     }
 
     @Override
@@ -33,59 +43,91 @@ public class TrackingManager implements TaskBase {
         return "Tracking Manager";
     }
 
-    private void delete(TrackChannel track) {
-        if (!this.trackChannelRepository.delete(track)) {
-            this.logger.log(0, "Something went wrong while trying to remove expired track:\n" + track);
-        }
-    }
-
     @Override
     public void run() {
         // Do not process if JDA is disconnected from WS
         if (!this.bot.isAllConnected()) return;
 
-        long now = System.currentTimeMillis();
+        if (!this.checkedAll) {
+            this.checkedAll = this.removeUnavailableTracks();
+        }
+        this.removeExpiredTracks();
+    }
 
+    /**
+     * Removes all tracking in the channels that no longer exist, or the bot cannot talk in.
+     * @return {@code true} if success.
+     */
+    private boolean removeUnavailableTracks() {
         List<TrackChannel> tracks = this.trackChannelRepository.findAll();
         if (tracks == null) {
             this.logger.log(0, "Something went wrong while retrieving all track data...");
-            return;
+            return false;
         }
 
+        List<TrackChannel> toRemove = new ArrayList<>();
         for (TrackChannel track : tracks) {
-            // Check if the channel still exists and the bot can send messages
             TextChannel channel = this.shardManager.getTextChannelById(track.getChannelId());
-            if (channel == null) {
-                this.logger.log(0,
-                        "Tracking Manager: Failed to get text channel for a track entry, removing.\n" + track);
-
-                this.delete(track);
-                continue;
+            if (channel == null || !channel.canTalk()) {
+                toRemove.add(track);
             }
-            if (!channel.canTalk()) {
-                this.logger.log(0,
-                        "Tracking Manager: Cannot talk in a track entry, removing.\n" + track);
+        }
+        if (toRemove.isEmpty()) {
+            return true;
+        }
 
-                this.delete(track);
-                continue;
-            }
+        if (!this.trackChannelRepository.deleteAll(toRemove)) {
+            this.logger.log(0, "Something went wrong while trying to remove unavailable tracks");
+            return false;
+        }
+        this.removeUnusedWebhooks();
+        this.logger.log(0, "Tracking Manager: Removed tracking in unavailable channels:\n" +
+                toRemove.stream().map(TrackChannel::toString).collect(Collectors.joining("\n")));
+        return true;
+    }
+
+    private void removeExpiredTracks() {
+        List<TrackChannel> expired = this.trackChannelRepository.findAllExpiringBefore(new Date());
+        if (expired == null) {
+            this.logger.log(0, "Something went wrong while retrieving expired track data...");
+            return;
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
 
-            // Check if the track expired, if so delete the track and send message
-            if (track.getExpiresAt().getTime() <= now) {
-                if (this.trackChannelRepository.delete(track)) {
-                    channel.sendMessage(
-                            ":exclamation: Disabled the following tracking in this channel because it has expired. " +
-                            "Use the same command to enable the tracking again, and use `track <update|refresh>` command " +
-                            "to refresh them before they expire.\n" +
-                            String.format("**%s**", track.getDisplayName())
-                    ).queue();
-
-                    this.logger.log(0, ":mute: A tracking has expired:\n" + track);
-                } else {
-                    this.logger.log(0,
-                            "Something went wrong while trying to remove expired track:\n" + track);
-                }
+        if (!this.trackChannelRepository.deleteAll(expired)) {
+            this.logger.log(0, "Something went wrong while trying to remove expired tracks");
+            return;
+        }
+        this.removeUnusedWebhooks();
+
+        // Send one message per channel
+        Map<Long, List<TrackChannel>> byChannel = expired.stream()
+                .collect(Collectors.groupingBy(TrackChannel::getChannelId, LinkedHashMap::new, Collectors.toList()));
+        byChannel.forEach((channelId, tracks) -> {
+            this.logger.log(0, ":mute: Tracking has expired:\n" +
+                    tracks.stream().map(TrackChannel::toString).collect(Collectors.joining("\n")));
+
+            TextChannel channel = this.shardManager.getTextChannelById(channelId);
+            if (channel == null || !channel.canTalk()) {
+                return;
             }
+            channel.sendMessage(
+                    ":exclamation: Disabled the following tracking in this channel because it has expired. " +
+                    "Use the same command to enable the tracking again, and use `track <update|refresh>` command " +
+                    "to refresh them before they expire.\n" +
+                    tracks.stream().map(t -> String.format("**%s**", t.getDisplayName())).collect(Collectors.joining("\n"))
+            ).queue();
+        });
+    }
+
+    /**
+     * Removes webhooks of the channels that have no tracking left, as their URLs contain the token.
+     */
+    private void removeUnusedWebhooks() {
+        if (!this.trackWebhookRepository.deleteAllWithoutTracking()) {
+            this.logger.log(0, "Something went wrong while trying to remove unused tracking webhooks");
         }
     }
 
@@ -96,6 +138,7 @@ public class TrackingManager implements TaskBase {
 
     @Override
     public long getInterval() {
-        return TimeUnit.MINUTES.toMillis(15);
+        // Only the due entries are retrieved with the index on the expiry time, so it is cheap to run often
+        return TimeUnit.MINUTES.toMillis(1);
     }
 }
@@ -6,9 +6,8 @@ import net.dv8tion.jda.api.entities.TextChannel;
 import org.slf4j.LoggerFactory;
 import utils.FormatUtils;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.concurrent.RejectedExecutionException;
@@ -16,25 +15,37 @@ import java.util.stream.Collectors;
 
 /**
  * DiscordLogger implements Logger, discord channel logging, and checks message spams.
+ * <br>Discord channel logs are buffered and sent in batches, see {@link LogBatcher}.
  */
 public class DiscordLogger implements Logger {
+    private static final long FLUSH_INTERVAL = 3000;
+    private static final int MAX_BUFFERED_LINES = 1000;
+    // Discord allows 5 messages per 5 seconds per channel
+    private static final int MAX_MESSAGES_PER_FLUSH = 3;
+
     private final Bot bot;
 
     private final Map<Integer, Long> logChannels;
 
-    private final DateFormat logFormat;
+    private final DateTimeFormatter logFormat;
+
+    private final LogBatcher batcher;
 
     private final org.slf4j.Logger logger;
 
+    private volatile boolean shuttingDown;
+
     public DiscordLogger(Bot bot, TimeZone logTimeZone) {
         this.bot = bot;
         // deep copy
         this.logChannels = bot.getProperties().logChannelId
                 .entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
 
-        this.logFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss.SSS");
-        this.logFormat.setTimeZone(logTimeZone);
+        this.logFormat = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss.SSS").withZone(logTimeZone.toZoneId());
         this.logger = LoggerFactory.getLogger(DiscordLogger.class);
+
+        this.batcher = new LogBatcher(this::sendToDiscord, MAX_BUFFERED_LINES, MAX_MESSAGES_PER_FLUSH);
+        this.batcher.start(FLUSH_INTERVAL);
     }
 
     /**
@@ -45,8 +56,7 @@ public class DiscordLogger implements Logger {
      * @param message  Message to log.
      */
     public void log(int botLogCh, CharSequence message) {
-        Date now = new Date();
-        String msgTimeAppended = this.logFormat.format(now) + " " + message;
+        String msgTimeAppended = this.logFormat.format(Instant.now()) + " " + message;
 
         // To standard out
         this.logger.info(message.toString());
@@ -55,7 +65,7 @@ public class DiscordLogger implements Logger {
     }
 
     /**
-     * Logs to discord channel.
+     * Queues the message to be logged to discord channel.
      *
      * @param botLogCh Channel to log.
      * @param message  Raw message.
@@ -64,34 +74,42 @@ public class DiscordLogger implements Logger {
         if (!this.logChannels.containsKey(botLogCh)) {
             return;
         }
+        this.batcher.add(botLogCh, message);
+    }
+
+    /**
+     * Sends a batched message to discord channel.
+     *
+     * @param botLogCh Channel to log.
+     * @param message  Message within 2000 characters.
+     */
+    private void sendToDiscord(int botLogCh, String message) {
         long logChannelId = this.logChannels.get(botLogCh);
         TextChannel ch = this.bot.getManager().getTextChannelById(logChannelId);
         if (ch == null) {
             return;
         }
 
-        sendLongMessage(message, ch);
+        try {
+            if (this.shuttingDown) {
+                // Make sure the message is sent before exit
+                ch.sendMessage(message).complete();
+            } else {
+                ch.sendMessage(message).queue();
+            }
+        } catch (RejectedExecutionException e) {
+            // Expected to be thrown on JDA shutdown
+            this.debug("Logger: Failed to send message:\n" + e.getMessage());
+        }
     }
 
     /**
-     * Sends long message (supports string longer than 2000 chars) to text channel.
-     * Splits the message into parts to send to discord.
-     *
-     * @param message Message to send.
-     * @param ch      Text channel to post on.
+     * Sends the buffered logs, and stops logging to discord channels in background.
+     * Called on shutdown.
      */
-    private void sendLongMessage(String message, TextChannel ch) {
-        double length = message.length();
-        for (int i = 0; i < Math.ceil(length / 2000D); i++) {
-            int start = i * 2000;
-            int end = Math.min((i + 1) * 2000, (int) length);
-            try {
-                ch.sendMessage(message.substring(start, end)).queue();
-            } catch (RejectedExecutionException e) {
-                // Expected to be thrown on JDA shutdown
-                this.debug("Logger: Failed to send message:\n" + e.getMessage());
-            }
-        }
+    public void shutdown() {
+        this.shuttingDown = true;
+        this.batcher.stop();
     }
 
     @Override
@@ -141,10 +159,9 @@ public class DiscordLogger implements Logger {
 
     @Override
     public void logException(CharSequence message, Throwable e) {
-        Date now = new Date();
         String msgTimeAppended = String.format(
                 "%s %s\n%s",
-                this.logFormat.format(now), message, e.toString()
+                this.logFormat.format(Instant.now()), message, e.toString()
         );
         // Print short version to Discord channel 0
         this.logToDiscord(0, msgTimeAppended);
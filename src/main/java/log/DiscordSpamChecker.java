@@ -1,48 +1,109 @@
 package log;
 
-import commands.event.CommandEvent;
+import io.prometheus.client.Counter;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Per-user command cool-down checker.
+ * <br>Each command uses up the cool-down of the command from the user's time budget, which refills in real time.
+ * Users can run commands in a short burst, up to the burst tolerance, but not faster than the cool-downs on average.
+ * (This is a token bucket, kept as the time the bucket will be full again, so one number per user.)
+ * <br>Users are split into stripes with their own locks, and expired entries of a stripe are swept periodically.
+ */
 public class DiscordSpamChecker {
-    // User ID to next cool-down expire time
-    private final Map<Long, Long> coolDowns;
+    private static final Counter THROTTLED = Counter.build()
+            .name("moto_bot_commands_throttled")
+            .help("Number of commands rejected by cool-down per command kind.")
+            .labelNames("kind")
+            .register();
 
-    public DiscordSpamChecker() {
-        this.coolDowns = new HashMap<>();
-    }
+    private static final int STRIPES = 16;
+    private static final long DEFAULT_BURST_TOLERANCE = TimeUnit.SECONDS.toMillis(2);
+    private static final long SWEEP_INTERVAL = TimeUnit.SECONDS.toMillis(30);
 
-    public synchronized boolean isSpam(CommandEvent event, long nextCoolDown) {
-        long userId = event.getAuthor().getIdLong();
-        long now = System.currentTimeMillis();
-        long lastCoolDownExpire = this.coolDowns.getOrDefault(userId, -1L);
+    private static class Stripe {
+        // User ID to the time the user's budget is fully refilled
+        private final Map<Long, Long> refilledAt = new HashMap<>();
+        private long nextSweep;
+    }
 
-        // Still on cool-down
-        if (now < lastCoolDownExpire) {
-            return true;
-        }
+    private final long burstTolerance;
+    private final Stripe[] stripes;
 
-        // Register next cool-down expire time
-        long nextCoolDownExpire = event.getCreatedAt() + nextCoolDown;
-        this.coolDowns.put(userId, nextCoolDownExpire);
+    public DiscordSpamChecker() {
+        this(DEFAULT_BURST_TOLERANCE);
+    }
 
-        this.removeOldMessageCache(now);
-        return false;
+    /**
+     * @param burstTolerance How far ahead of the cool-downs users can run commands, in milliseconds.
+     *                       0 means the user cannot run any command until the cool-down of the last command expires.
+     */
+    DiscordSpamChecker(long burstTolerance) {
+        this.burstTolerance = burstTolerance;
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe();
+        }
     }
 
     /**
-     * Returns how much time is remained until the cool-down is expired for this user, in milliseconds.
+     * Checks if the user can run the command now, and uses up the cool-down if so.
      *
-     * @param userId User ID.
-     * @return Remaining cool-down in milliseconds.
+     * @param userId   User ID.
+     * @param kind     Command kind, used to label metrics.
+     * @param coolDown Cool-down of the command in milliseconds.
+     * @return 0 if the command can be run. Otherwise, remaining time in milliseconds until the user can run a command.
      */
-    public long nextCoolDownExpire(long userId) {
-        return this.coolDowns.get(userId) - System.currentTimeMillis();
+    public long check(long userId, String kind, long coolDown) {
+        return this.check(userId, kind, coolDown, System.currentTimeMillis());
+    }
+
+    long check(long userId, String kind, long coolDown, long now) {
+        Stripe stripe = this.stripes[(int) Math.floorMod(userId, (long) STRIPES)];
+        synchronized (stripe) {
+            this.sweep(stripe, now);
+
+            long refilledAt = stripe.refilledAt.getOrDefault(userId, now);
+            long allowedAt = refilledAt - this.burstTolerance;
+            if (now < allowedAt) {
+                THROTTLED.labels(kind).inc();
+                return allowedAt - now;
+            }
+
+            stripe.refilledAt.put(userId, Math.max(refilledAt, now) + coolDown);
+            return 0;
+        }
     }
 
-    private void removeOldMessageCache(long now) {
-        // Remove already expired cool-down
-        this.coolDowns.entrySet().removeIf((e) -> e.getValue() <= now);
+    private void sweep(Stripe stripe, long now) {
+        if (now < stripe.nextSweep) {
+            return;
+        }
+        stripe.nextSweep = now + SWEEP_INTERVAL;
+
+        // Users whose budget is full are the same as users never seen
+        Iterator<Long> it = stripe.refilledAt.values().iterator();
+        while (it.hasNext()) {
+            if (it.next() <= now) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of users being tracked.
+     */
+    int size() {
+        int size = 0;
+        for (Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                size += stripe.refilledAt.size();
+            }
+        }
+        return size;
     }
 }
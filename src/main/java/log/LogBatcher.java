@@ -0,0 +1,176 @@
+package log;
+
+import io.prometheus.client.Counter;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Buffers log lines per log channel, and sends them packed into as few messages as possible.
+ * <br>Adding a line never blocks on sending. If the buffer of a channel is full, new lines are dropped
+ * and the number of dropped lines is logged with the next messages.
+ * <br>Lines still buffered on {@link #stop()} are flushed once before stopping.
+ */
+class LogBatcher {
+    private static final Counter DROPPED = Counter.build()
+            .name("moto_bot_discord_log_dropped")
+            .help("Number of log lines not sent to Discord log channels because the buffer was full, per channel.")
+            .labelNames("channel")
+            .register();
+    private static final Counter SENT = Counter.build()
+            .name("moto_bot_discord_log_messages")
+            .help("Number of messages sent to Discord log channels, per channel.")
+            .labelNames("channel")
+            .register();
+
+    static final int MAX_MESSAGE_LENGTH = 2000;
+
+    private static class Buffer {
+        private final ArrayDeque<String> lines = new ArrayDeque<>();
+        private int dropped;
+    }
+
+    private final BiConsumer<Integer, String> sender;
+    private final int maxLines;
+    private final int maxMessagesPerFlush;
+    private final Map<Integer, Buffer> buffers;
+    private final org.slf4j.Logger logger;
+    @Nullable
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param sender Sends a message to the log channel.
+     * @param maxLines Max number of lines to buffer per channel.
+     * @param maxMessagesPerFlush Max number of messages to send per channel on each flush.
+     */
+    LogBatcher(BiConsumer<Integer, String> sender, int maxLines, int maxMessagesPerFlush) {
+        this.sender = sender;
+        this.maxLines = maxLines;
+        this.maxMessagesPerFlush = maxMessagesPerFlush;
+        this.buffers = new ConcurrentHashMap<>();
+        this.logger = LoggerFactory.getLogger(LogBatcher.class);
+    }
+
+    /**
+     * Starts flushing in background.
+     * @param interval Flush interval in milliseconds.
+     */
+    synchronized void start(long interval) {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "moto-bot discord logger");
+            t.setDaemon(true);
+            return t;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops flushing in background, and flushes buffered lines once.
+     * Waits for the flush in progress, if any, so that lines are not sent out of order.
+     */
+    synchronized void stop() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdown();
+            try {
+                if (!this.scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                    this.logger.warn("Timed out waiting for Discord logs to be flushed");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.scheduler = null;
+        }
+        this.flushSafely();
+    }
+
+    private void flushSafely() {
+        try {
+            this.flush();
+        } catch (Throwable e) {
+            // Do not log to Discord, as it might be what is failing
+            this.logger.error("Failed to flush Discord logs", e);
+        }
+    }
+
+    /**
+     * Adds a message to the buffer of the channel.
+     * Messages longer than the max message length are split into multiple lines.
+     * @param channel Log channel.
+     * @param message Message.
+     */
+    void add(int channel, String message) {
+        Buffer buffer = this.buffers.computeIfAbsent(channel, c -> new Buffer());
+        synchronized (buffer) {
+            for (int start = 0; start < message.length(); start += MAX_MESSAGE_LENGTH) {
+                if (buffer.lines.size() >= this.maxLines) {
+                    buffer.dropped++;
+                    DROPPED.labels(String.valueOf(channel)).inc();
+                    continue;
+                }
+                buffer.lines.add(message.substring(start, Math.min(start + MAX_MESSAGE_LENGTH, message.length())));
+            }
+        }
+    }
+
+    /**
+     * Sends buffered lines.
+     */
+    void flush() {
+        for (Map.Entry<Integer, Buffer> e : this.buffers.entrySet()) {
+            List<String> messages;
+            Buffer buffer = e.getValue();
+            synchronized (buffer) {
+                if (buffer.dropped > 0) {
+                    buffer.lines.addFirst(String.format("(%s log lines dropped)", buffer.dropped));
+                    buffer.dropped = 0;
+                }
+                messages = pack(buffer.lines, this.maxMessagesPerFlush);
+            }
+
+            for (String message : messages) {
+                this.sender.accept(e.getKey(), message);
+            }
+            SENT.labels(String.valueOf(e.getKey())).inc(messages.size());
+        }
+    }
+
+    /**
+     * Takes lines from the head of the queue, and joins them into messages within the max message length.
+     * @param lines Lines, each within the max message length. Taken lines are removed.
+     * @param maxMessages Max number of messages.
+     * @return Messages.
+     */
+    static List<String> pack(ArrayDeque<String> lines, int maxMessages) {
+        List<String> messages = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        while (messages.size() < maxMessages) {
+            String line = lines.peek();
+            if (line == null) {
+                break;
+            }
+            if (!sb.isEmpty() && sb.length() + 1 + line.length() > MAX_MESSAGE_LENGTH) {
+                messages.add(sb.toString());
+                sb.setLength(0);
+                continue;
+            }
+            if (!sb.isEmpty()) {
+                sb.append('\n');
+            }
+            sb.append(line);
+            lines.poll();
+        }
+        if (!sb.isEmpty()) {
+            messages.add(sb.toString());
+        }
+        return messages;
+    }
+}
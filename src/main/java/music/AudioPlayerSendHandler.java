@@ -1,28 +1,109 @@
 package music;
 
+import com.sedmelluq.discord.lavaplayer.format.StandardAudioDataFormats;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
 import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrame;
+import com.sedmelluq.discord.lavaplayer.track.playback.MutableAudioFrame;
+import io.prometheus.client.Counter;
 import net.dv8tion.jda.api.audio.AudioSendHandler;
 
+import javax.annotation.Nullable;
+import java.lang.management.ManagementFactory;
 import java.nio.ByteBuffer;
 
+/**
+ * Sends audio from the player to Discord, every 20ms per playing guild.
+ * <br>When reusing frames, audio is written into a {@link MutableAudioFrame} with a buffer allocated once per guild,
+ * so that no garbage is generated on the audio path.
+ * This requires the player manager to use {@link com.sedmelluq.discord.lavaplayer.track.playback.NonAllocatingAudioFrameBuffer}.
+ */
 public class AudioPlayerSendHandler implements AudioSendHandler {
-    private final AudioPlayer audioPlayer;
+    private static final Counter FRAMES = Counter.build()
+            .name("moto_bot_music_audio_frames")
+            .help("Number of audio frames sent by music players, per send mode.")
+            .labelNames("mode")
+            .register();
+    // Divide by the frames to get bytes allocated per frame of a player
+    private static final Counter ALLOCATED_BYTES = Counter.build()
+            .name("moto_bot_music_audio_allocated_bytes")
+            .help("Bytes allocated on the heap while providing audio frames, per send mode.")
+            .labelNames("mode")
+            .register();
+
+    @Nullable
+    private static final com.sun.management.ThreadMXBean threadBean = getThreadBean();
+
+    @Nullable
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean)
+                || !bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled()) {
+            return null;
+        }
+        return bean;
+    }
+
+    private static long allocatedBytes() {
+        return threadBean != null ? threadBean.getCurrentThreadAllocatedBytes() : 0L;
+    }
+
+    private final MusicState state;
+
+    // Used when reusing frames
+    @Nullable
+    private final MutableAudioFrame frame;
+    @Nullable
+    private final ByteBuffer buffer;
+
+    // Used when not reusing frames
     private AudioFrame lastFrame;
 
-    public AudioPlayerSendHandler(AudioPlayer audioPlayer) {
-        this.audioPlayer = audioPlayer;
+    private final Counter.Child frames;
+    private final Counter.Child allocated;
+
+    public AudioPlayerSendHandler(MusicState state, boolean reuseFrames) {
+        this.state = state;
+        if (reuseFrames) {
+            this.buffer = ByteBuffer.allocate(StandardAudioDataFormats.DISCORD_OPUS.maximumChunkSize());
+            this.frame = new MutableAudioFrame();
+            this.frame.setBuffer(this.buffer);
+        } else {
+            this.buffer = null;
+            this.frame = null;
+        }
+        String mode = reuseFrames ? "reuse" : "allocate";
+        this.frames = FRAMES.labels(mode);
+        this.allocated = ALLOCATED_BYTES.labels(mode);
     }
 
     @Override
     public boolean canProvide() {
-        lastFrame = audioPlayer.provide();
-        return lastFrame != null;
+        long before = allocatedBytes();
+        // The player can be switched between tracks when prebuffering
+        AudioPlayer player = this.state.getPlayer();
+        boolean provided;
+        if (this.frame != null) {
+            this.buffer.clear();
+            provided = player.provide(this.frame);
+        } else {
+            this.lastFrame = player.provide();
+            provided = this.lastFrame != null;
+        }
+        this.allocated.inc(allocatedBytes() - before);
+        if (provided) {
+            this.state.onFrameProvided();
+        }
+        return provided;
     }
 
     @Override
     public ByteBuffer provide20MsAudio() {
-        return ByteBuffer.wrap(lastFrame.getData());
+        long before = allocatedBytes();
+        ByteBuffer ret = this.buffer != null
+                ? this.buffer.flip()
+                : ByteBuffer.wrap(this.lastFrame.getData());
+        this.allocated.inc(allocatedBytes() - before);
+        this.frames.inc();
+        return ret;
     }
 
     @Override
@@ -0,0 +1,184 @@
+package music;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Array-backed double-ended queue with random access, which also keeps
+ * the count of each key and the total weight of the elements up to date on every change.
+ * <br>Duplicate checks and total weight are O(1), and positional removal and shuffle work in place.
+ * Not thread-safe.
+ * @param <E> Element type.
+ */
+class IndexedQueue<E> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Function<E, String> keyOf;
+    private final ToLongFunction<E> weightOf;
+
+    private Object[] elements;
+    private int head;
+    private int size;
+
+    private final Map<String, Integer> keyCounts;
+    private long totalWeight;
+
+    /**
+     * @param keyOf Retrieves the key of an element, used for duplicate checks.
+     * @param weightOf Retrieves the weight of an element.
+     */
+    IndexedQueue(Function<E, String> keyOf, ToLongFunction<E> weightOf) {
+        this.keyOf = keyOf;
+        this.weightOf = weightOf;
+        this.elements = new Object[INITIAL_CAPACITY];
+        this.keyCounts = new HashMap<>();
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    boolean containsKey(String key) {
+        return this.keyCounts.containsKey(key);
+    }
+
+    long getTotalWeight() {
+        return this.totalWeight;
+    }
+
+    void addLast(E e) {
+        this.grow();
+        this.elements[this.physical(this.size)] = e;
+        this.size++;
+        this.added(e);
+    }
+
+    void addFirst(E e) {
+        this.grow();
+        this.head = Math.floorMod(this.head - 1, this.elements.length);
+        this.elements[this.head] = e;
+        this.size++;
+        this.added(e);
+    }
+
+    @Nullable
+    E peekFirst() {
+        return this.size == 0 ? null : this.get(0);
+    }
+
+    @Nullable
+    E pollFirst() {
+        return this.size == 0 ? null : this.remove(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    E get(int index) {
+        Objects.checkIndex(index, this.size);
+        return (E) this.elements[this.physical(index)];
+    }
+
+    /**
+     * Removes the element at the index, shifting the shorter side.
+     * @param index Index.
+     * @return Removed element.
+     */
+    E remove(int index) {
+        E e = this.get(index);
+        if (index < this.size / 2) {
+            for (int i = index; i > 0; i--) {
+                this.elements[this.physical(i)] = this.elements[this.physical(i - 1)];
+            }
+            this.elements[this.head] = null;
+            this.head = this.physical(1);
+        } else {
+            for (int i = index; i < this.size - 1; i++) {
+                this.elements[this.physical(i)] = this.elements[this.physical(i + 1)];
+            }
+            this.elements[this.physical(this.size - 1)] = null;
+        }
+        this.size--;
+        this.removed(e);
+        return e;
+    }
+
+    /**
+     * Removes elements from the end, so that the queue has at most the given size.
+     * @param newSize New size.
+     */
+    void truncate(int newSize) {
+        while (this.size > newSize) {
+            int last = this.physical(this.size - 1);
+            @SuppressWarnings("unchecked")
+            E e = (E) this.elements[last];
+            this.elements[last] = null;
+            this.size--;
+            this.removed(e);
+        }
+    }
+
+    void clear() {
+        this.truncate(0);
+        this.head = 0;
+    }
+
+    /**
+     * Shuffles the elements at and after the index, in place.
+     * @param from Index to shuffle from.
+     * @param random Random.
+     */
+    void shuffle(int from, Random random) {
+        for (int i = this.size - 1; i > from; i--) {
+            int j = from + random.nextInt(i - from + 1);
+            int pi = this.physical(i);
+            int pj = this.physical(j);
+            Object tmp = this.elements[pi];
+            this.elements[pi] = this.elements[pj];
+            this.elements[pj] = tmp;
+        }
+    }
+
+    /**
+     * Copies the elements to a new list.
+     * @return List of the elements in order.
+     */
+    List<E> toList() {
+        List<E> ret = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            ret.add(this.get(i));
+        }
+        return ret;
+    }
+
+    private int physical(int index) {
+        int i = this.head + index;
+        return i >= this.elements.length ? i - this.elements.length : i;
+    }
+
+    private void grow() {
+        if (this.size < this.elements.length) {
+            return;
+        }
+        Object[] next = new Object[this.elements.length * 2];
+        for (int i = 0; i < this.size; i++) {
+            next[i] = this.elements[this.physical(i)];
+        }
+        this.elements = next;
+        this.head = 0;
+    }
+
+    private void added(E e) {
+        this.keyCounts.merge(this.keyOf.apply(e), 1, Integer::sum);
+        this.totalWeight += this.weightOf.applyAsLong(e);
+    }
+
+    private void removed(E e) {
+        this.keyCounts.computeIfPresent(this.keyOf.apply(e), (k, c) -> c == 1 ? null : c - 1);
+        this.totalWeight -= this.weightOf.applyAsLong(e);
+    }
+}
@@ -4,6 +4,7 @@ import app.Bot;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.player.DefaultAudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.source.AudioSourceManagers;
+import com.sedmelluq.discord.lavaplayer.track.playback.NonAllocatingAudioFrameBuffer;
 import commands.base.GuildCommand;
 import commands.event.CommandEvent;
 import db.model.musicSetting.MusicSetting;
@@ -63,6 +64,11 @@ public class Music extends GuildCommand {
         this.logger = bot.getLogger();
         this.manager = bot.getManager();
         this.musicSettingRepository = bot.getDatabase().getMusicSettingRepository();
+
+        // Frames are written into buffers of the send handlers instead of being allocated each time
+        if (bot.getProperties().musicReuseAudioFrames) {
+            playerManager.getConfiguration().setFrameBufferFactory(NonAllocatingAudioFrameBuffer::new);
+        }
         this.playHandler = new MusicPlayHandler(bot, states, playerManager);
         this.managementHandler = new MusicManagementHandler(bot);
         this.settingHandler = new MusicSettingHandler(bot);
@@ -11,7 +11,6 @@ import javax.annotation.Nullable;
 import java.util.List;
 
 public class MusicState {
-    private final AudioPlayer player;
     private final TrackScheduler scheduler;
     private final MusicSetting setting;
     private long lastInteract;
@@ -24,9 +23,8 @@ public class MusicState {
     @Nullable
     private SentMessage messageToEdit;
 
-    public MusicState(AudioPlayer player, TrackScheduler scheduler, MusicSetting setting,
+    public MusicState(TrackScheduler scheduler, MusicSetting setting,
                       long guildId, long boundChannelId, long voiceChannelId) {
-        this.player = player;
         this.scheduler = scheduler;
         this.setting = setting;
         this.lastInteract = System.currentTimeMillis();
@@ -45,7 +43,7 @@ public class MusicState {
     }
 
     public void skip(int amount) {
-        this.player.stopTrack();
+        this.getPlayer().stopTrack();
         this.scheduler.skip(amount);
     }
 
@@ -53,8 +51,30 @@ public class MusicState {
         this.scheduler.shuffleQueue();
     }
 
+    /**
+     * Retrieves the player currently sending audio.
+     * @return Audio player.
+     */
     public AudioPlayer getPlayer() {
-        return this.player;
+        return this.scheduler.getPlayer();
+    }
+
+    public void setVolume(int volume) {
+        this.scheduler.setVolume(volume);
+    }
+
+    /**
+     * Destroys the audio players. Should be called after {@link #stopPlaying()}.
+     */
+    public void destroy() {
+        this.scheduler.destroyPlayers();
+    }
+
+    /**
+     * Called by the send handler each time an audio frame is sent.
+     */
+    void onFrameProvided() {
+        this.scheduler.onFrameProvided();
     }
 
     public MusicSetting getSetting() {
@@ -79,12 +99,13 @@ public class MusicState {
 
     public void stopPlaying() {
         this.scheduler.clearQueue();
-        this.player.stopTrack();
+        this.scheduler.cancelPrebuffer();
+        this.getPlayer().stopTrack();
     }
 
     public QueueState getCurrentQueue() {
         List<QueueEntry> queue = this.scheduler.getCurrentQueue();
-        AudioTrack track = this.player.getPlayingTrack();
+        AudioTrack track = this.getPlayer().getPlayingTrack();
         long position = track != null ? track.getPosition() : 0L;
         return new QueueState(queue, position);
     }
@@ -95,7 +116,7 @@ public class MusicState {
      */
     public long getRemainingLength() {
         long queueLength = this.scheduler.getQueueLength();
-        AudioTrack track = this.player.getPlayingTrack();
+        AudioTrack track = this.getPlayer().getPlayingTrack();
         if (track != null) {
             queueLength -= track.getPosition();
         }
@@ -6,6 +6,7 @@ import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrackEndReason;
 import db.model.musicSetting.MusicSetting;
+import io.prometheus.client.Histogram;
 import music.exception.DuplicateTrackException;
 import music.exception.QueueFullException;
 import net.dv8tion.jda.api.EmbedBuilder;
@@ -17,18 +18,32 @@ import org.jetbrains.annotations.NotNull;
 import javax.annotation.Nullable;
 import java.awt.*;
 import java.util.List;
-import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 import static music.MusicUtils.formatNowPlaying;
 
 /**
  * Handles track queue.
+ * <br>When given a standby player, the next track is started on it in paused state shortly before the current track ends,
+ * so that its stream is opened and buffered in advance. When the current track ends,
+ * the players switch roles and the next track is sent without waiting for the stream.
  */
 public class TrackScheduler extends AudioEventAdapter {
     private static final int QUEUE_LIMIT = 300;
 
+    private static final Histogram TRACK_GAP = Histogram.build()
+            .name("moto_bot_music_track_gap_seconds")
+            .help("Silence between starting the next track and sending its first frame, per start mode.")
+            .labelNames("mode")
+            .buckets(0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10)
+            .register();
+
+    // Time before the end of the current track to start buffering the next track
+    private static final long PREBUFFER_MS = TimeUnit.SECONDS.toMillis(5);
+    // Check the remaining time of the current track once per second
+    private static final int PREBUFFER_CHECK_FRAMES = 50;
+
     public interface SchedulerGateway {
         /**
          * Sends message to the bound music channel.
@@ -61,52 +76,105 @@ public class TrackScheduler extends AudioEventAdapter {
          * Sets the last interact time to the current time.
          */
         void setLastInteract();
+    }
 
-        /**
-         * Plays the specified track.
-         * @param track Audio track
-         */
-        void playTrack(AudioTrack track);
+    /**
+     * Next track buffered in the standby player.
+     * @param source Track of the next queue entry.
+     * @param buffered Clone of the source, playing in the standby player.
+     */
+    private record Prebuffer(AudioTrack source, AudioTrack buffered) {
     }
 
-    private final Deque<QueueEntry> queue;
+    // Guarded by queueLock, as the queue is accessed from command threads, player event threads,
+    // and the audio sending thread to look ahead the next track. Player methods are not called while holding the lock.
+    private final IndexedQueue<QueueEntry> queue;
+    private final Object queueLock = new Object();
 
     private final SchedulerGateway gateway;
 
-    public TrackScheduler(SchedulerGateway gateway) {
-        this.queue = new ArrayDeque<>();
+    // Player currently sending audio
+    private volatile AudioPlayer player;
+    // Guarded by prebufferLock. Player methods are not called while holding the lock,
+    // as player events are dispatched while holding the player's own lock.
+    @Nullable
+    private AudioPlayer standby;
+    @Nullable
+    private Prebuffer prebuffer;
+    private final Object prebufferLock = new Object();
+    private final boolean prebufferEnabled;
+
+    // Accessed only from the audio sending thread
+    private int frames;
+
+    // Start of the current track switch, 0 if not switching
+    private volatile long switchStartedAt;
+    private volatile String switchMode;
+
+    /**
+     * @param gateway Gateway.
+     * @param player Audio player.
+     * @param standby Audio player to buffer the next track in. null to disable prebuffering.
+     */
+    public TrackScheduler(SchedulerGateway gateway, AudioPlayer player, @Nullable AudioPlayer standby) {
+        this.queue = new IndexedQueue<>(q -> q.track().getInfo().uri, q -> q.track().getDuration());
         this.gateway = gateway;
+        this.player = player;
+        this.standby = standby;
+        this.prebufferEnabled = standby != null;
+    }
+
+    AudioPlayer getPlayer() {
+        return this.player;
+    }
+
+    void setVolume(int volume) {
+        AudioPlayer standby;
+        synchronized (this.prebufferLock) {
+            standby = this.standby;
+        }
+        this.player.setVolume(volume);
+        if (standby != null) {
+            standby.setVolume(volume);
+        }
+    }
+
+    void destroyPlayers() {
+        AudioPlayer standby;
+        synchronized (this.prebufferLock) {
+            standby = this.standby;
+            this.prebuffer = null;
+        }
+        this.player.destroy();
+        if (standby != null) {
+            standby.destroy();
+        }
     }
 
     /**
      * Shuffles the queue. Retains the position of the current playing track (first element in the queue).
      */
     void shuffleQueue() {
-        QueueEntry first = this.queue.poll();
-        List<QueueEntry> others = new ArrayList<>(this.queue);
-        Collections.shuffle(others);
-        this.queue.clear();
-        this.queue.add(first);
-        this.queue.addAll(others);
-    }
-
-    private static boolean hasDuplicate(Deque<QueueEntry> queue, QueueEntry toQueue) {
-        Set<String> URLs = queue.stream().map(q -> q.track().getInfo().uri).collect(Collectors.toSet());
-        return URLs.contains(toQueue.track().getInfo().uri);
+        synchronized (this.queueLock) {
+            this.queue.shuffle(1, ThreadLocalRandom.current());
+        }
     }
 
     void enqueue(QueueEntry entry) throws DuplicateTrackException, QueueFullException {
-        if (hasDuplicate(this.queue, entry)) {
-            throw new DuplicateTrackException("The current queue contains a duplicate track!");
-        }
-        if (QUEUE_LIMIT <= this.queue.size()) {
-            throw new QueueFullException(String.format(
-                    "Queue full (size: %s)! Please empty some slots in the queue before you enqueue new songs.",
-                    this.queue.size()));
-        }
+        boolean toStartPlaying;
+        synchronized (this.queueLock) {
+            if (this.queue.containsKey(entry.track().getInfo().uri)) {
+                throw new DuplicateTrackException("The current queue contains a duplicate track!");
+            }
+            if (QUEUE_LIMIT <= this.queue.size()) {
+                throw new QueueFullException(String.format(
+                        "Queue full (size: %s)! Please empty some slots in the queue before you enqueue new songs.",
+                        this.queue.size()));
+            }
 
-        boolean toStartPlaying = this.queue.isEmpty();
-        this.queue.add(entry);
+            toStartPlaying = this.queue.isEmpty();
+            this.queue.addLast(entry);
+        }
         if (toStartPlaying) {
             this.playTrack(entry.track());
         }
@@ -117,35 +185,171 @@ public class TrackScheduler extends AudioEventAdapter {
      * Does NOT remove the current song.
      */
     void purgeWaitingQueue() {
-        if (this.queue.isEmpty() || this.queue.size() == 1) {
-            return;
+        synchronized (this.queueLock) {
+            this.queue.truncate(1);
         }
-
-        QueueEntry first = this.queue.poll();
-        this.queue.clear();
-        this.queue.add(first);
     }
 
     void clearQueue() {
-        this.queue.clear();
+        synchronized (this.queueLock) {
+            this.queue.clear();
+        }
     }
 
     List<QueueEntry> getCurrentQueue() {
-        return new ArrayList<>(this.queue);
+        synchronized (this.queueLock) {
+            return this.queue.toList();
+        }
     }
 
     long getQueueLength() {
-        return this.queue.stream().mapToLong(q -> q.track().getDuration()).sum();
+        synchronized (this.queueLock) {
+            return this.queue.getTotalWeight();
+        }
+    }
+
+    /**
+     * Called each time an audio frame of the current player is sent.
+     */
+    void onFrameProvided() {
+        long startedAt = this.switchStartedAt;
+        if (startedAt != 0) {
+            this.switchStartedAt = 0;
+            TRACK_GAP.labels(this.switchMode).observe((System.nanoTime() - startedAt) / 1e9);
+        }
+        if (this.prebufferEnabled && ++this.frames % PREBUFFER_CHECK_FRAMES == 0) {
+            this.checkPrebuffer();
+        }
+    }
+
+    /**
+     * Starts buffering the next track if the current track is about to end.
+     */
+    private void checkPrebuffer() {
+        AudioPlayer player = this.player;
+        AudioTrack current = player.getPlayingTrack();
+        if (current == null || player.isPaused() || current.getInfo().isStream
+                || current.getDuration() - current.getPosition() > PREBUFFER_MS) {
+            return;
+        }
+        QueueEntry next = this.peekNext();
+        if (next == null) {
+            return;
+        }
+
+        AudioTrack buffered = next.track().makeClone();
+        AudioPlayer standby;
+        synchronized (this.prebufferLock) {
+            if (this.prebuffer != null) {
+                return;
+            }
+            standby = this.standby;
+            this.prebuffer = new Prebuffer(next.track(), buffered);
+        }
+        standby.setPaused(true);
+        standby.playTrack(buffered);
+    }
+
+    /**
+     * Retrieves the next entry, if it can be known before the current track ends.
+     * @return Next entry. null if there is none, or it is decided when the current track ends.
+     */
+    @Nullable
+    private QueueEntry peekNext() {
+        return switch (this.gateway.getSetting().getRepeat()) {
+            case OFF, QUEUE -> {
+                synchronized (this.queueLock) {
+                    yield this.queue.size() >= 2 ? this.queue.get(1) : null;
+                }
+            }
+            // Repeat one re-adds the finished track, and random modes shuffle when the current track ends
+            default -> null;
+        };
+    }
+
+    /**
+     * Stops buffering the next track.
+     */
+    void cancelPrebuffer() {
+        AudioPlayer standby;
+        synchronized (this.prebufferLock) {
+            if (this.prebuffer == null) {
+                return;
+            }
+            standby = this.standby;
+            this.prebuffer = null;
+        }
+        standby.stopTrack();
+    }
+
+    /**
+     * Starts playing the next entry, which is at the head of the queue.
+     * Switches to the standby player if it has buffered the entry.
+     * @param next Next entry.
+     */
+    private void startNext(QueueEntry next) {
+        AudioPlayer previous = this.player;
+        AudioPlayer standby;
+        Prebuffer prebuffer;
+        synchronized (this.prebufferLock) {
+            standby = this.standby;
+            prebuffer = this.prebuffer;
+        }
+        // The buffered track might have failed, or been cleaned up by the player
+        boolean switching = prebuffer != null && prebuffer.source() == next.track()
+                && standby.getPlayingTrack() == prebuffer.buffered();
+        synchronized (this.prebufferLock) {
+            // Left set while checking, so that no other track is buffered in the meantime
+            this.prebuffer = null;
+            if (switching) {
+                this.player = standby;
+                this.standby = previous;
+            }
+        }
+
+        if (switching) {
+            this.switchMode = "prebuffered";
+            this.switchStartedAt = System.nanoTime();
+            // Replace with the buffered clone, so the queue holds the playing track
+            synchronized (this.queueLock) {
+                if (this.queue.peekFirst() == next) {
+                    this.queue.pollFirst();
+                    this.queue.addFirst(new QueueEntry(prebuffer.buffered(), next.userId()));
+                }
+            }
+            standby.setPaused(previous.isPaused());
+            // Start event was ignored, as it was dispatched while the player was on standby
+            this.sendNowPlaying(prebuffer.buffered());
+            return;
+        }
+
+        if (prebuffer != null) {
+            standby.stopTrack();
+        }
+        this.switchMode = "direct";
+        this.switchStartedAt = System.nanoTime();
+        this.playTrack(next.track());
     }
 
     @Override
     public void onTrackStart(AudioPlayer player, AudioTrack track) {
+        if (player != this.player) {
+            return;
+        }
+        this.sendNowPlaying(track);
+    }
+
+    private void sendNowPlaying(AudioTrack track) {
         if (!this.gateway.getSetting().isShowNp()) {
             return;
         }
 
         MusicSetting setting = this.gateway.getSetting();
-        User user = queue.peek() != null ? this.gateway.getUser(queue.peek().userId()) : null;
+        QueueEntry current;
+        synchronized (this.queueLock) {
+            current = this.queue.peekFirst();
+        }
+        User user = current != null ? this.gateway.getUser(current.userId()) : null;
 
         boolean showPosition = track.getPosition() > TimeUnit.SECONDS.toMillis(1);
 
@@ -170,24 +374,27 @@ public class TrackScheduler extends AudioEventAdapter {
 
     @Override
     public void onTrackEnd(AudioPlayer player, AudioTrack track, AudioTrackEndReason endReason) {
-        if (!endReason.mayStartNext) {
+        if (player != this.player || !endReason.mayStartNext) {
             return;
         }
 
-        // Get the finished track
-        QueueEntry entry = this.queue.poll();
-        if (entry == null) {
-            // indicates the queue has been cleared by other means
-            return;
-        }
+        QueueEntry next;
+        synchronized (this.queueLock) {
+            // Get the finished track
+            QueueEntry entry = this.queue.pollFirst();
+            if (entry == null) {
+                // indicates the queue has been cleared by other means
+                return;
+            }
 
-        // Get the next track depending on the repeat state
-        QueueEntry next = getQueueEntry(track, false, entry);
+            // Get the next track depending on the repeat state
+            next = getQueueEntry(track, false, entry);
+        }
         if (next == null) {
             this.sendEmptyQueueMessage();
             return;
         }
-        playTrack(next.track());
+        this.startNext(next);
     }
 
     /**
@@ -196,24 +403,25 @@ public class TrackScheduler extends AudioEventAdapter {
      */
     void skip(int amount) {
         QueueEntry next = null;
-        for (int i = 0; i < amount; i++) {
-            QueueEntry prev = this.queue.poll();
-            if (prev == null) {
-                this.sendEmptyQueueMessage();
-                return;
+        synchronized (this.queueLock) {
+            for (int i = 0; i < amount; i++) {
+                QueueEntry prev = this.queue.pollFirst();
+                if (prev == null) {
+                    break;
+                }
+                next = getQueueEntry(prev.track(), true, prev);
             }
-            next = getQueueEntry(prev.track(), true, prev);
         }
         if (next == null) {
             this.sendEmptyQueueMessage();
             return;
         }
-        playTrack(next.track());
+        this.startNext(next);
     }
 
     /**
      * Retrieves the next track depending on the repeat state.
-     * If repeating, re-enqueues (and shuffles) inside this.
+     * If repeating, re-enqueues (and shuffles) inside this. Must be called while holding the queue lock.
      * @param finishedTrack Finished track.
      * @param isManualSkip {@code true} if manual skip.
      * @param track Finished track.
@@ -235,7 +443,7 @@ public class TrackScheduler extends AudioEventAdapter {
             case QUEUE:
                 // Re-add the cloned track
                 QueueEntry newEntry = new QueueEntry(finishedTrack.makeClone(), track.userId());
-                this.queue.add(newEntry);
+                this.queue.addLast(newEntry);
                 break;
             case RANDOM:
                 shuffleQueue();
@@ -243,19 +451,22 @@ public class TrackScheduler extends AudioEventAdapter {
             case RANDOM_REPEAT:
                 // Re-add the cloned track
                 newEntry = new QueueEntry(finishedTrack.makeClone(), track.userId());
-                this.queue.add(newEntry);
+                this.queue.addLast(newEntry);
                 shuffleQueue();
                 break;
         }
-        return queue.peek();
+        return this.queue.peekFirst();
     }
 
     private void playTrack(@NotNull AudioTrack track) {
-        this.gateway.playTrack(track);
+        this.player.playTrack(track);
     }
 
     @Override
     public void onTrackException(AudioPlayer player, AudioTrack track, FriendlyException exception) {
+        if (player != this.player) {
+            return;
+        }
         String title = track.getInfo().title;
         this.gateway.sendMessage(
                 new MessageBuilder(
@@ -272,6 +483,9 @@ public class TrackScheduler extends AudioEventAdapter {
 
     @Override
     public void onTrackStuck(AudioPlayer player, AudioTrack track, long thresholdMs) {
+        if (player != this.player) {
+            return;
+        }
         this.gateway.sendMessage(
                 new MessageBuilder(
                         new EmbedBuilder()
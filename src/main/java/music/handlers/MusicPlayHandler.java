@@ -56,6 +56,8 @@ public class MusicPlayHandler {
     private final MusicQueueRepository musicQueueRepository;
     private final MusicInterruptedGuildRepository interruptedGuildRepository;
     private final ButtonClickManager buttonClickManager;
+    private final boolean reuseAudioFrames;
+    private final boolean prebuffer;
 
     public MusicPlayHandler(Bot bot, Map<Long, MusicState> states, AudioPlayerManager playerManager) {
         this.states = states;
@@ -66,6 +68,8 @@ public class MusicPlayHandler {
         this.musicQueueRepository = bot.getDatabase().getMusicQueueRepository();
         this.interruptedGuildRepository = bot.getDatabase().getMusicInterruptedGuildRepository();
         this.buttonClickManager = bot.getButtonClickManager();
+        this.reuseAudioFrames = bot.getProperties().musicReuseAudioFrames;
+        this.prebuffer = bot.getProperties().musicPrebuffer;
     }
 
     /**
@@ -132,7 +136,7 @@ public class MusicPlayHandler {
                 AudioManager audioManager = channel.getGuild().getAudioManager();
                 audioManager.openAudioConnection(vc);
                 // AudioPlayerSendHandler handles audio sending from LavaPlayer to Discord (JDA)
-                audioManager.setSendingHandler(new AudioPlayerSendHandler(state.getPlayer()));
+                audioManager.setSendingHandler(new AudioPlayerSendHandler(state, this.reuseAudioFrames));
             } catch (InsufficientPermissionException e) {
                 channel.sendMessage("The bot couldn't join your voice channel. " +
                         "Please make sure the bot has sufficient permissions to do so!").queue();
@@ -163,6 +167,12 @@ public class MusicPlayHandler {
 
         AudioPlayer player = playerManager.createPlayer();
         player.setVolume(setting.getVolume());
+        // Buffers the next track before the current one ends, to switch to it without a gap
+        AudioPlayer standby = null;
+        if (this.prebuffer) {
+            standby = playerManager.createPlayer();
+            standby.setVolume(setting.getVolume());
+        }
 
         TrackScheduler scheduler = new TrackScheduler(new TrackScheduler.SchedulerGateway() {
             @Override
@@ -211,15 +221,13 @@ public class MusicPlayHandler {
                     state.setLastInteract(System.currentTimeMillis());
                 }
             }
-
-            @Override
-            public void playTrack(AudioTrack track) {
-                player.playTrack(track);
-            }
-        });
+        }, player, standby);
         player.addListener(scheduler);
+        if (standby != null) {
+            standby.addListener(scheduler);
+        }
 
-        MusicState state = new MusicState(player, scheduler, setting, guildId, channelId, voiceChannelId);
+        MusicState state = new MusicState(scheduler, setting, guildId, channelId, voiceChannelId);
         synchronized (states) {
             states.put(guildId, state);
             MUSIC_PLAYER_GAUGE.inc();
@@ -247,80 +255,32 @@ public class MusicPlayHandler {
             return;
         }
 
-        List<Future<Void>> futures = new ArrayList<>(queue.size());
-
-        String firstURL = queue.get(0).getUrl();
-        long position = queue.get(0).getPosition();
-
-        Map<String, MusicQueueEntry> urlMap = queue.stream().collect(Collectors.toMap(MusicQueueEntry::getUrl, q -> q));
-
-        for (MusicQueueEntry e : queue) {
-            Future<Void> f = playerManager.loadItemOrdered(state.getPlayer(), e.getUrl(), new AudioLoadResultHandler() {
-                @Override
-                public void trackLoaded(AudioTrack audioTrack) {
-                    // If it's the first one, set the position
-                    AudioTrackInfo info = audioTrack.getInfo();
-                    if (info.uri.equals(firstURL)) {
-                        audioTrack.setPosition(position);
-                    }
-                    MusicQueueEntry e = urlMap.getOrDefault(info.uri, null);
-                    try {
-                        state.enqueue(new QueueEntry(audioTrack, e != null ? e.getUserId() : 0L));
-                    } catch (DuplicateTrackException | QueueFullException ex) {
-                        ex.printStackTrace();
-                    }
-                }
-
-                @Override
-                public void playlistLoaded(AudioPlaylist audioPlaylist) {
-                    // Should probably not be reached because we're supplying a URL for each song
-                    for (AudioTrack track : audioPlaylist.getTracks()) {
-                        try {
-                            AudioTrackInfo info = track.getInfo();
-                            MusicQueueEntry e = urlMap.getOrDefault(info.uri, null);
-                            state.enqueue(new QueueEntry(track, e != null ? e.getUserId() : 0L));
-                        } catch (DuplicateTrackException | QueueFullException ex) {
-                            ex.printStackTrace();
-                        }
-                    }
-                }
-
-                @Override
-                public void noMatches() {
-                    logger.debug("Music: Loading old queue: No match for URL " + e.getUrl());
-                }
-
-                @Override
-                public void loadFailed(FriendlyException e) {
-                    logger.debug("Music: Loading old queue: Load failed :" + e.getMessage());
-                }
-            });
-            futures.add(f);
-        }
+        // Tracks saved with their encoded data are enqueued right away, and others are resolved in background
+        SavedQueueLoader loader = new SavedQueueLoader(this.playerManager, this.logger, state, queue);
+        CompletableFuture<Void> all = loader.start();
 
-        // Use asynchronous logic to cancel loading in case the user wants it
         String desc = String.format("Loading `%s` song%s from the previous queue...",
                 queue.size(), queue.size() == 1 ? "" : "s");
+        if (all.isDone()) {
+            channel.sendMessageEmbeds(
+                    new EmbedBuilder()
+                            .setColor(MinecraftColor.DARK_GREEN.getColor())
+                            .setDescription(desc + "\nFinished loading!")
+                            .build()
+            ).queue();
+            return;
+        }
 
-        CompletableFuture<Void> all = CompletableFuture.runAsync(() -> {
-            for (Future<Void> f : futures) {
-                try {
-                    f.get();
-                } catch (InterruptedException | ExecutionException e) {
-                    e.printStackTrace();
-                }
-            }
-        });
-
+        // Use asynchronous logic to cancel loading in case the user wants it
         channel.sendMessageEmbeds(
                 new EmbedBuilder()
                         .setColor(MinecraftColor.DARK_GREEN.getColor())
                         .setDescription(desc + "\nThis might take a while. `m purge` or `m clear` to stop loading.")
                         .build()
-        ).queue(message -> sendFinishEnqueueSaved(message, state, futures, all, desc));
+        ).queue(message -> sendFinishEnqueueSaved(message, state, loader, all, desc));
     }
 
-    private void sendFinishEnqueueSaved(Message message, MusicState state, List<Future<Void>> futures,
+    private void sendFinishEnqueueSaved(Message message, MusicState state, SavedQueueLoader loader,
                                         CompletableFuture<Void> all, String desc) {
         all.thenRun(() -> message.editMessageEmbeds(
                 new EmbedBuilder()
@@ -330,14 +290,9 @@ public class MusicPlayHandler {
         ).queue());
 
         state.setOnStopLoadingCache(() -> {
-            if (all.isDone()) {
+            if (!loader.cancel()) {
                 return;
             }
-            all.cancel(false);
-            futures.forEach(f -> {
-                if (f.isDone()) return;
-                f.cancel(false);
-            });
             message.editMessageEmbeds(
                     new EmbedBuilder()
                             .setColor(MinecraftColor.RED.getColor())
@@ -368,7 +323,7 @@ public class MusicPlayHandler {
             AudioManager audioManager = channel.getGuild().getAudioManager();
             audioManager.openAudioConnection(channel);
             // AudioPlayerSendHandler handles audio sending from LavaPlayer to Discord (JDA)
-            audioManager.setSendingHandler(new AudioPlayerSendHandler(state.getPlayer()));
+            audioManager.setSendingHandler(new AudioPlayerSendHandler(state, this.reuseAudioFrames));
         } catch (InsufficientPermissionException e) {
             event.replyException("The bot couldn't join your voice channel. Please make sure the bot has sufficient permissions to do so!");
             synchronized (states) {
@@ -467,9 +422,9 @@ public class MusicPlayHandler {
         // Retrieve the current queue before it is cleared
         QueueState queue = state.getCurrentQueue();
 
-        // Stop playing, and destroy LavaPlayer audio player (this call clears the queue inside MusicState)
+        // Stop playing, and destroy LavaPlayer audio players (this call clears the queue inside MusicState)
         state.stopPlaying();
-        state.getPlayer().destroy();
+        state.destroy();
 
         // Try to disconnect from the Discord voice channel
         long guildId = state.getGuildId();
@@ -530,7 +485,8 @@ public class MusicPlayHandler {
                     track.userId(),
                     track.track().getInfo().uri,
                     i == 0 ? queue.position() : 0L,
-                    new Date(now)
+                    new Date(now),
+                    SavedQueueLoader.encodeTrack(this.playerManager, track.track())
             ));
         }
         return this.musicQueueRepository.saveGuildMusicQueue(toSave);
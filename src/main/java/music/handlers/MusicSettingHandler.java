@@ -87,7 +87,7 @@ public class MusicSettingHandler {
         setting.setVolume(newVolume);
         // Directly set the volume for player as well, if it is currently up.
         if (state != null) {
-            state.getPlayer().setVolume(newVolume);
+            state.setVolume(newVolume);
         }
 
         if (this.saveSetting(setting)) {
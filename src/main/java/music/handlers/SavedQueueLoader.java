@@ -0,0 +1,228 @@
+package music.handlers;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.DecodedTrackHolder;
+import db.model.musicQueue.MusicQueueEntry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import log.Logger;
+import music.MusicState;
+import music.QueueEntry;
+import music.exception.DuplicateTrackException;
+import music.exception.QueueFullException;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Restores a saved queue of a guild.
+ * <br>Tracks saved with their encoded data are decoded locally. Other tracks are resolved again from their URLs,
+ * on a pool shared among all guilds so that restoring many guilds at once does not flood the audio sources.
+ * Tracks are enqueued in the saved order, as soon as all tracks before them are ready.
+ */
+class SavedQueueLoader {
+    private static final Histogram RESTORE_TIME = Histogram.build()
+            .name("moto_bot_music_restore_seconds")
+            .help("Time taken to restore a saved music queue of a guild.")
+            .buckets(0.01, 0.1, 0.5, 1, 2.5, 5, 10, 30, 60, 120)
+            .register();
+    private static final Counter RESTORED_TRACKS = Counter.build()
+            .name("moto_bot_music_restored_tracks")
+            .help("Number of saved tracks restored, per source (decoded, resolved, failed).")
+            .labelNames("source")
+            .register();
+
+    private static final int RESOLVE_THREADS = 4;
+    private static final ExecutorService resolver = Executors.newFixedThreadPool(RESOLVE_THREADS, r -> {
+        Thread t = new Thread(r, "moto-bot music queue restore");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AudioPlayerManager playerManager;
+    private final Logger logger;
+    private final MusicState state;
+    private final List<MusicQueueEntry> queue;
+
+    // Tracks of each saved entry, null if not ready yet
+    private final List<List<AudioTrack>> slots;
+    // Index of the next slot to enqueue
+    private int next;
+    private int decodedCount;
+    private int resolvedCount;
+
+    private final CompletableFuture<Void> done;
+    private volatile boolean cancelled;
+    private long startedAt;
+
+    SavedQueueLoader(AudioPlayerManager playerManager, Logger logger, MusicState state, List<MusicQueueEntry> queue) {
+        this.playerManager = playerManager;
+        this.logger = logger;
+        this.state = state;
+        this.queue = queue;
+        this.slots = new ArrayList<>(Collections.nCopies(queue.size(), null));
+        this.done = new CompletableFuture<>();
+    }
+
+    /**
+     * Starts loading the queue.
+     * Tracks that can be decoded are enqueued before this method returns.
+     * @return Future completed when all tracks are loaded. Cancelled if loading is cancelled.
+     */
+    CompletableFuture<Void> start() {
+        this.startedAt = System.nanoTime();
+        for (int i = 0; i < this.queue.size(); i++) {
+            MusicQueueEntry e = this.queue.get(i);
+            AudioTrack track = e.getTrackData() != null ? decodeTrack(this.playerManager, e.getTrackData()) : null;
+            if (track != null) {
+                this.complete(i, List.of(track), true);
+                continue;
+            }
+
+            int index = i;
+            resolver.execute(() -> this.resolve(index, e.getUrl()));
+        }
+        return this.done;
+    }
+
+    /**
+     * Cancels loading.
+     * @return {@code true} if it was still loading.
+     */
+    boolean cancel() {
+        if (this.done.isDone()) {
+            return false;
+        }
+        this.cancelled = true;
+        return this.done.cancel(false);
+    }
+
+    private void resolve(int index, String url) {
+        List<AudioTrack> tracks = new ArrayList<>();
+        if (this.cancelled) {
+            this.complete(index, tracks, false);
+            return;
+        }
+
+        try {
+            this.playerManager.loadItem(url, new AudioLoadResultHandler() {
+                @Override
+                public void trackLoaded(AudioTrack audioTrack) {
+                    tracks.add(audioTrack);
+                }
+
+                @Override
+                public void playlistLoaded(AudioPlaylist audioPlaylist) {
+                    // Should probably not be reached because we're supplying a URL for each song
+                    tracks.addAll(audioPlaylist.getTracks());
+                }
+
+                @Override
+                public void noMatches() {
+                    logger.debug("Music: Loading old queue: No match for URL " + url);
+                }
+
+                @Override
+                public void loadFailed(FriendlyException e) {
+                    logger.debug("Music: Loading old queue: Load failed :" + e.getMessage());
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            this.logger.logException("Music: Loading old queue: Load failed for URL " + url, e);
+        }
+        this.complete(index, tracks, false);
+    }
+
+    /**
+     * Marks the slot as ready, and enqueues all ready tracks in order.
+     */
+    private synchronized void complete(int index, List<AudioTrack> tracks, boolean decoded) {
+        if (decoded) {
+            this.decodedCount++;
+        } else if (!tracks.isEmpty()) {
+            this.resolvedCount++;
+        }
+        RESTORED_TRACKS.labels(decoded ? "decoded" : tracks.isEmpty() ? "failed" : "resolved").inc();
+        this.slots.set(index, tracks);
+
+        while (this.next < this.slots.size() && this.slots.get(this.next) != null) {
+            MusicQueueEntry e = this.queue.get(this.next);
+            for (AudioTrack track : this.slots.get(this.next)) {
+                if (this.next == 0) {
+                    track.setPosition(e.getPosition());
+                }
+                if (!this.cancelled) {
+                    this.enqueue(new QueueEntry(track, e.getUserId()));
+                }
+            }
+            // Release the tracks, they are now held by the queue
+            this.slots.set(this.next, List.of());
+            this.next++;
+        }
+
+        if (this.next == this.slots.size() && this.done.complete(null)) {
+            double seconds = (System.nanoTime() - this.startedAt) / 1e9;
+            RESTORE_TIME.observe(seconds);
+            this.logger.debug(String.format(
+                    "Music: Restored queue for guild %s in %.2f seconds (%s decoded, %s resolved, %s saved)",
+                    this.state.getGuildId(), seconds, this.decodedCount, this.resolvedCount, this.queue.size()));
+        }
+    }
+
+    private void enqueue(QueueEntry entry) {
+        try {
+            this.state.enqueue(entry);
+        } catch (DuplicateTrackException | QueueFullException ex) {
+            this.logger.debug("Music: Loading old queue: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Encodes the track to save it.
+     * @param playerManager Player manager.
+     * @param track Track.
+     * @return Base64 of the encoded track. null if failed to encode.
+     */
+    @Nullable
+    static String encodeTrack(AudioPlayerManager playerManager, AudioTrack track) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            playerManager.encodeTrack(new MessageOutput(out), track);
+        } catch (IOException e) {
+            return null;
+        }
+        return Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    /**
+     * Decodes the saved track.
+     * @param playerManager Player manager.
+     * @param data Base64 of the encoded track.
+     * @return Decoded track. null if failed to decode, for example when the source is no longer supported.
+     */
+    @Nullable
+    static AudioTrack decodeTrack(AudioPlayerManager playerManager, String data) {
+        try {
+            byte[] bytes = Base64.getDecoder().decode(data);
+            DecodedTrackHolder holder = playerManager.decodeTrack(new MessageInput(new ByteArrayInputStream(bytes)));
+            return holder != null ? holder.decodedTrack : null;
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -1,25 +1,52 @@
 package update.button;
 
-import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.events.interaction.ButtonClickEvent;
 import update.multipage.ButtonMultiPageHandler;
 
-import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
 
+/**
+ * Handlers are indexed by message ID, and multi-page handlers also by channel.
+ * <br>Clicks on different messages are handled concurrently; clicks on the same message are handled one at a time.
+ * Handlers are expired through a timing wheel, so that the expiry check only looks at handlers that are due.
+ */
 public class ButtonClickManagerImpl implements ButtonClickManager {
-    private final Map<Long, ButtonClickHandler> waitingResponses;
+    private static final long TICK = TimeUnit.SECONDS.toMillis(10);
+    // 128 ticks of 10 seconds is longer than the max live of handlers (10 minutes), so most handlers are seen only once
+    private static final int WHEEL_SIZE = 128;
 
-    private final Object lock;
+    private static class Registration {
+        private final ButtonClickHandler handler;
+        private final long channelId;
+        /**
+         * Guarded by this registration.
+         */
+        private boolean removed;
+
+        private Registration(ButtonClickHandler handler, long channelId) {
+            this.handler = handler;
+            this.channelId = channelId;
+        }
+    }
+
+    private final Map<Long, Registration> waitingResponses;
+    /**
+     * Channel ID -> (message ID -> multi-page handler). Message IDs are in order of creation.
+     */
+    private final Map<Long, ConcurrentSkipListMap<Long, Registration>> multiPageHandlers;
+
+    private final TimingWheel<Registration> expiry;
 
     public ButtonClickManagerImpl() {
-        this.waitingResponses = new HashMap<>();
-        this.lock = new Object();
+        this.waitingResponses = new ConcurrentHashMap<>();
+        this.multiPageHandlers = new ConcurrentHashMap<>();
+        this.expiry = new TimingWheel<>(TICK, WHEEL_SIZE, System.currentTimeMillis());
 
-        long delay = TimeUnit.MINUTES.toMillis(10);
         ButtonClickManagerImpl manager = this;
         new Timer().scheduleAtFixedRate(
                 new TimerTask() {
@@ -28,84 +55,105 @@ public class ButtonClickManagerImpl implements ButtonClickManager {
                         manager.clearUp();
                     }
                 },
-                delay,
-                delay
+                TICK,
+                TICK
         );
     }
 
     @Override
     public void addEventListener(ButtonClickHandler r) {
-        synchronized (this.lock) {
-            this.waitingResponses.put(r.getMessageId(), r);
+        long channelId = r instanceof ButtonMultiPageHandler m ? m.getChannelId() : 0L;
+        Registration registration = new Registration(r, channelId);
+
+        // Index by channel first, so that the registration cannot be removed before it is indexed
+        if (r instanceof ButtonMultiPageHandler) {
+            this.multiPageHandlers.compute(channelId, (id, handlers) -> {
+                if (handlers == null) {
+                    handlers = new ConcurrentSkipListMap<>();
+                }
+                handlers.put(r.getMessageId(), registration);
+                return handlers;
+            });
+        }
+        Registration prev = this.waitingResponses.put(r.getMessageId(), registration);
+        if (prev != null) {
+            synchronized (prev) {
+                this.unregister(prev);
+            }
         }
+        this.expiry.schedule(registration, r.getUpdatedAt() + r.getMaxLive());
     }
 
     @Override
     public void handle(ButtonClickEvent event) {
-        long messageId = event.getMessage().getIdLong();
+        Registration registration = this.waitingResponses.get(event.getMessage().getIdLong());
+        if (registration == null) {
+            return;
+        }
 
-        synchronized (this.lock) {
-            if (!this.waitingResponses.containsKey(messageId)) {
+        synchronized (registration) {
+            if (registration.removed) {
                 return;
             }
-
-            boolean remove = this.waitingResponses.get(messageId).handle(event);
+            boolean remove = registration.handler.handle(event);
             if (remove) {
-                this.waitingResponses.get(messageId).onDestroy();
-                this.waitingResponses.remove(messageId);
+                this.unregister(registration);
+                registration.handler.onDestroy();
             }
         }
     }
 
+    /**
+     * Removes the registration from the indices. Must be called while holding the lock of the registration.
+     */
+    private void unregister(Registration registration) {
+        registration.removed = true;
+        long messageId = registration.handler.getMessageId();
+        this.waitingResponses.remove(messageId, registration);
+        if (registration.handler instanceof ButtonMultiPageHandler) {
+            this.multiPageHandlers.computeIfPresent(registration.channelId, (id, handlers) -> {
+                handlers.remove(messageId, registration);
+                return handlers.isEmpty() ? null : handlers;
+            });
+        }
+    }
+
     private void clearUp() {
         long now = System.currentTimeMillis();
-        Predicate<ButtonClickHandler> removeIf = r -> (now - r.getUpdatedAt()) > r.getMaxLive();
-
-        synchronized (this.lock) {
-            this.waitingResponses.values().stream()
-                    .filter(removeIf)
-                    .forEach(ButtonClickHandler::onDestroy);
-            this.waitingResponses.values().removeIf(removeIf);
+        for (Registration registration : this.expiry.advance(now)) {
+            synchronized (registration) {
+                if (registration.removed) {
+                    continue;
+                }
+                // Handlers clicked since they were scheduled are scheduled again
+                long deadline = registration.handler.getUpdatedAt() + registration.handler.getMaxLive();
+                if (now < deadline) {
+                    this.expiry.schedule(registration, deadline);
+                    continue;
+                }
+                this.unregister(registration);
+                registration.handler.onDestroy();
+            }
         }
     }
 
     @Override
     public boolean setPage(long channelId, int newPage) {
-        // ???
-        ButtonMultiPageHandler handler = this.waitingResponses.values().stream()
-                .filter(h -> h instanceof ButtonMultiPageHandler)
-                .map(h -> (ButtonMultiPageHandler) h)
-                .map(h -> {
-                    CompletableFuture<Message> c = new CompletableFuture<>();
-                    h.getMessage(c::complete);
-                    return new AbstractMap.SimpleEntry<>(h, c);
-                })
-                .filter(p -> {
-                    Message m;
-                    try {
-                        m = p.getValue().get();
-                    } catch (InterruptedException | ExecutionException e) {
-                        e.printStackTrace();
-                        return false;
-                    }
-                    return m.getChannel().getIdLong() == channelId;
-                })
-                .max(Comparator.comparingLong(p -> {
-                    try {
-                        return p.getValue().get().getIdLong();
-                    } catch (InterruptedException | ExecutionException e) {
-                        e.printStackTrace();
-                        return 0L;
-                    }
-                }))
-                .map(AbstractMap.SimpleEntry::getKey)
-                .orElse(null);
-
-        if (handler == null) {
+        ConcurrentSkipListMap<Long, Registration> handlers = this.multiPageHandlers.get(channelId);
+        if (handlers == null) {
             return false;
         }
 
-        handler.setPageAndUpdate(newPage);
-        return true;
+        // Latest message first
+        for (Registration registration : handlers.descendingMap().values()) {
+            synchronized (registration) {
+                if (registration.removed) {
+                    continue;
+                }
+                ((ButtonMultiPageHandler) registration.handler).setPageAndUpdate(newPage);
+                return true;
+            }
+        }
+        return false;
     }
 }
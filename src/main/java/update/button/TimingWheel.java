@@ -0,0 +1,82 @@
+package update.button;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Hashed timing wheel.
+ * <br>Scheduling is O(1), and each advance only looks at the slots of the elapsed ticks,
+ * instead of scanning all scheduled items.
+ * Items are never returned before their deadline, but can be returned up to one tick late.
+ * @param <T> Item type.
+ */
+class TimingWheel<T> {
+    private record Timeout<T>(T item, long tick) {
+    }
+
+    private final long tickMillis;
+    private final ArrayDeque<Timeout<T>>[] slots;
+    /**
+     * Last processed tick.
+     */
+    private long currentTick;
+
+    /**
+     * @param tickMillis Length of a tick in milliseconds.
+     * @param size Number of slots. Deadlines further than a full round are kept for multiple rounds.
+     * @param now Current time in unix milliseconds.
+     */
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, int size, long now) {
+        this.tickMillis = tickMillis;
+        this.slots = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            this.slots[i] = new ArrayDeque<>();
+        }
+        this.currentTick = now / tickMillis;
+    }
+
+    /**
+     * Schedules the item.
+     * @param item Item.
+     * @param deadline Deadline in unix milliseconds.
+     */
+    synchronized void schedule(T item, long deadline) {
+        long tick = Math.max(Math.floorDiv(deadline + this.tickMillis - 1, this.tickMillis), this.currentTick + 1);
+        this.slots[this.slotOf(tick)].add(new Timeout<>(item, tick));
+    }
+
+    /**
+     * Advances the wheel to the current time.
+     * @param now Current time in unix milliseconds.
+     * @return Items whose deadline has passed.
+     */
+    synchronized List<T> advance(long now) {
+        long targetTick = now / this.tickMillis;
+        List<T> due = new ArrayList<>();
+        if (targetTick <= this.currentTick) {
+            return due;
+        }
+
+        // Visit each slot at most once, even if more than a round has elapsed
+        long ticks = Math.min(targetTick - this.currentTick, this.slots.length);
+        for (long i = 1; i <= ticks; i++) {
+            Iterator<Timeout<T>> it = this.slots[this.slotOf(this.currentTick + i)].iterator();
+            while (it.hasNext()) {
+                Timeout<T> timeout = it.next();
+                if (timeout.tick <= targetTick) {
+                    due.add(timeout.item);
+                    it.remove();
+                }
+            }
+        }
+        this.currentTick = targetTick;
+        return due;
+    }
+
+    private int slotOf(long tick) {
+        return (int) Math.floorMod(tick, (long) this.slots.length);
+    }
+}
@@ -9,13 +9,45 @@ import net.dv8tion.jda.api.events.interaction.ButtonClickEvent;
 import net.dv8tion.jda.api.interactions.components.ActionRow;
 import net.dv8tion.jda.api.interactions.components.Button;
 import net.dv8tion.jda.api.interactions.components.Component;
+import io.prometheus.client.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import update.button.ButtonClickHandler;
 
+import javax.annotation.Nullable;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+/**
+ * Multi-page message switched by buttons.
+ * <br>Pages are rendered in background and the pages next to the current one are prefetched,
+ * so that most clicks are responded to with an already rendered page.
+ * A click on an already rendered page is answered by editing the message in the interaction response.
+ * Otherwise, the click is acknowledged right away and the message is edited once the page is rendered,
+ * so that the event thread never waits for the page or the max page.
+ */
 public class ButtonMultiPageHandler extends ButtonClickHandler {
+    private static final Logger logger = LoggerFactory.getLogger(ButtonMultiPageHandler.class);
+
+    private static final Counter VIEWS = Counter.build()
+            .name("moto_bot_multi_page_views")
+            .help("Number of page switches of multi-page messages, by whether the page was already rendered.")
+            .labelNames("result")
+            .register();
+
+    private static final int RENDER_THREADS = 4;
+    private static final ExecutorService renderer = Executors.newFixedThreadPool(RENDER_THREADS, r -> {
+        Thread t = new Thread(r, "moto-bot page renderer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final long PAGE_TTL = TimeUnit.SECONDS.toMillis(30);
+    private static final long MAX_PAGE_TTL = TimeUnit.MINUTES.toMillis(1);
+
     private static final String ARROW_LEFT = "\u2B05";
     private static final String ARROW_RIGHT = "\u27A1";
     private static final String WHITE_CHECK_MARK = "\u2705";
@@ -27,19 +59,31 @@ public class ButtonMultiPageHandler extends ButtonClickHandler {
     private static final String BUTTON_ID_CANCEL = "cancel";
 
     private SentMessage message;
-    private final Function<Integer, Message> pages;
-
-    private final Supplier<Integer> maxPage;
-
+    private final PageLoader<Message> loader;
+    /**
+     * Incremented on each page switch, so that a slow page does not overwrite a page switched to later.
+     */
+    private final AtomicInteger generation;
+
+    private final long channelId;
+
+    /**
+     * Page being viewed, moved on each click before the max page is known.
+     * Can be out of the page range until normalized once the max page is retrieved. Guarded by the lock of this handler.
+     */
     private int currentPage;
 
-    public ButtonMultiPageHandler(SentMessage message, long messageId, Function<Integer, Message> pages, Supplier<Integer> maxPage) {
+    public ButtonMultiPageHandler(SentMessage message, long messageId, long channelId,
+                                  Function<Integer, Message> pages, Supplier<Integer> maxPage) {
         super(messageId, (event) -> false, () -> {
         });
         this.message = message;
-        this.pages = pages;
-        this.maxPage = maxPage;
+        this.channelId = channelId;
+        this.loader = new PageLoader<>(pages, maxPage, renderer, PAGE_TTL, MAX_PAGE_TTL);
+        this.generation = new AtomicInteger();
         this.currentPage = 0;
+
+        this.loader.prefetchAround(0, System.currentTimeMillis());
     }
 
     public static Component[] getActionRow() {
@@ -62,24 +106,104 @@ public class ButtonMultiPageHandler extends ButtonClickHandler {
             return true;
         }
 
-        int mod = maxPage.get() + 1;
-        int nextPage = switch (event.getButton().getId()) {
-            case BUTTON_ID_LEFT_PAGE -> (currentPage - 1 + mod) % mod;
-            case BUTTON_ID_RIGHT_PAGE -> (currentPage + 1) % mod;
-            default -> currentPage;
-        };
+        String buttonId = event.getButton().getId();
+        if (BUTTON_ID_REFRESH.equals(buttonId)) {
+            this.loader.invalidate();
+        }
 
-        event.editMessage(
-                new MessageBuilder(pages.apply(nextPage))
-                        .setActionRows(ActionRow.of(getActionRow()))
-                        .build()
-        ).queue();
+        int target, gen;
+        synchronized (this) {
+            this.currentPage += switch (buttonId) {
+                case BUTTON_ID_LEFT_PAGE -> -1;
+                case BUTTON_ID_RIGHT_PAGE -> 1;
+                default -> 0;
+            };
+            target = this.currentPage;
+            gen = this.generation.incrementAndGet();
+        }
 
-        this.currentPage = nextPage;
+        Message rendered = this.getRendered(target, System.currentTimeMillis());
+        if (rendered != null) {
+            // Responds and edits with a single request
+            VIEWS.labels("prefetched").inc();
+            event.editMessage(withButtons(rendered)).queue();
+            return false;
+        }
+
+        // Discord requires interactions to be acknowledged within 3 seconds
+        event.deferEdit().queue();
+        this.show(target, gen, m -> event.getHook().editOriginal(m).queue(), true);
 
         return false;
     }
 
+    /**
+     * Retrieves the page if it and the max page are already available, without waiting.
+     * @param target Page to show, normalized to the page range.
+     * @param now Current time in unix milliseconds.
+     * @return Rendered page, or {@code null} if not available yet.
+     */
+    @Nullable
+    private Message getRendered(int target, long now) {
+        CompletableFuture<Integer> maxPage = this.loader.getMaxPage(now);
+        if (!maxPage.isDone() || maxPage.isCompletedExceptionally()) {
+            return null;
+        }
+        CompletableFuture<Message> page = this.loader.load(this.normalize(target, maxPage.join()), now);
+        if (!page.isDone() || page.isCompletedExceptionally()) {
+            return null;
+        }
+        return page.join();
+    }
+
+    /**
+     * Normalizes the page to the page range, and the current page if it has not been moved since.
+     * @param target Page to show.
+     * @param maxPage Max page.
+     * @return Normalized page.
+     */
+    private int normalize(int target, int maxPage) {
+        int nextPage = Math.floorMod(target, maxPage + 1);
+        synchronized (this) {
+            if (this.currentPage == target) {
+                this.currentPage = nextPage;
+            }
+        }
+        return nextPage;
+    }
+
+    /**
+     * Renders the page in background, and shows it unless another page has been switched to in the meantime.
+     * @param target Page to show, normalized to the page range once the max page is retrieved.
+     * @param gen Generation of the page switch.
+     * @param edit Edits the message to the page.
+     * @param countView {@code true} to count the page switch in the metrics.
+     */
+    private void show(int target, int gen, Consumer<Message> edit, boolean countView) {
+        long now = System.currentTimeMillis();
+        this.loader.getMaxPage(now).thenCompose(maxPage -> {
+            CompletableFuture<Message> page = this.loader.load(this.normalize(target, maxPage), now);
+            if (countView) {
+                VIEWS.labels(page.isDone() ? "prefetched" : "rendered").inc();
+            }
+            return page;
+        }).whenComplete((m, e) -> {
+            if (e != null) {
+                logger.error("Failed to render page", e);
+                return;
+            }
+            if (this.generation.get() == gen) {
+                edit.accept(withButtons(m));
+            }
+        });
+    }
+
+    private static Message withButtons(Message page) {
+        return new MessageBuilder(page)
+                .setActionRows(ActionRow.of(getActionRow()))
+                .build();
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
@@ -88,20 +212,16 @@ public class ButtonMultiPageHandler extends ButtonClickHandler {
         this.message.editComponents();
     }
 
-    public void getMessage(Consumer<Message> callback) {
-        this.message.getMessage(callback);
+    public long getChannelId() {
+        return this.channelId;
     }
 
     public void setPageAndUpdate(int page) {
-        int mod = this.maxPage.get() + 1;
-        int nextPage = ((page % mod) + mod) % mod;
-
-        this.message.editMessage(
-                new MessageBuilder(pages.apply(nextPage))
-                        .setActionRows(ActionRow.of(getActionRow()))
-                        .build()
-        );
-
-        this.currentPage = nextPage;
+        int gen;
+        synchronized (this) {
+            this.currentPage = page;
+            gen = this.generation.incrementAndGet();
+        }
+        this.show(page, gen, m -> this.message.editMessage(m), false);
     }
 }
@@ -0,0 +1,118 @@
+package update.multipage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Renders pages of a multi-page message on an executor, and prefetches the pages next to the one being viewed.
+ * <br>Max page is memoized, and rendered pages are reused for a while.
+ * Pages of the same loader are rendered one at a time in the order they were requested,
+ * so the page function is never called concurrently.
+ * <br>The page function and max page supplier run only on the executor, never while holding the lock of this loader,
+ * so that the methods of this loader return immediately.
+ * @param <P> Page type.
+ */
+class PageLoader<P> {
+    private record Rendered<P>(CompletableFuture<P> page, long renderedAt) {
+        private boolean isFresh(long now, long ttl) {
+            return now - this.renderedAt < ttl && !this.page.isCompletedExceptionally();
+        }
+    }
+
+    private final Function<Integer, P> pages;
+    private final Supplier<Integer> maxPage;
+    private final Executor executor;
+    private final long pageTTL;
+    private final long maxPageTTL;
+
+    private final Map<Integer, Rendered<P>> rendered;
+    private CompletableFuture<?> lastRender;
+    private CompletableFuture<Integer> memoMaxPage;
+    private long maxPageRetrievedAt;
+
+    /**
+     * @param pages Page renderer.
+     * @param maxPage Max page supplier.
+     * @param executor Executor to render pages on.
+     * @param pageTTL Time in milliseconds to reuse rendered pages for.
+     * @param maxPageTTL Time in milliseconds to memoize the max page for.
+     */
+    PageLoader(Function<Integer, P> pages, Supplier<Integer> maxPage, Executor executor, long pageTTL, long maxPageTTL) {
+        this.pages = pages;
+        this.maxPage = maxPage;
+        this.executor = executor;
+        this.pageTTL = pageTTL;
+        this.maxPageTTL = maxPageTTL;
+        this.rendered = new HashMap<>();
+        this.lastRender = CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Retrieves the max page in background, using the memoized value if it is not too old.
+     * @param now Current time in unix milliseconds.
+     * @return Future of the max page.
+     */
+    synchronized CompletableFuture<Integer> getMaxPage(long now) {
+        if (this.memoMaxPage == null || this.memoMaxPage.isCompletedExceptionally()
+                || now - this.maxPageRetrievedAt >= this.maxPageTTL) {
+            this.memoMaxPage = CompletableFuture.supplyAsync(() -> Math.max(this.maxPage.get(), 0), this.executor);
+            this.maxPageRetrievedAt = now;
+        }
+        return this.memoMaxPage;
+    }
+
+    /**
+     * Loads the page, and prefetches the previous and next pages.
+     * @param page Page, must be between 0 and max page.
+     * @param now Current time in unix milliseconds.
+     * @return Future of the rendered page.
+     */
+    synchronized CompletableFuture<P> load(int page, long now) {
+        CompletableFuture<P> future = this.render(page, now);
+        this.prefetchAround(page, now);
+        return future;
+    }
+
+    /**
+     * Prefetches the previous and next pages of the page, in background.
+     * @param page Page currently being viewed.
+     * @param now Current time in unix milliseconds.
+     */
+    void prefetchAround(int page, long now) {
+        this.getMaxPage(now).thenAccept(maxPage -> {
+            synchronized (this) {
+                int mod = maxPage + 1;
+                int prev = (page - 1 + mod) % mod;
+                int next = (page + 1) % mod;
+                // Only keep pages that can be viewed with one click
+                this.rendered.keySet().removeIf(p -> p != page && p != prev && p != next);
+                this.render(next, now);
+                this.render(prev, now);
+            }
+        });
+    }
+
+    /**
+     * Discards the memoized max page and rendered pages.
+     */
+    synchronized void invalidate() {
+        this.rendered.clear();
+        this.memoMaxPage = null;
+    }
+
+    private CompletableFuture<P> render(int page, long now) {
+        Rendered<P> r = this.rendered.get(page);
+        if (r != null && r.isFresh(now, this.pageTTL)) {
+            return r.page;
+        }
+
+        CompletableFuture<P> future = this.lastRender.handleAsync((res, e) -> this.pages.apply(page), this.executor);
+        this.lastRender = future;
+        this.rendered.put(page, new Rendered<>(future, now));
+        return future;
+    }
+}
@@ -1,28 +1,67 @@
 package utils;
 
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPatch;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
 import org.jetbrains.annotations.NotNull;
+import utils.rateLimit.RateLimitHeaders;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.TimeUnit;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class HttpUtils {
     private static final int TIMEOUT_DEFAULT = (int) TimeUnit.SECONDS.toMillis(10);
 
+    private static final int MAX_CONNECTIONS_TOTAL = 50;
+    private static final int MAX_CONNECTIONS_PER_HOST_DEFAULT = 5;
+    private static final long KEEP_ALIVE_MAX = TimeUnit.SECONDS.toMillis(30);
+    private static final long IDLE_CONNECTION_EVICTION = TimeUnit.MINUTES.toMillis(1);
+
+    private static final Histogram REQUEST_DURATION = Histogram.build()
+            .name("moto_bot_http_request_duration_seconds")
+            .help("Latency of outgoing HTTP requests per endpoint.")
+            .labelNames("endpoint")
+            .register();
+    private static final Counter REQUEST_ERRORS = Counter.build()
+            .name("moto_bot_http_request_errors")
+            .help("Counts of failed outgoing HTTP requests per endpoint and kind (unexpected status code or \"io\").")
+            .labelNames("endpoint", "kind")
+            .register();
+
+    private static final PoolingHttpClientConnectionManager connectionManager;
     private static final CloseableHttpClient client;
+    private static final ExecutorService executor;
+
+    // host name -> listener of rate limit headers
+    private static final Map<String, Consumer<RateLimitHeaders>> rateLimitListeners = new ConcurrentHashMap<>();
 
     static {
         RequestConfig config = RequestConfig.custom()
@@ -31,13 +70,66 @@ public class HttpUtils {
                 .setConnectTimeout(TIMEOUT_DEFAULT)
                 .setSocketTimeout(TIMEOUT_DEFAULT)
                 .build();
+
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(MAX_CONNECTIONS_TOTAL);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_HOST_DEFAULT);
+
+        // Content compression is enabled by default: sends "Accept-Encoding: gzip,deflate" and decodes the response
         client = HttpClients.custom()
                 .setDefaultRequestConfig(config)
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy((response, context) -> {
+                    // Respect the server's "Keep-Alive: timeout=" if any, but do not hold connections for too long
+                    long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return duration > 0 ? Math.min(duration, KEEP_ALIVE_MAX) : KEEP_ALIVE_MAX;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(IDLE_CONNECTION_EVICTION, TimeUnit.MILLISECONDS)
                 .build();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                MAX_CONNECTIONS_TOTAL, MAX_CONNECTIONS_TOTAL,
+                1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "moto-bot http-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+        );
+        pool.allowCoreThreadTimeOut(true);
+        executor = pool;
+    }
+
+    /**
+     * Sets the max number of pooled connections to the host of the given URL.
+     * Hosts not configured here are limited to {@value MAX_CONNECTIONS_PER_HOST_DEFAULT} connections each.
+     * @param url URL (or base URL) of the host.
+     * @param maxConnections Max number of concurrent connections to the host.
+     */
+    public static void setMaxConnections(String url, int maxConnections) {
+        URI uri = URI.create(url);
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() != -1 ? uri.getPort() : secure ? 443 : 80;
+        HttpRoute route = new HttpRoute(new HttpHost(uri.getHost(), port, uri.getScheme()), null, secure);
+        connectionManager.setMaxPerRoute(route, maxConnections);
+    }
+
+    /**
+     * Sets the listener to be notified of the rate limit headers (and "429 Too Many Requests")
+     * of every response from the host of the given URL.
+     * @param url URL (or base URL) of the host.
+     * @param listener Listener, called on the requesting thread.
+     */
+    public static void setRateLimitListener(String url, Consumer<RateLimitHeaders> listener) {
+        rateLimitListeners.put(URI.create(url).getHost(), listener);
     }
 
     /**
      * Sends GET request to specified URL.
+     * @param endpoint Endpoint name, used to label request metrics.
      * @param url URL string.
      * @param expectedStatusCodes Status codes other than 2xx to expect the resource to return.
      *                            In case one of these codes was returned, throws an {@link StatusCodeException}.
@@ -45,54 +137,184 @@ public class HttpUtils {
      * @throws IOException On connection issues & status code other than 2xx was returned.
      */
     @Nullable
-    public static String get(String url, int... expectedStatusCodes) throws IOException {
+    public static String get(String endpoint, String url, int... expectedStatusCodes) throws IOException {
         HttpGet request = new HttpGet(url);
-        return client.execute(request, responseHandler(expectedStatusCodes));
+        return execute(endpoint, request, responseHandler(endpoint, url, expectedStatusCodes));
+    }
+
+    /**
+     * Sends GET request to specified URL asynchronously.
+     * @param endpoint Endpoint name, used to label request metrics.
+     * @param url URL string.
+     * @param expectedStatusCodes Status codes other than 2xx to expect the resource to return.
+     *                            In case one of these codes was returned, completes exceptionally with {@link StatusCodeException}.
+     * @return Future of the response body. Completes exceptionally with {@link IOException} on connection issues
+     * & status code other than 2xx was returned.
+     */
+    public static CompletableFuture<String> getAsync(String endpoint, String url, int... expectedStatusCodes) {
+        return supplyAsync(() -> get(endpoint, url, expectedStatusCodes));
     }
 
     /**
      * Sends POST request to specified URL.
+     * @param endpoint Endpoint name, used to label request metrics.
      * @param url URL string.
      * @param body Post body. Used to post with header "Content-Type: application/json".
+     * @param expectedStatusCodes Status codes other than 2xx to expect the resource to return.
+     *                            In case one of these codes was returned, throws an {@link StatusCodeException}.
      * @return Response body. Null if something went wrong.
      * @throws IOException On connection issues & status code other than 2xx was returned.
      */
     @Nullable
-    public static String postJson(String url, String body) throws IOException {
-        HttpPost request = new HttpPost(url);
+    public static String postJson(String endpoint, String url, String body, int... expectedStatusCodes) throws IOException {
+        return sendJson(endpoint, new HttpPost(url), body, expectedStatusCodes);
+    }
+
+    /**
+     * Sends POST request to specified URL asynchronously.
+     * @param endpoint Endpoint name, used to label request metrics.
+     * @param url URL string.
+     * @param body Post body. Used to post with header "Content-Type: application/json".
+     * @param expectedStatusCodes Status codes other than 2xx to expect the resource to return.
+     *                            In case one of these codes was returned, completes exceptionally with {@link StatusCodeException}.
+     * @return Future of the response body.
+     */
+    public static CompletableFuture<String> postJsonAsync(String endpoint, String url, String body, int... expectedStatusCodes) {
+        return supplyAsync(() -> postJson(endpoint, url, body, expectedStatusCodes));
+    }
+
+    /**
+     * Sends PATCH request to specified URL asynchronously.
+     * @param endpoint Endpoint name, used to label request metrics.
+     * @param url URL string.
+     * @param body Patch body. Used to send with header "Content-Type: application/json".
+     * @param expectedStatusCodes Status codes other than 2xx to expect the resource to return.
+     *                            In case one of these codes was returned, completes exceptionally with {@link StatusCodeException}.
+     * @return Future of the response body.
+     */
+    public static CompletableFuture<String> patchJsonAsync(String endpoint, String url, String body, int... expectedStatusCodes) {
+        return supplyAsync(() -> sendJson(endpoint, new HttpPatch(url), body, expectedStatusCodes));
+    }
+
+    private static String sendJson(String endpoint, HttpEntityEnclosingRequestBase request, String body,
+                                   int[] expectedStatusCodes) throws IOException {
         request.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
-        return client.execute(request, defaultResponseHandler());
+        return execute(endpoint, request, responseHandler(endpoint, request.getURI().toString(), expectedStatusCodes));
+    }
+
+    /**
+     * Waits for the given future to complete, and unwraps the exception it completed with.
+     * @param future Future returned by one of the async methods.
+     * @param <T> Result type.
+     * @return Result.
+     * @throws IOException If the future completed with an {@link IOException}.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioe) {
+                throw ioe;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private interface IOSupplier<T> {
+        T get() throws IOException;
+    }
+
+    private static <T> CompletableFuture<T> supplyAsync(IOSupplier<T> supplier) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(supplier.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private static <T> T execute(String endpoint, HttpUriRequest request, ResponseHandler<T> handler) throws IOException {
+        Histogram.Timer timer = REQUEST_DURATION.labels(endpoint).startTimer();
+        try {
+            return client.execute(request, handler);
+        } catch (ClientProtocolException | StatusCodeException e) {
+            // status code errors are counted in the response handler
+            throw e;
+        } catch (IOException e) {
+            REQUEST_ERRORS.labels(endpoint, "io").inc();
+            throw e;
+        } finally {
+            timer.observeDuration();
+        }
     }
 
     /**
      * Returns a default response handler handling custom expected status codes.
+     * @param endpoint Endpoint name, used to label request metrics.
+     * @param url Requested URL, used to notify the rate limit listener.
      * @param expectedStatusCodes Status codes other than 2xx to expect the resource to return.
      * @return Body string.
      */
-    private static ResponseHandler<String> responseHandler(int[] expectedStatusCodes) {
+    private static ResponseHandler<String> responseHandler(String endpoint, String url, int[] expectedStatusCodes) {
+        Consumer<RateLimitHeaders> rateLimitListener = rateLimitListeners.get(URI.create(url).getHost());
         return response -> {
             int status = response.getStatusLine().getStatusCode();
+            RateLimitHeaders headers = parseRateLimitHeaders(response);
+            if (rateLimitListener != null) {
+                rateLimitListener.accept(headers);
+            }
             if (status >= 200 && status < 300) {
                 HttpEntity entity = response.getEntity();
-                return entity != null ? EntityUtils.toString(entity) : null;
-            } else if (contains(expectedStatusCodes, status)) {
-                throw new StatusCodeException("Received status code: " + status, status);
+                return entity != null ? EntityUtils.toString(entity, StandardCharsets.UTF_8) : null;
+            }
+
+            if (contains(expectedStatusCodes, status)) {
+                // Expected by the caller (e.g. 404 on lookups), not counted as an error
+                throw new StatusCodeException("Received status code: " + status, status, headers.retryAfterMillis());
             } else {
+                REQUEST_ERRORS.labels(endpoint, String.valueOf(status)).inc();
                 throw new ClientProtocolException("Unexpected response status: " + status);
             }
         };
     }
 
-    private static ResponseHandler<String> defaultResponseHandler() {
-        return response -> {
-            int status = response.getStatusLine().getStatusCode();
-            if (status >= 200 && status < 300) {
-                HttpEntity entity = response.getEntity();
-                return entity != null ? EntityUtils.toString(entity) : null;
-            } else {
-                throw new ClientProtocolException("Unexpected response status: " + status);
+    private static RateLimitHeaders parseRateLimitHeaders(HttpResponse response) {
+        long reset = getLongHeader(response, "RateLimit-Reset");
+        long retryAfter = getLongHeader(response, "Retry-After");
+        if (retryAfter < 0) {
+            // Retry-After can also be an HTTP date
+            Header header = response.getFirstHeader("Retry-After");
+            Date date = header != null ? DateUtils.parseDate(header.getValue()) : null;
+            if (date != null) {
+                retryAfter = Math.max(0L, TimeUnit.MILLISECONDS.toSeconds(date.getTime() - System.currentTimeMillis()));
             }
-        };
+        }
+        return new RateLimitHeaders(
+                response.getStatusLine().getStatusCode(),
+                (int) getLongHeader(response, "RateLimit-Limit"),
+                (int) getLongHeader(response, "RateLimit-Remaining"),
+                reset >= 0 ? TimeUnit.SECONDS.toMillis(reset) : -1,
+                retryAfter >= 0 ? TimeUnit.SECONDS.toMillis(retryAfter) : -1
+        );
+    }
+
+    private static long getLongHeader(HttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        if (header == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(header.getValue().trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
     }
 
     // ----------
@@ -1,10 +1,35 @@
 package utils;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 import javax.annotation.Nullable;
 
 public class JsonUtils {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Returns a reader bound to the given type.
+     * Readers are immutable and thread-safe, so a struct should create one statically and reuse it.
+     * @param type Type to bind.
+     * @return Reader ignoring unknown properties.
+     */
+    public static ObjectReader readerFor(Class<?> type) {
+        return mapper.readerFor(type).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    /**
+     * Returns a reader bound to the given (generic) type.
+     * @param type Type to bind.
+     * @return Reader ignoring unknown properties.
+     */
+    public static ObjectReader readerFor(TypeReference<?> type) {
+        return mapper.readerFor(type).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
     @Nullable
     public static String getNullableString(@Nullable JsonNode node, String fieldName) {
         return node == null ? null : node.has(fieldName) && !node.get(fieldName).isNull() ? node.get(fieldName).asText() : null;
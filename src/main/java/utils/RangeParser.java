@@ -12,11 +12,15 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class RangeParser {
+    // Ranges relative to the current time are the same within a minute, so that they can be used as cache keys
+    private static final long NOW_PRECISION = TimeUnit.MINUTES.toMillis(1);
+
     public record Range(@NotNull Date start, @NotNull Date end) {
     }
 
     /**
      * Parses range from the given arguments.
+     * Ranges relative to the current time, such as "--days 7", are computed from the current time truncated to the minute.
      *
      * @param parsedArgs Parsed arguments in form of map. e.g. {"-since": "2020-01-01 12:00:00", "-until", "2020-01-05 12:00:00"} and so on.
      * @param timeZone   Time zone to parse with.
@@ -55,7 +59,7 @@ public class RangeParser {
             int days = InputChecker.getPositiveInteger(parsedArgs.get("d") != null
                     ? parsedArgs.get("d") : parsedArgs.get("-days"));
 
-            Date now = new Date();
+            Date now = new Date(now());
             Date old = new Date(now.getTime() - TimeUnit.DAYS.toMillis(days));
             return new Range(old, now);
         }
@@ -65,7 +69,7 @@ public class RangeParser {
     @Nullable
     private static Range parseRangeByTime(Map<String, String> parsedArgs, TimeZone timeZone) throws IllegalArgumentException {
         if (parsedArgs.containsKey("-since") || parsedArgs.containsKey("S")) {
-            long now = System.currentTimeMillis();
+            long now = now();
 
             String sinceStr = parsedArgs.get("-since") != null
                     ? parsedArgs.get("-since")
@@ -88,6 +92,11 @@ public class RangeParser {
         return null;
     }
 
+    private static long now() {
+        long now = System.currentTimeMillis();
+        return now - now % NOW_PRECISION;
+    }
+
     private record TimePattern(Pattern pattern, TimeUnit unit) {
     }
 
@@ -7,13 +7,23 @@ import java.io.IOException;
  */
 public class StatusCodeException extends IOException {
     private final int code;
+    private final long retryAfterMillis;
 
-    StatusCodeException(String message, int code) {
+    StatusCodeException(String message, int code, long retryAfterMillis) {
         super(message);
         this.code = code;
+        this.retryAfterMillis = retryAfterMillis;
     }
 
     public int getCode() {
         return code;
     }
+
+    /**
+     * Retrieves the "Retry-After" header of the response.
+     * @return Time to wait before requesting again in ms, -1 if absent.
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
 }
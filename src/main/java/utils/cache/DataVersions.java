@@ -0,0 +1,52 @@
+package utils.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Holds a version number for each kind of tracked data, incremented by the trackers whenever they change the data.
+ * <br>Caches of data derived from them can compare versions to tell if they are stale, without being notified.
+ */
+public class DataVersions {
+    public enum Source {
+        /**
+         * War logs and war leaderboards.
+         */
+        WAR,
+        /**
+         * Territories and territory logs.
+         */
+        TERRITORY,
+        /**
+         * Guild leaderboard and guild XP leaderboard.
+         */
+        GUILD_LEADERBOARD
+    }
+
+    private final AtomicLongArray versions;
+
+    public DataVersions() {
+        this.versions = new AtomicLongArray(Source.values().length);
+    }
+
+    /**
+     * Marks the data as changed.
+     * @param source Changed data.
+     */
+    public void changed(Source source) {
+        this.versions.incrementAndGet(source.ordinal());
+    }
+
+    /**
+     * Returns a stamp that changes whenever any of the given data changes.
+     * @param sources Data to watch.
+     * @return Stamp.
+     */
+    long stamp(Source[] sources) {
+        // Versions only increase, so the sum changes whenever one of them changes
+        long stamp = 0;
+        for (Source source : sources) {
+            stamp += this.versions.get(source.ordinal());
+        }
+        return stamp;
+    }
+}
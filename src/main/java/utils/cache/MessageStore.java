@@ -0,0 +1,301 @@
+package utils.cache;
+
+import io.prometheus.client.Gauge;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores contents of recent messages per guild, for server logs to show the content of edited / deleted messages.
+ * <br>Each guild has its own quota, so a busy guild does not evict the messages of other guilds.
+ * All guilds share a global budget, over which the least recently stored messages across guilds are evicted.
+ * Contents are kept as UTF-8 bytes, and long contents are compressed.
+ * Messages are expired after the TTL, and the least recently stored messages are evicted when over the quota.
+ */
+public class MessageStore {
+    private static final Gauge BYTES = Gauge.build()
+            .name("moto_bot_message_store_bytes")
+            .help("Approximate heap usage of stored message contents in bytes.")
+            .register();
+    private static final Gauge ENTRIES = Gauge.build()
+            .name("moto_bot_message_store_entries")
+            .help("Number of stored message contents.")
+            .register();
+    private static final Gauge GUILDS = Gauge.build()
+            .name("moto_bot_message_store_guilds")
+            .help("Number of guilds with stored message contents.")
+            .register();
+
+    // Rough per-entry overhead of the map node, entry object and array header
+    private static final int ENTRY_OVERHEAD = 96;
+    // Shorter contents rarely get smaller with deflate
+    private static final int COMPRESS_THRESHOLD = 128;
+    private static final long SWEEP_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+
+    public record Message(String content, long userId) {
+    }
+
+    private record Entry(long seq, byte[] data, boolean compressed, int length, long userId, long storedAt) {
+        private long cost() {
+            return this.data.length + ENTRY_OVERHEAD;
+        }
+    }
+
+    private record Key(long guildId, long messageId) {
+    }
+
+    private static class GuildStore {
+        // In order of when the messages were stored
+        private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>();
+        private long bytes;
+        // Removed from the guilds map by sweep
+        private boolean discarded;
+    }
+
+    private final long maxBytes;
+    private final long maxBytesPerGuild;
+    private final long ttl;
+    private final Map<Long, GuildStore> guilds;
+    // Messages of all guilds in order of when they were stored, keyed by Entry#seq
+    private final ConcurrentSkipListMap<Long, Key> order;
+    private final AtomicLong nextSeq;
+    private final AtomicLong bytes;
+    private final AtomicLong nextSweep;
+
+    /**
+     * @param maxBytes Max bytes of stored messages of all guilds.
+     * @param maxBytesPerGuild Max bytes of stored messages per guild.
+     * @param ttl Time in milliseconds to keep messages for.
+     */
+    public MessageStore(long maxBytes, long maxBytesPerGuild, long ttl) {
+        this.maxBytes = maxBytes;
+        this.maxBytesPerGuild = maxBytesPerGuild;
+        this.ttl = ttl;
+        this.guilds = new ConcurrentHashMap<>();
+        this.order = new ConcurrentSkipListMap<>();
+        this.nextSeq = new AtomicLong();
+        this.bytes = new AtomicLong();
+        this.nextSweep = new AtomicLong();
+    }
+
+    public void put(long guildId, long messageId, String content, long userId) {
+        this.put(guildId, messageId, content, userId, System.currentTimeMillis());
+    }
+
+    void put(long guildId, long messageId, String content, long userId, long now) {
+        Entry entry = encode(this.nextSeq.getAndIncrement(), content, userId, now);
+        if (entry.cost() > Math.min(this.maxBytesPerGuild, this.maxBytes)) {
+            return;
+        }
+
+        while (true) {
+            GuildStore store = this.guilds.computeIfAbsent(guildId, id -> {
+                GUILDS.inc();
+                return new GuildStore();
+            });
+            synchronized (store) {
+                if (store.discarded) {
+                    continue;
+                }
+                // Remove first to move the message to the end of the order
+                Entry prev = store.entries.remove(messageId);
+                if (prev != null) {
+                    this.removed(store, prev);
+                }
+                store.entries.put(messageId, entry);
+                store.bytes += entry.cost();
+                this.order.put(entry.seq, new Key(guildId, messageId));
+                this.bytes.addAndGet(entry.cost());
+                BYTES.inc(entry.cost());
+                ENTRIES.inc();
+                this.evict(store, now);
+            }
+            break;
+        }
+        this.evictGlobal();
+
+        // Guilds that stopped receiving messages are swept once in a while
+        long next = this.nextSweep.get();
+        if (now >= next && this.nextSweep.compareAndSet(next, now + SWEEP_INTERVAL)) {
+            this.sweep(now);
+        }
+    }
+
+    /**
+     * Evicts expired messages, and the oldest messages while over the quota.
+     */
+    private void evict(GuildStore store, long now) {
+        Iterator<Entry> it = store.entries.values().iterator();
+        while (it.hasNext()) {
+            Entry oldest = it.next();
+            if (store.bytes <= this.maxBytesPerGuild && now - oldest.storedAt < this.ttl) {
+                break;
+            }
+            it.remove();
+            this.removed(store, oldest);
+        }
+    }
+
+    /**
+     * Evicts the least recently stored messages across guilds while over the global budget.
+     * Must not be called while holding the lock of a guild store.
+     */
+    private void evictGlobal() {
+        while (this.bytes.get() > this.maxBytes) {
+            Map.Entry<Long, Key> oldest = this.order.pollFirstEntry();
+            if (oldest == null) {
+                return;
+            }
+            Key key = oldest.getValue();
+            GuildStore store = this.guilds.get(key.guildId);
+            if (store == null) {
+                continue;
+            }
+            synchronized (store) {
+                Entry entry = store.entries.get(key.messageId);
+                // The message may have been removed or stored again in the meantime
+                if (entry != null && entry.seq == oldest.getKey()) {
+                    store.entries.remove(key.messageId);
+                    this.removed(store, entry);
+                }
+            }
+        }
+    }
+
+    @Nullable
+    public Message get(long guildId, long messageId) {
+        return this.get(guildId, messageId, System.currentTimeMillis());
+    }
+
+    @Nullable
+    Message get(long guildId, long messageId, long now) {
+        GuildStore store = this.guilds.get(guildId);
+        if (store == null) {
+            return null;
+        }
+        Entry entry;
+        synchronized (store) {
+            entry = store.entries.get(messageId);
+        }
+        if (entry == null || now - entry.storedAt >= this.ttl) {
+            return null;
+        }
+        return new Message(decode(entry), entry.userId);
+    }
+
+    public void remove(long guildId, long messageId) {
+        GuildStore store = this.guilds.get(guildId);
+        if (store == null) {
+            return;
+        }
+        synchronized (store) {
+            Entry entry = store.entries.remove(messageId);
+            if (entry != null) {
+                this.removed(store, entry);
+            }
+        }
+    }
+
+    /**
+     * Removes expired messages, and guilds without messages.
+     */
+    void sweep(long now) {
+        for (Map.Entry<Long, GuildStore> e : this.guilds.entrySet()) {
+            GuildStore store = e.getValue();
+            synchronized (store) {
+                this.evict(store, now);
+                if (store.entries.isEmpty() && this.guilds.remove(e.getKey(), store)) {
+                    store.discarded = true;
+                    GUILDS.dec();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns approximate bytes used by the guild.
+     */
+    long getBytes(long guildId) {
+        GuildStore store = this.guilds.get(guildId);
+        if (store == null) {
+            return 0;
+        }
+        synchronized (store) {
+            return store.bytes;
+        }
+    }
+
+    /**
+     * Returns approximate bytes used by all guilds.
+     */
+    long getTotalBytes() {
+        return this.bytes.get();
+    }
+
+    private void removed(GuildStore store, Entry entry) {
+        store.bytes -= entry.cost();
+        this.order.remove(entry.seq);
+        this.bytes.addAndGet(-entry.cost());
+        BYTES.dec(entry.cost());
+        ENTRIES.dec();
+    }
+
+    private static Entry encode(long seq, String content, long userId, long now) {
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        if (raw.length >= COMPRESS_THRESHOLD) {
+            byte[] compressed = compress(raw);
+            if (compressed.length < raw.length) {
+                return new Entry(seq, compressed, true, raw.length, userId, now);
+            }
+        }
+        return new Entry(seq, raw, false, raw.length, userId, now);
+    }
+
+    private static String decode(Entry entry) {
+        if (!entry.compressed) {
+            return new String(entry.data, StandardCharsets.UTF_8);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(entry.data);
+            byte[] raw = new byte[entry.length];
+            int read = 0;
+            while (read < raw.length && !inflater.finished()) {
+                read += inflater.inflate(raw, read, raw.length - read);
+            }
+            return new String(raw, 0, read, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            // Should not happen, as we compressed it ourselves
+            throw new IllegalStateException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2);
+            byte[] buf = new byte[512];
+            while (!deflater.finished()) {
+                out.write(buf, 0, deflater.deflate(buf));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package utils.cache;
+
+import io.prometheus.client.Counter;
+
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * LRU cache of rendered command pages.
+ * <br>Entries are valid until any of the data they were rendered from changes,
+ * as told by {@link DataVersions}.
+ * @param <K> Key, identifying everything the page depends on other than the data (arguments, page number, time zone, ...).
+ * @param <V> Rendered page.
+ */
+public class PageCache<K, V> {
+    private static final Counter LOOKUPS = Counter.build()
+            .name("moto_bot_page_cache_lookups")
+            .help("Number of rendered page cache lookups per cache and result.")
+            .labelNames("cache", "result")
+            .register();
+
+    private record Entry<V>(V value, long stamp) {
+    }
+
+    private static class LRU<K, V> extends LinkedHashMap<K, Entry<V>> {
+        private final int maxRecords;
+
+        private LRU(int maxRecords) {
+            super(16, 0.75f, true);
+            this.maxRecords = maxRecords;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            return size() > this.maxRecords;
+        }
+    }
+
+    private final DataVersions versions;
+    private final DataVersions.Source[] sources;
+    private final Counter.Child hits;
+    private final Counter.Child misses;
+    private final LRU<K, V> lru;
+
+    /**
+     * Creates a new page cache.
+     * @param name Cache name, used to label metrics.
+     * @param versions Data versions.
+     * @param maxRecords Number of pages to hold.
+     * @param sources Data the pages are rendered from.
+     */
+    public PageCache(String name, DataVersions versions, int maxRecords, DataVersions.Source... sources) {
+        this.versions = versions;
+        this.sources = sources;
+        this.hits = LOOKUPS.labels(name, "hit");
+        this.misses = LOOKUPS.labels(name, "miss");
+        this.lru = new LRU<>(maxRecords);
+    }
+
+    /**
+     * Retrieves the page from the cache, or renders it if it is not cached or is stale.
+     * @param key Key.
+     * @param render Renders the page. Can return null if it failed, in which case the result is not cached.
+     * @return Page. null if rendering failed.
+     */
+    @Nullable
+    public V get(K key, Supplier<V> render) {
+        // Take the stamp before rendering, so that a change during rendering makes the entry stale
+        long stamp = this.versions.stamp(this.sources);
+        synchronized (this.lru) {
+            Entry<V> entry = this.lru.get(key);
+            if (entry != null && entry.stamp == stamp) {
+                this.hits.inc();
+                return entry.value;
+            }
+        }
+        this.misses.inc();
+
+        V value = render.get();
+        if (value != null) {
+            synchronized (this.lru) {
+                this.lru.put(key, new Entry<>(value, stamp));
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,16 @@
+package utils.rateLimit;
+
+/**
+ * Rate limit information returned by an API along with a response.
+ * Values of absent headers are -1.
+ * @param status HTTP status code of the response.
+ * @param limit "RateLimit-Limit" header: max number of requests in the current window.
+ * @param remaining "RateLimit-Remaining" header: remaining number of requests in the current window.
+ * @param resetMillis "RateLimit-Reset" header: time until the current window resets, in ms.
+ * @param retryAfterMillis "Retry-After" header: time to wait before requesting again, in ms.
+ */
+public record RateLimitHeaders(int status, int limit, int remaining, long resetMillis, long retryAfterMillis) {
+    public boolean isTooManyRequests() {
+        return this.status == 429;
+    }
+}
@@ -2,6 +2,8 @@ package utils.rateLimit;
 
 import log.Logger;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface RateLimiter {
     /**
      * Sets logger for this rate limiter.
@@ -20,4 +22,33 @@ public interface RateLimiter {
      * To be called on API calls which cannot handle {@link RateLimitException}.
      */
     void stackUpRequest();
+
+    /**
+     * Acquires a permit with the given priority, without blocking the caller.
+     * <br>The default implementation falls back to {@link #checkRequest()} for interactive requests,
+     * and to (blocking) {@link #stackUpRequest()} for the others.
+     * @param priority Request priority.
+     * @return Future completed when the permit is granted.
+     * Completes exceptionally with {@link RateLimitException} if the request was rejected.
+     */
+    default CompletableFuture<Void> acquire(RequestPriority priority) {
+        if (priority == RequestPriority.INTERACTIVE) {
+            try {
+                this.checkRequest();
+            } catch (RateLimitException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        } else {
+            this.stackUpRequest();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Adapts this rate limiter to the rate limit information returned by the API.
+     * <br>The default implementation ignores the information.
+     * @param headers Rate limit information of a response.
+     */
+    default void onResponse(RateLimitHeaders headers) {
+    }
 }
@@ -0,0 +1,23 @@
+package utils.rateLimit;
+
+/**
+ * Priority classes of rate limited requests, in the order of which permits are handed out.
+ */
+public enum RequestPriority {
+    /**
+     * Requests triggered by user commands; a user is waiting for the response.
+     */
+    INTERACTIVE,
+    /**
+     * Requests made by the heartbeat trackers.
+     */
+    HEARTBEAT,
+    /**
+     * Requests whose result is not needed right away.
+     */
+    PREFETCH;
+
+    String getLabel() {
+        return this.name().toLowerCase();
+    }
+}
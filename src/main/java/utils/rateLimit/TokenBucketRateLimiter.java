@@ -0,0 +1,399 @@
+package utils.rateLimit;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import log.ConsoleLogger;
+import log.Logger;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Token bucket rate limiter handing out permits asynchronously.
+ * <br>One token is added every refill interval, up to the bucket capacity (burst).
+ * When no token is available, requests wait in per-priority FIFO queues and are granted
+ * in the order of {@link RequestPriority}, though a request waiting for too long is served regardless of its priority
+ * so that lower priorities are never starved.
+ * <br>No thread sleeps while holding the lock; waiting requests are completed by a shared scheduler thread.
+ * <br>The refill interval adapts to the rate limit headers returned by the API (see {@link #onResponse(RateLimitHeaders)}),
+ * within a range around the configured interval.
+ */
+public class TokenBucketRateLimiter implements RateLimiter {
+    private static final Counter PERMITS_COUNTER = Counter.build()
+            .name("moto_bot_rate_limiter_permits")
+            .help("Counts of rate limiter permits per api, priority and result (granted, waited or rejected).")
+            .labelNames("api", "priority", "result")
+            .register();
+    private static final Histogram WAIT_HISTOGRAM = Histogram.build()
+            .name("moto_bot_rate_limiter_wait_seconds")
+            .help("Time requests waited for a rate limiter permit per api and priority.")
+            .labelNames("api", "priority")
+            .buckets(0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60)
+            .register();
+    private static final Gauge EFFECTIVE_LIMIT_GAUGE = Gauge.build()
+            .name("moto_bot_rate_limiter_effective_limit")
+            .help("Current effective rate limit in requests per minute per api.")
+            .labelNames("api")
+            .register();
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "moto-bot rate limiter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final long STARVATION_THRESHOLD = TimeUnit.SECONDS.toNanos(30);
+
+    // Bounds of the adapted refill interval, relative to the configured one
+    private static final int MIN_INTERVAL_DIVISOR = 4;
+    private static final int MAX_INTERVAL_MULTIPLIER = 16;
+    // Backoff on "429 Too Many Requests" without a hint from the API
+    private static final long DEFAULT_BACKOFF = TimeUnit.SECONDS.toNanos(5);
+    private static final long MAX_BACKOFF = TimeUnit.MINUTES.toNanos(1);
+
+    private record Waiter(CompletableFuture<Void> future, RequestPriority priority, long enqueuedAt) {
+    }
+
+    private final String apiName;
+    private final long configuredRefillIntervalNanos;
+    private final long minRefillIntervalNanos;
+    private final long maxRefillIntervalNanos;
+    private final int capacity;
+    private final int maxQueuedPerPriority;
+    private final Object lock;
+
+    private Logger logger;
+
+    private long refillIntervalNanos;
+    private int tokens;
+    private long lastRefill;
+    private int consecutiveTooManyRequests;
+    private final Map<RequestPriority, Deque<Waiter>> waiters;
+    private ScheduledFuture<?> scheduledDrain;
+
+    /**
+     * Creates a new token bucket rate limiter.
+     * @param apiName API name, used in messages and metrics.
+     * @param refillIntervalMillis Interval in ms at which one token is added.
+     * @param capacity Max number of tokens to hold, i.e. max requests in a burst.
+     * @param maxQueuedPerPriority Max number of waiting requests per priority through {@link #acquire(RequestPriority)}.
+     *                             Further requests are rejected.
+     */
+    public TokenBucketRateLimiter(String apiName, long refillIntervalMillis, int capacity, int maxQueuedPerPriority) {
+        this.apiName = apiName;
+        long refillIntervalNanos = TimeUnit.MILLISECONDS.toNanos(refillIntervalMillis);
+        this.configuredRefillIntervalNanos = refillIntervalNanos;
+        this.minRefillIntervalNanos = refillIntervalNanos / MIN_INTERVAL_DIVISOR;
+        this.maxRefillIntervalNanos = refillIntervalNanos * MAX_INTERVAL_MULTIPLIER;
+        this.capacity = capacity;
+        this.maxQueuedPerPriority = maxQueuedPerPriority;
+        this.lock = new Object();
+        this.logger = new ConsoleLogger();
+
+        this.setRefillInterval(refillIntervalNanos);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+        this.waiters = new EnumMap<>(RequestPriority.class);
+        for (RequestPriority priority : RequestPriority.values()) {
+            this.waiters.put(priority, new ArrayDeque<>());
+        }
+    }
+
+    @Override
+    public void setLogger(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Acquires an interactive permit. Waits shortly if it is going to be available soon.
+     * @throws RateLimitException If a permit would not be available in a reasonable time.
+     */
+    @Override
+    public void checkRequest() throws RateLimitException {
+        CompletableFuture<Void> permit;
+        synchronized (this.lock) {
+            long estimatedWait = this.estimateWait(RequestPriority.INTERACTIVE, System.nanoTime());
+            if (estimatedWait > this.maxInteractiveWait()) {
+                PERMITS_COUNTER.labels(this.apiName, RequestPriority.INTERACTIVE.getLabel(), "rejected").inc();
+                long backoff = TimeUnit.NANOSECONDS.toMillis(estimatedWait);
+                throw new RateLimitException(String.format(
+                        "The bot is trying to request %s API too quickly!" +
+                                " Please wait `%s` seconds before trying again.",
+                        this.apiName, (double) backoff / 1000d
+                ), backoff, TimeUnit.MILLISECONDS);
+            }
+            permit = this.enqueue(RequestPriority.INTERACTIVE, false);
+        }
+        permit.join();
+    }
+
+    /**
+     * Acquires a heartbeat permit, blocking the caller (but not the other requests) until it is granted.
+     */
+    @Override
+    public void stackUpRequest() {
+        long start = System.nanoTime();
+        CompletableFuture<Void> permit;
+        synchronized (this.lock) {
+            permit = this.enqueue(RequestPriority.HEARTBEAT, false);
+        }
+        permit.join();
+
+        long waited = System.nanoTime() - start;
+        if (waited > 2 * this.maxInteractiveWait()) {
+            this.logger.log(0, String.format(
+                    "Rate limiter: waited %s ms for a %s API permit.", TimeUnit.NANOSECONDS.toMillis(waited), this.apiName));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> acquire(RequestPriority priority) {
+        synchronized (this.lock) {
+            return this.enqueue(priority, true);
+        }
+    }
+
+    /**
+     * Adapts the refill interval to the rate limit headers.
+     * <ul>
+     *     <li>On "429 Too Many Requests", stops handing out permits for "Retry-After" (or an exponential backoff),
+     *     and halves the rate.</li>
+     *     <li>If "RateLimit-Remaining" is 0, stops handing out permits until "RateLimit-Reset".</li>
+     *     <li>Otherwise, moves the rate towards spreading the remaining requests evenly until the window resets.</li>
+     *     <li>If the API does not return the rate limit headers, moves the rate lowered by previous 429s
+     *     back towards the configured rate.</li>
+     * </ul>
+     * @param headers Rate limit information of a response.
+     */
+    @Override
+    public void onResponse(RateLimitHeaders headers) {
+        long pausedFor = -1;
+        synchronized (this.lock) {
+            long now = System.nanoTime();
+            this.refill(now);
+
+            if (headers.isTooManyRequests()) {
+                this.consecutiveTooManyRequests++;
+                long backoff = headers.retryAfterMillis() >= 0
+                        ? TimeUnit.MILLISECONDS.toNanos(headers.retryAfterMillis())
+                        : Math.min(MAX_BACKOFF, DEFAULT_BACKOFF << Math.min(10, this.consecutiveTooManyRequests - 1));
+                this.setRefillInterval(this.refillIntervalNanos * 2);
+                this.pause(now, backoff);
+                pausedFor = backoff;
+            } else {
+                this.consecutiveTooManyRequests = 0;
+                if (headers.remaining() == 0 && headers.resetMillis() > 0) {
+                    this.pause(now, TimeUnit.MILLISECONDS.toNanos(headers.resetMillis()));
+                } else if (headers.remaining() > 0 && headers.resetMillis() >= 0) {
+                    long target = TimeUnit.MILLISECONDS.toNanos(headers.resetMillis()) / headers.remaining();
+                    // smooth out fluctuation between responses
+                    this.setRefillInterval((3 * this.refillIntervalNanos + target) / 4);
+                } else if (headers.remaining() < 0 && this.refillIntervalNanos > this.configuredRefillIntervalNanos) {
+                    this.setRefillInterval(Math.max(this.configuredRefillIntervalNanos,
+                            (3 * this.refillIntervalNanos + this.configuredRefillIntervalNanos) / 4));
+                }
+            }
+
+            // Re-schedule with the new timing
+            if (this.scheduledDrain != null) {
+                this.scheduledDrain.cancel(false);
+                this.scheduledDrain = null;
+            }
+            if (this.hasWaitersAtOrAbove(RequestPriority.PREFETCH)) {
+                this.scheduleDrain(now);
+            }
+        }
+
+        if (pausedFor >= 0) {
+            this.logger.log(0, String.format("Rate limiter: %s API returned 429, pausing for %s ms.",
+                    this.apiName, TimeUnit.NANOSECONDS.toMillis(pausedFor)));
+        }
+    }
+
+    /**
+     * Tries to acquire a permit immediately.
+     * @param priority Request priority.
+     * @return {@code true} if a permit was granted.
+     */
+    public boolean tryAcquire(RequestPriority priority) {
+        synchronized (this.lock) {
+            this.refill(System.nanoTime());
+            if (this.tokens > 0 && !this.hasWaitersAtOrAbove(priority)) {
+                this.tokens--;
+                PERMITS_COUNTER.labels(this.apiName, priority.getLabel(), "granted").inc();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Enqueues a request, or grants a permit immediately if possible. Must be called while holding the lock.
+     */
+    private CompletableFuture<Void> enqueue(RequestPriority priority, boolean bounded) {
+        long now = System.nanoTime();
+        this.refill(now);
+
+        // Do not overtake requests of the same or higher priority which are already waiting
+        if (this.tokens > 0 && !this.hasWaitersAtOrAbove(priority)) {
+            this.tokens--;
+            PERMITS_COUNTER.labels(this.apiName, priority.getLabel(), "granted").inc();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Deque<Waiter> queue = this.waiters.get(priority);
+        if (bounded && queue.size() >= this.maxQueuedPerPriority) {
+            PERMITS_COUNTER.labels(this.apiName, priority.getLabel(), "rejected").inc();
+            long backoff = TimeUnit.NANOSECONDS.toMillis(this.estimateWait(priority, now));
+            return CompletableFuture.failedFuture(new RateLimitException(String.format(
+                    "Too many requests to %s API are waiting (%s)", this.apiName, priority.getLabel()
+            ), backoff, TimeUnit.MILLISECONDS));
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        queue.addLast(new Waiter(future, priority, now));
+        this.scheduleDrain(now);
+        return future;
+    }
+
+    private void drain() {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this.lock) {
+            this.scheduledDrain = null;
+            long now = System.nanoTime();
+            this.refill(now);
+
+            while (this.tokens > 0) {
+                Waiter next = this.pollNext(now);
+                if (next == null) break;
+                // Skip requests cancelled by the caller
+                if (next.future.isDone()) continue;
+                this.tokens--;
+                granted.add(next);
+            }
+
+            if (this.hasWaitersAtOrAbove(RequestPriority.PREFETCH)) {
+                this.scheduleDrain(now);
+            }
+        }
+
+        // Complete outside the lock, as completion runs the callers' dependent stages
+        long now = System.nanoTime();
+        for (Waiter waiter : granted) {
+            PERMITS_COUNTER.labels(this.apiName, waiter.priority.getLabel(), "waited").inc();
+            WAIT_HISTOGRAM.labels(this.apiName, waiter.priority.getLabel())
+                    .observe((double) (now - waiter.enqueuedAt) / 1_000_000_000d);
+            waiter.future.complete(null);
+        }
+    }
+
+    /**
+     * Retrieves the next waiter to grant a permit to. Must be called while holding the lock.
+     */
+    private Waiter pollNext(long now) {
+        // Serve a starving request first regardless of its priority
+        Deque<Waiter> oldest = null;
+        for (Deque<Waiter> queue : this.waiters.values()) {
+            Waiter head = queue.peekFirst();
+            if (head != null && now - head.enqueuedAt >= STARVATION_THRESHOLD
+                    && (oldest == null || head.enqueuedAt < oldest.peekFirst().enqueuedAt)) {
+                oldest = queue;
+            }
+        }
+        if (oldest != null) {
+            return oldest.pollFirst();
+        }
+
+        for (Deque<Waiter> queue : this.waiters.values()) {
+            if (!queue.isEmpty()) {
+                return queue.pollFirst();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Schedules the next drain at the time the next token is added. Must be called while holding the lock.
+     */
+    private void scheduleDrain(long now) {
+        if (this.scheduledDrain != null) {
+            return;
+        }
+        long delay = this.tokens > 0 ? 0 : Math.max(0, this.lastRefill + this.refillIntervalNanos - now);
+        this.scheduledDrain = scheduler.schedule(this::drain, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Discards the tokens, and adds the next one after the given time. Must be called while holding the lock.
+     */
+    private void pause(long now, long duration) {
+        this.tokens = 0;
+        this.lastRefill = Math.max(this.lastRefill, now + duration - this.refillIntervalNanos);
+    }
+
+    /**
+     * Sets the refill interval within the bounds. Must be called while holding the lock (or from the constructor).
+     */
+    private void setRefillInterval(long nanos) {
+        this.refillIntervalNanos = Math.max(this.minRefillIntervalNanos, Math.min(this.maxRefillIntervalNanos, nanos));
+        EFFECTIVE_LIMIT_GAUGE.labels(this.apiName).set((double) TimeUnit.MINUTES.toNanos(1) / this.refillIntervalNanos);
+    }
+
+    long getRefillIntervalNanos() {
+        synchronized (this.lock) {
+            return this.refillIntervalNanos;
+        }
+    }
+
+    /**
+     * Interactive requests wait for at most one full bucket worth of time.
+     */
+    private long maxInteractiveWait() {
+        return this.refillIntervalNanos * this.capacity;
+    }
+
+    /**
+     * Adds tokens for the elapsed time. Must be called while holding the lock.
+     */
+    private void refill(long now) {
+        long elapsed = now - this.lastRefill;
+        if (elapsed < this.refillIntervalNanos) {
+            return;
+        }
+        long newTokens = elapsed / this.refillIntervalNanos;
+        if (this.tokens + newTokens >= this.capacity) {
+            this.tokens = this.capacity;
+            this.lastRefill = now;
+        } else {
+            this.tokens += (int) newTokens;
+            this.lastRefill += newTokens * this.refillIntervalNanos;
+        }
+    }
+
+    private boolean hasWaitersAtOrAbove(RequestPriority priority) {
+        for (RequestPriority p : RequestPriority.values()) {
+            if (p.compareTo(priority) > 0) break;
+            if (!this.waiters.get(p).isEmpty()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Estimates the time a new request with the given priority would have to wait. Must be called while holding the lock.
+     */
+    private long estimateWait(RequestPriority priority, long now) {
+        this.refill(now);
+        int ahead = 0;
+        for (RequestPriority p : RequestPriority.values()) {
+            if (p.compareTo(priority) > 0) break;
+            ahead += this.waiters.get(p).size();
+        }
+        int lacking = ahead + 1 - this.tokens;
+        if (lacking <= 0) {
+            return 0;
+        }
+        long untilNextToken = Math.max(0, this.lastRefill + this.refillIntervalNanos - now);
+        return untilNextToken + (lacking - 1) * this.refillIntervalNanos;
+    }
+}
@@ -0,0 +1,48 @@
+package api;
+
+import api.wynn.structs.GuildList;
+import api.wynn.structs.WynnGuildLeaderboard;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.jupiter.api.Test;
+
+class TestWynnStructs {
+    @Test
+    void testGuildList() throws JsonProcessingException {
+        GuildList guildList = new GuildList("""
+                [
+                  {"name": "HackForums", "prefix": "Hax", "uuid": "ffa0b3ee-d4b3-4b5f-a8b5-ea6c8a3c4f1d"},
+                  {"name": "Imperial", "prefix": "Imp"}
+                ]""");
+        assert guildList.getGuilds().size() == 2;
+        assert "HackForums".equals(guildList.getGuilds().get(0).getName());
+        assert "Hax".equals(guildList.getGuilds().get(0).getPrefix());
+        assert "Imp".equals(guildList.getGuilds().get(1).getPrefix());
+    }
+
+    @Test
+    void testGuildLeaderboard() throws JsonProcessingException {
+        WynnGuildLeaderboard leaderboard = new WynnGuildLeaderboard("""
+                {
+                  "1": {"name": "Paladins United", "prefix": "PUN", "xp": 1234567, "territories": 2, "wars": 300,
+                        "level": 120, "members": 90, "created": "2016-03-06T20:43:46.604000",
+                        "banner": {"base": "BLACK", "tier": 6, "structure": "tier6",
+                                   "layers": [{"colour": "WHITE", "pattern": "BORDER"}]},
+                        "seasonRanks": {}},
+                  "2": {"name": "HackForums", "prefix": "Hax", "xp": 123, "territories": 0, "wars": 1,
+                        "level": 110, "members": 50, "created": "2015-05-01T00:00:00.000000"}
+                }""");
+        assert leaderboard.getData().size() == 2;
+
+        WynnGuildLeaderboard.Guild first = leaderboard.getData().get(0);
+        assert "Paladins United".equals(first.getName());
+        assert first.getLevel() == 120;
+        assert first.getXp() == 1234567L;
+        assert first.getBanner() != null;
+        assert first.getBanner().getTier() == 6;
+        assert "BORDER".equals(first.getBanner().getLayers().get(0).getPattern());
+
+        WynnGuildLeaderboard.Guild second = leaderboard.getData().get(1);
+        assert "Hax".equals(second.getPrefix());
+        assert second.getBanner() == null;
+    }
+}
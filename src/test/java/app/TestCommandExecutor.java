@@ -0,0 +1,71 @@
+package app;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+class TestCommandExecutor {
+    @Test
+    void testFairOrder() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        CommandExecutor executor = new CommandExecutor(pool, 1, 10, 10);
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch blocking = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(4);
+
+        assert executor.submit("g stats", 0L, () -> {
+            try {
+                blocking.await();
+            } catch (InterruptedException ignored) {
+            }
+            order.add("r");
+            done.countDown();
+        });
+        // Queued while the slot is taken
+        assert executor.submit("g stats", 1L, () -> { order.add("a1"); done.countDown(); });
+        assert executor.submit("g stats", 1L, () -> { order.add("a2"); done.countDown(); });
+        assert executor.submit("g stats", 2L, () -> { order.add("b1"); done.countDown(); });
+
+        // Other kinds are not blocked
+        CountDownLatch other = new CountDownLatch(1);
+        assert executor.submit("ping", 1L, other::countDown);
+        assert other.await(5, TimeUnit.SECONDS);
+        assert order.isEmpty();
+
+        blocking.countDown();
+        assert done.await(5, TimeUnit.SECONDS);
+        assert order.equals(List.of("r", "a1", "b1", "a2")) : order;
+        pool.shutdown();
+    }
+
+    @Test
+    void testReject() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CommandExecutor executor = new CommandExecutor(pool, 1, 2, 1);
+        CountDownLatch blocking = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+
+        assert executor.submit("g stats", 0L, () -> {
+            try {
+                blocking.await();
+            } catch (InterruptedException ignored) {
+            }
+            done.countDown();
+        });
+        assert executor.submit("g stats", 1L, done::countDown);
+        // Per user limit
+        assert !executor.submit("g stats", 1L, done::countDown);
+        assert executor.submit("g stats", 2L, done::countDown);
+        // Per kind limit
+        assert !executor.submit("g stats", 3L, done::countDown);
+
+        blocking.countDown();
+        assert done.await(5, TimeUnit.SECONDS);
+        // Slot is released after the queue is drained
+        CountDownLatch after = new CountDownLatch(1);
+        assert executor.submit("g stats", 1L, after::countDown);
+        assert after.await(5, TimeUnit.SECONDS);
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,73 @@
+package app;
+
+import org.junit.jupiter.api.Test;
+import utils.TestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class TestEventOffloader {
+    @Test
+    void testOrderPerKey() throws InterruptedException {
+        EventOffloader offloader = new EventOffloader("test_order", TestUtils.getLogger(), 4, 100);
+        List<Integer> order = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(50);
+
+        for (int i = 0; i < 50; i++) {
+            int n = i;
+            // Tasks of the same key run on the same worker, so the list is not accessed concurrently
+            offloader.submit(12345L, () -> {
+                order.add(n);
+                done.countDown();
+            });
+        }
+        assert done.await(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 50; i++) {
+            assert order.get(i) == i : order;
+        }
+    }
+
+    @Test
+    void testDropWhenFull() throws InterruptedException {
+        EventOffloader offloader = new EventOffloader("test_drop", TestUtils.getLogger(), 1, 2);
+        CountDownLatch blocking = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger ran = new AtomicInteger();
+        CountDownLatch queued = new CountDownLatch(2);
+
+        offloader.submit(-1L, () -> {
+            started.countDown();
+            try {
+                blocking.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        assert started.await(5, TimeUnit.SECONDS);
+        // Two fit in the queue, the rest are dropped
+        for (int i = 0; i < 5; i++) {
+            boolean accepted = offloader.submit(-1L, () -> {
+                ran.incrementAndGet();
+                queued.countDown();
+            });
+            assert accepted == i < 2;
+        }
+        // Queued even if the queue is full
+        CountDownLatch always = new CountDownLatch(1);
+        offloader.submitAlways(-1L, always::countDown);
+        blocking.countDown();
+        assert queued.await(5, TimeUnit.SECONDS);
+        assert always.await(5, TimeUnit.SECONDS);
+
+        // Exceptions do not stop the worker
+        CountDownLatch done = new CountDownLatch(1);
+        offloader.submit(-1L, () -> {
+            throw new RuntimeException("test");
+        });
+        offloader.submit(-1L, done::countDown);
+        assert done.await(5, TimeUnit.SECONDS);
+        assert ran.get() == 2 : ran.get();
+    }
+}
@@ -0,0 +1,97 @@
+package app;
+
+import db.model.serverLog.ServerLogEntry;
+import org.junit.jupiter.api.Test;
+import utils.TestUtils;
+
+import java.util.*;
+
+class TestServerLogRoutes {
+    private static class FakeStore implements ServerLogRoutes.Store {
+        private final Map<Long, Long> rows = new HashMap<>();
+        private int queries;
+        private boolean failing;
+
+        @Override
+        public List<ServerLogEntry> findAll() {
+            this.queries++;
+            if (this.failing) return null;
+            List<ServerLogEntry> ret = new ArrayList<>();
+            this.rows.forEach((g, c) -> ret.add(new ServerLogEntry(g, c)));
+            return ret;
+        }
+
+        @Override
+        public boolean create(ServerLogEntry entry) {
+            if (this.failing || this.rows.containsKey(entry.getGuildId())) return false;
+            this.rows.put(entry.getGuildId(), entry.getChannelId());
+            return true;
+        }
+
+        @Override
+        public boolean update(ServerLogEntry entry) {
+            if (this.failing || !this.rows.containsKey(entry.getGuildId())) return false;
+            this.rows.put(entry.getGuildId(), entry.getChannelId());
+            return true;
+        }
+
+        @Override
+        public boolean delete(long guildId) {
+            if (this.failing) return false;
+            return this.rows.remove(guildId) != null;
+        }
+    }
+
+    @Test
+    void testRoutes() {
+        FakeStore store = new FakeStore();
+        store.rows.put(1L, 10L);
+        ServerLogRoutes routes = new ServerLogRoutes(store, TestUtils.getLogger(), () -> 0L);
+
+        assert routes.getChannelId(1L) == 10L;
+        assert !routes.exists(2L);
+        assert routes.set(2L, 20L);
+        assert routes.set(1L, 11L);
+        assert routes.getAll().equals(Map.of(1L, 11L, 2L, 20L));
+        assert store.rows.equals(Map.of(1L, 11L, 2L, 20L));
+
+        assert routes.remove(1L);
+        assert !routes.exists(1L) && !store.rows.containsKey(1L);
+        // Loaded only once
+        assert store.queries == 1;
+
+        // Failed writes do not change the routes
+        store.failing = true;
+        assert !routes.set(3L, 30L);
+        assert !routes.remove(2L);
+        assert routes.getAll().equals(Map.of(2L, 20L));
+    }
+
+    @Test
+    void testLoadFailure() {
+        FakeStore store = new FakeStore();
+        store.rows.put(1L, 10L);
+        store.failing = true;
+        long[] now = {0L};
+        ServerLogRoutes routes = new ServerLogRoutes(store, TestUtils.getLogger(), () -> now[0]);
+
+        assert routes.getChannelId(1L) == null;
+        assert routes.getAll().isEmpty();
+        assert !routes.set(2L, 20L);
+        // Not retried on every access
+        assert store.queries == 1;
+
+        // Retried after the backoff, which grows on each failure
+        now[0] = 5_000L;
+        assert routes.getChannelId(1L) == null;
+        assert store.queries == 2;
+        now[0] = 14_999L;
+        assert routes.getChannelId(1L) == null;
+        assert store.queries == 2;
+
+        store.failing = false;
+        now[0] = 15_000L;
+        assert routes.getChannelId(1L) == 10L;
+        assert store.queries == 3;
+    }
+}
@@ -0,0 +1,92 @@
+package db;
+
+import org.junit.jupiter.api.Test;
+import utils.TestUtils;
+
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+class TestSimpleConnectionPool {
+    private static final String URL = "jdbc:moto-bot-fake:";
+    private static final AtomicInteger opened = new AtomicInteger();
+
+    static {
+        try {
+            DriverManager.registerDriver(new FakeDriver());
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class FakeDriver implements Driver {
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!this.acceptsURL(url)) return null;
+            opened.incrementAndGet();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "isValid" -> true;
+                        case "isClosed" -> false;
+                        case "equals" -> proxy == args[0];
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        default -> null;
+                    });
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith(URL);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+    }
+
+    @Test
+    void testWaitForRelease() throws Exception {
+        opened.set(0);
+        SimpleConnectionPool pool = new SimpleConnectionPool(URL, TestUtils.getLogger(), 2);
+        Connection c1 = pool.getConnection();
+        Connection c2 = pool.getConnection();
+        assert c1 != null && c2 != null && c1 != c2;
+
+        // Waits for a connection to be released, without holding a lock that blocks the release
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Connection> waiting = executor.submit(pool::getConnection);
+            Thread.sleep(100);
+            assert !waiting.isDone();
+            pool.releaseConnection(c1);
+            assert waiting.get(1, TimeUnit.SECONDS) == c1;
+        } finally {
+            executor.shutdownNow();
+        }
+        assert opened.get() == 2;
+    }
+}
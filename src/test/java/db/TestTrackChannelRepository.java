@@ -82,4 +82,29 @@ class TestTrackChannelRepository {
         assert repo.delete(entity);
         assert repo.count() == 0;
     }
+
+    @Test
+    void testExpiringAndDeleteAll() {
+        clearTable();
+        TrackChannelRepository repo = getRepository();
+
+        long now = (System.currentTimeMillis() / 1000) * 1000;
+        TrackChannel expired1 = new TrackChannel(TrackType.WAR_ALL, 1000L, 5000L, 10_000L, new Date(now - TimeUnit.HOURS.toMillis(2)));
+        TrackChannel expired2 = new TrackChannel(TrackType.WAR_SPECIFIC, 1000L, 5000L, 10_000L, new Date(now - TimeUnit.HOURS.toMillis(1)));
+        expired2.setGuildName("Salted Test");
+        TrackChannel active = new TrackChannel(TrackType.TERRITORY_ALL, 1000L, 5000L, 10_000L, new Date(now + TimeUnit.DAYS.toMillis(1)));
+        assert repo.create(expired1);
+        assert repo.create(expired2);
+        assert repo.create(active);
+
+        List<TrackChannel> res = repo.findAllExpiringBefore(new Date(now));
+        assert res != null && res.size() == 2;
+        assert res.get(0).getType() == TrackType.WAR_ALL;
+        assert res.get(1).getType() == TrackType.WAR_SPECIFIC;
+
+        assert repo.deleteAll(res);
+        assert repo.count() == 1;
+        assert repo.exists(active);
+        assert repo.deleteAll(List.of());
+    }
 }
@@ -0,0 +1,112 @@
+package db.repository.mariadb;
+
+import db.model.territory.Territory;
+import db.model.territory.TerritoryRank;
+import db.model.territoryLog.TerritoryLog;
+import org.jetbrains.annotations.TestOnly;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class TestTerritorySnapshot {
+    private static final long BASE_TIME = 1577890800000L;
+
+    @TestOnly
+    private static Territory territory(String name, String guild, long acquired) {
+        return new Territory(name, guild, new Date(acquired), null, new Territory.Location(0, 0, 100, 100));
+    }
+
+    @TestOnly
+    private static List<Territory> prepareTerritories() {
+        List<Territory> ret = new ArrayList<>();
+        ret.add(territory("Detlas", "Kingdom Foxes", BASE_TIME));
+        ret.add(territory("Ragni", "HackForums", BASE_TIME));
+        ret.add(territory("Almuj", "HackForums", BASE_TIME));
+        return ret;
+    }
+
+    @Test
+    void testNoChange() {
+        TerritorySnapshot snapshot = new TerritorySnapshot(prepareTerritories());
+
+        List<Territory> retrieved = prepareTerritories();
+        // Sub-second precision is not stored in DB
+        retrieved.set(0, territory("Detlas", "Kingdom Foxes", BASE_TIME + 500));
+
+        TerritorySnapshot.Diff diff = snapshot.diff(retrieved);
+        assert diff.isEmpty();
+    }
+
+    @Test
+    void testOwnershipChange() {
+        TerritorySnapshot snapshot = new TerritorySnapshot(prepareTerritories());
+
+        List<Territory> retrieved = prepareTerritories();
+        long acquired = BASE_TIME + TimeUnit.MINUTES.toMillis(30);
+        retrieved.set(0, territory("Detlas", "HackForums", acquired));
+        retrieved.set(2, territory("Almuj", "Kingdom Foxes", acquired));
+
+        TerritorySnapshot.Diff diff = snapshot.diff(retrieved);
+        assert diff.changed().size() == 2;
+        assert diff.logs().size() == 2;
+
+        TerritoryLog first = diff.logs().get(0);
+        assert "Detlas".equals(first.getTerritoryName());
+        assert "Kingdom Foxes".equals(first.getOldGuildName());
+        assert "HackForums".equals(first.getNewGuildName());
+        assert first.getOldGuildTerrAmt() == 0;
+        assert first.getNewGuildTerrAmt() == 3;
+        assert first.getTimeDiff() == TimeUnit.MINUTES.toMillis(30);
+
+        TerritoryLog second = diff.logs().get(1);
+        assert "Almuj".equals(second.getTerritoryName());
+        assert second.getOldGuildTerrAmt() == 2;
+        assert second.getNewGuildTerrAmt() == 1;
+
+        snapshot.apply(diff.changed());
+        assert snapshot.diff(retrieved).isEmpty();
+        assert snapshot.countGuildTerritories("HackForums") == 2;
+        assert snapshot.countGuildTerritories("Kingdom Foxes") == 1;
+    }
+
+    @Test
+    void testRanking() {
+        List<Territory> territories = prepareTerritories();
+        territories.add(territory("Nemract", "Emorians", BASE_TIME));
+        TerritorySnapshot snapshot = new TerritorySnapshot(territories);
+
+        List<TerritoryRank> ranking = snapshot.getRanking();
+        assert ranking.size() == 3;
+        assert "HackForums".equals(ranking.get(0).getGuildName());
+        assert ranking.get(0).getCount() == 2 && ranking.get(0).getRank() == 1;
+        assert ranking.get(1).getRank() == 2;
+        assert ranking.get(2).getRank() == 2;
+        assert snapshot.getRanking("Emorians") == 2;
+        assert snapshot.getRanking("Nobody") == 0;
+
+        // HackForums loses all territories
+        List<Territory> retrieved = new ArrayList<>(territories);
+        retrieved.set(1, territory("Ragni", "Emorians", BASE_TIME + 1000));
+        retrieved.set(2, territory("Almuj", "Emorians", BASE_TIME + 1000));
+        snapshot.apply(snapshot.diff(retrieved).changed());
+
+        ranking = snapshot.getRanking();
+        assert ranking.size() == 2;
+        assert "Emorians".equals(ranking.get(0).getGuildName());
+        assert snapshot.countGuildTerritories("Emorians") == 3;
+        assert snapshot.countGuildTerritories("HackForums") == 0;
+        assert snapshot.getRanking("HackForums") == 0;
+    }
+
+    @Test
+    void testNewTerritory() {
+        TerritorySnapshot snapshot = new TerritorySnapshot(new ArrayList<>());
+
+        TerritorySnapshot.Diff diff = snapshot.diff(prepareTerritories());
+        assert diff.changed().size() == 3;
+        assert diff.logs().isEmpty();
+    }
+}
@@ -0,0 +1,254 @@
+package heartbeat.dispatch;
+
+import db.model.warLog.WarLog;
+import db.model.warPlayer.WarPlayer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+class TestChannelQueue {
+    private static ChannelQueue newQueue(int capacity) {
+        return new ChannelQueue(capacity, new Bucket(100, 1000, 0));
+    }
+
+    @Test
+    void testCoalesce() {
+        ChannelQueue queue = newQueue(10);
+        queue.add(TrackingPriority.OTHER, "a".repeat(10), 0);
+        queue.add(TrackingPriority.OTHER, "b".repeat(10), 0);
+        queue.add(TrackingPriority.OTHER, "c".repeat(10), 0);
+
+        ChannelQueue.Delivery delivery = queue.poll(25, false, 0);
+        assert delivery != null;
+        assert delivery.messageId() == 0;
+        assert delivery.entries() == 2;
+        assert delivery.message().equals("a".repeat(10) + "\n" + "b".repeat(10));
+
+        // Only one message in flight
+        assert !queue.isReady(0);
+        assert queue.readyAt(0) == Long.MAX_VALUE;
+        assert queue.poll(25, false, 0) == null;
+        queue.onSent();
+
+        delivery = queue.poll(25, false, 0);
+        assert delivery != null;
+        assert delivery.entries() == 1;
+        assert queue.size() == 0;
+        queue.onSent();
+        assert queue.poll(25, false, 0) == null;
+    }
+
+    @Test
+    void testOversizedEntry() {
+        ChannelQueue queue = newQueue(10);
+        queue.add(TrackingPriority.OTHER, "a".repeat(30), 0);
+
+        ChannelQueue.Delivery delivery = queue.poll(20, false, 0);
+        assert delivery != null;
+        assert delivery.message().length() == 20;
+        assert delivery.entries() == 0;
+        queue.onSent();
+
+        delivery = queue.poll(20, false, 0);
+        assert delivery != null;
+        assert delivery.message().length() == 10;
+        assert delivery.entries() == 1;
+    }
+
+    @Test
+    void testBounded() {
+        ChannelQueue queue = newQueue(2);
+        assert queue.add(TrackingPriority.TERRITORY, "1", 0) == 0;
+        assert queue.add(TrackingPriority.OTHER, "2", 0) == 0;
+        // Drops the oldest entry of the lowest priority
+        assert queue.add(TrackingPriority.TERRITORY, "3", 0) == 1;
+        assert queue.size() == 2;
+
+        ChannelQueue.Delivery delivery = queue.poll(2000, false, 0);
+        assert delivery != null;
+        assert delivery.message().equals("1\n3");
+    }
+
+    @Test
+    void testPriority() {
+        ChannelQueue queue = newQueue(10);
+        queue.add(TrackingPriority.OTHER, "other", 0);
+        queue.add(TrackingPriority.TERRITORY, "territory", 1);
+        assert queue.nextPriority() == TrackingPriority.TERRITORY;
+        assert queue.nextEnqueuedAt() == 1;
+
+        queue.putWarUpdate(1, 0, "war", 0, id -> {}, 2);
+        assert queue.nextPriority() == TrackingPriority.WAR;
+
+        ChannelQueue.Delivery delivery = queue.poll(2000, false, 2);
+        assert delivery != null;
+        assert delivery.priority() == TrackingPriority.WAR;
+        assert delivery.message().equals("war");
+        queue.onSent();
+
+        delivery = queue.poll(2000, false, 2);
+        assert delivery != null;
+        assert delivery.priority() == TrackingPriority.TERRITORY;
+        assert delivery.message().equals("territory\nother");
+    }
+
+    @Test
+    void testWarUpdates() {
+        ChannelQueue queue = newQueue(10);
+        List<Long> created = new ArrayList<>();
+        assert queue.putWarUpdate(1, 0, "v1", 1, created::add, 0) == ChannelQueue.WarUpdateResult.QUEUED;
+        // Latest content wins
+        assert queue.putWarUpdate(1, 0, "v2", 2, created::add, 1) == ChannelQueue.WarUpdateResult.SUPERSEDED;
+        assert queue.size() == 1;
+
+        ChannelQueue.Delivery delivery = queue.poll(2000, false, 1);
+        assert delivery != null;
+        assert delivery.messageId() == 0;
+        assert delivery.message().equals("v2");
+        assert delivery.enqueuedAt() == 0;
+        assert delivery.warLogId() == 1;
+
+        // Update queued while the message is being created becomes an edit
+        queue.putWarUpdate(1, 0, "v3", 3, created::add, 2);
+        assert queue.poll(2000, false, 2) == null;
+        queue.onWarMessageDelivered(1, 100L, delivery.warState(), false);
+        queue.onSent();
+
+        delivery = queue.poll(2000, false, 2);
+        assert delivery != null;
+        assert delivery.messageId() == 100L;
+        assert delivery.message().equals("v3");
+        queue.onWarMessageDelivered(1, 100L, delivery.warState(), false);
+        queue.onSent();
+
+        // Same state as the delivered message
+        assert queue.putWarUpdate(1, 100L, "v3", 3, created::add, 3) == ChannelQueue.WarUpdateResult.UNCHANGED;
+        assert queue.size() == 0;
+        assert queue.putWarUpdate(1, 100L, "v4", 4, created::add, 3) == ChannelQueue.WarUpdateResult.QUEUED;
+    }
+
+    @Test
+    void testWarLastUpOnly() {
+        ChannelQueue queue = newQueue(10);
+        List<WarPlayer> players = new ArrayList<>(List.of(new WarPlayer(1, "player", null, false)));
+        WarLog warLog = new WarLog(1, "WAR1", "Guild", new Date(0), new Date(60_000), false, false, players);
+        queue.putWarUpdate(1, 100L, "in fight until 1 minute", WarMessageState.of(warLog), id -> {}, 0);
+        ChannelQueue.Delivery delivery = queue.poll(2000, false, 0);
+        assert delivery != null;
+        queue.onWarMessageDelivered(1, 100L, delivery.warState(), false);
+        queue.onSent();
+
+        // Only the last up time has moved
+        warLog.setLastUp(new Date(120_000));
+        assert queue.putWarUpdate(1, 100L, "in fight until 2 minutes", WarMessageState.of(warLog), id -> {}, 1)
+                == ChannelQueue.WarUpdateResult.UNCHANGED;
+
+        players.get(0).setExited(true);
+        assert queue.putWarUpdate(1, 100L, "player left", WarMessageState.of(warLog), id -> {}, 2)
+                == ChannelQueue.WarUpdateResult.QUEUED;
+    }
+
+    @Test
+    void testWarMessageAuthor() {
+        ChannelQueue queue = newQueue(10);
+        queue.putWarUpdate(1, 0, "v1", 1, id -> {}, 0);
+        ChannelQueue.Delivery delivery = queue.poll(2000, false, 0);
+        assert delivery != null;
+        queue.onWarMessageDelivered(1, 100L, delivery.warState(), false);
+        queue.onSent();
+
+        // The channel switched to webhook delivery, the webhook cannot edit the bot's message
+        queue.putWarUpdate(1, 100L, "v2", 2, id -> {}, 1);
+        delivery = queue.poll(2000, true, 1);
+        assert delivery != null;
+        assert delivery.messageId() == 0;
+        queue.onWarMessageDelivered(1, 200L, delivery.warState(), true);
+        queue.onSent();
+
+        // Edits the webhook's message, even if given the old message id
+        queue.putWarUpdate(1, 100L, "v3", 3, id -> {}, 2);
+        delivery = queue.poll(2000, true, 2);
+        assert delivery != null;
+        assert delivery.messageId() == 200L;
+    }
+
+    @Test
+    void testRetryWarAsNewMessage() {
+        ChannelQueue queue = newQueue(10);
+        // Message id known only from the db, author unknown
+        queue.putWarUpdate(1, 100L, "v1", 1, id -> {}, 0);
+        ChannelQueue.Delivery delivery = queue.poll(2000, true, 0);
+        assert delivery != null;
+        assert delivery.messageId() == 100L;
+
+        assert queue.retryWarAsNewMessage(delivery, true) == 1;
+        queue.onSent();
+        // Not skipped as unchanged, since no message shows the state
+        assert queue.putWarUpdate(1, 100L, "v1", 1, id -> {}, 1) == ChannelQueue.WarUpdateResult.SUPERSEDED;
+        delivery = queue.poll(2000, true, 1);
+        assert delivery != null;
+        assert delivery.messageId() == 0;
+        assert delivery.message().equals("v1");
+        assert delivery.enqueuedAt() == 0;
+    }
+
+    @Test
+    void testRequeue() {
+        ChannelQueue queue = newQueue(10);
+        queue.add(TrackingPriority.OTHER, "a", 0);
+        queue.add(TrackingPriority.OTHER, "b", 0);
+        ChannelQueue.Delivery delivery = queue.poll(2000, true, 0);
+        assert delivery != null;
+        queue.add(TrackingPriority.OTHER, "c", 1);
+
+        // Merged entries are counted as they were
+        assert delivery.entries() == 2;
+        assert queue.requeue(delivery) == 2;
+        queue.onSent();
+        assert queue.size() == 3;
+        delivery = queue.poll(2000, true, 1);
+        assert delivery != null;
+        assert delivery.message().equals("a\nb\nc");
+        assert delivery.entries() == 3;
+        assert delivery.enqueuedAt() == 0;
+        assert queue.size() == 0;
+        queue.onSent();
+
+        // A newer update of the war is pending
+        queue.putWarUpdate(1, 0, "v1", 1, id -> {}, 2);
+        delivery = queue.poll(2000, true, 2);
+        assert delivery != null;
+        queue.putWarUpdate(1, 0, "v2", 2, id -> {}, 3);
+        assert queue.requeue(delivery) == 0;
+        queue.onSent();
+        delivery = queue.poll(2000, true, 3);
+        assert delivery != null;
+        assert delivery.message().equals("v2");
+    }
+
+    @Test
+    void testRateLimit() {
+        ChannelQueue queue = new ChannelQueue(10, new Bucket(1, 1000, 0));
+        queue.add(TrackingPriority.OTHER, "1", 0);
+        assert queue.poll(2000, false, 0) != null;
+        queue.onSent();
+
+        queue.add(TrackingPriority.OTHER, "2", 0);
+        assert !queue.isReady(500);
+        assert queue.readyAt(500) == 1000;
+        assert queue.poll(2000, false, 500) == null;
+        assert queue.poll(2000, false, 1000) != null;
+    }
+
+    @Test
+    void testBucketPause() {
+        Bucket bucket = new Bucket(5, 1000, 0);
+        bucket.pauseUntil(3000);
+        assert !bucket.isAvailable(2999);
+        assert bucket.nextAvailableAt(2999) == 3000;
+        assert bucket.tryTake(3000);
+        assert !bucket.isAvailable(3000);
+    }
+}
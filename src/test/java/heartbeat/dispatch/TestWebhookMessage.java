@@ -0,0 +1,37 @@
+package heartbeat.dispatch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+class TestWebhookMessage {
+    @Test
+    void testSplitDescriptions() {
+        String line = "a".repeat(99);
+        String text = String.join("\n", Collections.nCopies(60, line));
+        assert text.length() == 5999;
+
+        List<String> descriptions = WebhookMessage.splitDescriptions(text);
+        assert descriptions.size() == 2;
+        // Split at a line break
+        assert descriptions.get(0).length() == 40 * 100 - 1;
+        assert descriptions.get(1).length() == 20 * 100 - 1;
+        assert !descriptions.get(1).startsWith("\n");
+    }
+
+    @Test
+    void testSplitLongLine() {
+        List<String> descriptions = WebhookMessage.splitDescriptions("a".repeat(5000));
+        assert descriptions.size() == 2;
+        assert descriptions.get(0).length() == WebhookMessage.MAX_DESCRIPTION_LENGTH;
+        assert descriptions.get(1).length() == 5000 - WebhookMessage.MAX_DESCRIPTION_LENGTH;
+    }
+
+    @Test
+    void testParseMessageId() {
+        assert WebhookMessage.parseMessageId("{\"id\": \"123456789012345678\", \"content\": \"\"}") == 123456789012345678L;
+        assert WebhookMessage.parseMessageId("{}") == 0L;
+        assert WebhookMessage.parseMessageId(null) == 0L;
+    }
+}
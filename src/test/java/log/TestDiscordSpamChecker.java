@@ -0,0 +1,51 @@
+package log;
+
+import org.junit.jupiter.api.Test;
+
+class TestDiscordSpamChecker {
+    @Test
+    void testCoolDown() {
+        DiscordSpamChecker checker = new DiscordSpamChecker(0);
+
+        assert checker.check(1L, "ping", 1000, 0) == 0;
+        assert checker.check(1L, "ping", 1000, 400) == 600;
+        // Other users are not affected
+        assert checker.check(2L, "ping", 1000, 400) == 0;
+        assert checker.check(1L, "ping", 1000, 1000) == 0;
+        // Rejected commands do not use up the cool-down
+        assert checker.check(1L, "g stats", 3000, 1500) == 500;
+        assert checker.check(1L, "g stats", 3000, 2000) == 0;
+        assert checker.check(1L, "ping", 1000, 4999) == 1;
+    }
+
+    @Test
+    void testBurst() {
+        DiscordSpamChecker checker = new DiscordSpamChecker(2000);
+
+        assert checker.check(1L, "ping", 1000, 0) == 0;
+        assert checker.check(1L, "ping", 1000, 0) == 0;
+        assert checker.check(1L, "ping", 1000, 0) == 0;
+        assert checker.check(1L, "ping", 1000, 0) == 1000;
+        // Refills at the rate of the cool-downs
+        assert checker.check(1L, "ping", 1000, 1000) == 0;
+        assert checker.check(1L, "ping", 1000, 1000) == 1000;
+        // Long cool-down commands are allowed as long as the burst tolerance is not exceeded
+        assert checker.check(2L, "track", 10000, 0) == 0;
+        assert checker.check(2L, "ping", 1000, 0) == 8000;
+    }
+
+    @Test
+    void testSweep() {
+        DiscordSpamChecker checker = new DiscordSpamChecker(0);
+        for (long i = 0; i < 100; i++) {
+            assert checker.check(i, "ping", 1000, 0) == 0;
+        }
+        assert checker.size() == 100;
+
+        // Every stripe is swept on its first check after the interval
+        for (long i = 100; i < 116; i++) {
+            assert checker.check(i, "ping", 1000, 60_000) == 0;
+        }
+        assert checker.size() == 16 : checker.size();
+    }
+}
@@ -0,0 +1,56 @@
+package log;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+class TestLogBatcher {
+    @Test
+    void testPack() {
+        ArrayDeque<String> lines = new ArrayDeque<>(List.of("a".repeat(1000), "b".repeat(999), "c", "d".repeat(2000), "e"));
+        List<String> messages = LogBatcher.pack(lines, 2);
+        assert messages.equals(List.of("a".repeat(1000) + "\n" + "b".repeat(999), "c")) : messages;
+        assert lines.size() == 2;
+
+        messages = LogBatcher.pack(lines, 5);
+        assert messages.equals(List.of("d".repeat(2000), "e"));
+        assert lines.isEmpty();
+        assert LogBatcher.pack(lines, 5).isEmpty();
+    }
+
+    @Test
+    void testFlushAndDrop() {
+        List<String> sent = new ArrayList<>();
+        LogBatcher batcher = new LogBatcher((ch, m) -> sent.add(ch + ":" + m), 3, 10);
+
+        batcher.add(0, "x".repeat(4500));
+        // Buffer is full with the 3 parts of the long message
+        batcher.add(0, "dropped");
+        batcher.add(4, "one");
+        batcher.add(4, "two");
+        batcher.flush();
+        assert sent.stream().filter(m -> m.startsWith("0:")).toList().equals(List.of(
+                "0:(1 log lines dropped)", "0:" + "x".repeat(2000), "0:" + "x".repeat(2000), "0:" + "x".repeat(500)));
+        assert sent.stream().filter(m -> m.startsWith("4:")).toList().equals(List.of("4:one\ntwo"));
+
+        sent.clear();
+        batcher.add(0, "next");
+        batcher.flush();
+        assert sent.equals(List.of("0:next")) : sent;
+    }
+
+    @Test
+    void testStop() {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        LogBatcher batcher = new LogBatcher((ch, m) -> sent.add(ch + ":" + m), 10, 10);
+        batcher.start(TimeUnit.HOURS.toMillis(1));
+
+        batcher.add(0, "shutting down");
+        batcher.stop();
+        assert sent.equals(List.of("0:shutting down")) : sent;
+    }
+}
@@ -0,0 +1,88 @@
+package music;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+class TestIndexedQueue {
+    private static IndexedQueue<String> newQueue() {
+        // Keys are the strings themselves, weights are their lengths
+        return new IndexedQueue<>(s -> s, String::length);
+    }
+
+    @Test
+    void testIndexAndWeight() {
+        IndexedQueue<String> queue = newQueue();
+        for (int i = 0; i < 40; i++) {
+            queue.addLast("t" + i);
+        }
+        queue.addFirst("first");
+        assert queue.size() == 41;
+        assert queue.containsKey("t39") && queue.containsKey("first");
+        assert queue.getTotalWeight() == 5 + 10 * 2 + 30 * 3;
+
+        assert "first".equals(queue.pollFirst());
+        assert !queue.containsKey("first");
+        assert "t5".equals(queue.remove(5));
+        assert "t35".equals(queue.remove(34));
+        assert !queue.containsKey("t5") && !queue.containsKey("t35");
+        assert queue.get(5).equals("t6") && queue.get(34).equals("t36");
+        assert queue.getTotalWeight() == 9 * 2 + 29 * 3;
+
+        // Duplicate keys are counted
+        queue.addLast("t0");
+        queue.remove(0);
+        assert queue.containsKey("t0");
+
+        queue.truncate(1);
+        assert queue.toList().equals(List.of("t1"));
+        assert queue.getTotalWeight() == 2;
+        queue.clear();
+        assert queue.isEmpty() && queue.peekFirst() == null && queue.pollFirst() == null;
+        assert queue.getTotalWeight() == 0 && !queue.containsKey("t1");
+    }
+
+    @Test
+    void testWrapAround() {
+        IndexedQueue<String> queue = newQueue();
+        Deque<String> expected = new ArrayDeque<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            String s = String.valueOf(i);
+            switch (random.nextInt(4)) {
+                case 0 -> { queue.addFirst(s); expected.addFirst(s); }
+                case 1 -> { queue.addLast(s); expected.addLast(s); }
+                case 2 -> {
+                    assert Objects.equals(queue.pollFirst(), expected.pollFirst());
+                }
+                case 3 -> {
+                    if (!expected.isEmpty()) {
+                        List<String> list = new ArrayList<>(expected);
+                        int index = random.nextInt(list.size());
+                        assert queue.remove(index).equals(list.remove(index));
+                        expected = new ArrayDeque<>(list);
+                    }
+                }
+            }
+            assert queue.toList().equals(new ArrayList<>(expected));
+        }
+        assert queue.getTotalWeight() == expected.stream().mapToLong(String::length).sum();
+    }
+
+    @Test
+    void testShuffle() {
+        IndexedQueue<String> queue = newQueue();
+        queue.addLast("x");
+        queue.pollFirst();
+        for (int i = 0; i < 20; i++) {
+            queue.addLast("t" + i);
+        }
+        List<String> before = queue.toList();
+        queue.shuffle(1, new Random(42));
+        List<String> after = queue.toList();
+
+        assert after.get(0).equals("t0");
+        assert !after.equals(before);
+        assert new HashSet<>(after).equals(new HashSet<>(before));
+    }
+}
@@ -0,0 +1,186 @@
+package music;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackEndReason;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import db.model.musicSetting.MusicSetting;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.User;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+class TestTrackScheduler {
+    private static final long DURATION = 60_000L;
+
+    /**
+     * Player which only keeps track of its playing track and paused state.
+     */
+    private static class FakePlayer {
+        @Nullable
+        private AudioTrack playing;
+        private boolean paused;
+        private final List<AudioTrack> played = new ArrayList<>();
+        private final AudioPlayer player = (AudioPlayer) Proxy.newProxyInstance(
+                AudioPlayer.class.getClassLoader(), new Class<?>[]{AudioPlayer.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getPlayingTrack":
+                            return this.playing;
+                        case "playTrack":
+                            this.playing = (AudioTrack) args[0];
+                            this.played.add(this.playing);
+                            return null;
+                        case "stopTrack":
+                            this.playing = null;
+                            return null;
+                        case "isPaused":
+                            return this.paused;
+                        case "setPaused":
+                            this.paused = (boolean) args[0];
+                            return null;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    /**
+     * Track at a fixed position. Clones start from the beginning.
+     */
+    private static AudioTrack track(String id, long position) {
+        AudioTrackInfo info = new AudioTrackInfo(id, "author", DURATION, id, false, "https://example.com/" + id);
+        return (AudioTrack) Proxy.newProxyInstance(
+                AudioTrack.class.getClassLoader(), new Class<?>[]{AudioTrack.class}, (proxy, method, args) ->
+                        switch (method.getName()) {
+                            case "getInfo" -> info;
+                            case "getDuration" -> DURATION;
+                            case "getPosition" -> position;
+                            case "makeClone" -> track(id, 0L);
+                            case "equals" -> proxy == args[0];
+                            case "hashCode" -> System.identityHashCode(proxy);
+                            case "toString" -> id;
+                            default -> null;
+                        });
+    }
+
+    private static TrackScheduler newScheduler(FakePlayer player, FakePlayer standby) {
+        MusicSetting setting = new MusicSetting(1L, 100, RepeatState.OFF, false, null);
+        return new TrackScheduler(new TrackScheduler.SchedulerGateway() {
+            @Override
+            public void sendMessage(Message message) {
+            }
+
+            @Override
+            public @NotNull MusicSetting getSetting() {
+                return setting;
+            }
+
+            @Override
+            public String getBotAvatarURL() {
+                return "";
+            }
+
+            @Nullable
+            @Override
+            public User getUser(long userId) {
+                return null;
+            }
+
+            @Override
+            public void setLastInteract() {
+            }
+        }, player.player, standby.player);
+    }
+
+    /**
+     * Provides frames until the scheduler checks the remaining time of the current track.
+     */
+    private static void provideFrames(TrackScheduler scheduler) {
+        for (int i = 0; i < 50; i++) {
+            scheduler.onFrameProvided();
+        }
+    }
+
+    @Test
+    void testStandbySwitch() throws Exception {
+        FakePlayer a = new FakePlayer();
+        FakePlayer b = new FakePlayer();
+        TrackScheduler scheduler = newScheduler(a, b);
+        AudioTrack first = track("first", DURATION - 1000L);
+        AudioTrack second = track("second", 0L);
+        scheduler.enqueue(new QueueEntry(first, 1L));
+        scheduler.enqueue(new QueueEntry(second, 2L));
+        assert a.playing == first;
+
+        // The next track is buffered in the standby player before the current track ends
+        provideFrames(scheduler);
+        AudioTrack buffered = b.playing;
+        assert buffered != null && buffered != second;
+        assert buffered.getInfo().uri.equals(second.getInfo().uri);
+        assert b.paused;
+
+        scheduler.onTrackEnd(a.player, first, AudioTrackEndReason.FINISHED);
+        assert scheduler.getPlayer() == b.player;
+        assert !b.paused;
+        assert scheduler.getCurrentQueue().size() == 1;
+        assert scheduler.getCurrentQueue().get(0).track() == buffered;
+        assert scheduler.getCurrentQueue().get(0).userId() == 2L;
+        // The old player does not start the track again
+        assert a.played.equals(List.of(first));
+
+        // Events from the player on standby are ignored
+        scheduler.onTrackEnd(a.player, first, AudioTrackEndReason.FINISHED);
+        assert scheduler.getCurrentQueue().size() == 1;
+    }
+
+    @Test
+    void testFallbackWhenBufferedTrackStopped() throws Exception {
+        FakePlayer a = new FakePlayer();
+        FakePlayer b = new FakePlayer();
+        TrackScheduler scheduler = newScheduler(a, b);
+        AudioTrack first = track("first", DURATION - 1000L);
+        AudioTrack second = track("second", 0L);
+        scheduler.enqueue(new QueueEntry(first, 1L));
+        scheduler.enqueue(new QueueEntry(second, 2L));
+        provideFrames(scheduler);
+        assert b.playing != null;
+
+        // e.g. the buffered track failed, or was cleaned up by the player
+        b.playing = null;
+        scheduler.onTrackEnd(a.player, first, AudioTrackEndReason.FINISHED);
+        assert scheduler.getPlayer() == a.player;
+        assert a.playing == second;
+        assert scheduler.getCurrentQueue().get(0).track() == second;
+    }
+
+    @Test
+    void testFallbackWhenQueueChanged() throws Exception {
+        FakePlayer a = new FakePlayer();
+        FakePlayer b = new FakePlayer();
+        TrackScheduler scheduler = newScheduler(a, b);
+        AudioTrack first = track("first", DURATION - 1000L);
+        AudioTrack second = track("second", 0L);
+        AudioTrack third = track("third", 0L);
+        scheduler.enqueue(new QueueEntry(first, 1L));
+        scheduler.enqueue(new QueueEntry(second, 2L));
+        provideFrames(scheduler);
+        assert b.playing != null;
+
+        scheduler.purgeWaitingQueue();
+        scheduler.enqueue(new QueueEntry(third, 3L));
+        scheduler.onTrackEnd(a.player, first, AudioTrackEndReason.FINISHED);
+        assert scheduler.getPlayer() == a.player;
+        assert a.playing == third;
+        // The buffered track is stopped
+        assert b.playing == null;
+    }
+}
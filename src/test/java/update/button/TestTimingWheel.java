@@ -0,0 +1,41 @@
+package update.button;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class TestTimingWheel {
+    @Test
+    void testAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 0);
+        wheel.schedule("a", 25);
+        wheel.schedule("b", 30);
+        // More than a round ahead
+        wheel.schedule("c", 125);
+
+        assert wheel.advance(20).isEmpty();
+        assert wheel.advance(29).isEmpty();
+        assert wheel.advance(30).equals(List.of("a", "b"));
+        // Passes the slot of "c" once before its deadline
+        assert wheel.advance(110).isEmpty();
+        assert wheel.advance(130).equals(List.of("c"));
+    }
+
+    @Test
+    void testLongPauseAndPastDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4, 0);
+        wheel.schedule("a", 15);
+        wheel.schedule("b", 35);
+        wheel.schedule("c", 1000);
+
+        // More than a round elapsed at once
+        List<String> due = wheel.advance(500);
+        assert due.size() == 2 && due.containsAll(List.of("a", "b")) : due;
+
+        // Deadlines in the past are returned on the next tick
+        wheel.schedule("d", 0);
+        assert wheel.advance(509).isEmpty();
+        assert wheel.advance(510).equals(List.of("d"));
+        assert wheel.advance(1000).equals(List.of("c"));
+    }
+}
@@ -0,0 +1,111 @@
+package update.multipage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class TestPageLoader {
+    private static final Executor DIRECT = Runnable::run;
+
+    @Test
+    void testPrefetch() throws Exception {
+        List<Integer> renders = new CopyOnWriteArrayList<>();
+        AtomicInteger maxPageCalls = new AtomicInteger();
+        PageLoader<String> loader = new PageLoader<>(
+                p -> {
+                    renders.add(p);
+                    return "page " + p;
+                },
+                () -> {
+                    maxPageCalls.incrementAndGet();
+                    return 4;
+                },
+                DIRECT, 1000, 1000
+        );
+
+        loader.prefetchAround(0, 0);
+        assert renders.equals(List.of(1, 4)) : renders;
+
+        // Prefetched page is reused, and the next pages are prefetched
+        assert "page 1".equals(loader.load(1, 10).get());
+        assert renders.equals(List.of(1, 4, 2, 0)) : renders;
+        assert "page 2".equals(loader.load(2, 20).get());
+        assert renders.equals(List.of(1, 4, 2, 0, 3)) : renders;
+        assert maxPageCalls.get() == 1;
+
+        // Rendered pages and max page expire
+        assert "page 2".equals(loader.load(2, 1020).get());
+        assert renders.equals(List.of(1, 4, 2, 0, 3, 2, 3, 1)) : renders;
+        assert maxPageCalls.get() == 2;
+    }
+
+    @Test
+    void testInvalidateAndFailure() throws Exception {
+        AtomicInteger version = new AtomicInteger();
+        AtomicInteger maxPage = new AtomicInteger(1);
+        PageLoader<String> loader = new PageLoader<>(
+                p -> {
+                    if (p < 0) throw new IllegalArgumentException();
+                    return "page " + p + " v" + version.get();
+                },
+                maxPage::get,
+                DIRECT, 1000, 1000
+        );
+
+        assert loader.getMaxPage(0).get() == 1;
+        assert "page 0 v0".equals(loader.load(0, 0).get());
+
+        version.incrementAndGet();
+        maxPage.set(3);
+        assert "page 0 v0".equals(loader.load(0, 10).get());
+        assert loader.getMaxPage(10).get() == 1;
+
+        loader.invalidate();
+        assert loader.getMaxPage(20).get() == 3;
+        assert "page 0 v1".equals(loader.load(0, 20).get());
+
+        // A failed render does not prevent later pages from rendering, and is not reused
+        assert loader.load(-1, 30).isCompletedExceptionally();
+        assert "page 1 v1".equals(loader.load(1, 30).get());
+        assert loader.load(-1, 40).isCompletedExceptionally();
+    }
+
+    @Test
+    void testDoesNotBlockOnMaxPage() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch counting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PageLoader<String> loader = new PageLoader<>(
+                p -> "page " + p,
+                () -> {
+                    counting.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return 2;
+                },
+                executor, 1000, 1000
+        );
+        try {
+            loader.prefetchAround(0, 0);
+            assert counting.await(1, TimeUnit.SECONDS);
+
+            // The max page is being retrieved, but the loader is not locked
+            CompletableFuture<Integer> maxPage = loader.getMaxPage(10);
+            assert !maxPage.isDone();
+            loader.invalidate();
+            CompletableFuture<String> page = loader.load(1, 10);
+
+            release.countDown();
+            assert maxPage.get(1, TimeUnit.SECONDS) == 2;
+            assert "page 1".equals(page.get(1, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -138,6 +138,22 @@ class RangeParserTest {
         }
     }
 
+    @Test
+    void testRelativeRangeTruncated() {
+        long before = System.currentTimeMillis();
+        Range days = parseRange(createMap("d", "3"), utc, null);
+        Range since = parseRange(createMap("S", "3 days ago"), utc, null);
+        assertNotNull(days);
+        assertNotNull(since);
+
+        assertEquals(0, days.end().getTime() % TimeUnit.MINUTES.toMillis(1));
+        assertTrue(before - days.end().getTime() < TimeUnit.MINUTES.toMillis(1));
+        // Equal within the same minute, as used for cache keys
+        if (days.end().equals(since.end())) {
+            assertEquals(days, since);
+        }
+    }
+
     @Test
     void testMaxRange() {
         long MAX_RANGE = TimeUnit.DAYS.toMillis(31);
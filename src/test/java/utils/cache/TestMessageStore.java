@@ -0,0 +1,98 @@
+package utils.cache;
+
+import org.junit.jupiter.api.Test;
+
+class TestMessageStore {
+    @Test
+    void testRoundTrip() {
+        MessageStore store = new MessageStore(1 << 30, 1 << 20, 1000);
+        String shortContent = "hello ワールド";
+        String longContent = "repeated content ".repeat(100) + "日本語";
+
+        store.put(1L, 10L, shortContent, 100L, 0);
+        store.put(1L, 11L, longContent, 101L, 0);
+        assert shortContent.equals(store.get(1L, 10L, 0).content());
+        assert store.get(1L, 10L, 0).userId() == 100L;
+        assert longContent.equals(store.get(1L, 11L, 0).content());
+        // Long content is compressed
+        assert store.getBytes(1L) < longContent.length();
+
+        // Other guilds do not see the messages
+        assert store.get(2L, 10L, 0) == null;
+
+        store.remove(1L, 10L);
+        assert store.get(1L, 10L, 0) == null;
+        // Expired
+        assert store.get(1L, 11L, 1000) == null;
+    }
+
+    @Test
+    void testQuotaPerGuild() {
+        MessageStore store = new MessageStore(1 << 20, 1000, 10_000);
+        for (long i = 0; i < 100; i++) {
+            store.put(1L, i, "message " + i, 0L, 0);
+        }
+        store.put(2L, 0L, "other guild", 0L, 0);
+
+        assert store.getBytes(1L) <= 1000;
+        // Oldest messages are evicted first
+        assert store.get(1L, 0L, 0) == null;
+        assert "message 99".equals(store.get(1L, 99L, 0).content());
+        // Busy guild does not evict other guilds' messages
+        assert "other guild".equals(store.get(2L, 0L, 0).content());
+
+        // Edited message is moved to the end
+        long oldest = 99;
+        while (oldest > 0 && store.get(1L, oldest - 1, 0) != null) {
+            oldest--;
+        }
+        store.put(1L, oldest, "edited", 0L, 0);
+        store.put(1L, 100L, "message 100", 0L, 0);
+        assert "edited".equals(store.get(1L, oldest, 0).content());
+        assert store.get(1L, oldest + 1, 0) == null;
+    }
+
+    @Test
+    void testGlobalBudget() {
+        MessageStore store = new MessageStore(1000, 800, 10_000);
+        store.put(1L, 0L, "first", 0L, 0);
+        for (long i = 1; i < 100; i++) {
+            store.put(2L + i % 3, i, "message " + i, 0L, 0);
+            assert store.getTotalBytes() <= 1000;
+        }
+        // Oldest messages across guilds are evicted first
+        assert store.get(1L, 0L, 0) == null;
+        assert store.getBytes(1L) == 0;
+        assert "message 99".equals(store.get(2L, 99L, 0).content());
+        assert "message 98".equals(store.get(4L, 98L, 0).content());
+        assert store.getTotalBytes() == store.getBytes(2L) + store.getBytes(3L) + store.getBytes(4L);
+
+        // Stored again, so evicted after the other messages
+        long oldest = 99;
+        while (oldest > 1 && store.get(2L + (oldest - 1) % 3, oldest - 1, 0) != null) {
+            oldest--;
+        }
+        store.put(2L + oldest % 3, oldest, "edited", 0L, 0);
+        store.put(1L, 100L, "message 100", 0L, 0);
+        assert "edited".equals(store.get(2L + oldest % 3, oldest, 0).content());
+        assert store.get(2L + (oldest + 1) % 3, oldest + 1, 0) == null;
+        assert store.getTotalBytes() <= 1000;
+
+        store.remove(1L, 100L);
+        assert store.getTotalBytes() == store.getBytes(2L) + store.getBytes(3L) + store.getBytes(4L);
+    }
+
+    @Test
+    void testSweep() {
+        MessageStore store = new MessageStore(1 << 30, 1 << 20, 1000);
+        store.put(1L, 1L, "a", 0L, 0);
+        store.put(2L, 2L, "b", 0L, 500);
+        store.sweep(1200);
+        assert store.getBytes(1L) == 0;
+        assert store.get(2L, 2L, 1200) != null;
+
+        // Store of a swept guild is created again
+        store.put(1L, 3L, "c", 0L, 1300);
+        assert "c".equals(store.get(1L, 3L, 1300).content());
+    }
+}
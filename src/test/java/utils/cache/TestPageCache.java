@@ -0,0 +1,47 @@
+package utils.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+class TestPageCache {
+    @Test
+    void testInvalidation() {
+        DataVersions versions = new DataVersions();
+        PageCache<Integer, String> cache = new PageCache<>("test_invalidation", versions, 10,
+                DataVersions.Source.WAR, DataVersions.Source.TERRITORY);
+        AtomicInteger renders = new AtomicInteger();
+
+        assert "page 0 v1".equals(cache.get(0, () -> "page 0 v" + renders.incrementAndGet()));
+        assert "page 0 v1".equals(cache.get(0, () -> "page 0 v" + renders.incrementAndGet()));
+        assert renders.get() == 1;
+
+        // Unrelated data
+        versions.changed(DataVersions.Source.GUILD_LEADERBOARD);
+        assert "page 0 v1".equals(cache.get(0, () -> "page 0 v" + renders.incrementAndGet()));
+
+        versions.changed(DataVersions.Source.TERRITORY);
+        assert "page 0 v2".equals(cache.get(0, () -> "page 0 v" + renders.incrementAndGet()));
+        versions.changed(DataVersions.Source.WAR);
+        assert "page 0 v3".equals(cache.get(0, () -> "page 0 v" + renders.incrementAndGet()));
+        assert "page 0 v3".equals(cache.get(0, () -> "page 0 v" + renders.incrementAndGet()));
+    }
+
+    @Test
+    void testFailureAndEviction() {
+        PageCache<Integer, String> cache = new PageCache<>("test_eviction", new DataVersions(), 2,
+                DataVersions.Source.WAR);
+
+        // Failed renders are not cached
+        assert cache.get(0, () -> null) == null;
+        assert "a".equals(cache.get(0, () -> "a"));
+
+        assert "b".equals(cache.get(1, () -> "b"));
+        // Accessing 0 makes 1 the least recently used
+        assert "a".equals(cache.get(0, () -> "x"));
+        assert "c".equals(cache.get(2, () -> "c"));
+
+        assert "a".equals(cache.get(0, () -> "x"));
+        assert "x".equals(cache.get(1, () -> "x"));
+    }
+}
@@ -0,0 +1,129 @@
+package utils.rateLimit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+class TestTokenBucketRateLimiter {
+    @Test
+    void testBurstAndRejection() {
+        RateLimiter limiter = new TokenBucketRateLimiter("Test", 1000, 3, 10);
+
+        try {
+            for (int i = 0; i < 3; i++) {
+                limiter.checkRequest();
+            }
+        } catch (RateLimitException e) {
+            assert false;
+        }
+
+        // next token in 1 s, which is within max interactive wait (3 s): waits
+        // the one after (2 s), and after (3 s) also; but 4 requests ahead exceed the max wait
+        for (int i = 0; i < 3; i++) {
+            assert !limiter.acquire(RequestPriority.INTERACTIVE).isDone();
+        }
+        Assertions.assertThrows(RateLimitException.class, limiter::checkRequest);
+    }
+
+    @Test
+    void testRefill() throws InterruptedException {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter("Test", 10, 2, 10);
+
+        assert limiter.tryAcquire(RequestPriority.HEARTBEAT);
+        assert limiter.tryAcquire(RequestPriority.HEARTBEAT);
+        assert !limiter.tryAcquire(RequestPriority.HEARTBEAT);
+
+        Thread.sleep(30);
+
+        assert limiter.tryAcquire(RequestPriority.HEARTBEAT);
+        assert limiter.tryAcquire(RequestPriority.HEARTBEAT);
+        assert !limiter.tryAcquire(RequestPriority.HEARTBEAT);
+    }
+
+    @Test
+    void testPriorityOrder() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter("Test", 200, 1, 10);
+        assert limiter.tryAcquire(RequestPriority.HEARTBEAT);
+
+        List<RequestPriority> order = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (RequestPriority priority : new RequestPriority[]{
+                RequestPriority.PREFETCH, RequestPriority.HEARTBEAT, RequestPriority.INTERACTIVE,
+                RequestPriority.HEARTBEAT, RequestPriority.INTERACTIVE
+        }) {
+            futures.add(limiter.acquire(priority).thenRun(() -> {
+                synchronized (order) {
+                    order.add(priority);
+                }
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        Assertions.assertEquals(List.of(
+                RequestPriority.INTERACTIVE, RequestPriority.INTERACTIVE,
+                RequestPriority.HEARTBEAT, RequestPriority.HEARTBEAT,
+                RequestPriority.PREFETCH
+        ), order);
+    }
+
+    @Test
+    void testQueueBound() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter("Test", 1000, 1, 2);
+        assert limiter.tryAcquire(RequestPriority.PREFETCH);
+
+        CompletableFuture<Void> first = limiter.acquire(RequestPriority.PREFETCH);
+        CompletableFuture<Void> second = limiter.acquire(RequestPriority.PREFETCH);
+        CompletableFuture<Void> third = limiter.acquire(RequestPriority.PREFETCH);
+        assert !first.isDone();
+        assert !second.isDone();
+        assert third.isCompletedExceptionally();
+
+        // other priorities have their own queues
+        assert !limiter.acquire(RequestPriority.HEARTBEAT).isDone();
+    }
+
+    @Test
+    void testTooManyRequests() throws InterruptedException {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter("Test", 10, 3, 10);
+        assert limiter.tryAcquire(RequestPriority.HEARTBEAT);
+
+        limiter.onResponse(new RateLimitHeaders(429, -1, -1, -1, 100));
+        assert !limiter.tryAcquire(RequestPriority.HEARTBEAT);
+        Assertions.assertThrows(RateLimitException.class, limiter::checkRequest);
+
+        CompletableFuture<Void> waiting = limiter.acquire(RequestPriority.HEARTBEAT);
+        Thread.sleep(50);
+        assert !waiting.isDone();
+        waiting.join();
+    }
+
+    @Test
+    void testRemainingExhausted() throws InterruptedException {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter("Test", 10, 3, 10);
+
+        limiter.onResponse(new RateLimitHeaders(200, 180, 0, 100, -1));
+        assert !limiter.tryAcquire(RequestPriority.INTERACTIVE);
+
+        Thread.sleep(150);
+        assert limiter.tryAcquire(RequestPriority.INTERACTIVE);
+    }
+
+    @Test
+    void testRecoverWithoutHeaders() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter("Test", 10, 3, 10);
+        long configured = limiter.getRefillIntervalNanos();
+
+        limiter.onResponse(new RateLimitHeaders(429, -1, -1, -1, 0));
+        limiter.onResponse(new RateLimitHeaders(429, -1, -1, -1, 0));
+        assert limiter.getRefillIntervalNanos() == 4 * configured;
+
+        // successful responses without rate limit headers restore the configured rate
+        for (int i = 0; i < 100; i++) {
+            limiter.onResponse(new RateLimitHeaders(200, -1, -1, -1, -1));
+        }
+        Assertions.assertEquals(configured, limiter.getRefillIntervalNanos());
+    }
+}